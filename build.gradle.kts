@@ -28,6 +28,26 @@ repositories {
 
 // Extra properties for dependency versions
 val testcontainersVersion = "1.19.3"
+val jmhVersion = "1.37"
+
+// Source set de microbenchmarks JMH (src/jmh/java), con acceso a las clases de main
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+// Source set del arnés de carga extremo a extremo (src/loadTest/java): arranca la aplicación completa
+// contra sustitutos locales (H2, Mongo embebido y Redis embebido) y reproduce mezclas de tráfico
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
 
 dependencies {
     // Spring Boot Starters
@@ -42,6 +62,10 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-websocket")
     implementation("org.springframework.boot:spring-boot-starter-graphql")
     implementation("org.springframework.boot:spring-boot-starter-mail")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    // Caché en memoria (nivel cercano delante de Redis)
+    implementation("com.github.ben-manes.caffeine:caffeine")
 
     // Thymeleaf extras
     //implementation("org.thymeleaf.extras:thymeleaf-extras-springsecurity6")
@@ -89,9 +113,24 @@ dependencies {
     // MongoDB Test
     testImplementation("de.flapdoodle.embed:de.flapdoodle.embed.mongo:4.11.0")
 
+    // Redis embebido para los tests de integración del almacén de carritos
+    testImplementation("com.github.codemonstur:embedded-redis:1.4.4")
+
     // Mockito
     testImplementation("org.mockito:mockito-core")
     testImplementation("org.mockito:mockito-junit-jupiter")
+
+    // JMH (microbenchmarks)
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+    "jmhCompileOnly"("org.projectlombok:lombok")
+    "jmhAnnotationProcessor"("org.projectlombok:lombok")
+
+    // Arnés de carga (sustitutos locales de Mongo y Redis)
+    "loadTestImplementation"("de.flapdoodle.embed:de.flapdoodle.embed.mongo:4.11.0")
+    "loadTestImplementation"("com.github.codemonstur:embedded-redis:1.4.4")
+    "loadTestCompileOnly"("org.projectlombok:lombok")
+    "loadTestAnnotationProcessor"("org.projectlombok:lombok")
 }
 
 // Javadoc configuration - ignore errors for Java 25
@@ -112,6 +151,9 @@ tasks.withType<Test> {
     // Usar perfil 'test' para los tests
     systemProperty("spring.profiles.active", "test")
 
+    // Mongo ya arrancado para los tests de integración (-Ptest.mongo-uri=mongodb://host:27017); sin él usan uno embebido
+    project.findProperty("test.mongo-uri")?.let { systemProperty("test.mongo-uri", it.toString()) }
+
     testLogging {
         events(TestLogEvent.PASSED, TestLogEvent.SKIPPED, TestLogEvent.FAILED)
         exceptionFormat = org.gradle.api.tasks.testing.logging.TestExceptionFormat.FULL
@@ -153,6 +195,47 @@ val integrationTest = tasks.register<Test>("integrationTest") {
     shouldRunAfter(tasks.test)
 }
 
+// Ejecuta los microbenchmarks JMH: ./gradlew jmh [-Pjmh.includes=Regex] [-Pjmh.args="-f 1 -wi 2"]
+tasks.register<JavaExec>("jmh") {
+    description = "Runs JMH microbenchmarks"
+    group = "verification"
+
+    dependsOn(jmh.classesTaskName)
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.upToDateWhen { false }
+    doFirst { resultsFile.get().asFile.parentFile.mkdirs() }
+
+    args(listOfNotNull(project.findProperty("jmh.includes")?.toString()))
+    (project.findProperty("jmh.args")?.toString())?.let { args(it.split(" ").filter(String::isNotBlank)) }
+    args("-rf", "json", "-rff", resultsFile.get().asFile.absolutePath)
+}
+
+// Prueba de carga extremo a extremo: ./gradlew loadTest [-Pload.duration=60s] [-Pload.users=50]
+// [-Pload.warmup=10s] [-Pload.mix=browse=60,cart=20,checkout=10,status=10] [-Pload.productos=200]
+// [-Pload.mongo-uri=mongodb://host:27017/camisapi_carga] [-Pload.virtual-threads=true|false]
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the end-to-end load test against local stand-ins for Mongo, Postgres and Redis"
+    group = "verification"
+
+    dependsOn(loadTest.classesTaskName)
+    // Las clases y recursos de main van delante de las dependencias, como en el jar de la aplicación: si no,
+    // classpath:graphql/ se resuelve dentro del jar de graphql-java y no se encuentra el esquema
+    classpath = sourceSets.main.get().output + loadTest.runtimeClasspath
+    mainClass.set("srangeldev.camisapi.loadtest.LoadTestMain")
+
+    val reportFile = layout.buildDirectory.file("reports/loadtest/results.json")
+    outputs.upToDateWhen { false }
+
+    listOf("load.duration", "load.warmup", "load.users", "load.mix", "load.productos", "load.mongo-uri",
+        "load.virtual-threads").forEach { nombre ->
+        project.findProperty(nombre)?.let { systemProperty(nombre, it.toString()) }
+    }
+    systemProperty("load.report", reportFile.get().asFile.absolutePath)
+}
+
 // Jacoco configuration
 jacoco {
     toolVersion = "0.8.14"
@@ -0,0 +1,88 @@
+package srangeldev.camisapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheKeys;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ida y vuelta por Redis de un listado de ProductoResponseDTO con la configuración de RedisConfig.
+ *
+ * generico usa el GenericJackson2JsonRedisSerializer por defecto de la caché (sin tipo, devuelve mapas);
+ * tipado usa el serializador por región con el tipo concreto, que es el que usan las regiones de productos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int productos;
+
+    private GenericJackson2JsonRedisSerializer generico;
+    private Jackson2JsonRedisSerializer<Object> tipado;
+    private List<ProductoResponseDTO> lista;
+    private byte[] serializadoGenerico;
+    private byte[] serializadoTipado;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = RedisConfig.cacheObjectMapper();
+        generico = new GenericJackson2JsonRedisSerializer(objectMapper);
+        tipado = new Jackson2JsonRedisSerializer<>(objectMapper,
+                RedisConfig.tiposPorRegion(objectMapper.getTypeFactory()).get(ProductoCacheKeys.LISTA));
+
+        lista = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            lista.add(ProductoResponseDTO.builder()
+                    .id("prod-" + i)
+                    .nombre("Camiseta " + i)
+                    .equipo("Equipo " + (i % 20))
+                    .talla("M")
+                    .descripcion("Camiseta oficial temporada " + i)
+                    .precio(50.0 + i % 30)
+                    .imageUrl("https://camisapi.local/img/" + i + ".png")
+                    .estado(EstadoProducto.DISPONIBLE)
+                    .fechaCreacion(LocalDate.now())
+                    .build());
+        }
+        serializadoGenerico = generico.serialize(lista);
+        serializadoTipado = tipado.serialize(lista);
+    }
+
+    @Benchmark
+    public Object idaYVueltaGenerico() {
+        return generico.deserialize(generico.serialize(lista));
+    }
+
+    @Benchmark
+    public Object idaYVueltaTipado() {
+        return tipado.deserialize(tipado.serialize(lista));
+    }
+
+    @Benchmark
+    public byte[] serializarGenerico() {
+        return generico.serialize(lista);
+    }
+
+    @Benchmark
+    public Object deserializarGenerico() {
+        return generico.deserialize(serializadoGenerico);
+    }
+
+    @Benchmark
+    public Object deserializarTipado() {
+        return tipado.deserialize(serializadoTipado);
+    }
+}
@@ -0,0 +1,142 @@
+package srangeldev.camisapi.rest.carrito;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritosJpa;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escrituras concurrentes sobre carritos en Postgres (aquí H2 en memoria) con bloqueo optimista.
+ *
+ * Cada hilo añade y quita su propio producto. Con carrito "mismo" todos los hilos escriben en el
+ * mismo carrito y compiten por su versión; con "propio" cada hilo tiene el suyo y no hay contención.
+ * agregarYQuitar son operaciones que conmutan: al perder la carrera se repiten sobre el carrito
+ * recién leído, y fallos cuenta las que agotaron los reintentos. reemplazarConVersion es lo que hace
+ * un cliente con If-Match: lee el carrito y lo reemplaza con la versión leída; precondiciones cuenta
+ * las veces que otro hilo se adelantó (un 412 en la API).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AlmacenCarritosContencionBenchmark {
+
+    @Param({"mismo", "propio"})
+    String carrito;
+
+    private SessionFactory sessionFactory;
+    private CarritoRepository carritoRepository;
+    private AlmacenCarritosJpa almacen;
+    private Long compartido;
+    private final AtomicInteger hilos = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Carrito.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:contencion;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.connection.pool_size", "8")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("jakarta.persistence.validation.mode", "none")
+                .buildSessionFactory();
+        EntityManagerFactory emf = sessionFactory;
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        transactionManager.setJpaDialect(new HibernateJpaDialect());
+        // Sin Spring los repositorios no traducen las excepciones de Hibernate: se añade a mano
+        JpaRepositoryFactory factory = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(emf));
+        factory.addRepositoryProxyPostProcessor((proxy, info) ->
+                proxy.addAdvice(new PersistenceExceptionTranslationInterceptor(new HibernateJpaDialect())));
+        carritoRepository = factory.getRepository(CarritoRepository.class);
+
+        almacen = new AlmacenCarritosJpa(carritoRepository, new CarritoMapper(), transactionManager);
+        compartido = nuevoCarrito(0L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    private Long nuevoCarrito(Long userId) {
+        return almacen.crear(Carrito.builder()
+                .userId(userId)
+                .productosIds(new ArrayList<>())
+                .creadoEn(LocalDateTime.now())
+                .modificadoEn(LocalDateTime.now())
+                .build()).getId();
+    }
+
+    @State(Scope.Thread)
+    public static class Hilo {
+        Long carritoId;
+        List<String> producto;
+
+        @Setup(Level.Trial)
+        public void setUp(AlmacenCarritosContencionBenchmark benchmark) {
+            int hilo = benchmark.hilos.incrementAndGet();
+            producto = List.of("prod-" + hilo);
+            carritoId = benchmark.carrito.equals("mismo") ? benchmark.compartido : benchmark.nuevoCarrito((long) hilo);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultados {
+        public long fallos;
+        public long precondiciones;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            fallos = 0;
+            precondiciones = 0;
+        }
+    }
+
+    @Benchmark
+    public Carrito agregarYQuitar(Hilo hilo, Resultados resultados) {
+        try {
+            almacen.agregar(hilo.carritoId, hilo.producto);
+            return almacen.quitar(hilo.carritoId, hilo.producto);
+        } catch (OptimisticLockingFailureException e) {
+            resultados.fallos++;
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Carrito reemplazarConVersion(Hilo hilo, Resultados resultados) {
+        Carrito leido = almacen.obtener(hilo.carritoId).orElseThrow();
+        List<String> productos = leido.getProductosIds();
+        if (!productos.remove(hilo.producto.get(0))) {
+            productos.add(hilo.producto.get(0));
+        }
+        try {
+            return almacen.reemplazar(hilo.carritoId, productos, leido.getVersion());
+        } catch (CarritoPreconditionFailed e) {
+            resultados.precondiciones++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package srangeldev.camisapi.rest.carrito;
+
+import org.openjdk.jmh.annotations.*;
+import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de CarritoMapper en cada lectura y modificación del carrito, según su tamaño.
+ *
+ * agregarExistentes añade productos que ya están (así el carrito no cambia entre invocaciones) y mide
+ * la comprobación de pertenencia; agregarExistentesEnLista es la misma operación con la búsqueda
+ * lineal sobre una lista que se hacía antes. quitarYAgregar saca un producto y lo vuelve a meter
+ * (lo que en Postgres es un DELETE y un INSERT de una fila); reemplazar con los mismos productos no
+ * cambia ninguno.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarritoMapperBenchmark {
+
+    private static final int PRODUCTOS_POR_PETICION = 20;
+
+    @Param({"10", "100", "500"})
+    int cartSize;
+
+    private final CarritoMapper mapper = new CarritoMapper();
+    private Carrito carrito;
+    private List<String> lista;
+    private CarritoUpdateRequestDto agregarExistentes;
+    private CarritoUpdateRequestDto quitar;
+    private CarritoUpdateRequestDto agregar;
+    private CarritoUpdateRequestDto reemplazar;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> ids = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            ids.add("prod-" + i);
+        }
+        carrito = Carrito.builder()
+                .id(1L)
+                .userId(1L)
+                .productosIds(ids)
+                .creadoEn(LocalDateTime.now())
+                .modificadoEn(LocalDateTime.now())
+                .build();
+        lista = new ArrayList<>(ids);
+        // Los últimos del carrito: el peor caso de la búsqueda lineal
+        List<String> existentes = ids.subList(Math.max(0, cartSize - PRODUCTOS_POR_PETICION), cartSize);
+        agregarExistentes = CarritoUpdateRequestDto.builder()
+                .accion("AGREGAR")
+                .productosIds(List.copyOf(existentes))
+                .build();
+        String medio = "prod-" + (cartSize / 2);
+        quitar = CarritoUpdateRequestDto.builder()
+                .accion("QUITAR")
+                .productosIds(List.of(medio))
+                .build();
+        agregar = CarritoUpdateRequestDto.builder()
+                .accion("AGREGAR")
+                .productosIds(List.of(medio))
+                .build();
+        reemplazar = CarritoUpdateRequestDto.builder()
+                .accion("REEMPLAZAR")
+                .productosIds(ids)
+                .build();
+    }
+
+    @Benchmark
+    public CarritoResponseDto toResponseDto() {
+        return mapper.toResponseDto(carrito);
+    }
+
+    @Benchmark
+    public Carrito agregarExistentes() {
+        return mapper.updateFromDto(carrito, agregarExistentes);
+    }
+
+    @Benchmark
+    public List<String> agregarExistentesEnLista() {
+        for (String productoId : agregarExistentes.getProductosIds()) {
+            if (!lista.contains(productoId)) {
+                lista.add(productoId);
+            }
+        }
+        return lista;
+    }
+
+    @Benchmark
+    public Carrito quitarYAgregar() {
+        mapper.updateFromDto(carrito, quitar);
+        return mapper.updateFromDto(carrito, agregar);
+    }
+
+    @Benchmark
+    public Carrito reemplazar() {
+        return mapper.updateFromDto(carrito, reemplazar);
+    }
+}
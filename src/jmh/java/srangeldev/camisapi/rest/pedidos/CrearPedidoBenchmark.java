@@ -0,0 +1,219 @@
+package srangeldev.camisapi.rest.pedidos;
+
+import com.mongodb.client.result.UpdateResult;
+import jakarta.persistence.EntityManager;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritosJpa;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
+import srangeldev.camisapi.rest.pedidos.mappers.PedidoMappers;
+import srangeldev.camisapi.rest.pedidos.models.Pedido;
+import srangeldev.camisapi.rest.pedidos.repository.PedidoRepository;
+import srangeldev.camisapi.rest.pedidos.services.PedidoServiceImpl;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.reservas.ReservasProductos;
+import srangeldev.camisapi.rest.productos.reservas.ReservasProperties;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latencia del checkout (PedidoServiceImpl.crearPedido) en función del tamaño del carrito.
+ *
+ * Los repositorios son stubs en memoria que simulan el round-trip de red de cada consulta
+ * (rttMicros), de modo que se compara la carga por lotes ($in) con el bucle anterior de
+ * un findById por producto. El checkout actual incluye además la reserva de los productos, que es
+ * un único updateMulti condicional y una lectura sea cual sea el tamaño del carrito.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrearPedidoBenchmark {
+
+    @Param({"1", "10", "30", "100"})
+    int cartSize;
+
+    @Param({"250"})
+    long rttMicros;
+
+    private PedidoServiceImpl pedidoService;
+    private ProductoRepository productoRepository;
+    private CarritoRepository carritoRepository;
+    private PedidoRepository pedidoRepository;
+    private Carrito carrito;
+    private PedidoRequestDto request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Producto> catalogo = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < cartSize; i++) {
+            String id = "prod-" + i;
+            ids.add(id);
+            catalogo.put(id, Producto.builder()
+                    .id(id)
+                    .nombre("Camiseta " + i)
+                    .equipo("Real Betis")
+                    .talla("M")
+                    .precio(50.0 + i)
+                    .estado(EstadoProducto.DISPONIBLE)
+                    .build());
+        }
+
+        carrito = Carrito.builder().id(1L).userId(1L).productosIds(ids).build();
+        request = PedidoRequestDto.builder().carritoId(1L).direccionEnvio("Calle Betis 1, Sevilla").build();
+
+        productoRepository = stub(ProductoRepository.class, (method, args) -> switch (method) {
+            case "findById" -> Optional.ofNullable(catalogo.get((String) args[0]));
+            case "findAllById" -> {
+                List<Producto> encontrados = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    Producto p = catalogo.get((String) id);
+                    if (p != null) {
+                        encontrados.add(p);
+                    }
+                }
+                yield encontrados;
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+        carritoRepository = stub(CarritoRepository.class, (method, args) -> switch (method) {
+            case "findById" -> Optional.of(carrito);
+            case "save", "saveAndFlush" -> args[0];
+            default -> throw new UnsupportedOperationException(method);
+        });
+        pedidoRepository = stub(PedidoRepository.class, (method, args) -> switch (method) {
+            case "save" -> args[0];
+            default -> throw new UnsupportedOperationException(method);
+        });
+
+        EntityManager entityManager = stub(EntityManager.class, (method, args) -> {
+            throw new UnsupportedOperationException(method);
+        });
+        // Reserva: un updateMulti condicional que encuentra disponibles todos los productos y la lectura de
+        // los que quedaron reservados para el pedido
+        MongoOperations mongo = stub(MongoOperations.class, (method, args) -> switch (method) {
+            case "updateMulti" -> {
+                int productos = productosConsultados((Query) args[0]).size();
+                yield UpdateResult.acknowledged(productos, (long) productos, null);
+            }
+            case "find" -> productosConsultados((Query) args[0]).stream()
+                    .map(id -> catalogo.get((String) id).toBuilder().estado(EstadoProducto.RESERVADO).pedidoId(1L).build())
+                    .toList();
+            default -> throw new UnsupportedOperationException(method);
+        });
+        ReservasProductos reservas = new ReservasProductos(mongo, new ProductoCacheInvalidator(new NoOpCacheManager()),
+                new ReservasProperties(), evento -> { }, new ProductoMapper());
+
+        pedidoService = new PedidoServiceImpl(pedidoRepository, new PedidoMappers(),
+                new AlmacenCarritosJpa(carritoRepository, new CarritoMapper(), SIN_TRANSACCIONES), productoRepository, entityManager,
+                reservas);
+    }
+
+    @Setup(Level.Invocation)
+    public void rellenarCarrito() {
+        // crearPedido vacía el carrito; se vuelve a llenar antes de cada invocación
+        List<String> ids = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            ids.add("prod-" + i);
+        }
+        carrito.setProductosIds(ids);
+    }
+
+    /**
+     * Checkout actual: un único findAllById para todo el carrito.
+     */
+    @Benchmark
+    public PedidoResponseDto crearPedidoBatch() {
+        return pedidoService.crearPedido(request);
+    }
+
+    /**
+     * Referencia: el checkout anterior, con un findById (un round-trip) por producto.
+     */
+    @Benchmark
+    public Pedido crearPedidoPorProducto() {
+        Carrito c = carritoRepository.findById(request.getCarritoId()).orElseThrow();
+        List<Producto> productos = new ArrayList<>(cartSize);
+        for (String id : c.getProductosIds()) {
+            productos.add(productoRepository.findById(id).orElseThrow());
+        }
+        Pedido pedido = pedidoRepository.save(Pedido.builder()
+                .userId(c.getUserId())
+                .carritoId(c.getId())
+                .total(productos.stream().mapToDouble(Producto::getPrecio).sum())
+                .build());
+        c.vaciar();
+        carritoRepository.save(c);
+        return pedido;
+    }
+
+    private static List<?> productosConsultados(Query query) {
+        return (List<?>) ((Document) query.getQueryObject().get("_id")).get("$in");
+    }
+
+    /**
+     * Gestor de transacciones que no hace nada: el benchmark mide las llamadas a los repositorios
+     */
+    private static final PlatformTransactionManager SIN_TRANSACCIONES = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    @FunctionalInterface
+    interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * Crea un stub del repositorio que simula la latencia de red en cada llamada.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T stub(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+            return handler.invoke(method.getName(), args);
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package srangeldev.camisapi.rest.pedidos;
+
+import org.openjdk.jmh.annotations.*;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
+import srangeldev.camisapi.rest.pedidos.mappers.PedidoMappers;
+import srangeldev.camisapi.rest.pedidos.models.DetallePedido;
+import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
+import srangeldev.camisapi.rest.pedidos.models.Pedido;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de PedidoMappers.toResponseList al listar pedidos (GET /api/pedidos y exportaciones).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PedidoMappersBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int pedidos;
+
+    @Param({"3"})
+    int detallesPorPedido;
+
+    private final PedidoMappers mapper = new PedidoMappers();
+    private List<Pedido> lista;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lista = new ArrayList<>(pedidos);
+        for (long i = 0; i < pedidos; i++) {
+            List<DetallePedido> detalles = new ArrayList<>(detallesPorPedido);
+            for (int d = 0; d < detallesPorPedido; d++) {
+                detalles.add(DetallePedido.builder()
+                        .productoId("prod-" + d)
+                        .nombre("Camiseta " + d)
+                        .talla("M")
+                        .equipo("Real Betis")
+                        .precioPagado(50.0 + d)
+                        .imageUrl("https://camisapi.local/img/" + d + ".png")
+                        .build());
+            }
+            lista.add(Pedido.builder()
+                    .id(i)
+                    .userId(i % 50)
+                    .carritoId(i)
+                    .direccionEnvio("Calle Betis " + i + ", Sevilla")
+                    .estado(EstadoPedido.PAGADO)
+                    .createdAt(LocalDateTime.now())
+                    .total(150.0)
+                    .detalles(detalles)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<PedidoResponseDto> toResponseList() {
+        return mapper.toResponseList(lista);
+    }
+}
@@ -0,0 +1,58 @@
+package srangeldev.camisapi.rest.productos;
+
+import org.openjdk.jmh.annotations.*;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de ProductoMapper.toDTO para un producto y para el catálogo completo (listarProductos).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductoMapperBenchmark {
+
+    @Param({"1000"})
+    int catalogo;
+
+    private final ProductoMapper mapper = new ProductoMapper();
+    private List<Producto> productos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productos = new ArrayList<>(catalogo);
+        for (int i = 0; i < catalogo; i++) {
+            productos.add(Producto.builder()
+                    .id("prod-" + i)
+                    .nombre("Camiseta " + i)
+                    .equipo("Equipo " + (i % 20))
+                    .talla("M")
+                    .descripcion("Camiseta oficial temporada " + i)
+                    .precio(50.0 + i % 30)
+                    .imageUrl("https://camisapi.local/img/" + i + ".png")
+                    .estado(EstadoProducto.DISPONIBLE)
+                    .fechaCreacion(LocalDate.now())
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public ProductoResponseDTO toDTO() {
+        return mapper.toDTO(productos.get(0));
+    }
+
+    @Benchmark
+    public List<ProductoResponseDTO> toDTOCatalogo() {
+        return productos.stream().map(mapper::toDTO).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package srangeldev.camisapi.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.openjdk.jmh.annotations.*;
+import srangeldev.camisapi.rest.users.models.Rol;
+import srangeldev.camisapi.rest.users.models.User;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por petición de verificar el token JWT en JwtAuthenticationFilter, y de emitirlo en el login.
+ *
+ * antes reproduce el camino anterior: extractUsername en el filtro y extractUsername + isTokenExpired
+ * en isTokenValid, creando cada vez un Algorithm y un JWTVerifier nuevos (tres verificaciones HMAC).
+ * despues es el camino actual: una sola verificación con el verificador compartido.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "miClaveSecretaSuperSegura123";
+
+    private JwtUtil jwtUtil;
+    private User usuario;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 86400);
+        usuario = User.builder()
+                .idUsuario(1L)
+                .username("admin")
+                .password("secreto")
+                .roles(Set.of(Rol.ADMIN))
+                .build();
+        token = jwtUtil.generateToken(usuario);
+    }
+
+    @Benchmark
+    public String generar() {
+        return jwtUtil.generateToken(usuario);
+    }
+
+    @Benchmark
+    public boolean antes() {
+        String username = decodificarComoAntes(token).getSubject();
+        return username != null
+                && decodificarComoAntes(token).getSubject().equals(usuario.getUsername())
+                && !decodificarComoAntes(token).getExpiresAt().before(new Date());
+    }
+
+    @Benchmark
+    public boolean despues() {
+        return jwtUtil.verificar(token)
+                .map(claims -> jwtUtil.isTokenValid(claims, usuario))
+                .orElse(false);
+    }
+
+    private static DecodedJWT decodificarComoAntes(String token) {
+        return JWT.require(Algorithm.HMAC256(SECRET))
+                .build()
+                .verify(token);
+    }
+}
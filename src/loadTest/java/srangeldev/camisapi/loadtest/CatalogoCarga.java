@@ -0,0 +1,9 @@
+package srangeldev.camisapi.loadtest;
+
+import java.util.List;
+
+/**
+ * Productos sembrados antes de la medición, de los que los escenarios eligen al azar.
+ */
+public record CatalogoCarga(List<String> productosIds, List<String> equipos) {
+}
@@ -0,0 +1,108 @@
+package srangeldev.camisapi.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cliente HTTP compartido por los usuarios virtuales.
+ *
+ * Cada llamada se mide de extremo a extremo (envío, respuesta y lectura del cuerpo) y se anota
+ * en el {@link RegistroLatencias} bajo un nombre de endpoint estable: la plantilla de la ruta
+ * REST ("GET /api/productos/{id}") o la operación GraphQL ("GraphQL producto").
+ * Un estado HTTP >= 400, un error de E/S o una respuesta GraphQL con "errors" cuentan como error,
+ * salvo el 409: es la respuesta esperada cuando otro pedido se lleva antes un producto, y se cuenta
+ * aparte como conflicto.
+ */
+public class ClienteCarga {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+    private final RegistroLatencias registro;
+
+    public ClienteCarga(String baseUrl, ObjectMapper mapper, RegistroLatencias registro) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+        this.mapper = mapper;
+        this.baseUrl = baseUrl;
+        this.registro = registro;
+    }
+
+    public JsonNode get(String endpoint, String ruta) {
+        return ejecutar(endpoint, peticion(ruta).GET().build(), false);
+    }
+
+    public JsonNode post(String endpoint, String ruta, Object cuerpo) {
+        return ejecutar(endpoint, peticion(ruta).POST(json(cuerpo)).build(), false);
+    }
+
+    public JsonNode put(String endpoint, String ruta, Object cuerpo) {
+        return ejecutar(endpoint, peticion(ruta).PUT(json(cuerpo)).build(), false);
+    }
+
+    public JsonNode patch(String endpoint, String ruta) {
+        return ejecutar(endpoint, peticion(ruta).method("PATCH", HttpRequest.BodyPublishers.noBody()).build(), false);
+    }
+
+    /**
+     * Ejecuta una consulta GraphQL y devuelve el nodo "data" (o null si hubo errores).
+     */
+    public JsonNode graphql(String operacion, String consulta, Map<String, Object> variables) {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("query", consulta);
+        cuerpo.put("variables", variables);
+        JsonNode respuesta = ejecutar("GraphQL " + operacion, peticion("/graphql").POST(json(cuerpo)).build(), true);
+        return respuesta == null ? null : respuesta.path("data");
+    }
+
+    private JsonNode ejecutar(String endpoint, HttpRequest peticion, boolean graphql) {
+        long inicio = System.nanoTime();
+        RegistroLatencias.Resultado resultado = RegistroLatencias.Resultado.ERROR;
+        try {
+            HttpResponse<byte[]> respuesta = http.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode cuerpo = respuesta.body().length == 0 ? null : mapper.readTree(respuesta.body());
+            if (respuesta.statusCode() == 409) {
+                resultado = RegistroLatencias.Resultado.CONFLICTO;
+            } else if (respuesta.statusCode() < 400 && !(graphql && cuerpo != null && cuerpo.hasNonNull("errors"))) {
+                resultado = RegistroLatencias.Resultado.OK;
+            }
+            return resultado == RegistroLatencias.Resultado.OK ? cuerpo : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            registro.registrar(endpoint, System.nanoTime() - inicio, resultado);
+        }
+    }
+
+    private HttpRequest.Builder peticion(String ruta) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + ruta))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher json(Object cuerpo) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(cuerpo));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el cuerpo de la petición", e);
+        }
+    }
+}
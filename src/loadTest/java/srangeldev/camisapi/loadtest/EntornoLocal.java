@@ -0,0 +1,108 @@
+package srangeldev.camisapi.loadtest;
+
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import lombok.extern.slf4j.Slf4j;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sustitutos locales de la infraestructura de producción para la prueba de carga:
+ * H2 en memoria en lugar de Postgres (carritos y pedidos), Mongo embebido (flapdoodle)
+ * para usuarios y productos, y Redis embebido para la caché y el bus de eventos.
+ *
+ * No sustituye a una prueba contra la infraestructura real, pero ejercita todo el camino
+ * HTTP → seguridad → servicios → repositorios → caché con los mismos drivers.
+ * Si se indica una URI de Mongo se usa esa instancia y no se arranca la embebida
+ * (útil donde no se puede descargar el binario de mongod).
+ */
+@Slf4j
+public final class EntornoLocal implements AutoCloseable {
+
+    private final TransitionWalker.ReachedState<RunningMongodProcess> mongo;
+    private final String mongoUri;
+    private final RedisServer redis;
+    private final int redisPort;
+
+    private EntornoLocal(TransitionWalker.ReachedState<RunningMongodProcess> mongo, String mongoUri,
+                         RedisServer redis, int redisPort) {
+        this.mongo = mongo;
+        this.mongoUri = mongoUri;
+        this.redis = redis;
+        this.redisPort = redisPort;
+    }
+
+    /**
+     * Arranca Redis embebido y, si no se indica una URI de Mongo existente, también Mongo embebido.
+     *
+     * @param mongoUriExterna URI de una instancia de Mongo ya arrancada, o null para usar la embebida
+     */
+    public static EntornoLocal arrancar(String mongoUriExterna) throws IOException {
+        TransitionWalker.ReachedState<RunningMongodProcess> mongo = null;
+        String mongoUri = mongoUriExterna;
+        if (mongoUri == null) {
+            log.info("Arrancando Mongo embebido");
+            mongo = Mongod.instance().start(Version.Main.V7_0);
+            ServerAddress direccion = mongo.current().getServerAddress();
+            mongoUri = "mongodb://" + direccion.getHost() + ":" + direccion.getPort() + "/camisapi_carga";
+        }
+        try {
+            int redisPort = puertoLibre();
+            log.info("Arrancando Redis embebido en el puerto {}", redisPort);
+            RedisServer redis = new RedisServer(redisPort);
+            redis.start();
+            return new EntornoLocal(mongo, mongoUri, redis, redisPort);
+        } catch (IOException | RuntimeException e) {
+            if (mongo != null) {
+                mongo.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Propiedades de Spring que apuntan la aplicación a los sustitutos locales.
+     */
+    public Map<String, Object> propiedades() {
+        Map<String, Object> propiedades = new LinkedHashMap<>();
+        propiedades.put("spring.profiles.active", "dev");
+        propiedades.put("server.port", 0);
+        propiedades.put("spring.main.banner-mode", "off");
+        propiedades.put("spring.datasource.url", "jdbc:h2:mem:carga;DB_CLOSE_DELAY=-1");
+        propiedades.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        propiedades.put("spring.jpa.show-sql", false);
+        propiedades.put("spring.h2.console.enabled", false);
+        propiedades.put("spring.data.mongodb.uri", mongoUri);
+        propiedades.put("spring.data.redis.host", "localhost");
+        propiedades.put("spring.data.redis.port", redisPort);
+        // Los controladores registran cada petición a INFO: bajo carga distorsionaría las latencias
+        propiedades.put("logging.level.root", "WARN");
+        propiedades.put("logging.level.srangeldev.camisapi.loadtest", "INFO");
+        return propiedades;
+    }
+
+    @Override
+    public void close() {
+        try {
+            redis.stop();
+        } catch (IOException e) {
+            log.warn("No se pudo detener Redis embebido: {}", e.getMessage());
+        }
+        if (mongo != null) {
+            mongo.close();
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
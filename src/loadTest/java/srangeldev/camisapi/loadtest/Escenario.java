@@ -0,0 +1,141 @@
+package srangeldev.camisapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorridos de la mezcla de tráfico. Cada ejecución es una "visita" corta con varias
+ * peticiones REST y GraphQL, tal como las haría el frontal de la tienda.
+ */
+public enum Escenario {
+
+    /**
+     * Navegación del catálogo: página de productos, ficha por id y búsqueda por equipo (REST y GraphQL).
+     */
+    BROWSE("browse") {
+        @Override
+        void ejecutar(ClienteCarga cliente, UsuarioVirtual usuario, CatalogoCarga catalogo) {
+            cliente.get("GET /api/productos/pagina", "/api/productos/pagina?limit=20");
+            cliente.get("GET /api/productos/{id}", "/api/productos/" + usuario.elegir(catalogo.productosIds()));
+            String equipo = usuario.elegir(catalogo.equipos());
+            if (usuario.getRandom().nextBoolean()) {
+                cliente.get("GET /api/productos/buscar/equipo",
+                        "/api/productos/buscar/equipo?equipo=" + URLEncoder.encode(equipo, StandardCharsets.UTF_8));
+                cliente.graphql("producto", "query($id: ID!) { producto(id: $id) { id nombre precio estado } }",
+                        Map.of("id", usuario.elegir(catalogo.productosIds())));
+            } else {
+                cliente.graphql("productosPorEquipo",
+                        "query($equipo: String!) { productosPorEquipo(equipo: $equipo) { id nombre precio talla } }",
+                        Map.of("equipo", equipo));
+            }
+        }
+    },
+
+    /**
+     * Gestión del carrito: añadir un producto y releer el carrito; al llegar al tope se vacía.
+     */
+    CART("cart") {
+        @Override
+        void ejecutar(ClienteCarga cliente, UsuarioVirtual usuario, CatalogoCarga catalogo) {
+            if (usuario.getProductosEnCarrito() >= MAX_PRODUCTOS_CARRITO) {
+                actualizarCarrito(cliente, usuario, "LIMPIAR", List.of());
+            }
+            actualizarCarrito(cliente, usuario, "AGREGAR", List.of(usuario.elegir(catalogo.productosIds())));
+            cliente.get("GET /api/carritos/{id}", "/api/carritos/" + usuario.getCarritoId());
+        }
+    },
+
+    /**
+     * Compra: llenar el carrito con 1 a 3 productos y crear el pedido (que vacía el carrito y reserva los
+     * productos). Después el pedido se abandona (CANCELADO) o se paga (PAGADO) y se devuelve (CANCELADO):
+     * así cada visita suelta sus productos y el catálogo sembrado no se agota por muy larga que sea la
+     * prueba. Un 409 al crear o pagar es otro pedido que se llevó antes alguno de los productos.
+     */
+    CHECKOUT("checkout") {
+        @Override
+        void ejecutar(ClienteCarga cliente, UsuarioVirtual usuario, CatalogoCarga catalogo) {
+            List<String> productos = new ArrayList<>();
+            int cantidad = 1 + usuario.getRandom().nextInt(3);
+            for (int i = 0; i < cantidad; i++) {
+                productos.add(usuario.elegir(catalogo.productosIds()));
+            }
+            actualizarCarrito(cliente, usuario, "AGREGAR", productos);
+
+            PedidoRequestDto pedido = PedidoRequestDto.builder()
+                    .carritoId(usuario.getCarritoId())
+                    .direccionEnvio("Calle de la Carga " + usuario.getUserId() + ", Madrid")
+                    .build();
+            JsonNode creado = cliente.post("POST /api/pedidos", "/api/pedidos", pedido);
+            if (creado != null && creado.hasNonNull("id")) {
+                long pedidoId = creado.get("id").asLong();
+                usuario.recordarPedido(pedidoId);
+                usuario.setProductosEnCarrito(0);
+                if (usuario.getRandom().nextBoolean()) {
+                    cambiarEstado(cliente, pedidoId, "PAGADO");
+                }
+                cambiarEstado(cliente, pedidoId, "CANCELADO");
+            }
+        }
+    },
+
+    /**
+     * Seguimiento de pedidos: un pedido propio por REST y GraphQL, y el historial del usuario.
+     */
+    STATUS("status") {
+        @Override
+        void ejecutar(ClienteCarga cliente, UsuarioVirtual usuario, CatalogoCarga catalogo) {
+            Long pedidoId = usuario.pedidoAleatorio();
+            if (pedidoId != null) {
+                cliente.get("GET /api/pedidos/{id}", "/api/pedidos/" + pedidoId);
+                cliente.graphql("pedido", "query($id: ID!) { pedido(id: $id) { id estado total } }",
+                        Map.of("id", pedidoId));
+            }
+            cliente.get("GET /api/pedidos/usuario/{userId}", "/api/pedidos/usuario/" + usuario.getUserId());
+        }
+    };
+
+    private static final int MAX_PRODUCTOS_CARRITO = 10;
+
+    private final String clave;
+
+    Escenario(String clave) {
+        this.clave = clave;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    abstract void ejecutar(ClienteCarga cliente, UsuarioVirtual usuario, CatalogoCarga catalogo);
+
+    public static Escenario deClave(String clave) {
+        for (Escenario escenario : values()) {
+            if (escenario.clave.equalsIgnoreCase(clave.trim())) {
+                return escenario;
+            }
+        }
+        throw new IllegalArgumentException("Escenario desconocido: " + clave);
+    }
+
+    private static void cambiarEstado(ClienteCarga cliente, long pedidoId, String estado) {
+        cliente.patch("PATCH /api/pedidos/{id}/estado " + estado, "/api/pedidos/" + pedidoId + "/estado?estado=" + estado);
+    }
+
+    private static void actualizarCarrito(ClienteCarga cliente, UsuarioVirtual usuario, String accion, List<String> productos) {
+        CarritoUpdateRequestDto cambio = CarritoUpdateRequestDto.builder()
+                .accion(accion)
+                .productosIds(productos)
+                .build();
+        JsonNode carrito = cliente.put("PUT /api/carritos/{id}", "/api/carritos/" + usuario.getCarritoId(), cambio);
+        if (carrito != null) {
+            usuario.setProductosEnCarrito(carrito.path("productosIds").size());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package srangeldev.camisapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import srangeldev.camisapi.loadtest.RegistroLatencias.ResultadoEndpoint;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Informe final de la prueba de carga: tabla por consola y JSON en disco
+ * (build/reports/loadtest/results.json con la tarea de Gradle) para comparar ejecuciones.
+ */
+public class InformeCarga {
+
+    private final Map<String, Object> parametros;
+    private final Duration medido;
+    private final Map<Escenario, Long> visitas;
+    private final List<ResultadoEndpoint> resultados;
+
+    public InformeCarga(Map<String, Object> parametros, Duration medido, Map<Escenario, Long> visitas,
+                        List<ResultadoEndpoint> resultados) {
+        this.parametros = parametros;
+        this.medido = medido;
+        this.visitas = visitas;
+        this.resultados = resultados;
+    }
+
+    public void imprimir(PrintStream salida) {
+        salida.printf(Locale.ROOT, "%nPrueba de carga: %s durante %.1f s%n", parametros, medido.toMillis() / 1000.0);
+        salida.println("Visitas por escenario: " + visitas);
+        salida.printf(Locale.ROOT, "%-44s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Peticiones", "409", "Errores", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (ResultadoEndpoint r : resultados) {
+            salida.printf(Locale.ROOT, "%-44s %9d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    r.endpoint(), r.peticiones(), r.conflictos(), r.errores(), r.rps(), r.p50(), r.p95(), r.p99(), r.max());
+        }
+        long peticiones = resultados.stream().mapToLong(ResultadoEndpoint::peticiones).sum();
+        long conflictos = resultados.stream().mapToLong(ResultadoEndpoint::conflictos).sum();
+        long errores = resultados.stream().mapToLong(ResultadoEndpoint::errores).sum();
+        salida.printf(Locale.ROOT, "%-44s %9d %7d %7d %9.1f%n", "TOTAL", peticiones, conflictos, errores,
+                peticiones / (medido.toNanos() / 1e9));
+    }
+
+    public void escribir(Path fichero, ObjectMapper mapper) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("parametros", parametros);
+        json.put("duracionMedidaMs", medido.toMillis());
+        json.put("visitas", visitas);
+        json.put("endpoints", resultados);
+        Files.createDirectories(fichero.toAbsolutePath().getParent());
+        mapper.writerWithDefaultPrettyPrinter().writeValue(fichero.toFile(), json);
+    }
+}
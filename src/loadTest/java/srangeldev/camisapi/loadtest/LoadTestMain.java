@@ -0,0 +1,181 @@
+package srangeldev.camisapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import srangeldev.camisapi.CamisApiApplication;
+import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga extremo a extremo de CamisApi.
+ *
+ * Arranca la aplicación completa contra sustitutos locales ({@link EntornoLocal}), siembra un catálogo,
+ * crea un carrito por usuario virtual y reproduce la mezcla de tráfico en hilos virtuales durante
+ * un calentamiento (descartado) y una ventana de medición. Informa del rendimiento y de p50/p95/p99
+ * por endpoint. Se lanza con {@code ./gradlew loadTest}; los parámetros son propiedades del sistema:
+ * <ul>
+ *     <li>load.duration: ventana de medición (por defecto 60s)</li>
+ *     <li>load.warmup: calentamiento (por defecto 10s)</li>
+ *     <li>load.users: usuarios virtuales concurrentes (por defecto 50)</li>
+ *     <li>load.mix: mezcla de escenarios (por defecto {@value MezclaTrafico#POR_DEFECTO})</li>
+ *     <li>load.productos: productos sembrados (por defecto 200)</li>
+ *     <li>load.mongo-uri: Mongo existente en lugar del embebido (opcional)</li>
+ *     <li>load.virtual-threads: true para servir con hilos virtuales y false con el pool de Tomcat
+ *     (spring.threads.virtual.enabled; por defecto, lo que diga application.properties)</li>
+ *     <li>load.report: fichero JSON del informe</li>
+ * </ul>
+ * Los usuarios virtuales encadenan visitas sin pausa (modelo cerrado): el rendimiento medido es el
+ * máximo sostenible con esa concurrencia, no una tasa de llegadas fija.
+ */
+@Slf4j
+public class LoadTestMain {
+
+    private static final List<String> EQUIPOS = List.of(
+            "Real Madrid", "FC Barcelona", "Atlético de Madrid", "Sevilla FC",
+            "Valencia CF", "Real Betis", "Athletic Club", "Real Sociedad");
+    private static final List<String> TALLAS = List.of("S", "M", "L", "XL");
+    private static final long PRIMER_USER_ID = 100_000L;
+
+    public static void main(String[] args) throws Exception {
+        Duration duracion = DurationStyle.detectAndParse(System.getProperty("load.duration", "60s"));
+        Duration calentamiento = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+        int usuarios = Integer.parseInt(System.getProperty("load.users", "50"));
+        int productos = Integer.parseInt(System.getProperty("load.productos", "200"));
+        MezclaTrafico mezcla = MezclaTrafico.parse(System.getProperty("load.mix", MezclaTrafico.POR_DEFECTO));
+        Path informe = Path.of(System.getProperty("load.report", "build/reports/loadtest/results.json"));
+        String hilosVirtuales = System.getProperty("load.virtual-threads");
+
+        try (EntornoLocal entorno = EntornoLocal.arrancar(System.getProperty("load.mongo-uri"));
+             ConfigurableApplicationContext contexto = new SpringApplicationBuilder(CamisApiApplication.class)
+                     .run(argumentos(args, entorno, hilosVirtuales))) {
+
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            ObjectMapper mapper = contexto.getBean(ObjectMapper.class);
+            RegistroLatencias registro = new RegistroLatencias();
+            ClienteCarga cliente = new ClienteCarga("http://localhost:" + puerto, mapper, registro);
+
+            log.info("CamisApi escuchando en el puerto {}; sembrando {} productos y {} carritos", puerto, productos, usuarios);
+            CatalogoCarga catalogo = sembrarCatalogo(cliente, productos);
+            List<UsuarioVirtual> virtuales = crearUsuarios(cliente, usuarios);
+
+            log.info("Calentamiento de {} con la mezcla {}", calentamiento, mezcla);
+            ejecutarFase(cliente, catalogo, virtuales, mezcla, calentamiento);
+
+            registro.reiniciar();
+            log.info("Midiendo durante {} con {} usuarios virtuales", duracion, usuarios);
+            long inicio = System.nanoTime();
+            Map<Escenario, Long> visitas = ejecutarFase(cliente, catalogo, virtuales, mezcla, duracion);
+            Duration medido = Duration.ofNanos(System.nanoTime() - inicio);
+
+            Map<String, Object> parametros = new LinkedHashMap<>();
+            parametros.put("usuarios", usuarios);
+            parametros.put("duracion", duracion.toString());
+            parametros.put("calentamiento", calentamiento.toString());
+            parametros.put("productos", productos);
+            parametros.put("mezcla", mezcla.toString());
+            parametros.put("hilosVirtuales", contexto.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+
+            InformeCarga resultado = new InformeCarga(parametros, medido, visitas, registro.resumen(medido));
+            resultado.imprimir(System.out);
+            resultado.escribir(informe, mapper);
+            log.info("Informe escrito en {}", informe.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Las propiedades del entorno van como argumentos de línea de comandos, que pesan más que los ficheros
+     * de perfil: como propiedades por defecto, application-dev.properties apuntaría de nuevo a localhost:27017.
+     */
+    private static String[] argumentos(String[] args, EntornoLocal entorno, String hilosVirtuales) {
+        Map<String, Object> propiedades = new LinkedHashMap<>(entorno.propiedades());
+        if (hilosVirtuales != null) {
+            propiedades.put("spring.threads.virtual.enabled", Boolean.parseBoolean(hilosVirtuales));
+        }
+        List<String> argumentos = new ArrayList<>(List.of(args));
+        propiedades.forEach((clave, valor) -> argumentos.add("--" + clave + "=" + valor));
+        return argumentos.toArray(String[]::new);
+    }
+
+    private static CatalogoCarga sembrarCatalogo(ClienteCarga cliente, int cantidad) {
+        List<String> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ProductoRequestDTO producto = ProductoRequestDTO.builder()
+                    .nombre("Camiseta de carga " + i)
+                    .equipo(EQUIPOS.get(i % EQUIPOS.size()))
+                    .talla(TALLAS.get(i % TALLAS.size()))
+                    .descripcion("Producto sembrado por la prueba de carga")
+                    .precio(49.99 + (i % 50))
+                    .imageUrl("https://example.com/camisetas/" + i + ".png")
+                    .estado(EstadoProducto.DISPONIBLE)
+                    .build();
+            JsonNode creado = cliente.post("POST /api/productos", "/api/productos", producto);
+            if (creado == null || !creado.hasNonNull("id")) {
+                throw new IllegalStateException("No se pudo sembrar el producto " + i);
+            }
+            ids.add(creado.get("id").asText());
+        }
+        return new CatalogoCarga(List.copyOf(ids), EQUIPOS);
+    }
+
+    private static List<UsuarioVirtual> crearUsuarios(ClienteCarga cliente, int cantidad) {
+        List<UsuarioVirtual> usuarios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            UsuarioVirtual usuario = new UsuarioVirtual(PRIMER_USER_ID + i, 31L * i + 7);
+            CarritoCreateRequestDto carrito = CarritoCreateRequestDto.builder()
+                    .userId(usuario.getUserId())
+                    .productosIds(new ArrayList<>())
+                    .build();
+            JsonNode creado = cliente.post("POST /api/carritos", "/api/carritos", carrito);
+            if (creado == null || !creado.hasNonNull("id")) {
+                throw new IllegalStateException("No se pudo crear el carrito del usuario " + usuario.getUserId());
+            }
+            usuario.setCarritoId(creado.get("id").asLong());
+            usuarios.add(usuario);
+        }
+        return usuarios;
+    }
+
+    /**
+     * Cada usuario virtual encadena visitas en su propio hilo virtual hasta que vence la fase.
+     */
+    private static Map<Escenario, Long> ejecutarFase(ClienteCarga cliente, CatalogoCarga catalogo,
+                                                     List<UsuarioVirtual> usuarios, MezclaTrafico mezcla,
+                                                     Duration duracion) {
+        Map<Escenario, LongAdder> contadores = new EnumMap<>(Escenario.class);
+        mezcla.getPesos().keySet().forEach(escenario -> contadores.put(escenario, new LongAdder()));
+        long fin = System.nanoTime() + duracion.toNanos();
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (UsuarioVirtual usuario : usuarios) {
+                hilos.submit(() -> {
+                    while (System.nanoTime() < fin) {
+                        Escenario escenario = mezcla.siguiente(usuario.getRandom());
+                        escenario.ejecutar(cliente, usuario, catalogo);
+                        contadores.get(escenario).increment();
+                    }
+                });
+            }
+        }
+
+        Map<Escenario, Long> visitas = new EnumMap<>(Escenario.class);
+        contadores.forEach((escenario, contador) -> visitas.put(escenario, contador.sum()));
+        return visitas;
+    }
+}
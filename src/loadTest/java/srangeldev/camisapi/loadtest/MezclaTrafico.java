@@ -0,0 +1,81 @@
+package srangeldev.camisapi.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Mezcla ponderada de escenarios, p. ej. "browse=60,cart=20,checkout=10,status=10".
+ * Los pesos son relativos: no hace falta que sumen 100.
+ */
+public class MezclaTrafico {
+
+    public static final String POR_DEFECTO = "browse=60,cart=20,checkout=10,status=10";
+
+    private final Map<Escenario, Integer> pesos;
+    private final Escenario[] escenarios;
+    private final int[] acumulados;
+    private final int total;
+
+    private MezclaTrafico(Map<Escenario, Integer> pesos) {
+        this.pesos = pesos;
+        this.escenarios = pesos.keySet().toArray(Escenario[]::new);
+        this.acumulados = new int[escenarios.length];
+        int suma = 0;
+        for (int i = 0; i < escenarios.length; i++) {
+            suma += pesos.get(escenarios[i]);
+            acumulados[i] = suma;
+        }
+        this.total = suma;
+    }
+
+    public static MezclaTrafico parse(String definicion) {
+        Map<Escenario, Integer> pesos = new EnumMap<>(Escenario.class);
+        for (String parte : definicion.split(",")) {
+            if (parte.isBlank()) {
+                continue;
+            }
+            String[] claveValor = parte.split("=", 2);
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Entrada de mezcla inválida (se espera escenario=peso): " + parte);
+            }
+            int peso = Integer.parseInt(claveValor[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("El peso no puede ser negativo: " + parte);
+            }
+            if (peso > 0) {
+                pesos.put(Escenario.deClave(claveValor[0]), peso);
+            }
+        }
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de tráfico no tiene ningún escenario con peso: " + definicion);
+        }
+        return new MezclaTrafico(pesos);
+    }
+
+    public Escenario siguiente(SplittableRandom random) {
+        int tirada = random.nextInt(total);
+        for (int i = 0; i < acumulados.length; i++) {
+            if (tirada < acumulados[i]) {
+                return escenarios[i];
+            }
+        }
+        return escenarios[escenarios.length - 1];
+    }
+
+    public Map<Escenario, Integer> getPesos() {
+        return pesos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        pesos.forEach((escenario, peso) -> {
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(escenario.getClave()).append('=').append(peso);
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package srangeldev.camisapi.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencias por endpoint durante la ventana de medición.
+ *
+ * Guarda todas las muestras (en nanosegundos) para calcular percentiles exactos al final:
+ * con las duraciones habituales de una prueba local son unos pocos millones de longs.
+ * Las peticiones del calentamiento se descartan con {@link #reiniciar()}.
+ */
+public class RegistroLatencias {
+
+    private final Map<String, Muestras> porEndpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Cómo acabó una petición: los conflictos (409) son rechazos esperados, no fallos del servicio
+     */
+    public enum Resultado {
+        OK, CONFLICTO, ERROR
+    }
+
+    public void registrar(String endpoint, long nanos, Resultado resultado) {
+        porEndpoint.computeIfAbsent(endpoint, clave -> new Muestras()).registrar(nanos, resultado);
+    }
+
+    public void reiniciar() {
+        porEndpoint.clear();
+    }
+
+    /**
+     * Resumen por endpoint ordenado por nombre, con el rendimiento calculado sobre la duración medida.
+     */
+    public List<ResultadoEndpoint> resumen(Duration medido) {
+        double segundos = medido.toNanos() / 1e9;
+        List<ResultadoEndpoint> resultados = new ArrayList<>();
+        porEndpoint.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entrada -> resultados.add(entrada.getValue().resumir(entrada.getKey(), segundos)));
+        return resultados;
+    }
+
+    /**
+     * Resultado de un endpoint: peticiones, conflictos (409), errores, peticiones por segundo y percentiles
+     * en milisegundos.
+     */
+    public record ResultadoEndpoint(String endpoint, long peticiones, long conflictos, long errores, double rps,
+                                    double p50, double p95, double p99, double max) {
+    }
+
+    private static final class Muestras {
+        private long[] nanos = new long[1024];
+        private int total;
+        private long conflictos;
+        private long errores;
+
+        synchronized void registrar(long latencia, Resultado resultado) {
+            if (total == nanos.length) {
+                nanos = Arrays.copyOf(nanos, total * 2);
+            }
+            nanos[total++] = latencia;
+            switch (resultado) {
+                case CONFLICTO -> conflictos++;
+                case ERROR -> errores++;
+                case OK -> { }
+            }
+        }
+
+        synchronized ResultadoEndpoint resumir(String endpoint, double segundos) {
+            long[] ordenadas = Arrays.copyOf(nanos, total);
+            Arrays.sort(ordenadas);
+            return new ResultadoEndpoint(endpoint, total, conflictos, errores, segundos > 0 ? total / segundos : 0,
+                    percentil(ordenadas, 0.50), percentil(ordenadas, 0.95), percentil(ordenadas, 0.99),
+                    total == 0 ? 0 : ordenadas[total - 1] / 1e6);
+        }
+
+        private static double percentil(long[] ordenadas, double p) {
+            if (ordenadas.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+            return ordenadas[Math.max(0, indice)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package srangeldev.camisapi.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Estado de un usuario virtual: su carrito, los pedidos que ha creado y su generador aleatorio.
+ * Cada usuario virtual corre en un único hilo, así que su estado no necesita sincronización.
+ */
+@Getter
+public class UsuarioVirtual {
+
+    private static final int MAX_PEDIDOS_RECORDADOS = 20;
+
+    private final long userId;
+    private final SplittableRandom random;
+    private final Deque<Long> pedidos = new ArrayDeque<>();
+    @Setter
+    private Long carritoId;
+    @Setter
+    private int productosEnCarrito;
+
+    public UsuarioVirtual(long userId, long semilla) {
+        this.userId = userId;
+        this.random = new SplittableRandom(semilla);
+    }
+
+    public <T> T elegir(List<T> opciones) {
+        return opciones.get(random.nextInt(opciones.size()));
+    }
+
+    public void recordarPedido(long pedidoId) {
+        if (pedidos.size() == MAX_PEDIDOS_RECORDADOS) {
+            pedidos.removeFirst();
+        }
+        pedidos.addLast(pedidoId);
+    }
+
+    public Long pedidoAleatorio() {
+        if (pedidos.isEmpty()) {
+            return null;
+        }
+        int indice = random.nextInt(pedidos.size());
+        return pedidos.stream().skip(indice).findFirst().orElse(null);
+    }
+}
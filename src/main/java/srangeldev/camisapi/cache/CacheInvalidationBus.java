@@ -0,0 +1,81 @@
+package srangeldev.camisapi.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus de invalidaciones entre réplicas sobre Redis pub/sub
+ *
+ * Cada réplica publica las claves que invalida y escucha las del resto para
+ * descartarlas de su memoria local. Los mensajes propios se ignoran.
+ * La entrega de pub/sub no está garantizada: el TTL del nivel cercano acota el desfase.
+ */
+@Slf4j
+public class CacheInvalidationBus implements MessageListener {
+
+    private final String nodo = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String canal;
+    private final List<Consumer<CacheInvalidationMessage>> suscriptores = new CopyOnWriteArrayList<>();
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String canal) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.canal = canal;
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    /**
+     * Registra un receptor para las invalidaciones que llegan de otras réplicas.
+     */
+    public void suscribir(Consumer<CacheInvalidationMessage> suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+
+    /**
+     * Avisa al resto de réplicas de que la clave ha cambiado (clave null = caché completa).
+     */
+    public void publicar(String cache, String clave) {
+        try {
+            String json = objectMapper.writeValueAsString(new CacheInvalidationMessage(nodo, cache, clave));
+            redisTemplate.convertAndSend(canal, json);
+        } catch (JsonProcessingException e) {
+            log.error("No se pudo serializar la invalidación de {}::{}", cache, clave, e);
+        } catch (RuntimeException e) {
+            // Redis caído: las demás réplicas verán el dato antiguo como mucho hasta que caduque
+            log.warn("No se pudo publicar la invalidación de {}::{}: {}", cache, clave, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidacion;
+        try {
+            invalidacion = objectMapper.readValue(message.getBody(), CacheInvalidationMessage.class);
+        } catch (IOException e) {
+            log.warn("Mensaje de invalidación no válido en {}", canal, e);
+            return;
+        }
+        if (nodo.equals(invalidacion.getNodo())) {
+            return;
+        }
+        log.debug("Invalidación recibida de {}: {}::{}", invalidacion.getNodo(), invalidacion.getCache(), invalidacion.getClave());
+        for (Consumer<CacheInvalidationMessage> suscriptor : suscriptores) {
+            suscriptor.accept(invalidacion);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package srangeldev.camisapi.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mensaje de invalidación que se publica en Redis pub/sub
+ *
+ * Una clave nula significa que se ha vaciado la caché completa.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    /**
+     * Réplica que originó la invalidación (las réplicas ignoran sus propios mensajes)
+     */
+    private String nodo;
+
+    /**
+     * Nombre de la caché afectada
+     */
+    private String cache;
+
+    /**
+     * Clave invalidada, o null si se ha vaciado la caché
+     */
+    private String clave;
+}
@@ -0,0 +1,186 @@
+package srangeldev.camisapi.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de dos niveles: memoria local (Caffeine) delante de Redis
+ *
+ * Lecturas: primero el nivel cercano; si falla se consulta Redis y el valor se guarda en memoria.
+ * Escrituras e invalidaciones: se aplican en ambos niveles y se publican en el bus para que
+ * el resto de réplicas descarten su copia local.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> cercano;
+    private final Cache remoto;
+    private final CacheInvalidationBus bus;
+
+    final LongAdder aciertosCercano = new LongAdder();
+    final LongAdder fallosCercano = new LongAdder();
+    final LongAdder aciertosRemoto = new LongAdder();
+    final LongAdder fallosRemoto = new LongAdder();
+
+    public TwoTierCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> cercano,
+                        Cache remoto, CacheInvalidationBus bus) {
+        this.name = name;
+        this.cercano = cercano;
+        this.remoto = remoto;
+        this.bus = bus;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public Cache getRemoto() {
+        return remoto;
+    }
+
+    public long tamanoCercano() {
+        return cercano.estimatedSize();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String clave = clave(key);
+        Object valor = cercano.getIfPresent(clave);
+        if (valor != null) {
+            aciertosCercano.increment();
+            return new SimpleValueWrapper(valor);
+        }
+        fallosCercano.increment();
+
+        ValueWrapper wrapper = remoto.get(key);
+        if (wrapper == null) {
+            fallosRemoto.increment();
+            return null;
+        }
+        aciertosRemoto.increment();
+        if (wrapper.get() != null) {
+            cercano.put(clave, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object valor = wrapper != null ? wrapper.get() : null;
+        if (valor != null && type != null && !type.isInstance(valor)) {
+            throw new IllegalStateException("El valor cacheado no es del tipo requerido [" + type.getName() + "]: " + valor);
+        }
+        return (T) valor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String clave = clave(key);
+        Object valor = cercano.getIfPresent(clave);
+        if (valor != null) {
+            aciertosCercano.increment();
+            return (T) valor;
+        }
+        fallosCercano.increment();
+
+        boolean[] cargado = {false};
+        T resultado = remoto.get(key, () -> {
+            cargado[0] = true;
+            return valueLoader.call();
+        });
+        (cargado[0] ? fallosRemoto : aciertosRemoto).increment();
+        if (resultado != null) {
+            cercano.put(clave, resultado);
+        }
+        return resultado;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String clave = clave(key);
+        remoto.put(key, value);
+        if (value != null) {
+            cercano.put(clave, value);
+        } else {
+            cercano.invalidate(clave);
+        }
+        bus.publicar(name, clave);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existente = remoto.putIfAbsent(key, value);
+        if (existente == null) {
+            String clave = clave(key);
+            if (value != null) {
+                cercano.put(clave, value);
+            }
+            bus.publicar(name, clave);
+        }
+        return existente;
+    }
+
+    @Override
+    public void evict(Object key) {
+        String clave = clave(key);
+        remoto.evict(key);
+        cercano.invalidate(clave);
+        bus.publicar(name, clave);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        String clave = clave(key);
+        boolean presente = remoto.evictIfPresent(key);
+        cercano.invalidate(clave);
+        bus.publicar(name, clave);
+        return presente;
+    }
+
+    @Override
+    public void clear() {
+        remoto.clear();
+        cercano.invalidateAll();
+        bus.publicar(name, null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean habiaEntradas = remoto.invalidate();
+        cercano.invalidateAll();
+        bus.publicar(name, null);
+        return habiaEntradas;
+    }
+
+    /**
+     * Descarta la copia local tras una invalidación de otra réplica (clave null = todas).
+     * Redis ya lo ha actualizado la réplica de origen.
+     */
+    void invalidarLocal(String clave) {
+        if (clave == null) {
+            cercano.invalidateAll();
+        } else {
+            cercano.invalidate(clave);
+        }
+    }
+
+    /**
+     * Clave del nivel cercano: misma representación en texto que usa RedisCache,
+     * así la clave que viaja por el bus identifica la misma entrada en todas las réplicas.
+     */
+    static String clave(Object key) {
+        return key instanceof String s ? s : String.valueOf(key);
+    }
+}
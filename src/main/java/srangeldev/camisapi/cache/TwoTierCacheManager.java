@@ -0,0 +1,101 @@
+package srangeldev.camisapi.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CacheManager de dos niveles: envuelve cada caché de Redis en una TwoTierCache
+ *
+ * Escucha el bus de invalidaciones para descartar de memoria lo que cambian otras réplicas
+ * y publica en Micrometer los aciertos y fallos de cada nivel:
+ * cache.tier.gets{cache, tier=near|remote, result=hit|miss} y cache.near.size{cache}.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager remoto;
+    private final TwoTierCacheProperties properties;
+    private final CacheInvalidationBus bus;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remoto, TwoTierCacheProperties properties,
+                               CacheInvalidationBus bus, MeterRegistry meterRegistry) {
+        this.remoto = remoto;
+        this.properties = properties;
+        this.bus = bus;
+        this.meterRegistry = meterRegistry;
+        bus.suscribir(this::onInvalidacion);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!properties.getNear().isEnabled()) {
+            return remoto.getCache(name);
+        }
+        return caches.computeIfAbsent(name, this::crearCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> nombres = new LinkedHashSet<>(remoto.getCacheNames());
+        nombres.addAll(caches.keySet());
+        return nombres;
+    }
+
+    private TwoTierCache crearCache(String name) {
+        Cache cacheRemota = remoto.getCache(name);
+        if (cacheRemota == null) {
+            return null;
+        }
+        long maximo = properties.nearMaximumSize(name);
+        Duration ttl = properties.nearTtl(name);
+        TwoTierCache cache = new TwoTierCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(maximo)
+                        .expireAfterWrite(ttl)
+                        .build(),
+                cacheRemota, bus);
+        registrarMetricas(cache);
+        log.info("Caché {} creada con nivel cercano (max {} entradas, TTL {})", name, maximo, ttl);
+        return cache;
+    }
+
+    private void onInvalidacion(CacheInvalidationMessage invalidacion) {
+        TwoTierCache cache = caches.get(invalidacion.getCache());
+        if (cache != null) {
+            cache.invalidarLocal(invalidacion.getClave());
+        }
+    }
+
+    private void registrarMetricas(TwoTierCache cache) {
+        contador(cache, "near", "hit", cache.aciertosCercano);
+        contador(cache, "near", "miss", cache.fallosCercano);
+        contador(cache, "remote", "hit", cache.aciertosRemoto);
+        contador(cache, "remote", "miss", cache.fallosRemoto);
+        Gauge.builder("cache.near.size", cache, TwoTierCache::tamanoCercano)
+                .description("Entradas en el nivel cercano (memoria local)")
+                .tag("cache", cache.getName())
+                .register(meterRegistry);
+    }
+
+    private void contador(TwoTierCache cache, String nivel, String resultado, LongAdder valor) {
+        FunctionCounter.builder("cache.tier.gets", valor, LongAdder::sum)
+                .description("Lecturas de caché por nivel y resultado")
+                .tags("cache", cache.getName(), "tier", nivel, "result", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package srangeldev.camisapi.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propiedades de la caché de dos niveles (camisapi.cache.*)
+ *
+ * El nivel cercano vive en la memoria de cada réplica y tiene un TTL corto:
+ * si se pierde un mensaje de invalidación, el dato obsoleto caduca enseguida.
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.cache")
+public class TwoTierCacheProperties {
+
+    /**
+     * Canal de Redis pub/sub por el que las réplicas se avisan de las invalidaciones
+     */
+    private String invalidationChannel = "camisapi:cache:invalidacion";
+
+    /**
+     * TTL en Redis para las cachés sin región configurada
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    private Near near = new Near();
+
+    /**
+     * Ajustes por región (nombre de caché): TTL y presupuesto del nivel cercano
+     */
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public Duration ttl(String cache) {
+        Region region = regions.get(cache);
+        return region != null && region.getTtl() != null ? region.getTtl() : ttl;
+    }
+
+    public long nearMaximumSize(String cache) {
+        Region region = regions.get(cache);
+        return region != null && region.getNearMaximumSize() != null ? region.getNearMaximumSize() : near.getMaximumSize();
+    }
+
+    public Duration nearTtl(String cache) {
+        Region region = regions.get(cache);
+        return region != null && region.getNearTtl() != null ? region.getNearTtl() : near.getTtl();
+    }
+
+    @Data
+    public static class Near {
+
+        /**
+         * Activa el nivel en memoria; si es false todas las lecturas van a Redis
+         */
+        private boolean enabled = true;
+
+        /**
+         * Número máximo de entradas en memoria por caché
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * Tiempo de vida de una entrada en memoria desde que se escribe
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Region {
+
+        /**
+         * Tiempo de vida en Redis
+         */
+        private Duration ttl;
+
+        /**
+         * Entradas máximas en memoria (si no se indica, camisapi.cache.near.maximum-size)
+         */
+        private Long nearMaximumSize;
+
+        /**
+         * Tiempo de vida en memoria (si no se indica, camisapi.cache.near.ttl)
+         */
+        private Duration nearTtl;
+    }
+}
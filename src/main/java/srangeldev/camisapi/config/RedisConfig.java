@@ -1,38 +1,77 @@
 package srangeldev.camisapi.config;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import srangeldev.camisapi.cache.CacheInvalidationBus;
+import srangeldev.camisapi.cache.TwoTierCacheManager;
+import srangeldev.camisapi.cache.TwoTierCacheProperties;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheKeys;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.users.dto.UserResponseDto;
 
-import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuración de Redis para caché
  * Configura la serialización JSON para evitar problemas con objetos Java
+ *
+ * Delante de Redis hay un nivel en memoria por réplica (TwoTierCacheManager) que se
+ * mantiene coherente entre réplicas publicando las invalidaciones por Redis pub/sub.
+ * Solo se activa con spring.cache.type=redis (en tests la caché está deshabilitada).
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(TwoTierCacheProperties.class)
+@ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
 public class RedisConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        // Configurar ObjectMapper para serialización JSON sin activateDefaultTyping
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        
-        // Deshabilitar características problemáticas
-        objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.disable(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                                     TwoTierCacheProperties properties,
+                                                     RedisMessageListenerContainer container) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(redisTemplate, objectMapper, properties.getInvalidationChannel());
+        container.addMessageListener(bus, new ChannelTopic(properties.getInvalidationChannel()));
+        return bus;
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, TwoTierCacheProperties properties,
+                                     CacheInvalidationBus cacheInvalidationBus, MeterRegistry meterRegistry) {
+        return new TwoTierCacheManager(redisCacheManager(connectionFactory, properties), properties, cacheInvalidationBus, meterRegistry);
+    }
+
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory, TwoTierCacheProperties properties) {
+        ObjectMapper objectMapper = cacheObjectMapper();
 
         // Crear serializador JSON sin tipo polimórfico
         GenericJackson2JsonRedisSerializer jsonSerializer = 
@@ -40,7 +79,7 @@ public class RedisConfig {
 
         // Configuración de caché con serialización JSON
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10)) // TTL de 10 minutos
+                .entryTtl(properties.getTtl())
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer())
                 )
@@ -49,8 +88,51 @@ public class RedisConfig {
                 )
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        // Una región por consulta: TTL propio y serializador con el tipo concreto del valor,
+        // para que Redis devuelva DTOs y no mapas genéricos
+        Map<String, RedisCacheConfiguration> regiones = new LinkedHashMap<>();
+        tiposPorRegion(objectMapper.getTypeFactory()).forEach((region, tipo) -> regiones.put(region, config
+                .entryTtl(properties.ttl(region))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new Jackson2JsonRedisSerializer<>(objectMapper, tipo)))));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(regiones)
                 .build();
+        redisCacheManager.initializeCaches();
+        return redisCacheManager;
+    }
+
+    /**
+     * ObjectMapper de los valores cacheados (también lo usan los benchmarks de serialización).
+     */
+    static ObjectMapper cacheObjectMapper() {
+        // Configurar ObjectMapper para serialización JSON sin activateDefaultTyping
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+
+        // Deshabilitar características problemáticas
+        objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        return objectMapper;
+    }
+
+    /**
+     * Tipo del valor cacheado en cada región.
+     */
+    static Map<String, JavaType> tiposPorRegion(TypeFactory typeFactory) {
+        JavaType producto = typeFactory.constructType(ProductoResponseDTO.class);
+        JavaType listaProductos = typeFactory.constructCollectionType(List.class, ProductoResponseDTO.class);
+
+        Map<String, JavaType> tipos = new LinkedHashMap<>();
+        tipos.put(ProductoCacheKeys.POR_ID, producto);
+        tipos.put(ProductoCacheKeys.LISTA, listaProductos);
+        tipos.put(ProductoCacheKeys.POR_NOMBRE, listaProductos);
+        tipos.put(ProductoCacheKeys.POR_EQUIPO, listaProductos);
+        tipos.put(ProductoCacheKeys.POR_TALLA, listaProductos);
+        tipos.put(ProductoCacheKeys.POR_ESTADO, listaProductos);
+        tipos.put("users", typeFactory.constructType(UserResponseDto.class));
+        return tipos;
     }
 }
@@ -0,0 +1,91 @@
+package srangeldev.camisapi.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Evento de cambio de una entidad (solo se emite en operaciones de escritura)
+ *
+ * Se publica con ApplicationEventPublisher y llega a los clientes WebSocket como JSON.
+ * Los clientes reciben únicamente los eventos de los temas a los que se han suscrito:
+ * el tema de la entidad (p. ej. "productos") y temas más finos como "productos:{equipo}".
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioEvento {
+
+    public enum Operacion {
+        CREADO, ACTUALIZADO, ELIMINADO
+    }
+
+    /**
+     * Entidad afectada (productos, usuarios...)
+     */
+    private String entidad;
+
+    /**
+     * Identificador de la entidad
+     */
+    private String id;
+
+    private Operacion operacion;
+
+    /**
+     * Versión del cambio dentro de su entidad: la asigna el bus del clúster con un contador que comparten
+     * todas las réplicas, así el cliente puede descartar eventos más antiguos que el último que aplicó.
+     * 0 mientras no se ha asignado (o si no se pudo)
+     */
+    private long version;
+
+    /**
+     * Estado nuevo de la entidad (null al eliminar o si no debe exponerse)
+     */
+    private Object datos;
+
+    /**
+     * Temas en los que se publica el evento (no se envía al cliente)
+     */
+    @JsonIgnore
+    @Builder.Default
+    private Set<String> temas = new LinkedHashSet<>();
+
+    /**
+     * Crea un evento publicado en el tema de la entidad y en "entidad:valor" para cada valor indicado.
+     */
+    public static CambioEvento de(String entidad, Object id, Operacion operacion, Object datos, String... valoresTema) {
+        Set<String> temas = new LinkedHashSet<>();
+        temas.add(entidad);
+        for (String valor : valoresTema) {
+            if (valor != null) {
+                temas.add(tema(entidad, valor));
+            }
+        }
+        return CambioEvento.builder()
+                .entidad(entidad)
+                .id(String.valueOf(id))
+                .operacion(operacion)
+                .datos(datos)
+                .temas(temas)
+                .build();
+    }
+
+    /**
+     * Nombre de un tema normalizado (sin distinguir mayúsculas).
+     */
+    public static String tema(String entidad, String valor) {
+        return normalizarTema(entidad + ":" + valor);
+    }
+
+    public static String normalizarTema(String tema) {
+        return tema.trim().toLowerCase(Locale.ROOT);
+    }
+}
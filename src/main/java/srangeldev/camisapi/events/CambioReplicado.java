@@ -0,0 +1,15 @@
+package srangeldev.camisapi.events;
+
+import lombok.Value;
+
+/**
+ * Cambio producido en otra réplica y recibido por el bus del clúster
+ *
+ * Se publica aparte de CambioEvento para que los componentes en memoria de esta réplica
+ * (p. ej. el índice de búsqueda) se actualicen sin que el bus lo vuelva a difundir.
+ * Solo llega una vez por cambio y nunca uno más antiguo que el último ya entregado de la entidad.
+ */
+@Value
+public class CambioReplicado {
+    CambioEvento evento;
+}
@@ -1,14 +1,20 @@
 package srangeldev.camisapi.graphql.carrito.controller;
 
+import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 import srangeldev.camisapi.graphql.carrito.mapper.CarritoGraphQLMapper;
 import srangeldev.camisapi.graphql.carrito.output.CarritoGraphQLResponse;
+import srangeldev.camisapi.graphql.productos.output.ProductoGraphQLResponse;
+import srangeldev.camisapi.graphql.users.output.UserGraphQLResponse;
 import srangeldev.camisapi.rest.carrito.service.CarritoService;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 @Controller
@@ -29,6 +35,12 @@ public class CarritoGraphQLController {
         return mapper.toGraphQLResponseList(carritos);
     }
 
+    @QueryMapping
+    public CursorPage<CarritoGraphQLResponse> carritosPagina(@Argument String cursor, @Argument Integer limit) {
+        var pagina = carritoService.getPage(cursor, limit);
+        return pagina.map(mapper::toGraphQLResponse);
+    }
+
     @QueryMapping
     public CarritoGraphQLResponse carrito(@Argument String id) {
         Long carritoId = Long.parseLong(id);
@@ -42,4 +54,27 @@ public class CarritoGraphQLController {
         var carrito = carritoService.findByUserId(userIdLong);
         return mapper.toGraphQLResponse(carrito);
     }
+
+    /**
+     * Productos del carrito en su orden (null en los que ya no existen), cargados en lote
+     * con el resto de productos de la petición
+     */
+    @SchemaMapping(typeName = "Carrito")
+    public CompletableFuture<List<ProductoGraphQLResponse>> items(CarritoGraphQLResponse carrito,
+                                                                  DataLoader<String, ProductoGraphQLResponse> productos) {
+        return carrito.getItemIds() != null
+                ? productos.loadMany(carrito.getItemIds())
+                : CompletableFuture.completedFuture(List.of());
+    }
+
+    /**
+     * Dueño del carrito, cargado en lote con el resto de usuarios de la petición
+     */
+    @SchemaMapping(typeName = "Carrito")
+    public CompletableFuture<UserGraphQLResponse> usuario(CarritoGraphQLResponse carrito,
+                                                          DataLoader<Long, UserGraphQLResponse> usuarios) {
+        return carrito.getUserId() != null
+                ? usuarios.load(Long.parseLong(carrito.getUserId()))
+                : CompletableFuture.completedFuture(null);
+    }
 }
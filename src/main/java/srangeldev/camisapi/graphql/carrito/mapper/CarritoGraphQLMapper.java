@@ -35,7 +35,7 @@ public class CarritoGraphQLMapper {
         return CarritoGraphQLResponse.builder()
                 .id(responseDto.getId() != null ? responseDto.getId().toString() : null)
                 .userId(responseDto.getUserId() != null ? responseDto.getUserId().toString() : null)
-                .items(responseDto.getProductosIds())
+                .itemIds(responseDto.getProductosIds())
                 .totalItems(responseDto.getTotalProductos())
                 .modificadoEn(responseDto.getModificadoEn() != null ?
                     responseDto.getModificadoEn().format(DATE_FORMATTER) : null)
@@ -16,13 +16,13 @@ public class CarritoGraphQLResponse {
 
     private String id;
     private String userId;
-    private List<String> items;
+    private List<String> itemIds;
     private Integer totalItems;
     private String modificadoEn;
     private String creadoEn;
     private Boolean isValid;
 
     public Boolean getIsValid() {
-        return this.items != null && this.userId != null && !this.userId.trim().isEmpty();
+        return this.itemIds != null && this.userId != null && !this.userId.trim().isEmpty();
     }
 }
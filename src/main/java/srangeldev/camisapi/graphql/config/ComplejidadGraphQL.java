@@ -0,0 +1,60 @@
+package srangeldev.camisapi.graphql.config;
+
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.FieldComplexityEnvironment;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+
+import java.util.Map;
+
+/**
+ * Coste de cada campo de una consulta GraphQL
+ *
+ * coste = peso propio + elementos × coste de su selección
+ *
+ * El peso propio es el configurado para "Tipo.campo" (los listados completos pesan mucho), o
+ * pesoLista si devuelve una lista, 1 si devuelve un objeto y 0 si es un escalar. Una lista
+ * multiplica el coste de lo que se pide dentro por el "limit" de la consulta (el del propio
+ * campo o el de la página que lo contiene) o, si no lo hay, por elementosLista.
+ * La introspección (__schema, __type) no cuenta para que GraphiQL siga funcionando.
+ */
+public class ComplejidadGraphQL implements FieldComplexityCalculator {
+
+    static final String LIMIT = "limit";
+
+    private final GraphQLProperties properties;
+
+    public ComplejidadGraphQL(GraphQLProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public int calculate(FieldComplexityEnvironment entorno, int hijos) {
+        String nombre = entorno.getFieldDefinition().getName();
+        if (nombre.startsWith("__")) {
+            return 0;
+        }
+        GraphQLType tipo = GraphQLTypeUtil.unwrapNonNull(entorno.getFieldDefinition().getType());
+        boolean lista = GraphQLTypeUtil.isList(tipo);
+
+        Integer configurado = properties.getPesos().get(entorno.getParentType().getName() + "." + nombre);
+        long peso = configurado != null ? configurado
+                : lista ? properties.getPesoLista()
+                : GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(tipo)) ? 0 : 1;
+        long coste = peso + (lista ? elementos(entorno) : 1L) * hijos;
+        return (int) Math.min(coste, Integer.MAX_VALUE);
+    }
+
+    private long elementos(FieldComplexityEnvironment entorno) {
+        Integer limit = limit(entorno.getArguments());
+        if (limit == null && entorno.getParentEnvironment() != null) {
+            limit = limit(entorno.getParentEnvironment().getArguments());
+        }
+        return limit != null ? Math.clamp(limit, 1, CursorPage.MAX_LIMIT) : properties.getElementosLista();
+    }
+
+    private static Integer limit(Map<String, Object> argumentos) {
+        return argumentos != null && argumentos.get(LIMIT) instanceof Number numero ? numero.intValue() : null;
+    }
+}
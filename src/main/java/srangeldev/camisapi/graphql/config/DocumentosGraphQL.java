@@ -0,0 +1,130 @@
+package srangeldev.camisapi.graphql.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import graphql.ExecutionInput;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQueryError;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caché de documentos GraphQL analizados y validados, con consultas persistidas automáticas (APQ)
+ *
+ * La clave es el SHA-256 del texto de la consulta, así que el análisis y la validación se hacen
+ * una vez por consulta distinta y no en cada petición. Con el mismo mapa se atiende el protocolo
+ * APQ de Apollo: el cliente envía solo extensions.persistedQuery.sha256Hash y, si el servidor no
+ * lo conoce (PersistedQueryNotFound), repite la petición con el texto, que se comprueba contra el
+ * hash antes de guardarlo. Solo se guardan documentos válidos.
+ *
+ * La complejidad no se guarda: depende de las variables y se calcula en cada ejecución.
+ */
+@Slf4j
+public class DocumentosGraphQL implements PreparsedDocumentProvider {
+
+    static final String EXTENSION = "persistedQuery";
+    static final String HASH = "sha256Hash";
+
+    private final Cache<String, PreparsedDocumentEntry> documentos;
+
+    public DocumentosGraphQL(long maximoDocumentos) {
+        this.documentos = Caffeine.newBuilder()
+                .maximumSize(maximoDocumentos)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput entrada,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> analizar) {
+        return CompletableFuture.completedFuture(obtener(entrada, analizar));
+    }
+
+    PreparsedDocumentEntry obtener(ExecutionInput entrada, Function<ExecutionInput, PreparsedDocumentEntry> analizar) {
+        String consulta = texto(entrada.getQuery());
+        String hashPersistido = hashPersistido(entrada.getExtensions());
+
+        if (hashPersistido == null) {
+            return consulta == null ? analizar.apply(entrada) : cargar(sha256(consulta), entrada, analizar);
+        }
+        if (consulta == null) {
+            PreparsedDocumentEntry guardado = documentos.getIfPresent(hashPersistido);
+            if (guardado != null) {
+                return guardado;
+            }
+            PersistedQueryNotFound error = new PersistedQueryNotFound(hashPersistido);
+            return error(error, error.getExtensions());
+        }
+        if (!hashPersistido.equalsIgnoreCase(sha256(consulta))) {
+            PersistedQueryIdInvalid error = new PersistedQueryIdInvalid(hashPersistido);
+            return error(error, error.getExtensions());
+        }
+        return cargar(hashPersistido.toLowerCase(), entrada, analizar);
+    }
+
+    private PreparsedDocumentEntry cargar(String clave, ExecutionInput entrada,
+                                          Function<ExecutionInput, PreparsedDocumentEntry> analizar) {
+        PreparsedDocumentEntry guardado = documentos.getIfPresent(clave);
+        if (guardado != null) {
+            return guardado;
+        }
+        PreparsedDocumentEntry analizada = analizar.apply(entrada);
+        if (!analizada.hasErrors()) {
+            documentos.put(clave, analizada);
+        }
+        return analizada;
+    }
+
+    /**
+     * Error con el formato que esperan los clientes APQ (mensaje y extensions.persistedQueryId)
+     */
+    private static PreparsedDocumentEntry error(PersistedQueryError error, Map<String, Object> extensiones) {
+        return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                .errorType(error)
+                .message(error.getMessage())
+                .extensions(extensiones)
+                .build());
+    }
+
+    public long tamanio() {
+        return documentos.estimatedSize();
+    }
+
+    /**
+     * Texto de la consulta, o null si no se envió (Spring pone una marca en las peticiones APQ sin texto)
+     */
+    private static String texto(String consulta) {
+        if (consulta == null || consulta.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(consulta)) {
+            return null;
+        }
+        return consulta;
+    }
+
+    private static String hashPersistido(Map<String, Object> extensiones) {
+        if (extensiones != null && extensiones.get(EXTENSION) instanceof Map<?, ?> persistida
+                && persistida.get(HASH) instanceof String hash && !hash.isBlank()) {
+            return hash;
+        }
+        return null;
+    }
+
+    static String sha256(String consulta) {
+        try {
+            byte[] resumen = MessageDigest.getInstance("SHA-256").digest(consulta.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(resumen);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
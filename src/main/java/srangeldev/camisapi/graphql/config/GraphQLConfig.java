@@ -0,0 +1,41 @@
+package srangeldev.camisapi.graphql.config;
+
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de la ejecución de GraphQL
+ *
+ * /graphql es público, así que cada consulta se limita antes de ejecutarse: por coste
+ * ({@link ComplejidadGraphQL}) y por anidamiento. Los documentos analizados y las consultas
+ * persistidas se guardan en {@link DocumentosGraphQL}.
+ */
+@Configuration
+@EnableConfigurationProperties(GraphQLProperties.class)
+public class GraphQLConfig {
+
+    @Bean
+    public DocumentosGraphQL documentosGraphQL(GraphQLProperties properties) {
+        return new DocumentosGraphQL(properties.getMaximoDocumentos());
+    }
+
+    @Bean
+    public GraphQlSourceBuilderCustomizer documentosPreparados(DocumentosGraphQL documentos) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentos));
+    }
+
+    @Bean
+    public Instrumentation complejidadMaxima(GraphQLProperties properties) {
+        return new MaxQueryComplexityInstrumentation(properties.getComplejidadMaxima(), new ComplejidadGraphQL(properties));
+    }
+
+    @Bean
+    public Instrumentation profundidadMaxima(GraphQLProperties properties) {
+        return new MaxQueryDepthInstrumentation(properties.getProfundidadMaxima());
+    }
+}
@@ -0,0 +1,49 @@
+package srangeldev.camisapi.graphql.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Propiedades de ejecución de GraphQL (camisapi.graphql.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.graphql")
+public class GraphQLProperties {
+
+    /**
+     * Documentos ya analizados y validados que se guardan (también las consultas persistidas)
+     */
+    private long maximoDocumentos = 1_000;
+
+    /**
+     * Coste máximo de una consulta; por encima se rechaza antes de ejecutarla
+     */
+    private int complejidadMaxima = 1_000;
+
+    /**
+     * Anidamiento máximo de una consulta
+     */
+    private int profundidadMaxima = 15;
+
+    /**
+     * Coste propio de un campo que devuelve una lista
+     */
+    private int pesoLista = 10;
+
+    /**
+     * Elementos que se suponen en una lista cuando la consulta no pasa "limit"
+     */
+    private int elementosLista = 10;
+
+    /**
+     * Coste propio de campos concretos ("Tipo.campo"), p. ej. los que leen una colección entera
+     */
+    private Map<String, Integer> pesos = new LinkedHashMap<>(Map.of(
+            "Query.productos", 200,
+            "Query.pedidos", 200,
+            "Query.carritos", 200,
+            "Query.usuarios", 200));
+}
@@ -0,0 +1,71 @@
+package srangeldev.camisapi.graphql.dataloader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import srangeldev.camisapi.graphql.productos.mapper.ProductoGraphQLMapper;
+import srangeldev.camisapi.graphql.productos.output.ProductoGraphQLResponse;
+import srangeldev.camisapi.graphql.users.mapper.UserGraphQLMapper;
+import srangeldev.camisapi.graphql.users.output.UserGraphQLResponse;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+import srangeldev.camisapi.rest.users.dto.UserResponseDto;
+import srangeldev.camisapi.rest.users.services.UserService;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * DataLoaders compartidos por los resolvers anidados de GraphQL
+ *
+ * Pedido.usuario, Carrito.usuario, Carrito.items y DetallePedido.producto no consultan nada por
+ * sí mismos: piden el id a uno de estos cargadores, que junta (sin repetir) los ids de todos los
+ * elementos de la lista que se está resolviendo y los resuelve de una vez.
+ * Así una consulta que devuelve N pedidos con sus productos hace una sola búsqueda $in de
+ * productos y otra de usuarios, en lugar de N.
+ *
+ * Cada DataLoader vive lo que dura una petición, así que no hace falta invalidarlo.
+ */
+@Slf4j
+@Component
+public class CargadoresGraphQL {
+
+    private final ProductoService productoService;
+    private final UserService userService;
+    private final ProductoGraphQLMapper productoMapper;
+    private final UserGraphQLMapper userMapper;
+
+    public CargadoresGraphQL(BatchLoaderRegistry registry, ProductoService productoService, UserService userService,
+                             ProductoGraphQLMapper productoMapper, UserGraphQLMapper userMapper) {
+        this.productoService = productoService;
+        this.userService = userService;
+        this.productoMapper = productoMapper;
+        this.userMapper = userMapper;
+
+        registry.forTypePair(String.class, ProductoGraphQLResponse.class)
+                .registerMappedBatchLoader((ids, entorno) -> Mono.fromCallable(() -> productos(ids)));
+        registry.forTypePair(Long.class, UserGraphQLResponse.class)
+                .registerMappedBatchLoader((ids, entorno) -> Mono.fromCallable(() -> usuarios(ids)));
+    }
+
+    /**
+     * Productos por id; los que ya no existen no aparecen y el resolver recibe null
+     */
+    Map<String, ProductoGraphQLResponse> productos(Set<String> ids) {
+        log.debug("Cargando {} productos en lote", ids.size());
+        return productoService.obtenerPorIds(ids).stream()
+                .map(productoMapper::toGraphQLResponse)
+                .collect(Collectors.toMap(ProductoGraphQLResponse::getId, Function.identity()));
+    }
+
+    /**
+     * Usuarios por idUsuario; los que ya no existen no aparecen y el resolver recibe null
+     */
+    Map<Long, UserGraphQLResponse> usuarios(Set<Long> ids) {
+        log.debug("Cargando {} usuarios en lote", ids.size());
+        return userService.findAllByIds(ids).stream()
+                .collect(Collectors.toMap(UserResponseDto::getId, userMapper::toGraphQLResponse));
+    }
+}
@@ -1,15 +1,22 @@
 package srangeldev.camisapi.graphql.pedidos.controller;
 
+import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 import srangeldev.camisapi.graphql.pedidos.mapper.PedidoGraphQLMapper;
+import srangeldev.camisapi.graphql.pedidos.output.DetallePedidoGraphQLResponse;
 import srangeldev.camisapi.graphql.pedidos.output.PedidoGraphQLResponse;
+import srangeldev.camisapi.graphql.productos.output.ProductoGraphQLResponse;
+import srangeldev.camisapi.graphql.users.output.UserGraphQLResponse;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
 import srangeldev.camisapi.rest.pedidos.services.PedidoService;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 @Controller
@@ -29,6 +36,12 @@ public class PedidoGraphQLController {
         return mapper.toGraphQLResponseList(pedidos);
     }
 
+    @QueryMapping
+    public CursorPage<PedidoGraphQLResponse> pedidosPagina(@Argument String cursor, @Argument Integer limit) {
+        var pagina = pedidoService.listarPedidosPagina(cursor, limit);
+        return pagina.map(mapper::toGraphQLResponse);
+    }
+
     @QueryMapping
     public PedidoGraphQLResponse pedido(@Argument String id) {
         Long pedidoId = Long.parseLong(id);
@@ -48,4 +61,26 @@ public class PedidoGraphQLController {
         var pedidos = pedidoService.buscarPorEstado(estadoEnum);
         return mapper.toGraphQLResponseList(pedidos);
     }
+
+    /**
+     * Usuario del pedido, cargado en lote con el resto de usuarios de la petición
+     */
+    @SchemaMapping(typeName = "Pedido")
+    public CompletableFuture<UserGraphQLResponse> usuario(PedidoGraphQLResponse pedido,
+                                                          DataLoader<Long, UserGraphQLResponse> usuarios) {
+        return pedido.getUsuarioId() != null
+                ? usuarios.load(pedido.getUsuarioId())
+                : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Producto actual de una línea del pedido (null si ya no existe), cargado en lote
+     */
+    @SchemaMapping(typeName = "DetallePedido")
+    public CompletableFuture<ProductoGraphQLResponse> producto(DetallePedidoGraphQLResponse detalle,
+                                                               DataLoader<String, ProductoGraphQLResponse> productos) {
+        return detalle.getProductoId() != null
+                ? productos.load(detalle.getProductoId())
+                : CompletableFuture.completedFuture(null);
+    }
 }
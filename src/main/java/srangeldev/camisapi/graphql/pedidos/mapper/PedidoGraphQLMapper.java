@@ -1,7 +1,9 @@
 package srangeldev.camisapi.graphql.pedidos.mapper;
 
 import org.springframework.stereotype.Component;
+import srangeldev.camisapi.graphql.pedidos.output.DetallePedidoGraphQLResponse;
 import srangeldev.camisapi.graphql.pedidos.output.PedidoGraphQLResponse;
+import srangeldev.camisapi.rest.pedidos.dto.DetallePedidoDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
 
 import java.util.List;
@@ -13,17 +15,28 @@ public class PedidoGraphQLMapper {
     public PedidoGraphQLResponse toGraphQLResponse(PedidoResponseDto dto) {
         return PedidoGraphQLResponse.builder()
                 .id(dto.getId() != null ? dto.getId(): null)
-                .usuario(dto.getUserId())
+                .usuarioId(dto.getUserId())
                 .fechaPedido(dto.getCreatedAt() != null ? dto.getCreatedAt().toString() : null)
                 .total(dto.getTotal())
                 .estado(dto.getEstado() != null ? dto.getEstado().toString() : null)
                 .detalles(dto.getDetalles() != null ?
-                    dto.getDetalles().stream().map(Object::toString).toList() : null)
+                    dto.getDetalles().stream().map(this::toGraphQLResponse).toList() : List.of())
                 .fechaPago(dto.getFechaPago() != null ? dto.getFechaPago().toString() : null)
                 .fechaEnvio(dto.getFechaEnvio() != null ? dto.getFechaEnvio().toString() : null)
                 .build();
     }
 
+    public DetallePedidoGraphQLResponse toGraphQLResponse(DetallePedidoDto dto) {
+        return DetallePedidoGraphQLResponse.builder()
+                .productoId(dto.getProductoId())
+                .nombre(dto.getNombre())
+                .talla(dto.getTalla())
+                .equipo(dto.getEquipo())
+                .precioPagado(dto.getPrecioPagado())
+                .imageUrl(dto.getImageUrl())
+                .build();
+    }
+
     public List<PedidoGraphQLResponse> toGraphQLResponseList(List<PedidoResponseDto> dtos) {
         return dtos.stream()
                 .map(this::toGraphQLResponse)
@@ -0,0 +1,21 @@
+package srangeldev.camisapi.graphql.pedidos.output;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetallePedidoGraphQLResponse {
+
+    private String productoId;
+    private String nombre;
+    private String talla;
+    private String equipo;
+    private Double precioPagado;
+    private String imageUrl;
+}
@@ -15,11 +15,11 @@ import java.util.List;
 public class PedidoGraphQLResponse {
 
     private Long id;
-    private Long usuario;
+    private Long usuarioId;
     private String fechaPedido;
     private Double total;
     private String estado;
-    private List<String> detalles;
+    private List<DetallePedidoGraphQLResponse> detalles;
     private String fechaPago;
     private String fechaEnvio;
     private Boolean esPagado;
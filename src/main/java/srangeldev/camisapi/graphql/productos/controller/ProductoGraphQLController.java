@@ -4,9 +4,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
+import srangeldev.camisapi.graphql.productos.input.ProductoFiltroInput;
 import srangeldev.camisapi.graphql.productos.mapper.ProductoGraphQLMapper;
 import srangeldev.camisapi.graphql.productos.output.ProductoGraphQLResponse;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos;
+import srangeldev.camisapi.rest.productos.filtro.ResultadoFiltro;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.search.IndiceBusquedaProductos;
 import srangeldev.camisapi.rest.productos.service.ProductoService;
 
 import java.util.List;
@@ -17,11 +22,16 @@ public class ProductoGraphQLController {
 
     private final ProductoService productoService;
     private final ProductoGraphQLMapper mapper;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final FiltroProductos filtroProductos;
 
     @Autowired
-    public ProductoGraphQLController(ProductoService productoService, ProductoGraphQLMapper mapper) {
+    public ProductoGraphQLController(ProductoService productoService, ProductoGraphQLMapper mapper,
+                                     IndiceBusquedaProductos indiceBusqueda, FiltroProductos filtroProductos) {
         this.productoService = productoService;
         this.mapper = mapper;
+        this.indiceBusqueda = indiceBusqueda;
+        this.filtroProductos = filtroProductos;
     }
 
     @QueryMapping
@@ -30,12 +40,31 @@ public class ProductoGraphQLController {
         return mapper.toGraphQLResponseList(productos);
     }
 
+    @QueryMapping
+    public CursorPage<ProductoGraphQLResponse> productosPagina(@Argument String cursor, @Argument Integer limit) {
+        var pagina = productoService.listarProductosPagina(cursor, limit);
+        return pagina.map(mapper::toGraphQLResponse);
+    }
+
     @QueryMapping
     public ProductoGraphQLResponse producto(@Argument String id) {
         var producto = productoService.obtenerPorId(id);
         return mapper.toGraphQLResponse(producto);
     }
 
+    @QueryMapping
+    public List<ProductoGraphQLResponse> buscarProductos(@Argument String q, @Argument Integer limit) {
+        var productos = indiceBusqueda.buscar(q, limit);
+        return mapper.toGraphQLResponseList(productos);
+    }
+
+    @QueryMapping
+    public ResultadoFiltro<ProductoGraphQLResponse> filtrarProductos(@Argument ProductoFiltroInput filtro,
+                                                                     @Argument String cursor, @Argument Integer limit) {
+        var resultado = filtroProductos.filtrar(mapper.toFiltro(filtro), cursor, limit);
+        return resultado.map(mapper::toGraphQLResponse);
+    }
+
     @QueryMapping
     public List<ProductoGraphQLResponse> productosPorNombre(@Argument String nombre) {
         var productos = productoService.buscarPorNombre(nombre);
@@ -0,0 +1,23 @@
+package srangeldev.camisapi.graphql.productos.input;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoFiltroInput {
+
+    private String equipo;
+    private String talla;
+    private String estado;
+    private Double precioMin;
+    private Double precioMax;
+    private String desde;
+    private String hasta;
+    private String orden;
+}
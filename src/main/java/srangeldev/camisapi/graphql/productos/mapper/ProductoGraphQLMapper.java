@@ -1,9 +1,14 @@
 package srangeldev.camisapi.graphql.productos.mapper;
 
 import org.springframework.stereotype.Component;
+import srangeldev.camisapi.graphql.productos.input.ProductoFiltroInput;
 import srangeldev.camisapi.graphql.productos.output.ProductoGraphQLResponse;
 import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.filtro.OrdenProducto;
+import srangeldev.camisapi.rest.productos.filtro.ProductoFiltro;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
 
+import java.time.LocalDate;
 import java.util.List;
 
 
@@ -29,4 +34,20 @@ public class ProductoGraphQLMapper {
                 .map(this::toGraphQLResponse)
                 .toList();
     }
+
+    public ProductoFiltro toFiltro(ProductoFiltroInput input) {
+        if (input == null) {
+            return new ProductoFiltro();
+        }
+        return ProductoFiltro.builder()
+                .equipo(input.getEquipo())
+                .talla(input.getTalla())
+                .estado(input.getEstado() != null ? EstadoProducto.valueOf(input.getEstado().toUpperCase()) : null)
+                .precioMin(input.getPrecioMin())
+                .precioMax(input.getPrecioMax())
+                .desde(input.getDesde() != null ? LocalDate.parse(input.getDesde()) : null)
+                .hasta(input.getHasta() != null ? LocalDate.parse(input.getHasta()) : null)
+                .orden(input.getOrden() != null ? OrdenProducto.valueOf(input.getOrden().toUpperCase()) : OrdenProducto.ID)
+                .build();
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 import srangeldev.camisapi.graphql.users.mapper.UserGraphQLMapper;
 import srangeldev.camisapi.graphql.users.output.UserGraphQLResponse;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.users.services.UserService;
 
 import java.util.List;
@@ -29,6 +30,12 @@ public class UserGraphQLController {
         return mapper.toGraphQLResponseList(usuarios);
     }
 
+    @QueryMapping
+    public CursorPage<UserGraphQLResponse> usuariosPagina(@Argument String cursor, @Argument Integer limit) {
+        var pagina = userService.findPage(cursor, limit);
+        return pagina.map(mapper::toGraphQLResponse);
+    }
+
     @QueryMapping
     public UserGraphQLResponse usuario(@Argument String id) {
         Long userId = Long.parseLong(id);
@@ -0,0 +1,262 @@
+package srangeldev.camisapi.mongo;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.users.models.User;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Gestión de los índices de Mongo de productos y usuarios
+ *
+ * Al arrancar (antes que el resto de runners) crea los índices declarados aquí y comprueba con
+ * explain() el plan ganador de cada consulta de ProductoRepository y UserRepository. El resultado
+ * queda en {@link #getInforme()} (y en /actuator/health); en modo estricto el arranque falla si un
+ * índice no se puede crear o alguna consulta recorrería la colección entera (COLLSCAN).
+ *
+ * Las búsquedas "IgnoreCase" de productos usan la colación {@link #COLACION_CI} en lugar de una
+ * expresión regular con /i, que no puede acotar el índice; consulta e índice deben usar la misma.
+ * Si un índice ya existe con el mismo nombre y otras opciones (p. ej. la colación anterior), se
+ * borra y se vuelve a crear con las declaradas aquí.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@EnableConfigurationProperties(IndicesProperties.class)
+public class GestorIndices implements ApplicationRunner {
+
+    /**
+     * Colación insensible a mayúsculas y tildes (español, fuerza 1) de los índices y consultas de nombre
+     * y equipo: "atletico" encuentra "Atlético"
+     */
+    public static final String COLACION_CI = "{ 'locale': 'es', 'strength': 1 }";
+
+    /**
+     * La misma colación, para consultas construidas con MongoTemplate
+     */
+    public static final Collation COLACION = Collation.of("es").strength(Collation.ComparisonLevel.primary());
+
+    /**
+     * Código de error IndexOptionsConflict de Mongo
+     */
+    private static final int CONFLICTO_DE_OPCIONES = 85;
+
+    private final MongoTemplate mongoTemplate;
+    private final IndicesProperties properties;
+    private volatile InformeIndices informe;
+
+    public GestorIndices(MongoTemplate mongoTemplate, IndicesProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        InformeIndices resultado = new InformeIndices();
+        try {
+            if (properties.isCrear()) {
+                crearIndices(resultado);
+            }
+            if (properties.isVerificar()) {
+                verificarPlanes(resultado);
+            }
+        } catch (RuntimeException e) {
+            resultado.error("Mongo no disponible: " + e.getMessage());
+        }
+        informe = resultado;
+
+        if (resultado.isCorrecto()) {
+            log.info("Índices de Mongo correctos: {}", resultado.resumen());
+        } else if (properties.isEstricto()) {
+            throw new IllegalStateException("Comprobación de índices de Mongo fallida: " + resultado.resumen());
+        } else {
+            log.warn("Comprobación de índices de Mongo con avisos: {}", resultado.resumen());
+        }
+    }
+
+    /**
+     * Informe de la última comprobación, o null si aún no se ha hecho
+     */
+    public InformeIndices getInforme() {
+        return informe;
+    }
+
+    /**
+     * Índices declarados por colección
+     */
+    List<Declaracion> declaraciones() {
+        String productos = mongoTemplate.getCollectionName(Producto.class);
+        String usuarios = mongoTemplate.getCollectionName(User.class);
+        return List.of(
+                new Declaracion(productos, new Index().on("nombre", Sort.Direction.ASC).named("nombre_ci").collation(COLACION)),
+                new Declaracion(productos, new Index().on("equipo", Sort.Direction.ASC).named("equipo_ci").collation(COLACION)),
+                // Filtros combinados del catálogo; su prefijo sirve también a findByEstado
+                new Declaracion(productos, new Index()
+                        .on("estado", Sort.Direction.ASC)
+                        .on("equipo", Sort.Direction.ASC)
+                        .on("talla", Sort.Direction.ASC)
+                        .named("estado_equipo_talla")),
+                new Declaracion(productos, new Index().on("talla", Sort.Direction.ASC).named("talla")),
+                // Liberación de reservas caducadas (ReservasProductos)
+                new Declaracion(productos, new Index()
+                        .on("estado", Sort.Direction.ASC)
+                        .on("reservadoHasta", Sort.Direction.ASC)
+                        .named("estado_reservadoHasta")),
+                new Declaracion(usuarios, new Index().on("id_usuario", Sort.Direction.ASC).named("id_usuario").unique()),
+                new Declaracion(usuarios, new Index().on("username", Sort.Direction.ASC).named("username").unique()),
+                new Declaracion(usuarios, new Index().on("nombre", Sort.Direction.ASC).named("nombre")),
+                new Declaracion(usuarios, new Index()
+                        .on("isDeleted", Sort.Direction.ASC)
+                        .on("username", Sort.Direction.ASC)
+                        .named("isDeleted_username"))
+        );
+    }
+
+    /**
+     * Consulta equivalente a cada método de los repositorios, con valores de ejemplo
+     */
+    List<Consulta> consultas() {
+        String productos = mongoTemplate.getCollectionName(Producto.class);
+        String usuarios = mongoTemplate.getCollectionName(User.class);
+        return List.of(
+                new Consulta("ProductoRepository.findByNombreIgnoreCase", productos,
+                        new Query(Criteria.where("nombre").is("camiseta")).collation(COLACION)),
+                new Consulta("ProductoRepository.findByEquipoIgnoreCase", productos,
+                        new Query(Criteria.where("equipo").is("real madrid")).collation(COLACION)),
+                new Consulta("ProductoRepository.findByEstado", productos,
+                        new Query(Criteria.where("estado").is(EstadoProducto.DISPONIBLE.name()))),
+                new Consulta("ProductoRepository.findByTalla", productos,
+                        new Query(Criteria.where("talla").is("M"))),
+                new Consulta("ProductoRepository.findByIdGreaterThanOrderByIdAsc", productos,
+                        new Query(Criteria.where("_id").gt(new ObjectId())).with(Sort.by("_id")).limit(21)),
+                new Consulta("ReservasProductos.liberarLote", productos,
+                        new Query(Criteria.where("estado").is(EstadoProducto.RESERVADO.name())
+                                .and("reservadoHasta").lt(new Date())).limit(500)),
+                new Consulta("UserRepository.findByIdUsuario", usuarios,
+                        new Query(Criteria.where("id_usuario").is(1L))),
+                new Consulta("UserRepository.findByIdUsuarioIn", usuarios,
+                        new Query(Criteria.where("id_usuario").in(1L, 2L))),
+                new Consulta("UserRepository.findByUsername", usuarios,
+                        new Query(Criteria.where("username").is("admin"))),
+                new Consulta("UserRepository.findByNombre", usuarios,
+                        new Query(Criteria.where("nombre").regex("adm", "i"))),
+                new Consulta("UserRepository.findByIsDeleted", usuarios,
+                        new Query(Criteria.where("isDeleted").is(false))),
+                new Consulta("UserRepository.findByUsernameContainingIgnoreCaseAndIsDeleted", usuarios,
+                        new Query(Criteria.where("username").regex("adm", "i").and("isDeleted").is(false))),
+                new Consulta("UserRepository.findFirstByOrderByIdUsuarioDesc", usuarios,
+                        new Query().with(Sort.by(Sort.Direction.DESC, "id_usuario")).limit(1)),
+                new Consulta("UserRepository.findByIdUsuarioGreaterThanOrderByIdUsuarioAsc", usuarios,
+                        new Query(Criteria.where("id_usuario").gt(0L)).with(Sort.by("id_usuario")).limit(21))
+        );
+    }
+
+    private void crearIndices(InformeIndices resultado) {
+        for (Declaracion declaracion : declaraciones()) {
+            try {
+                String nombre = crearIndice(declaracion);
+                resultado.indiceCreado(declaracion.coleccion(), nombre);
+            } catch (DataAccessResourceFailureException e) {
+                // Sin conexión no tiene sentido esperar el timeout de cada índice
+                throw e;
+            } catch (RuntimeException e) {
+                // p. ej. un índice único sobre datos duplicados, o uno con el mismo nombre y otras opciones
+                log.warn("No se pudo crear el índice {} en {}: {}", declaracion.indice().getIndexKeys(), declaracion.coleccion(), e.getMessage());
+                resultado.error(declaracion.coleccion() + "." + declaracion.indice().getIndexKeys() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private String crearIndice(Declaracion declaracion) {
+        IndexOperations indices = mongoTemplate.indexOps(declaracion.coleccion());
+        try {
+            return indices.createIndex(declaracion.indice());
+        } catch (RuntimeException e) {
+            if (!conflictoDeOpciones(e)) {
+                throw e;
+            }
+            String nombre = (String) declaracion.indice().getIndexOptions().get("name");
+            log.info("El índice {} de {} tiene otras opciones: se vuelve a crear", nombre, declaracion.coleccion());
+            indices.dropIndex(nombre);
+            return indices.createIndex(declaracion.indice());
+        }
+    }
+
+    /**
+     * Si Mongo rechazó el índice porque ya existe uno con el mismo nombre y otras opciones (IndexOptionsConflict)
+     */
+    static boolean conflictoDeOpciones(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof MongoException mongo && mongo.getCode() == CONFLICTO_DE_OPCIONES) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void verificarPlanes(InformeIndices resultado) {
+        for (Consulta consulta : consultas()) {
+            Query query = consulta.query();
+            FindIterable<Document> find = mongoTemplate.getCollection(consulta.coleccion())
+                    .find(query.getQueryObject())
+                    .sort(query.getSortObject());
+            if (query.getLimit() > 0) {
+                find.limit(query.getLimit());
+            }
+            query.getCollation().ifPresent(colacion -> find.collation(colacion.toMongoCollation()));
+            List<String> etapas = etapas(find.explain());
+            log.debug("Plan de {}: {}", consulta.nombre(), etapas);
+            resultado.plan(consulta.nombre(), etapas);
+        }
+    }
+
+    /**
+     * Etapas del plan ganador de un explain(), en preorden (p. ej. [LIMIT, FETCH, IXSCAN])
+     */
+    static List<String> etapas(Document explicacion) {
+        List<String> etapas = new ArrayList<>();
+        Object planificador = explicacion.get("queryPlanner");
+        if (planificador instanceof Document documento) {
+            recorrer(documento.get("winningPlan"), etapas);
+        }
+        return etapas;
+    }
+
+    private static void recorrer(Object nodo, List<String> etapas) {
+        if (nodo instanceof Document documento) {
+            if (documento.get("stage") instanceof String etapa) {
+                etapas.add(etapa);
+            }
+            documento.values().forEach(valor -> recorrer(valor, etapas));
+        } else if (nodo instanceof List<?> lista) {
+            lista.forEach(valor -> recorrer(valor, etapas));
+        }
+    }
+
+    record Declaracion(String coleccion, Index indice) {
+    }
+
+    record Consulta(String nombre, String coleccion, Query query) {
+    }
+}
@@ -0,0 +1,36 @@
+package srangeldev.camisapi.mongo;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publica el informe de índices en /actuator/health (componente indicesMongo).
+ *
+ * Sigue en UP aunque haya consultas con COLLSCAN: son lentas, no una caída; el detalle lo muestra
+ * y el modo estricto ya impide arrancar. Solo baja a DOWN si no se pudieron crear índices.
+ */
+@Component
+public class IndicesMongoHealthIndicator implements HealthIndicator {
+
+    private final GestorIndices gestorIndices;
+
+    public IndicesMongoHealthIndicator(GestorIndices gestorIndices) {
+        this.gestorIndices = gestorIndices;
+    }
+
+    @Override
+    public Health health() {
+        InformeIndices informe = gestorIndices.getInforme();
+        if (informe == null) {
+            return Health.unknown().withDetail("motivo", "comprobación pendiente").build();
+        }
+        Health.Builder builder = informe.getErrores().isEmpty() ? Health.up() : Health.down();
+        return builder
+                .withDetail("indices", informe.getIndices())
+                .withDetail("errores", informe.getErrores())
+                .withDetail("colscans", informe.getColscans())
+                .withDetail("planes", informe.getPlanes())
+                .build();
+    }
+}
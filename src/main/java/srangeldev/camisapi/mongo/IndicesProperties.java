@@ -0,0 +1,27 @@
+package srangeldev.camisapi.mongo;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades de la gestión de índices de Mongo (camisapi.mongo.indices.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.mongo.indices")
+public class IndicesProperties {
+
+    /**
+     * Crear al arrancar los índices declarados (createIndex es idempotente)
+     */
+    private boolean crear = true;
+
+    /**
+     * Comprobar con explain() el plan de cada consulta de los repositorios
+     */
+    private boolean verificar = true;
+
+    /**
+     * Si es true, el arranque falla cuando un índice no se puede crear o una consulta haría COLLSCAN
+     */
+    private boolean estricto = false;
+}
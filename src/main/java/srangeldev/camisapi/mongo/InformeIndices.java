@@ -0,0 +1,49 @@
+package srangeldev.camisapi.mongo;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la última comprobación de índices: índices creados, errores al crearlos
+ * y etapas del plan ganador de cada consulta de los repositorios.
+ */
+@Getter
+public class InformeIndices {
+
+    private final List<String> indices = new ArrayList<>();
+    private final List<String> errores = new ArrayList<>();
+    private final Map<String, List<String>> planes = new LinkedHashMap<>();
+    private final List<String> colscans = new ArrayList<>();
+
+    void indiceCreado(String coleccion, String nombre) {
+        indices.add(coleccion + "." + nombre);
+    }
+
+    void error(String mensaje) {
+        errores.add(mensaje);
+    }
+
+    void plan(String consulta, List<String> etapas) {
+        planes.put(consulta, Collections.unmodifiableList(etapas));
+        if (etapas.contains("COLLSCAN")) {
+            colscans.add(consulta);
+        }
+    }
+
+    /**
+     * Todos los índices se crearon y ninguna consulta recorre la colección entera
+     */
+    public boolean isCorrecto() {
+        return errores.isEmpty() && colscans.isEmpty();
+    }
+
+    public String resumen() {
+        return "índices=" + indices.size() + ", consultas=" + planes.size()
+                + ", errores=" + errores + ", COLLSCAN=" + colscans;
+    }
+}
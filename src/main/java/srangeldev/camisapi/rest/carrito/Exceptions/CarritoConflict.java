@@ -0,0 +1,8 @@
+package srangeldev.camisapi.rest.carrito.Exceptions;
+
+
+public class CarritoConflict extends CarritoException {
+    public CarritoConflict(String message) {
+        super(message);
+    }
+}
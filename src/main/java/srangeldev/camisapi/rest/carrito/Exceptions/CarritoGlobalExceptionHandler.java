@@ -1,5 +1,6 @@
 package srangeldev.camisapi.rest.carrito.Exceptions;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -36,6 +37,33 @@ public class CarritoGlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(CarritoConflict.class)
+    public ResponseEntity<Map<String, Object>> handleCarritoConflict(CarritoConflict e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Conflicto en carrito");
+        error.put("message", e.getMessage());
+        error.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(CarritoPreconditionFailed.class)
+    public ResponseEntity<Map<String, Object>> handleCarritoPreconditionFailed(CarritoPreconditionFailed e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Versión de carrito desfasada");
+        error.put("message", e.getMessage());
+        error.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLocking(OptimisticLockingFailureException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Conflicto en carrito");
+        error.put("message", "El carrito ha cambiado mientras se modificaba; vuelve a leerlo e inténtalo de nuevo");
+        error.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(CarritoException.class)
     public ResponseEntity<Map<String, Object>> handleCarritoException(CarritoException e) {
         Map<String, Object> error = new HashMap<>();
@@ -0,0 +1,8 @@
+package srangeldev.camisapi.rest.carrito.Exceptions;
+
+
+public class CarritoPreconditionFailed extends CarritoException {
+    public CarritoPreconditionFailed(Long id) {
+        super("El carrito con id " + id + " ha cambiado desde la versión indicada en If-Match");
+    }
+}
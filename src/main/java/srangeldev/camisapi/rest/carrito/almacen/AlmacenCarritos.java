@@ -0,0 +1,59 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dónde viven los carritos mientras se usan
+ *
+ * Las operaciones sobre los productos de un carrito son atómicas por sí mismas: quien llama no
+ * necesita leer el carrito, modificarlo y guardarlo. Los métodos que modifican lanzan
+ * CarritoNotFound si el carrito no existe.
+ *
+ * Cada cambio sube la versión del carrito. Añadir y quitar conmutan, así que nunca fallan por una
+ * escritura concurrente: se aplican sobre la versión más reciente. Reemplazar y eliminar aceptan
+ * la versión que el cliente leyó (null = sin condición) y lanzan CarritoPreconditionFailed si ya
+ * no es la actual.
+ */
+public interface AlmacenCarritos {
+
+    Optional<Carrito> obtener(Long id);
+
+    Optional<Carrito> obtenerPorUsuario(Long userId);
+
+    /**
+     * Guarda un carrito nuevo; el devuelto ya tiene id.
+     */
+    Carrito crear(Carrito carrito);
+
+    /**
+     * Añade los productos que no estuvieran ya, al final y en el orden recibido.
+     */
+    Carrito agregar(Long id, Collection<String> productosIds);
+
+    Carrito quitar(Long id, Collection<String> productosIds);
+
+    /**
+     * Quita y añade productos en una sola operación atómica (primero quita, después añade).
+     */
+    Carrito modificar(Long id, Collection<String> agregar, Collection<String> quitar);
+
+    /**
+     * Sustituye todos los productos del carrito (con una lista vacía lo vacía).
+     */
+    Carrito reemplazar(Long id, List<String> productosIds, Long versionEsperada);
+
+    /**
+     * @return el carrito tal como estaba antes de borrarlo
+     */
+    Optional<Carrito> eliminar(Long id, Long versionEsperada);
+
+    /**
+     * Carritos leídos directamente de Postgres con los productos que tengan ahora en el almacén,
+     * que pueden ser más recientes que los guardados.
+     */
+    List<Carrito> actualizar(List<Carrito> carritos);
+}
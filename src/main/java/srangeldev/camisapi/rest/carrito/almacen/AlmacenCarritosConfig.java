@@ -0,0 +1,32 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+/**
+ * Almacén de carritos según camisapi.carritos.almacen
+ */
+@Configuration
+@EnableConfigurationProperties(CarritosProperties.class)
+public class AlmacenCarritosConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "camisapi.carritos.almacen", havingValue = "redis")
+    public AlmacenCarritos almacenCarritosRedis(StringRedisTemplate redisTemplate, CarritoRepository carritoRepository,
+                                                PlatformTransactionManager transactionManager, CarritosProperties properties) {
+        return new AlmacenCarritosRedis(redisTemplate, carritoRepository, transactionManager, properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "camisapi.carritos.almacen", havingValue = "jpa", matchIfMissing = true)
+    public AlmacenCarritos almacenCarritosJpa(CarritoRepository carritoRepository, CarritoMapper carritoMapper,
+                                              PlatformTransactionManager transactionManager) {
+        return new AlmacenCarritosJpa(carritoRepository, carritoMapper, transactionManager);
+    }
+}
@@ -0,0 +1,169 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Carritos directamente en Postgres: cada operación es una transacción que carga el carrito,
+ * lo modifica con CarritoMapper y lo guarda.
+ *
+ * No hay bloqueos: el carrito lleva @Version y si otra escritura lo cambió entre la lectura y el
+ * guardado la transacción falla. Añadir y quitar conmutan, así que entonces se repiten sobre el
+ * carrito recién leído (hasta INTENTOS veces); reemplazar o eliminar con una versión esperada no se
+ * repiten, porque el carrito ya no es el que el cliente vio. Para poder repetirlas, las escrituras
+ * van en su propia transacción aunque quien llama tenga una abierta.
+ *
+ * Los carritos devueltos llevan la lista de productos ya cargada para poder usarlos fuera de la transacción.
+ */
+@Slf4j
+public class AlmacenCarritosJpa implements AlmacenCarritos {
+
+    static final int INTENTOS = 10;
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final CarritoRepository carritoRepository;
+    private final CarritoMapper carritoMapper;
+    private final TransactionTemplate escritura;
+    private final TransactionTemplate lectura;
+
+    public AlmacenCarritosJpa(CarritoRepository carritoRepository, CarritoMapper carritoMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.carritoRepository = carritoRepository;
+        this.carritoMapper = carritoMapper;
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.escritura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    @Override
+    public Optional<Carrito> obtener(Long id) {
+        return lectura.execute(estado -> carritoRepository.findById(id).map(AlmacenCarritosJpa::inicializado));
+    }
+
+    @Override
+    public Optional<Carrito> obtenerPorUsuario(Long userId) {
+        return lectura.execute(estado -> carritoRepository.findByUserId(userId).map(AlmacenCarritosJpa::inicializado));
+    }
+
+    @Override
+    public Carrito crear(Carrito carrito) {
+        return escritura.execute(estado -> carritoRepository.save(carrito));
+    }
+
+    @Override
+    public Carrito agregar(Long id, Collection<String> productosIds) {
+        return aplicar(id, "AGREGAR", productosIds, null);
+    }
+
+    @Override
+    public Carrito quitar(Long id, Collection<String> productosIds) {
+        return aplicar(id, "QUITAR", productosIds, null);
+    }
+
+    @Override
+    public Carrito modificar(Long id, Collection<String> agregar, Collection<String> quitar) {
+        return escribir(id, null, carrito -> {
+            carrito.quitar(quitar);
+            carrito.agregar(agregar);
+        });
+    }
+
+    @Override
+    public Carrito reemplazar(Long id, List<String> productosIds, Long versionEsperada) {
+        return aplicar(id, "REEMPLAZAR", productosIds, versionEsperada);
+    }
+
+    @Override
+    public Optional<Carrito> eliminar(Long id, Long versionEsperada) {
+        return conReintentos(id, versionEsperada, () -> escritura.execute(estado -> {
+            Optional<Carrito> carrito = carritoRepository.findById(id).map(AlmacenCarritosJpa::inicializado);
+            carrito.ifPresent(borrado -> {
+                comprobarVersion(borrado, versionEsperada);
+                carritoRepository.delete(borrado);
+                carritoRepository.flush();
+            });
+            return carrito;
+        }));
+    }
+
+    @Override
+    public List<Carrito> actualizar(List<Carrito> carritos) {
+        return carritos;
+    }
+
+    private Carrito aplicar(Long id, String accion, Collection<String> productosIds, Long versionEsperada) {
+        CarritoUpdateRequestDto cambio = CarritoUpdateRequestDto.builder()
+                .accion(accion)
+                .productosIds(new ArrayList<>(productosIds))
+                .build();
+        return escribir(id, versionEsperada, carrito -> carritoMapper.updateFromDto(carrito, cambio));
+    }
+
+    /**
+     * Lee el carrito, comprueba la versión esperada, aplica el cambio y lo guarda en una transacción
+     */
+    private Carrito escribir(Long id, Long versionEsperada, Consumer<Carrito> cambio) {
+        return conReintentos(id, versionEsperada, () -> escritura.execute(estado -> {
+            Carrito carrito = carritoRepository.findById(id).orElseThrow(() -> new CarritoNotFound(id));
+            comprobarVersion(carrito, versionEsperada);
+            cambio.accept(carrito);
+            carrito.setModificadoEn(LocalDateTime.now());
+            return inicializado(carritoRepository.saveAndFlush(carrito));
+        }));
+    }
+
+    /**
+     * Repite la escritura si pierde la carrera con otra. Con versión esperada no se repite: el
+     * carrito cambió desde que el cliente lo leyó.
+     */
+    private <T> T conReintentos(Long id, Long versionEsperada, Supplier<T> operacion) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return operacion.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (versionEsperada != null) {
+                    throw new CarritoPreconditionFailed(id);
+                }
+                if (intento == INTENTOS) {
+                    throw e;
+                }
+                log.debug("Escritura concurrente en el carrito {}; reintento {}", id, intento);
+                // Espera aleatoria creciente para que los que chocaron no vuelvan a chocar
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(intento * ESPERA_NANOS));
+            }
+        }
+    }
+
+    private static void comprobarVersion(Carrito carrito, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(carrito.getVersion())) {
+            throw new CarritoPreconditionFailed(carrito.getId());
+        }
+    }
+
+    private static Carrito inicializado(Carrito carrito) {
+        Hibernate.initialize(carrito.getItems());
+        return carrito;
+    }
+}
@@ -0,0 +1,563 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carritos vivos en Redis con volcado diferido (write-behind) a Postgres
+ *
+ * Cada carrito es un hash (userId, fechas, versión) y un sorted set con sus productos, ordenados
+ * por el momento en que se añadieron. Añadir, quitar o reemplazar es un único script Lua: atómico,
+ * sin leer-modificar-escribir y sin transacción de base de datos. El script deja además el id del
+ * carrito en el conjunto de pendientes.
+ *
+ * Un hilo vuelca los pendientes cada camisapi.carritos.intervalo-volcado, en lotes de una
+ * transacción. Si el carrito cambió mientras se volcaba (su versión ya no es la leída) vuelve a
+ * quedar pendiente, así que Postgres acaba con el último estado aunque vuelquen varias réplicas.
+ * Cada lote pasa de pendientes al conjunto "en vuelo" de la réplica en el mismo script y solo sale de
+ * él cuando Postgres ha confirmado: si la réplica muere a mitad de volcado, la siguiente que arranca
+ * devuelve a pendientes lo que quedó en vuelo y el carrito no se pierde al caducar en Redis.
+ * Si un carrito no está en Redis (nunca se cargó o caducó tras camisapi.carritos.ttl sin uso) se
+ * reconstruye desde Postgres la primera vez que se pide.
+ *
+ * Un carrito no puede tener el mismo producto dos veces. Como en Postgres, reemplazar mantiene la
+ * posición de los productos que siguen en el carrito y añade al final los nuevos.
+ *
+ * La versión del hash es la del carrito (su ETag): al cargarlo se parte de la @Version de Postgres
+ * y el volcado deja en Postgres la de Redis, así que nunca se repite aunque el carrito salga de
+ * Redis y vuelva. Reemplazar y eliminar con versión esperada la comprueban dentro del script.
+ */
+@Slf4j
+public class AlmacenCarritosRedis implements AlmacenCarritos {
+
+    static final String LEER = "leer";
+    static final String AGREGAR = "agregar";
+    static final String QUITAR = "quitar";
+    static final String REEMPLAZAR = "reemplazar";
+    static final String MODIFICAR_LOTE = "lote";
+    static final String ELIMINAR = "eliminar";
+    static final String PRECONDICION = "precondicion";
+
+    /**
+     * KEYS: hash, productos, pendientes. ARGV: operación, ttl, ahora, id, versión esperada ('' = cualquiera), productos...
+     * En la operación lote los productos son: cuántos se quitan, los que se quitan y los que se añaden.
+     * Devuelve userId, creadoEn, modificadoEn, versión y los productos, vacío si el carrito no está en Redis
+     * (un nil llega a Java como una lista con un nulo), o {precondicion} si su versión no es la esperada. Eliminar devuelve el estado y borra el hash, los
+     * productos, la clave del usuario y el volcado pendiente.
+     * La clave del usuario (campo usuario del hash, que deja CARGAR) se renueva con el carrito: solo el hash
+     * sabe de qué usuario es.
+     */
+    static final RedisScript<List> MODIFICAR = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              return {}
+            end
+            if ARGV[5] ~= '' and redis.call('HGET', KEYS[1], 'version') ~= ARGV[5] then
+              return {'precondicion'}
+            end
+            local function estado()
+              local campos = redis.call('HMGET', KEYS[1], 'userId', 'creadoEn', 'modificadoEn', 'version')
+              for _, producto in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do
+                table.insert(campos, producto)
+              end
+              return campos
+            end
+            local op = ARGV[1]
+            local usuario = redis.call('HGET', KEYS[1], 'usuario')
+            if op == 'eliminar' then
+              local borrado = estado()
+              redis.call('DEL', KEYS[1], KEYS[2])
+              if usuario and redis.call('GET', usuario) == ARGV[4] then
+                redis.call('DEL', usuario)
+              end
+              redis.call('SREM', KEYS[3], ARGV[4])
+              return borrado
+            end
+            if op ~= 'leer' then
+              if op == 'reemplazar' then
+                local nuevos = {}
+                for i = 6, #ARGV do
+                  nuevos[ARGV[i]] = true
+                end
+                for _, producto in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do
+                  if not nuevos[producto] then
+                    redis.call('ZREM', KEYS[2], producto)
+                  end
+                end
+              end
+              local desde = 6
+              if op == 'lote' then
+                desde = 7 + tonumber(ARGV[6])
+                for i = 7, desde - 1 do
+                  redis.call('ZREM', KEYS[2], ARGV[i])
+                end
+              end
+              for i = desde, #ARGV do
+                if op == 'quitar' then
+                  redis.call('ZREM', KEYS[2], ARGV[i])
+                elseif not redis.call('ZSCORE', KEYS[2], ARGV[i]) then
+                  redis.call('ZADD', KEYS[2], redis.call('HINCRBY', KEYS[1], 'seq', 1), ARGV[i])
+                end
+              end
+              redis.call('HSET', KEYS[1], 'modificadoEn', ARGV[3])
+              redis.call('HINCRBY', KEYS[1], 'version', 1)
+              redis.call('SADD', KEYS[3], ARGV[4])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[2])
+            if usuario then
+              redis.call('SET', usuario, ARGV[4], 'EX', ARGV[2])
+            end
+            return estado()
+            """, List.class);
+
+    /**
+     * KEYS: pendientes, en vuelo de la réplica, registro de conjuntos en vuelo. ARGV: cuántos.
+     * Saca un lote de pendientes y lo deja en vuelo hasta que se confirme en Postgres.
+     */
+    static final RedisScript<List> SACAR = new DefaultRedisScript<>("""
+            local ids = redis.call('SPOP', KEYS[1], ARGV[1])
+            if #ids > 0 then
+              redis.call('SADD', KEYS[2], unpack(ids))
+              redis.call('SADD', KEYS[3], KEYS[2])
+            end
+            return ids
+            """, List.class);
+
+    /**
+     * KEYS: pendientes, conjunto en vuelo, registro de conjuntos en vuelo.
+     * Devuelve a pendientes todo lo que quedó en vuelo y quita el conjunto del registro.
+     */
+    static final RedisScript<Long> DEVOLVER = new DefaultRedisScript<>("""
+            local total = redis.call('SCARD', KEYS[2])
+            if total > 0 then
+              redis.call('SUNIONSTORE', KEYS[1], KEYS[1], KEYS[2])
+              redis.call('DEL', KEYS[2])
+            end
+            redis.call('SREM', KEYS[3], KEYS[2])
+            return total
+            """, Long.class);
+
+    /**
+     * KEYS: hash, productos, usuario. ARGV: ttl, userId, creadoEn, modificadoEn, id, versión, productos...
+     * Solo carga si el carrito no está ya en Redis: lo que haya allí es igual o más reciente que Postgres.
+     * Aunque ya esté, vuelve a dejar la clave del usuario, que pudo caducar o no haberse guardado en el hash.
+     */
+    static final RedisScript<Long> CARGAR = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              redis.call('HSET', KEYS[1], 'usuario', KEYS[3])
+              redis.call('EXPIRE', KEYS[1], ARGV[1])
+              redis.call('EXPIRE', KEYS[2], ARGV[1])
+              redis.call('SET', KEYS[3], ARGV[5], 'EX', ARGV[1])
+              return 0
+            end
+            redis.call('DEL', KEYS[2])
+            local seq = 0
+            for i = 7, #ARGV do
+              if not redis.call('ZSCORE', KEYS[2], ARGV[i]) then
+                seq = seq + 1
+                redis.call('ZADD', KEYS[2], seq, ARGV[i])
+              end
+            end
+            redis.call('HSET', KEYS[1], 'userId', ARGV[2], 'creadoEn', ARGV[3], 'modificadoEn', ARGV[4],
+                       'seq', seq, 'version', ARGV[6], 'usuario', KEYS[3])
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            redis.call('EXPIRE', KEYS[2], ARGV[1])
+            redis.call('SET', KEYS[3], ARGV[5], 'EX', ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CarritoRepository carritoRepository;
+    private final CarritosProperties properties;
+    private final TransactionTemplate escritura;
+    private final TransactionTemplate lectura;
+    /**
+     * Conjunto en vuelo de esta réplica; como el volcado es de un solo hilo, solo tiene el lote en curso
+     */
+    private final String enVuelo;
+
+    private ScheduledExecutorService volcador;
+    /**
+     * Un lote falló y no se pudo devolver a pendientes: se reintenta antes del siguiente volcado
+     */
+    private volatile boolean devolverEnVuelo;
+
+    public AlmacenCarritosRedis(StringRedisTemplate redisTemplate, CarritoRepository carritoRepository,
+                                PlatformTransactionManager transactionManager, CarritosProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.carritoRepository = carritoRepository;
+        this.properties = properties;
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.enVuelo = properties.getPrefijo() + "volcando:" + UUID.randomUUID();
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        recuperarEnVuelo();
+        long intervalo = properties.getIntervaloVolcado().toMillis();
+        volcador = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("carritos-volcado").daemon().factory());
+        volcador.scheduleWithFixedDelay(this::volcarPendientes, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Al parar vuelca lo que quede pendiente para no dejar cambios solo en Redis.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        volcador.shutdown();
+        volcador.awaitTermination(properties.getIntervaloVolcado().toMillis() * 10, TimeUnit.MILLISECONDS);
+        volcarPendientes();
+    }
+
+    @Override
+    public Optional<Carrito> obtener(Long id) {
+        return Optional.ofNullable(ejecutar(id, LEER, List.of(), null));
+    }
+
+    @Override
+    public Optional<Carrito> obtenerPorUsuario(Long userId) {
+        String id = redisTemplate.opsForValue().get(claveUsuario(userId));
+        if (id != null) {
+            Optional<Carrito> carrito = obtener(Long.valueOf(id));
+            if (carrito.isPresent()) {
+                return carrito;
+            }
+        }
+        return lectura.execute(estado -> carritoRepository.findByUserId(userId).map(AlmacenCarritosRedis::copia))
+                .map(carrito -> {
+                    cargar(carrito);
+                    return obtener(carrito.getId()).orElse(carrito);
+                });
+    }
+
+    @Override
+    public Carrito crear(Carrito carrito) {
+        Carrito guardado = carritoRepository.save(carrito);
+        cargar(guardado);
+        return obtener(guardado.getId()).orElse(guardado);
+    }
+
+    @Override
+    public Carrito agregar(Long id, Collection<String> productosIds) {
+        return exigir(id, ejecutar(id, AGREGAR, productosIds, null));
+    }
+
+    @Override
+    public Carrito quitar(Long id, Collection<String> productosIds) {
+        return exigir(id, ejecutar(id, QUITAR, productosIds, null));
+    }
+
+    @Override
+    public Carrito modificar(Long id, Collection<String> agregar, Collection<String> quitar) {
+        List<String> productos = new ArrayList<>(agregar.size() + quitar.size() + 1);
+        productos.add(Integer.toString(quitar.size()));
+        productos.addAll(quitar);
+        productos.addAll(agregar);
+        return exigir(id, ejecutar(id, MODIFICAR_LOTE, productos, null));
+    }
+
+    @Override
+    public Carrito reemplazar(Long id, List<String> productosIds, Long versionEsperada) {
+        return exigir(id, ejecutar(id, REEMPLAZAR, productosIds, versionEsperada));
+    }
+
+    @Override
+    public Optional<Carrito> eliminar(Long id, Long versionEsperada) {
+        Carrito borrado = ejecutar(id, ELIMINAR, List.of(), versionEsperada);
+        if (borrado == null) {
+            return Optional.empty();
+        }
+        carritoRepository.deleteById(id);
+        // Una petición entre el script y el borrado pudo reconstruir el carrito desde la fila aún viva
+        redisTemplate.delete(List.of(clave(id), claveProductos(id)));
+        redisTemplate.opsForSet().remove(clavePendientes(), id.toString());
+        return Optional.of(borrado);
+    }
+
+    @Override
+    public List<Carrito> actualizar(List<Carrito> carritos) {
+        if (carritos.isEmpty()) {
+            return carritos;
+        }
+        Map<Long, Estado> estados = leer(carritos.stream().map(Carrito::getId).toList());
+        return carritos.stream().map(carrito -> {
+            Estado estado = estados.get(carrito.getId());
+            if (estado == null) {
+                return carrito;
+            }
+            Carrito actual = copia(carrito);
+            actual.setProductosIds(new ArrayList<>(estado.productosIds()));
+            actual.setModificadoEn(estado.modificadoEn());
+            actual.setVersion(estado.version());
+            return actual;
+        }).toList();
+    }
+
+    /**
+     * Vuelca a Postgres los carritos pendientes, un lote por transacción, hasta que no quede ninguno.
+     */
+    void volcarPendientes() {
+        try {
+            if (devolverEnVuelo) {
+                devolver(enVuelo);
+                devolverEnVuelo = false;
+            }
+            while (volcar() == properties.getLoteVolcado()) {
+                log.debug("Quedan carritos pendientes de volcar; siguiente lote");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error volcando carritos a Postgres: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve a pendientes los lotes que otras réplicas (o esta en una ejecución anterior) dejaron en vuelo
+     * al morir sin confirmarlos. Si la réplica sigue viva, el lote solo se vuelca dos veces.
+     */
+    void recuperarEnVuelo() {
+        try {
+            Set<String> conjuntos = redisTemplate.opsForSet().members(claveRegistroEnVuelo());
+            if (conjuntos == null) {
+                return;
+            }
+            for (String conjunto : conjuntos) {
+                long devueltos = devolver(conjunto);
+                if (devueltos > 0) {
+                    log.info("Devueltos a pendientes {} carritos que quedaron en vuelo en {}", devueltos, conjunto);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron recuperar los carritos en vuelo: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelca un lote de pendientes. Si falla, los devuelve a pendientes para el siguiente intento.
+     *
+     * @return carritos sacados de pendientes
+     */
+    @SuppressWarnings("unchecked")
+    int volcar() {
+        List<String> ids = (List<String>) redisTemplate.execute(SACAR,
+                List.of(clavePendientes(), enVuelo, claveRegistroEnVuelo()), Integer.toString(properties.getLoteVolcado()));
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            Map<Long, Estado> estados = leer(ids.stream().map(Long::valueOf).toList());
+            escritura.executeWithoutResult(transaccion -> {
+                List<Carrito> carritos = carritoRepository.findAllById(estados.keySet());
+                for (Carrito carrito : carritos) {
+                    Estado estado = estados.get(carrito.getId());
+                    carrito.setProductosIds(new ArrayList<>(estado.productosIds()));
+                    carrito.setModificadoEn(estado.modificadoEn());
+                }
+                carritoRepository.saveAll(carritos);
+                // La versión de Postgres pasa a ser la de Redis, para que al recargar el carrito siga creciendo
+                carritoRepository.flush();
+                for (Carrito carrito : carritos) {
+                    carritoRepository.igualarVersion(carrito.getId(), estados.get(carrito.getId()).version());
+                }
+            });
+            confirmar(estados);
+            redisTemplate.opsForSet().remove(enVuelo, ids.toArray());
+            log.debug("Volcados {} carritos a Postgres", estados.size());
+        } catch (RuntimeException e) {
+            try {
+                devolver(enVuelo);
+            } catch (RuntimeException redis) {
+                devolverEnVuelo = true;
+                e.addSuppressed(redis);
+            }
+            throw e;
+        }
+        return ids.size();
+    }
+
+    private long devolver(String conjunto) {
+        Long devueltos = redisTemplate.execute(DEVOLVER, List.of(clavePendientes(), conjunto, claveRegistroEnVuelo()));
+        return devueltos == null ? 0 : devueltos;
+    }
+
+    /**
+     * Vuelve a dejar pendientes los carritos que cambiaron después de leerlos para el volcado.
+     */
+    private void confirmar(Map<Long, Estado> volcados) {
+        List<Long> ids = new ArrayList<>(volcados.keySet());
+        List<Object> versiones = redisTemplate.executePipelined((RedisCallback<Object>) conexion -> {
+            StringRedisConnection redis = (StringRedisConnection) conexion;
+            ids.forEach(id -> redis.hGet(clave(id), "version"));
+            return null;
+        });
+        String[] cambiados = new String[ids.size()];
+        int total = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            Object version = versiones.get(i);
+            if (version != null && Long.parseLong((String) version) != volcados.get(ids.get(i)).version()) {
+                cambiados[total++] = ids.get(i).toString();
+            }
+        }
+        if (total > 0) {
+            redisTemplate.opsForSet().add(clavePendientes(), Arrays.copyOf(cambiados, total));
+        }
+    }
+
+    /**
+     * Estado en Redis de varios carritos en un solo viaje; los que no están en Redis no aparecen.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Estado> leer(List<Long> ids) {
+        List<Object> respuestas = redisTemplate.executePipelined((RedisCallback<Object>) conexion -> {
+            StringRedisConnection redis = (StringRedisConnection) conexion;
+            for (Long id : ids) {
+                redis.hMGet(clave(id), "modificadoEn", "version");
+                redis.zRange(claveProductos(id), 0, -1);
+            }
+            return null;
+        });
+        Map<Long, Estado> estados = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            List<String> cabecera = (List<String>) respuestas.get(2 * i);
+            Collection<String> productos = (Collection<String>) respuestas.get(2 * i + 1);
+            if (cabecera != null && cabecera.get(0) != null) {
+                estados.put(ids.get(i), new Estado(LocalDateTime.parse(cabecera.get(0)),
+                        Long.parseLong(cabecera.get(1)), List.copyOf(productos)));
+            }
+        }
+        return estados;
+    }
+
+    /**
+     * Ejecuta la operación en Redis; si el carrito no está, lo reconstruye desde Postgres y repite.
+     *
+     * @return el carrito tras la operación, o null si no existe
+     */
+    private Carrito ejecutar(Long id, String operacion, Collection<String> productosIds, Long versionEsperada) {
+        List<String> estado = script(id, operacion, productosIds, versionEsperada);
+        if (estado == null || estado.isEmpty()) {
+            Optional<Carrito> guardado = lectura.execute(transaccion -> carritoRepository.findById(id).map(AlmacenCarritosRedis::copia));
+            if (guardado.isEmpty()) {
+                return null;
+            }
+            cargar(guardado.get());
+            estado = script(id, operacion, productosIds, versionEsperada);
+        }
+        if (estado != null && estado.size() == 1 && PRECONDICION.equals(estado.get(0))) {
+            throw new CarritoPreconditionFailed(id);
+        }
+        return estado == null || estado.isEmpty() ? null : carrito(id, estado);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> script(Long id, String operacion, Collection<String> productosIds, Long versionEsperada) {
+        List<String> argumentos = new ArrayList<>(productosIds.size() + 5);
+        argumentos.add(operacion);
+        argumentos.add(Long.toString(properties.getTtl().toSeconds()));
+        argumentos.add(LocalDateTime.now().toString());
+        argumentos.add(id.toString());
+        argumentos.add(versionEsperada != null ? versionEsperada.toString() : "");
+        argumentos.addAll(productosIds);
+        return (List<String>) redisTemplate.execute(MODIFICAR, List.of(clave(id), claveProductos(id), clavePendientes()),
+                argumentos.toArray());
+    }
+
+    private void cargar(Carrito carrito) {
+        List<String> argumentos = new ArrayList<>(carrito.getProductosIds().size() + 6);
+        argumentos.add(Long.toString(properties.getTtl().toSeconds()));
+        argumentos.add(carrito.getUserId().toString());
+        argumentos.add(carrito.getCreadoEn().toString());
+        argumentos.add(carrito.getModificadoEn().toString());
+        argumentos.add(carrito.getId().toString());
+        argumentos.add(Long.toString(carrito.getVersion() != null ? carrito.getVersion() : 0L));
+        argumentos.addAll(carrito.getProductosIds());
+        redisTemplate.execute(CARGAR, List.of(clave(carrito.getId()), claveProductos(carrito.getId()),
+                claveUsuario(carrito.getUserId())), argumentos.toArray());
+    }
+
+    private static Carrito carrito(Long id, List<String> estado) {
+        return Carrito.builder()
+                .id(id)
+                .userId(Long.valueOf(estado.get(0)))
+                .creadoEn(LocalDateTime.parse(estado.get(1)))
+                .modificadoEn(LocalDateTime.parse(estado.get(2)))
+                .version(Long.valueOf(estado.get(3)))
+                .productosIds(new ArrayList<>(estado.subList(4, estado.size())))
+                .build();
+    }
+
+    private static Carrito exigir(Long id, Carrito carrito) {
+        if (carrito == null) {
+            throw new CarritoNotFound(id);
+        }
+        return carrito;
+    }
+
+    /**
+     * Copia desligada de la sesión de JPA (con la lista de productos ya cargada)
+     */
+    private static Carrito copia(Carrito carrito) {
+        return Carrito.builder()
+                .id(carrito.getId())
+                .userId(carrito.getUserId())
+                .productosIds(new ArrayList<>(carrito.getProductosIds()))
+                .creadoEn(carrito.getCreadoEn())
+                .modificadoEn(carrito.getModificadoEn())
+                .version(carrito.getVersion())
+                .build();
+    }
+
+    String clave(Long id) {
+        return properties.getPrefijo() + id;
+    }
+
+    String claveProductos(Long id) {
+        return properties.getPrefijo() + id + ":productos";
+    }
+
+    String claveUsuario(Long userId) {
+        return properties.getPrefijo() + "usuario:" + userId;
+    }
+
+    String clavePendientes() {
+        return properties.getPrefijo() + "pendientes";
+    }
+
+    String claveEnVuelo() {
+        return enVuelo;
+    }
+
+    String claveRegistroEnVuelo() {
+        return properties.getPrefijo() + "volcando";
+    }
+
+    private record Estado(LocalDateTime modificadoEn, long version, List<String> productosIds) {
+    }
+}
@@ -0,0 +1,45 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Propiedades del almacén de carritos (camisapi.carritos.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.carritos")
+public class CarritosProperties {
+
+    /**
+     * redis para tener los carritos vivos en Redis y volcarlos a Postgres en segundo plano;
+     * jpa para leer y escribir directamente en Postgres
+     */
+    private String almacen = "jpa";
+
+    /**
+     * Prefijo de las claves de Redis de los carritos
+     */
+    private String prefijo = "camisapi:carrito:";
+
+    /**
+     * Tiempo sin uso tras el que un carrito sale de Redis; se reconstruye desde Postgres al volver a pedirlo
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * Cada cuánto se vuelcan a Postgres los carritos modificados
+     */
+    private Duration intervaloVolcado = Duration.ofSeconds(1);
+
+    /**
+     * Carritos que se vuelcan como máximo en cada transacción
+     */
+    private int loteVolcado = 500;
+
+    /**
+     * Tiempo que se guarda la respuesta de una petición con Idempotency-Key para servir sus reintentos
+     */
+    private Duration ttlIdempotencia = Duration.ofHours(24);
+}
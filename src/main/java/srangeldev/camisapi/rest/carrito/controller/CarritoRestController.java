@@ -13,13 +13,19 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemsRequestDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.carrito.idempotencia.IdempotenciaCarritos;
 import srangeldev.camisapi.rest.carrito.service.CarritoServiceImpl;
+import srangeldev.camisapi.rest.concurrencia.ETags;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 
 import java.util.List;
 
@@ -28,11 +34,13 @@ import java.util.List;
 @Tag(name = "Carrito", description = "API para gestión de carritos de compra")
 public class CarritoRestController {
     private final CarritoServiceImpl carritoService;
+    private final IdempotenciaCarritos idempotencia;
     private final Logger logger = (Logger) LoggerFactory.getLogger(CarritoRestController.class);
 
     @Autowired
-    public CarritoRestController(CarritoServiceImpl carritoService) {
+    public CarritoRestController(CarritoServiceImpl carritoService, IdempotenciaCarritos idempotencia) {
         this.carritoService = carritoService;
+        this.idempotencia = idempotencia;
     }
 
     @Operation(
@@ -55,6 +63,28 @@ public class CarritoRestController {
         return ResponseEntity.ok(carritoService.getAll());
     }
 
+    @Operation(
+        summary = "Obtener carritos paginados",
+        description = "Recupera una página de carritos usando paginación por cursor (keyset)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de carritos recuperada exitosamente"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Cursor o límite inválidos"
+        )
+    })
+    @GetMapping("/pagina")
+    public ResponseEntity<CursorPage<CarritoResponseDto>> getPage(
+        @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)") @RequestParam(required = false) String cursor,
+        @Parameter(description = "Tamaño de página (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        logger.info("Obteniendo pagina de carritos con cursor: " + cursor);
+        return ResponseEntity.ok(carritoService.getPage(cursor, limit));
+    }
+
     @Operation(
         summary = "Obtener carrito por ID",
         description = "Recupera un carrito específico mediante su identificador"
@@ -77,7 +107,7 @@ public class CarritoRestController {
     public ResponseEntity<CarritoResponseDto> getById(
         @Parameter(description = "ID del carrito", required = true) @PathVariable Long id) {
         logger.info("Obteniendo carrito con id: " + id);
-        return ResponseEntity.ok(carritoService.getById(id));
+        return conETag(ResponseEntity.ok(carritoService.getById(id)));
     }
 
     @Operation(
@@ -102,7 +132,7 @@ public class CarritoRestController {
     public ResponseEntity<CarritoResponseDto> getByUserId(
         @Parameter(description = "ID del usuario", required = true) @PathVariable Long userId) {
         logger.info("Obteniendo carrito del usuario con id: " + userId);
-        return ResponseEntity.ok(carritoService.findByUserId(userId));
+        return conETag(ResponseEntity.ok(carritoService.findByUserId(userId)));
     }
 
     @Operation(
@@ -131,7 +161,7 @@ public class CarritoRestController {
         try {
             CarritoResponseDto response = carritoService.save(carrito);
             logger.info("carrito creada exitosamente con id: {}", response.getId());
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return conETag(ResponseEntity.status(HttpStatus.CREATED).body(response));
         } catch (Exception e) {
             logger.error("Error al crear carrito: {}", e.getMessage(), e);
             throw e;
@@ -157,16 +187,127 @@ public class CarritoRestController {
         ),
         @ApiResponse(
             responseCode = "400",
-            description = "Datos de entrada inválidos"
+            description = "Datos de entrada inválidos o If-Match con más de un ETag"
+        ),
+        @ApiResponse(
+            responseCode = "412",
+            description = "El carrito cambió desde la versión indicada en If-Match (solo REEMPLAZAR y LIMPIAR)"
         )
     })
     @PutMapping("/{id}")
     public ResponseEntity<CarritoResponseDto> update(
         @Parameter(description = "ID del carrito", required = true) @PathVariable Long id,
+        @Parameter(description = "ETag leído del carrito; REEMPLAZAR y LIMPIAR fallan si ya no es el actual")
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
         @Parameter(description = "Datos del carrito a actualizar", required = true)
         @Valid @RequestBody CarritoUpdateRequestDto carrito) {
         logger.info("Actualizando Carrito con id: " + id);
-        return ResponseEntity.ok(carritoService.update(id, carrito));
+        return conETag(ResponseEntity.ok(carritoService.update(id, carrito, ETags.versionEsperada(ifMatch))));
+    }
+
+    @Operation(
+        summary = "Añadir producto al carrito",
+        description = "Añade un producto al final del carrito si no estaba ya. Con Idempotency-Key los reintentos reciben la respuesta guardada"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Producto añadido exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CarritoResponseDto.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Carrito no encontrado"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Idempotency-Key en curso o usada con otra petición"
+        )
+    })
+    @PostMapping("/{id}/items")
+    public ResponseEntity<CarritoResponseDto> agregarItem(
+        @Parameter(description = "ID del carrito", required = true) @PathVariable Long id,
+        @Parameter(description = "Clave para que los reintentos no vuelvan a aplicar la operación")
+        @RequestHeader(name = IdempotenciaCarritos.CABECERA, required = false) String idempotencyKey,
+        @Parameter(description = "Producto a añadir", required = true)
+        @Valid @RequestBody CarritoItemRequestDto item) {
+        logger.info("Añadiendo producto " + item.getProductoId() + " al carrito con id: " + id);
+        return conETag(idempotencia.ejecutar(idempotencyKey, "POST /api/carritos/" + id + "/items", item,
+            () -> ResponseEntity.ok(carritoService.agregarItem(id, item.getProductoId()))));
+    }
+
+    @Operation(
+        summary = "Quitar producto del carrito",
+        description = "Quita un producto del carrito; si no estaba el carrito no cambia"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Producto quitado exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CarritoResponseDto.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Carrito no encontrado"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Idempotency-Key en curso o usada con otra petición"
+        )
+    })
+    @DeleteMapping("/{id}/items/{productoId}")
+    public ResponseEntity<CarritoResponseDto> quitarItem(
+        @Parameter(description = "ID del carrito", required = true) @PathVariable Long id,
+        @Parameter(description = "ID del producto", required = true) @PathVariable String productoId,
+        @Parameter(description = "Clave para que los reintentos no vuelvan a aplicar la operación")
+        @RequestHeader(name = IdempotenciaCarritos.CABECERA, required = false) String idempotencyKey) {
+        logger.info("Quitando producto " + productoId + " del carrito con id: " + id);
+        return conETag(idempotencia.ejecutar(idempotencyKey, "DELETE /api/carritos/" + id + "/items/" + productoId, null,
+            () -> ResponseEntity.ok(carritoService.quitarItem(id, productoId))));
+    }
+
+    @Operation(
+        summary = "Modificar varios productos del carrito",
+        description = "Quita y añade productos en una sola operación atómica, sin reenviar el carrito completo"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Carrito modificado exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = CarritoResponseDto.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Carrito no encontrado"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Datos de entrada inválidos"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Idempotency-Key en curso o usada con otra petición"
+        )
+    })
+    @PatchMapping("/{id}/items")
+    public ResponseEntity<CarritoResponseDto> modificarItems(
+        @Parameter(description = "ID del carrito", required = true) @PathVariable Long id,
+        @Parameter(description = "Clave para que los reintentos no vuelvan a aplicar la operación")
+        @RequestHeader(name = IdempotenciaCarritos.CABECERA, required = false) String idempotencyKey,
+        @Parameter(description = "Productos a quitar y a añadir", required = true)
+        @Valid @RequestBody CarritoItemsRequestDto items) {
+        logger.info("Modificando productos del carrito con id: " + id);
+        return conETag(idempotencia.ejecutar(idempotencyKey, "PATCH /api/carritos/" + id + "/items", items,
+            () -> ResponseEntity.ok(carritoService.modificarItems(id, items))));
     }
 
     @Operation(
@@ -182,15 +323,39 @@ public class CarritoRestController {
                 schema = @Schema(implementation = CarritoResponseDto.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "If-Match con más de un ETag"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Carrito no encontrado"
+        ),
+        @ApiResponse(
+            responseCode = "412",
+            description = "El carrito cambió desde la versión indicada en If-Match"
         )
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<CarritoResponseDto> delete(
-        @Parameter(description = "ID del carrito", required = true) @PathVariable Long id) {
+        @Parameter(description = "ID del carrito", required = true) @PathVariable Long id,
+        @Parameter(description = "ETag leído del carrito; el borrado falla si ya no es el actual")
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         logger.info("Borrando carrito con id: " + id);
-        return ResponseEntity.ok(carritoService.delete(id));
+        return ResponseEntity.ok(carritoService.delete(id, ETags.versionEsperada(ifMatch)));
+    }
+
+    /**
+     * Añade a la respuesta el ETag con la versión del carrito devuelto
+     */
+    private static ResponseEntity<CarritoResponseDto> conETag(ResponseEntity<CarritoResponseDto> respuesta) {
+        CarritoResponseDto carrito = respuesta.getBody();
+        if (carrito == null || carrito.getVersion() == null) {
+            return respuesta;
+        }
+        return ResponseEntity.status(respuesta.getStatusCode())
+            .headers(respuesta.getHeaders())
+            .eTag(ETags.de(carrito.getVersion()))
+            .body(carrito);
     }
 }
@@ -0,0 +1,23 @@
+package srangeldev.camisapi.rest.carrito.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para añadir un producto al carrito (POST /api/carritos/{id}/items)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarritoItemRequestDto {
+
+    /**
+     * ID del producto a añadir (referencia a MongoDB)
+     */
+    @NotBlank(message = "El ID del producto no puede estar vacío")
+    private String productoId;
+}
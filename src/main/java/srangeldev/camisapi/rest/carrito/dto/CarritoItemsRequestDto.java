@@ -0,0 +1,33 @@
+package srangeldev.camisapi.rest.carrito.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO para modificar varios productos del carrito de una vez (PATCH /api/carritos/{id}/items)
+ * Primero se quitan y después se añaden, en una sola operación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarritoItemsRequestDto {
+
+    /**
+     * IDs de productos a añadir; los que ya estén en el carrito se ignoran
+     */
+    @Builder.Default
+    private List<@NotEmpty(message = "El ID del producto no puede estar vacío") String> agregar = new ArrayList<>();
+
+    /**
+     * IDs de productos a quitar; los que no estén en el carrito se ignoran
+     */
+    @Builder.Default
+    private List<@NotEmpty(message = "El ID del producto no puede estar vacío") String> quitar = new ArrayList<>();
+}
@@ -51,4 +51,9 @@ public class CarritoResponseDto {
      */
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime creadoEn;
+
+    /**
+     * Versión del carrito (la misma que su ETag), para enviarla en If-Match al reemplazarlo o borrarlo
+     */
+    private Long version;
 }
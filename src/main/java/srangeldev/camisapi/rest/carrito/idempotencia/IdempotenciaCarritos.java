@@ -0,0 +1,150 @@
+package srangeldev.camisapi.rest.carrito.idempotencia;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoBadRequest;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoConflict;
+import srangeldev.camisapi.rest.carrito.almacen.CarritosProperties;
+import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Respuestas de las peticiones de carrito que llegan con cabecera Idempotency-Key
+ *
+ * La primera petición con una clave la reserva en Redis (SET NX), se ejecuta y deja guardada su
+ * respuesta durante camisapi.carritos.ttl-idempotencia. Los reintentos con la misma clave reciben
+ * esa respuesta sin volver a ejecutar nada ni tocar la base de datos.
+ *
+ * Cada clave va ligada a la petición que la usó (método, ruta y cuerpo): reutilizarla con otra
+ * petición, o repetirla mientras la primera aún se está ejecutando, es un 409. Si la petición falla
+ * la clave se libera para que el reintento se ejecute de verdad.
+ */
+@Slf4j
+@Component
+public class IdempotenciaCarritos {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    /**
+     * Lo que dura la reserva de una clave mientras se ejecuta la petición: si la réplica se cae a
+     * mitad, la clave queda libre pasado este tiempo
+     */
+    static final Duration EN_CURSO = Duration.ofSeconds(30);
+
+    private static final int LONGITUD_MAXIMA = 255;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CarritosProperties properties;
+
+    public IdempotenciaCarritos(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, CarritosProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Respuesta guardada; estado 0 mientras la petición original se ejecuta
+     */
+    record Respuesta(String huella, int estado, CarritoResponseDto cuerpo) {
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave
+     *
+     * @param clave    valor de Idempotency-Key; sin clave la operación se ejecuta siempre
+     * @param peticion método y ruta de la petición
+     * @param cuerpo   cuerpo de la petición (o null)
+     */
+    public ResponseEntity<CarritoResponseDto> ejecutar(String clave, String peticion, Object cuerpo,
+                                                       Supplier<ResponseEntity<CarritoResponseDto>> operacion) {
+        if (clave == null || clave.isBlank()) {
+            return operacion.get();
+        }
+        if (clave.length() > LONGITUD_MAXIMA) {
+            throw new CarritoBadRequest("La cabecera " + CABECERA + " no puede tener más de " + LONGITUD_MAXIMA + " caracteres");
+        }
+        String claveRedis = clave(clave);
+        String huella = huella(peticion, cuerpo);
+
+        Boolean reservada = redisTemplate.opsForValue().setIfAbsent(claveRedis, escribir(new Respuesta(huella, 0, null)), EN_CURSO);
+        if (!Boolean.TRUE.equals(reservada)) {
+            return repetir(clave, claveRedis, huella);
+        }
+
+        ResponseEntity<CarritoResponseDto> respuesta;
+        try {
+            respuesta = operacion.get();
+        } catch (RuntimeException e) {
+            redisTemplate.delete(claveRedis);
+            throw e;
+        }
+        if (respuesta.getStatusCode().is2xxSuccessful()) {
+            redisTemplate.opsForValue().set(claveRedis,
+                    escribir(new Respuesta(huella, respuesta.getStatusCode().value(), respuesta.getBody())),
+                    properties.getTtlIdempotencia());
+        } else {
+            redisTemplate.delete(claveRedis);
+        }
+        return respuesta;
+    }
+
+    private ResponseEntity<CarritoResponseDto> repetir(String clave, String claveRedis, String huella) {
+        String valor = redisTemplate.opsForValue().get(claveRedis);
+        Respuesta guardada = valor != null ? leer(valor) : null;
+        if (guardada != null && !guardada.huella().equals(huella)) {
+            throw new CarritoConflict("La clave de idempotencia " + clave + " ya se usó con otra petición");
+        }
+        if (guardada == null || guardada.estado() == 0) {
+            throw new CarritoConflict("Hay una petición con la clave de idempotencia " + clave + " en curso");
+        }
+        log.debug("Petición repetida con clave de idempotencia {}: se devuelve la respuesta guardada", clave);
+        return ResponseEntity.status(guardada.estado())
+                .header(CABECERA_REPETIDA, "true")
+                .body(guardada.cuerpo());
+    }
+
+    String clave(String clave) {
+        return properties.getPrefijo() + "idempotencia:" + clave;
+    }
+
+    private String huella(String peticion, Object cuerpo) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(peticion.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) '\n');
+            sha.update(objectMapper.writeValueAsBytes(cuerpo));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    private String escribir(Respuesta respuesta) {
+        try {
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+    }
+
+    private Respuesta leer(String valor) {
+        try {
+            return objectMapper.readValue(valor, Respuesta.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Respuesta idempotente ilegible en Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class CarritoMapper {
                 .totalProductos(carrito.getProductosIds() != null ? carrito.getProductosIds().size() : 0)
                 .modificadoEn(carrito.getModificadoEn())
                 .creadoEn(carrito.getCreadoEn())
+                .version(carrito.getVersion())
                 .build();
     }
 
@@ -72,27 +73,23 @@ public class CarritoMapper {
         String accion = updateDto.getAccion();
 
         if ("REEMPLAZAR".equals(accion) || accion == null) {
-            // Reemplazar toda la lista de productos
+            // Reemplazar toda la lista de productos (solo cambian las filas de los que entran o salen)
             if (updateDto.getProductosIds() != null) {
-                carrito.setProductosIds(new ArrayList<>(updateDto.getProductosIds()));
+                carrito.setProductosIds(updateDto.getProductosIds());
             }
         } else if ("AGREGAR".equals(accion)) {
-            // Agregar un producto específico por ID
+            // Agregar los productos que no estén ya en el carrito
             if (updateDto.getProductosIds() != null && !updateDto.getProductosIds().isEmpty()) {
-                for (String productoId : updateDto.getProductosIds()) {
-                    if (!carrito.getProductosIds().contains(productoId)) {
-                        carrito.getProductosIds().add(productoId);
-                    }
-                }
+                carrito.agregar(updateDto.getProductosIds());
             }
         } else if ("QUITAR".equals(accion)) {
             // Quitar productos específicos por ID
             if (updateDto.getProductosIds() != null) {
-                carrito.getProductosIds().removeAll(updateDto.getProductosIds());
+                carrito.quitar(updateDto.getProductosIds());
             }
         } else if ("LIMPIAR".equals(accion)) {
             // Limpiar todo el carrito
-            carrito.getProductosIds().clear();
+            carrito.vaciar();
         }
 
         // La fecha de modificación se actualiza automáticamente con @UpdateTimestamp
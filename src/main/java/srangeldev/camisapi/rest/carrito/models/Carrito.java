@@ -2,15 +2,22 @@ package srangeldev.camisapi.rest.carrito.models;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLOrder;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Modelo Carrito - PostgreSQL (JPA)
@@ -20,13 +27,11 @@ import java.util.List;
  * 
  * Comportamiento:
  * - Cuando se añade un producto, se almacena su ID (referencia a MongoDB)
- * - Mantiene la lista de IDs de productos del carrito
+ * - Mantiene la lista de IDs de productos del carrito, sin repetidos y en orden de inserción
  * - Los productos se consultan desde MongoDB cuando sea necesario
  */
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "carritos")
 public class Carrito {
@@ -46,14 +51,19 @@ public class Carrito {
     private Long userId;
     
     /**
-     * Lista de IDs de productos en el carrito
-     * Los productos están en MongoDB, aquí solo se almacenan sus IDs
+     * Productos del carrito: ID del producto (en MongoDB) -> posición en el carrito
+     *
+     * Es un mapa y no una lista para que la fila de carrito_productos se identifique por
+     * (carrito_id, producto_id): añadir o quitar un producto es un INSERT o DELETE de esa fila,
+     * en vez de borrar y reinsertar la colección entera como pasa con una lista sin índice.
+     * ddl-auto=update no migra una tabla creada con la lista: ver db/carrito_productos_posicion.sql
      */
     @ElementCollection
     @CollectionTable(name = "carrito_productos", joinColumns = @JoinColumn(name = "carrito_id"))
-    @Column(name = "producto_id")
-    @Builder.Default
-    private List<String> productosIds = new ArrayList<>();
+    @MapKeyColumn(name = "producto_id")
+    @Column(name = "posicion", nullable = false)
+    @SQLOrder("posicion")
+    private Map<String, Long> items = new LinkedHashMap<>();
 
     /**
      * Fecha de última modificación del carrito
@@ -61,13 +71,84 @@ public class Carrito {
      */
     @UpdateTimestamp
     @Column(name = "modificado_en", nullable = false)
-    @Builder.Default
     private LocalDateTime modificadoEn = LocalDateTime.now();
     
     /**
      * Fecha de creación del carrito
      */
     @Column(name = "creado_en", nullable = false, updatable = false)
-    @Builder.Default
     private LocalDateTime creadoEn = LocalDateTime.now();
+
+    /**
+     * Versión para el bloqueo optimista; es también el ETag del carrito en la API.
+     * Con ddl-auto=update las filas que ya existían empiezan en 0
+     */
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
+    @Builder
+    public Carrito(Long id, Long userId, List<String> productosIds, LocalDateTime modificadoEn, LocalDateTime creadoEn,
+                   Long version) {
+        this.id = id;
+        this.userId = userId;
+        this.version = version;
+        if (productosIds != null) {
+            agregar(productosIds);
+        }
+        if (modificadoEn != null) {
+            this.modificadoEn = modificadoEn;
+        }
+        if (creadoEn != null) {
+            this.creadoEn = creadoEn;
+        }
+    }
+
+    /**
+     * IDs de productos en el orden en que se añadieron. Es una copia: para modificar el carrito
+     * se usan agregar, quitar, vaciar o setProductosIds.
+     */
+    public List<String> getProductosIds() {
+        return new ArrayList<>(items.keySet());
+    }
+
+    /**
+     * Deja en el carrito exactamente estos productos. Los que ya estaban conservan su posición y
+     * los nuevos se añaden al final, así que solo se escriben las filas que cambian.
+     */
+    public void setProductosIds(List<String> productosIds) {
+        Set<String> nuevos = new HashSet<>(productosIds);
+        for (String productoId : new ArrayList<>(items.keySet())) {
+            if (!nuevos.contains(productoId)) {
+                items.remove(productoId);
+            }
+        }
+        agregar(productosIds);
+    }
+
+    public boolean contiene(String productoId) {
+        return items.containsKey(productoId);
+    }
+
+    /**
+     * Añade al final los productos que no estuvieran ya en el carrito
+     */
+    public void agregar(Collection<String> productosIds) {
+        long siguiente = items.values().stream().filter(Objects::nonNull).mapToLong(Long::longValue).max().orElse(0) + 1;
+        for (String productoId : productosIds) {
+            if (!items.containsKey(productoId)) {
+                items.put(productoId, siguiente++);
+            }
+        }
+    }
+
+    public void quitar(Collection<String> productosIds) {
+        for (String productoId : productosIds) {
+            items.remove(productoId);
+        }
+    }
+
+    public void vaciar() {
+        items.clear();
+    }
 }
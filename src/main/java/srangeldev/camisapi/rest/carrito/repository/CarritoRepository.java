@@ -1,6 +1,8 @@
 package srangeldev.camisapi.rest.carrito.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,4 +15,12 @@ import java.util.Optional;
 public interface CarritoRepository extends JpaRepository<Carrito, Long> {
     // Buscar carrito por usuario
     Optional<Carrito> findByUserId(Long userId);
+
+    // Página de carritos con id mayor que el cursor (paginación keyset)
+    List<Carrito> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Sube la versión del carrito hasta la dada (nunca la baja); la usa el volcado desde Redis
+    @Modifying
+    @Query("update Carrito c set c.version = :version where c.id = :id and c.version < :version")
+    int igualarVersion(@Param("id") Long id, @Param("version") Long version);
 }
\ No newline at end of file
@@ -1,17 +1,33 @@
 package srangeldev.camisapi.rest.carrito.service;
 
 import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemsRequestDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 
 import java.util.List;
 
 
 public interface CarritoService {
         List<CarritoResponseDto> getAll();
+    CursorPage<CarritoResponseDto> getPage(String cursor, Integer limit);
     CarritoResponseDto getById(Long id);
     CarritoResponseDto save(CarritoCreateRequestDto carrito);
-    CarritoResponseDto update(Long id, CarritoUpdateRequestDto carrito);
-    CarritoResponseDto delete(Long id);
+    /**
+     * versionEsperada (la del If-Match, o null) solo se exige al reemplazar o limpiar: añadir y
+     * quitar conmutan y se aplican sobre la versión actual
+     */
+    CarritoResponseDto update(Long id, CarritoUpdateRequestDto carrito, Long versionEsperada);
+    default CarritoResponseDto update(Long id, CarritoUpdateRequestDto carrito) {
+        return update(id, carrito, null);
+    }
+    CarritoResponseDto agregarItem(Long id, String productoId);
+    CarritoResponseDto quitarItem(Long id, String productoId);
+    CarritoResponseDto modificarItems(Long id, CarritoItemsRequestDto items);
+    CarritoResponseDto delete(Long id, Long versionEsperada);
+    default CarritoResponseDto delete(Long id) {
+        return delete(id, null);
+    }
     CarritoResponseDto findByUserId(Long userId);
 }
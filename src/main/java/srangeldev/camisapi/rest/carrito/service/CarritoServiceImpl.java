@@ -4,48 +4,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoBadId;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoBadRequest;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoException;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritos;
 import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemsRequestDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
 import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
 import srangeldev.camisapi.rest.carrito.models.Carrito;
 import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 
+/**
+ * Los listados se leen de Postgres; el resto de operaciones pasan por el {@link AlmacenCarritos},
+ * que según la configuración trabaja sobre Redis (con volcado diferido) o directamente sobre Postgres.
+ */
 @Service
 @CacheConfig(cacheNames = "carritos")
 public class CarritoServiceImpl implements CarritoService{
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final CarritoRepository carritoRepository;
     private final CarritoMapper carritoMapper;
+    private final AlmacenCarritos almacenCarritos;
 
     @Autowired
-    public CarritoServiceImpl(CarritoRepository carritoRepository, CarritoMapper carritoMapper) {
+    public CarritoServiceImpl(CarritoRepository carritoRepository, CarritoMapper carritoMapper, AlmacenCarritos almacenCarritos) {
         this.carritoMapper = carritoMapper;
         this.carritoRepository = carritoRepository;
+        this.almacenCarritos = almacenCarritos;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CarritoResponseDto> getAll() {
         logger.info("Obteniendo todas las carritos");
-        return carritoRepository.findAll().stream().map(carritoMapper::toResponseDto).toList();
+        return almacenCarritos.actualizar(carritoRepository.findAll()).stream().map(carritoMapper::toResponseDto).toList();
     }
 
     @Override
     @Transactional(readOnly = true)
+    public CursorPage<CarritoResponseDto> getPage(String cursor, Integer limit) {
+        logger.info("Obteniendo pagina de carritos con cursor: {}", cursor);
+        long desde;
+        int size;
+        try {
+            desde = CursorPage.decodeLong(cursor);
+            size = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new CarritoBadRequest(e.getMessage());
+        }
+        List<Carrito> carritos = carritoRepository.findByIdGreaterThanOrderByIdAsc(desde, Limit.of(size + 1));
+        return CursorPage.of(almacenCarritos.actualizar(carritos), size, Carrito::getId).map(carritoMapper::toResponseDto);
+    }
+
+    @Override
     public CarritoResponseDto getById(Long id) {
         logger.info("Buscando carrito por id: " + id);
-        Carrito carrito = carritoRepository.findById(id).orElseThrow(
+        Carrito carrito = almacenCarritos.obtener(id).orElseThrow(
                 () -> new CarritoNotFound(id)
         );
 
@@ -53,14 +78,13 @@ public class CarritoServiceImpl implements CarritoService{
     }
 
     @Override
-    @Transactional
     public CarritoResponseDto save(CarritoCreateRequestDto carrito) {
         logger.info("=== INICIO SAVE Carrito ===");
         logger.info("Guardando carrito: {}", carrito);
         logger.info("id recibido: {}", carrito != null ? carrito.getUserId() : "NULL");
 
         try {
-            Optional<Carrito> existente = carritoRepository.findByUserId(carrito.getUserId());
+            Optional<Carrito> existente = almacenCarritos.obtenerPorUsuario(carrito.getUserId());
             logger.info("Verificación de carrito existente: {}", existente.isPresent() ? "EXISTE" : "NO EXISTE");
 
             if (existente.isPresent()) {
@@ -74,7 +98,7 @@ public class CarritoServiceImpl implements CarritoService{
             logger.info("carrito mapeado: {}", nueva);
 
             logger.info("Guardando en repositorio");
-            Carrito guardada = carritoRepository.save(nueva);
+            Carrito guardada = almacenCarritos.crear(nueva);
             logger.info("carrito guardado: {}", guardada);
 
             CarritoResponseDto response = carritoMapper.toResponseDto(guardada);
@@ -90,46 +114,68 @@ public class CarritoServiceImpl implements CarritoService{
     }
 
     @Override
-    @Transactional
-    public CarritoResponseDto update(Long id, CarritoUpdateRequestDto carrito) {
+    public CarritoResponseDto update(Long id, CarritoUpdateRequestDto carrito, Long versionEsperada) {
         logger.info("Actualizando Carrito con id: " + id);
 
-        // Buscar el carrito existente por ID
-        Carrito actualizado = carritoRepository.findById(id).orElseThrow(
-                () -> new CarritoNotFound(id)
-        );
+        // Cada acción es una única operación atómica del almacén, sin leer y reescribir el carrito.
+        // Añadir y quitar conmutan con cualquier cambio concurrente: no necesitan la versión esperada
+        List<String> productosIds = carrito.getProductosIds();
+        String accion = carrito.getAccion() != null ? carrito.getAccion() : "REEMPLAZAR";
+        Carrito actualizado = switch (accion) {
+            case "LIMPIAR" -> almacenCarritos.reemplazar(id, List.of(), versionEsperada);
+            case "REEMPLAZAR" -> productosIds != null ? almacenCarritos.reemplazar(id, productosIds, versionEsperada) : obtener(id);
+            case "AGREGAR" -> productosIds != null ? almacenCarritos.agregar(id, productosIds) : obtener(id);
+            case "QUITAR" -> productosIds != null ? almacenCarritos.quitar(id, productosIds) : obtener(id);
+            default -> obtener(id);
+        };
 
-        // Usar el mapper para actualizar la entidad
-        carritoMapper.updateFromDto(actualizado, carrito);
-        actualizado.setModificadoEn(LocalDateTime.now());
-        
         logger.info("Carrito actualizado: {}", actualizado);
-        return carritoMapper.toResponseDto(carritoRepository.save(actualizado));
+        return carritoMapper.toResponseDto(actualizado);
+    }
+
+    @Override
+    public CarritoResponseDto agregarItem(Long id, String productoId) {
+        logger.info("Añadiendo producto {} al carrito con id: {}", productoId, id);
+        return carritoMapper.toResponseDto(almacenCarritos.agregar(id, List.of(productoId)));
     }
 
     @Override
-    @Transactional
-    public CarritoResponseDto delete(Long id) {
+    public CarritoResponseDto quitarItem(Long id, String productoId) {
+        logger.info("Quitando producto {} del carrito con id: {}", productoId, id);
+        return carritoMapper.toResponseDto(almacenCarritos.quitar(id, List.of(productoId)));
+    }
+
+    @Override
+    public CarritoResponseDto modificarItems(Long id, CarritoItemsRequestDto items) {
+        List<String> agregar = items.getAgregar() != null ? items.getAgregar() : List.of();
+        List<String> quitar = items.getQuitar() != null ? items.getQuitar() : List.of();
+        logger.info("Modificando carrito con id: {} (+{} -{})", id, agregar.size(), quitar.size());
+        if (agregar.isEmpty() && quitar.isEmpty()) {
+            return carritoMapper.toResponseDto(obtener(id));
+        }
+        return carritoMapper.toResponseDto(almacenCarritos.modificar(id, agregar, quitar));
+    }
+
+    @Override
+    public CarritoResponseDto delete(Long id, Long versionEsperada) {
         logger.info("Eliminando carrito con id: " + id);
-        Carrito borrada = carritoRepository.findById(id).orElseThrow(
+        Carrito borrada = almacenCarritos.eliminar(id, versionEsperada).orElseThrow(
                 () -> new CarritoNotFound(id)
         );
 
-        carritoRepository.delete(borrada);
         return carritoMapper.toResponseDto(borrada);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public CarritoResponseDto findByUserId(Long userId) {
         logger.info("Buscando carrito por user id: " + userId);
-        Carrito carrito = carritoRepository.findByUserId(userId).orElseThrow(
+        Carrito carrito = almacenCarritos.obtenerPorUsuario(userId).orElseThrow(
                 () -> new CarritoBadId("No se encontro carrito con nombre: " + userId)
         );
         return carritoMapper.toResponseDto(carrito);
     }
-    }
-
-
-
 
+    private Carrito obtener(Long id) {
+        return almacenCarritos.obtener(id).orElseThrow(() -> new CarritoNotFound(id));
+    }
+}
@@ -0,0 +1,62 @@
+package srangeldev.camisapi.rest.concurrencia;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ETags fuertes a partir de la versión (@Version) de una entidad, y lectura de If-Match
+ *
+ * El ETag de un recurso es su versión entre comillas ("3"). Un cliente que quiere modificarlo sin
+ * pisar cambios ajenos envía en If-Match el ETag que leyó; si la versión actual es otra la petición
+ * falla con 412 Precondition Failed. Un recurso tiene una sola versión actual, así que If-Match debe
+ * llevar un único ETag: una lista de varios se rechaza con 400 en lugar de comprobar solo uno.
+ */
+public final class ETags {
+
+    /**
+     * Versión que no tiene ninguna entidad: la de un If-Match que no es un ETag de la API
+     */
+    public static final long NINGUNA = -1L;
+
+    private ETags() {
+    }
+
+    /**
+     * ETag de una versión, o null si la entidad aún no tiene versión
+     */
+    public static String de(Long version) {
+        return version != null ? "\"" + version + "\"" : null;
+    }
+
+    /**
+     * Versión que exige una cabecera If-Match
+     *
+     * @return null si no hay condición (sin cabecera o If-Match: *), la versión del ETag, o NINGUNA si
+     * no es un ETag fuerte emitido por la API (no coincide con nada)
+     * @throws IllegalArgumentException si la cabecera lleva una lista de varios ETags
+     */
+    public static Long versionEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<String> etags = Arrays.stream(ifMatch.split(","))
+                .map(String::trim)
+                .filter(etag -> !etag.isEmpty())
+                .toList();
+        if (etags.size() != 1) {
+            throw new IllegalArgumentException("If-Match debe llevar un único ETag: " + ifMatch);
+        }
+        String etag = etags.getFirst();
+        if (etag.equals("*")) {
+            return null;
+        }
+        if (etag.length() < 3 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            return NINGUNA;
+        }
+        try {
+            return Long.parseLong(etag.substring(1, etag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NINGUNA;
+        }
+    }
+}
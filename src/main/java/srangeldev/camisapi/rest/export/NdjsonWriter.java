@@ -0,0 +1,62 @@
+package srangeldev.camisapi.rest.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escritor de exportaciones en formato NDJSON (un objeto JSON por línea)
+ *
+ * Cada registro se serializa y se escribe en la respuesta en cuanto se lee del origen,
+ * sin construir listas ni un array JSON completo, así que la memoria no crece con el volumen.
+ * No se hace flush por registro: el buffer de la respuesta se vacía solo cuando se llena.
+ */
+@Component
+public class NdjsonWriter {
+
+    private static final int SEPARADOR = '\n';
+
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    /**
+     * Construye la respuesta application/x-ndjson a partir de un exportador.
+     * El exportador recibe el consumidor al que debe entregar cada registro
+     * mientras recorre el cursor de base de datos.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> respuesta(Consumer<Consumer<T>> exportador) {
+        StreamingResponseBody body = out -> {
+            try {
+                exportador.accept(registro -> {
+                    try {
+                        writer.writeValue(out, registro);
+                        out.write(SEPARADOR);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -1,11 +1,18 @@
 package srangeldev.camisapi.rest.handler;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoBadRequestException;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoConflictException;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoNotFoundException;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoPreconditionFailedException;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
 import srangeldev.camisapi.rest.productos.exceptions.ProductoNotFound;
 import srangeldev.camisapi.rest.users.exceptions.UserBadId;
 import srangeldev.camisapi.rest.users.exceptions.UserBadRequest;
@@ -39,6 +46,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    /**
+     * Maneja productos ya reservados o vendidos a otro pedido
+     */
+    @ExceptionHandler(ProductoNoDisponible.class)
+    public ResponseEntity<Map<String, String>> handleProductoNoDisponible(ProductoNoDisponible ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    /**
+     * Maneja errores de solicitud incorrecta de producto (cursor, límite o filtro inválidos)
+     */
+    @ExceptionHandler(ProductoBadRequest.class)
+    public ResponseEntity<Map<String, String>> handleProductoBadRequest(ProductoBadRequest ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     /**
      * Maneja errores de usuario no encontrado
      */
@@ -69,6 +96,56 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Maneja errores de pedido no encontrado
+     */
+    @ExceptionHandler(PedidoNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handlePedidoNotFound(PedidoNotFoundException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    /**
+     * Maneja errores de solicitud incorrecta de pedido (carrito vacío, productos inexistentes...)
+     */
+    @ExceptionHandler(PedidoBadRequestException.class)
+    public ResponseEntity<Map<String, String>> handlePedidoBadRequest(PedidoBadRequestException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    /**
+     * Maneja conflictos con el estado del pedido
+     */
+    @ExceptionHandler(PedidoConflictException.class)
+    public ResponseEntity<Map<String, String>> handlePedidoConflict(PedidoConflictException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    /**
+     * Maneja un If-Match que ya no corresponde a la versión del pedido
+     */
+    @ExceptionHandler(PedidoPreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePedidoPreconditionFailed(PedidoPreconditionFailedException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    /**
+     * Maneja una escritura que perdió la carrera con otra sobre la misma entidad (bloqueo optimista)
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "El recurso ha cambiado mientras se modificaba; vuelve a leerlo e inténtalo de nuevo");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     /**
      * Maneja errores generales
      */
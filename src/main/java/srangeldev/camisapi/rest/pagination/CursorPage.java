@@ -0,0 +1,115 @@
+package srangeldev.camisapi.rest.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados con paginación por cursor (keyset)
+ *
+ * En lugar de offset/página se usa un cursor opaco que codifica la última clave devuelta.
+ * La siguiente página se obtiene con una consulta de rango (id > cursor) sobre un índice,
+ * por lo que su coste no depende del tamaño de la colección o tabla.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Elementos de la página, ordenados por clave ascendente
+     */
+    private List<T> items;
+
+    /**
+     * Cursor para pedir la siguiente página (null si no hay más)
+     */
+    private String nextCursor;
+
+    /**
+     * Indica si existen más elementos después de esta página
+     */
+    private boolean hasMore;
+
+    /**
+     * Construye la página a partir de una consulta que pidió limit + 1 elementos:
+     * el elemento extra solo sirve para saber si hay más resultados.
+     *
+     * @param fetched elementos leídos (como máximo limit + 1)
+     * @param limit tamaño de página
+     * @param keyExtractor clave de ordenación de cada elemento
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, ?> keyExtractor) {
+        boolean hasMore = fetched.size() > limit;
+        List<T> items = hasMore ? List.copyOf(fetched.subList(0, limit)) : fetched;
+        String nextCursor = hasMore ? encode(String.valueOf(keyExtractor.apply(items.getLast()))) : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Transforma los elementos de la página conservando el cursor
+     */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).toList(), nextCursor, hasMore);
+    }
+
+    /**
+     * Normaliza el tamaño de página pedido por el cliente (por defecto 20, máximo 100)
+     */
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("El límite debe ser mayor que 0");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    /**
+     * Codifica una clave como cursor opaco (Base64 URL-safe)
+     */
+    public static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor opaco. Devuelve null si no se envió cursor (primera página).
+     */
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+
+    /**
+     * Decodifica un cursor sobre claves numéricas (ids JPA, idUsuario).
+     * Sin cursor devuelve 0, de modo que la primera página es simplemente id > 0.
+     */
+    public static long decodeLong(String cursor) {
+        String key = decode(cursor);
+        if (key == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+}
@@ -9,9 +9,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import srangeldev.camisapi.rest.concurrencia.ETags;
+import srangeldev.camisapi.rest.export.NdjsonWriter;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
 import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
@@ -24,9 +29,11 @@ import java.util.List;
 @Tag(name = "Pedidos", description = "API para gestión de pedidos de compra")
 public class PedidoController {
     private final PedidoService pedidoService;
+    private final NdjsonWriter ndjsonWriter;
 
-    public PedidoController(PedidoService pedidoService) {
+    public PedidoController(PedidoService pedidoService, NdjsonWriter ndjsonWriter) {
         this.pedidoService = pedidoService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @Operation(
@@ -52,7 +59,7 @@ public class PedidoController {
         @Parameter(description = "Datos del pedido a crear", required = true)
         @Valid @RequestBody PedidoRequestDto pedidoRequest) {
         PedidoResponseDto nuevoPedido = pedidoService.crearPedido(pedidoRequest);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevoPedido);
+        return conETag(ResponseEntity.status(HttpStatus.CREATED), nuevoPedido);
     }
 
     @Operation(
@@ -75,6 +82,43 @@ public class PedidoController {
         return ResponseEntity.ok(pedidos);
     }
 
+    @Operation(
+        summary = "Obtener pedidos paginados",
+        description = "Recupera una página de pedidos usando paginación por cursor (keyset)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de pedidos recuperada exitosamente"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Cursor o límite inválidos"
+        )
+    })
+    @GetMapping("/pagina")
+    public ResponseEntity<CursorPage<PedidoResponseDto>> listarPedidosPagina(
+        @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)") @RequestParam(required = false) String cursor,
+        @Parameter(description = "Tamaño de página (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(pedidoService.listarPedidosPagina(cursor, limit));
+    }
+
+    @Operation(
+        summary = "Exportar todos los pedidos",
+        description = "Devuelve todos los pedidos en formato NDJSON (un pedido por línea), leídos con un cursor JDBC"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Exportación de pedidos en curso",
+            content = @Content(mediaType = "application/x-ndjson")
+        )
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos() {
+        return ndjsonWriter.respuesta(pedidoService::exportarPedidos);
+    }
+
     @Operation(
         summary = "Obtener pedido por ID",
         description = "Recupera un pedido específico mediante su identificador único"
@@ -97,7 +141,7 @@ public class PedidoController {
     public ResponseEntity<PedidoResponseDto> obtenerPedido(
         @Parameter(description = "ID único del pedido", required = true) @PathVariable Long id) {
         PedidoResponseDto pedido = pedidoService.obtenerPorId(id);
-        return ResponseEntity.ok(pedido);
+        return conETag(ResponseEntity.ok(), pedido);
     }
 
     @Operation(
@@ -161,15 +205,26 @@ public class PedidoController {
         ),
         @ApiResponse(
             responseCode = "400",
-            description = "Estado inválido"
+            description = "Estado inválido o If-Match con más de un ETag"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Otro cambio de estado se aplicó a la vez"
+        ),
+        @ApiResponse(
+            responseCode = "412",
+            description = "El pedido cambió desde la versión indicada en If-Match"
         )
     })
     @PatchMapping("/{id}/estado")
     public ResponseEntity<PedidoResponseDto> actualizarEstado(
         @Parameter(description = "ID del pedido", required = true) @PathVariable Long id,
-        @Parameter(description = "Nuevo estado del pedido", required = true) @Valid @RequestParam EstadoPedido estado
+        @Parameter(description = "Nuevo estado del pedido", required = true) @Valid @RequestParam EstadoPedido estado,
+        @Parameter(description = "ETag leído del pedido; el cambio falla si ya no es el actual")
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        return ResponseEntity.ok(pedidoService.actualizarEstado(id, estado));
+        PedidoResponseDto pedido = pedidoService.actualizarEstado(id, estado, ETags.versionEsperada(ifMatch));
+        return conETag(ResponseEntity.ok(), pedido);
     }
 
     @Operation(
@@ -181,15 +236,35 @@ public class PedidoController {
             responseCode = "204",
             description = "Pedido eliminado exitosamente"
         ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "If-Match con más de un ETag"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Pedido no encontrado"
+        ),
+        @ApiResponse(
+            responseCode = "412",
+            description = "El pedido cambió desde la versión indicada en If-Match"
         )
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> eliminarPedido(
-        @Parameter(description = "ID del pedido a eliminar", required = true) @PathVariable Long id) {
-        pedidoService.eliminarPedido(id);
+        @Parameter(description = "ID del pedido a eliminar", required = true) @PathVariable Long id,
+        @Parameter(description = "ETag leído del pedido; el borrado falla si ya no es el actual")
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        pedidoService.eliminarPedido(id, ETags.versionEsperada(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Respuesta con el ETag de la versión del pedido
+     */
+    private static ResponseEntity<PedidoResponseDto> conETag(ResponseEntity.BodyBuilder respuesta, PedidoResponseDto pedido) {
+        if (pedido != null && pedido.getVersion() != null) {
+            respuesta.eTag(ETags.de(pedido.getVersion()));
+        }
+        return respuesta.body(pedido);
+    }
 }
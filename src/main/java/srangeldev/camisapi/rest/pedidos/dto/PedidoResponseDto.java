@@ -33,4 +33,9 @@ public class PedidoResponseDto {
     private LocalDateTime fechaEnvio;
 
     private List<DetallePedidoDto> detalles;
+
+    /**
+     * Versión del pedido (la misma que su ETag), para enviarla en If-Match al modificarlo
+     */
+    private Long version;
 }
@@ -0,0 +1,9 @@
+package srangeldev.camisapi.rest.pedidos.exceptions;
+
+/**
+ * Exception para tipo de errores HTTP 412 Precondition Failed ==> El pedido cambió desde la versión de If-Match
+ */
+public class PedidoPreconditionFailedException extends PedidoException {
+    public PedidoPreconditionFailedException(String message) {super(message);}
+
+}
@@ -54,7 +54,8 @@ public class PedidoMappers {
                 pedido.getFechaEnvio(),
                 pedido.getDetalles().stream()
                         .map(this::toDetallePedidoDto)
-                        .toList()
+                        .toList(),
+                pedido.getVersion()
         );
     }
     /**
@@ -112,7 +113,8 @@ public class PedidoMappers {
                         p.getFechaEnvio(),
                         p.getDetalles().stream()
                                 .map(this::toDetallePedidoDto)
-                                .toList()
+                                .toList(),
+                        p.getVersion()
                 ))
                 .toList();
     }
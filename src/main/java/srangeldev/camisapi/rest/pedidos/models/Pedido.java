@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -114,4 +115,13 @@ public class Pedido {
      */
     @Column(name = "fecha_envio")
     private LocalDateTime fechaEnvio;
+
+    /**
+     * Versión para el bloqueo optimista: un cambio de estado y un borrado concurrentes no pueden
+     * pisarse. Es también el ETag del pedido en la API.
+     * Con ddl-auto=update las filas que ya existían empiezan en 0
+     */
+    @Version
+    @ColumnDefault("0")
+    private Long version;
 }
@@ -1,11 +1,16 @@
 package srangeldev.camisapi.rest.pedidos.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
 import srangeldev.camisapi.rest.pedidos.models.Pedido;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 /**
@@ -33,4 +38,30 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long>{
      */
     @Query("SELECT p FROM Pedido p WHERE p.estado = :estado")
     List<Pedido> findByEstado(EstadoPedido estado);
+
+    /**
+     * Obtiene una página de pedidos con id mayor que el cursor (paginación keyset).
+     *
+     * @param id último id de la página anterior (0 para la primera página)
+     * @param limit número máximo de pedidos
+     * @return pedidos ordenados por id ascendente
+     */
+    List<Pedido> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Recorre todos los pedidos (con sus detalles) mediante un cursor, para exportaciones.
+     *
+     * El fetch size hace que el driver traiga las filas por lotes en lugar de todo el resultado
+     * (en PostgreSQL requiere estar dentro de una transacción) y read-only evita guardar snapshots
+     * para dirty checking. El Stream debe consumirse y cerrarse dentro de la transacción.
+     *
+     * @return stream de pedidos ordenados por id ascendente
+     */
+    @Query("SELECT p FROM Pedido p LEFT JOIN FETCH p.detalles ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<Pedido> streamAllByOrderByIdAsc();
 }
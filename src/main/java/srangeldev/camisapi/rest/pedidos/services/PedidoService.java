@@ -1,10 +1,12 @@
 package srangeldev.camisapi.rest.pedidos.services;
 
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
 import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Servicio PedidoService
@@ -23,6 +25,17 @@ public interface PedidoService {
      */
     List<PedidoResponseDto> listarPedidos();
 
+    /**
+     * Exporta todos los pedidos entregándolos uno a uno al consumidor, sin cargarlos en memoria.
+     * Devuelve el número de pedidos exportados.
+     */
+    long exportarPedidos(Consumer<PedidoResponseDto> consumidor);
+
+    /**
+     * Obtiene una página de pedidos ordenada por id (paginación por cursor).
+     */
+    CursorPage<PedidoResponseDto> listarPedidosPagina(String cursor, Integer limit);
+
     /**
      * Obtiene los pedidos por ID de usuario.
      */
@@ -36,7 +49,14 @@ public interface PedidoService {
     /**
      * Cambia el estado de un pedido (por ejemplo, de PENDIENTE_PAGO a PAGADO).
      */
-    PedidoResponseDto actualizarEstado(Long id, EstadoPedido estado);
+    default PedidoResponseDto actualizarEstado(Long id, EstadoPedido estado) {
+        return actualizarEstado(id, estado, null);
+    }
+
+    /**
+     * Cambia el estado de un pedido solo si sigue en la versión esperada (null = cualquiera).
+     */
+    PedidoResponseDto actualizarEstado(Long id, EstadoPedido estado, Long versionEsperada);
 
     /**
      * Busca pedidos por estado.
@@ -46,5 +66,12 @@ public interface PedidoService {
     /**
      * Eliminar Pedido.
      */
-    void eliminarPedido(Long id);
+    default void eliminarPedido(Long id) {
+        eliminarPedido(id, null);
+    }
+
+    /**
+     * Elimina el pedido solo si sigue en la versión esperada (null = cualquiera).
+     */
+    void eliminarPedido(Long id, Long versionEsperada);
 }
@@ -1,15 +1,19 @@
 package srangeldev.camisapi.rest.pedidos.services;
 
+import jakarta.persistence.EntityManager;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritos;
 import srangeldev.camisapi.rest.carrito.models.Carrito;
-import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
 import srangeldev.camisapi.rest.pedidos.exceptions.PedidoConflictException;
 import srangeldev.camisapi.rest.pedidos.exceptions.PedidoNotFoundException;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoPreconditionFailedException;
 import srangeldev.camisapi.rest.pedidos.exceptions.PedidoBadRequestException;
 import srangeldev.camisapi.rest.pedidos.mappers.PedidoMappers;
 import srangeldev.camisapi.rest.pedidos.models.DetallePedido;
@@ -18,11 +22,17 @@ import srangeldev.camisapi.rest.pedidos.models.Pedido;
 import srangeldev.camisapi.rest.pedidos.repository.PedidoRepository;
 import srangeldev.camisapi.rest.productos.models.Producto;
 import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.reservas.ReservasProductos;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Lógica de negocio
@@ -35,15 +45,20 @@ public class PedidoServiceImpl implements PedidoService {
 
     private final PedidoRepository pedidoRepository;
     private final PedidoMappers pedidoMapper;
-    private final CarritoRepository carritoRepository;
+    private final AlmacenCarritos almacenCarritos;
     private final ProductoRepository productoRepository;
+    private final EntityManager entityManager;
+    private final ReservasProductos reservasProductos;
 
     public PedidoServiceImpl(PedidoRepository pedidoRepository, PedidoMappers pedidoMapper, 
-                             CarritoRepository carritoRepository, ProductoRepository productoRepository) {
+                             AlmacenCarritos almacenCarritos, ProductoRepository productoRepository,
+                             EntityManager entityManager, ReservasProductos reservasProductos) {
         this.pedidoRepository = pedidoRepository;
         this.pedidoMapper = pedidoMapper;
-        this.carritoRepository = carritoRepository;
+        this.almacenCarritos = almacenCarritos;
         this.productoRepository = productoRepository;
+        this.entityManager = entityManager;
+        this.reservasProductos = reservasProductos;
     }
 
     // Creamos un nuevo pedido a partir de un carrito
@@ -51,7 +66,7 @@ public class PedidoServiceImpl implements PedidoService {
     @Transactional //Así si algo falla se revierte todo
     public PedidoResponseDto crearPedido(PedidoRequestDto pedidoRequest) {
         // 1. Obtener el carrito
-        Carrito carrito = carritoRepository.findById(pedidoRequest.getCarritoId())
+        Carrito carrito = almacenCarritos.obtener(pedidoRequest.getCarritoId())
                 .orElseThrow(() -> new CarritoNotFound(pedidoRequest.getCarritoId()));
         
         // 2. Validar que el carrito tenga productos
@@ -59,28 +74,11 @@ public class PedidoServiceImpl implements PedidoService {
             throw new PedidoBadRequestException("El carrito está vacío");
         }
         
-        // 3. Obtener los productos del carrito y crear detalles
-        List<DetallePedido> detalles = new ArrayList<>();
-        double total = 0.0;
-        
-        for (String productoId : carrito.getProductosIds()) {
-            Producto producto = productoRepository.findById(productoId)
-                    .orElseThrow(() -> new PedidoBadRequestException("Producto no encontrado: " + productoId));
-            
-            // Crear detalle del pedido con snapshot del producto
-            DetallePedido detalle = DetallePedido.builder()
-                    .productoId(producto.getId())
-                    .nombre(producto.getNombre())
-                    .talla(producto.getTalla())
-                    .equipo(producto.getEquipo())
-                    .precioPagado(producto.getPrecio())
-                    .imageUrl(producto.getImageUrl())
-                    .build();
-            
-            detalles.add(detalle);
-            total += producto.getPrecio();
-        }
-        
+        // 3. Obtener los productos del carrito en una sola consulta ($in) y crear detalles
+        Map<String, Producto> productos = cargarProductos(carrito.getProductosIds());
+        List<DetallePedido> detalles = snapshotProductos(carrito.getProductosIds(), productos);
+        double total = detalles.stream().mapToDouble(DetallePedido::getPrecioPagado).sum();
+
         // 4. Crear el pedido
         Pedido pedido = pedidoMapper.toPedido(
                 carrito.getUserId(),
@@ -94,20 +92,96 @@ public class PedidoServiceImpl implements PedidoService {
         
         // 5. Guardar el pedido
         Pedido saved = pedidoRepository.save(pedido);
+
+        // 6. Reservar sus productos: si otro pedido se ha llevado alguno, falla y se deshace el pedido
+        reservasProductos.reservar(saved.getId(), productos.values());
         
-        // 6. Vaciar el carrito después de crear el pedido
-        carrito.getProductosIds().clear();
-        carritoRepository.save(carrito);
+        // 7. Quitar del carrito los productos del pedido (no los que se hayan añadido mientras tanto)
+        almacenCarritos.quitar(carrito.getId(), carrito.getProductosIds());
         
         return pedidoMapper.toResponseDto(saved);
     }
 
+    /**
+     * Carga todos los productos del carrito con un único findAllById ($in).
+     */
+    private Map<String, Producto> cargarProductos(List<String> productosIds) {
+        Map<String, Producto> productos = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(new LinkedHashSet<>(productosIds))) {
+            productos.put(producto.getId(), producto);
+        }
+        return productos;
+    }
+
+    /**
+     * Construye el snapshot de cada producto respetando el orden (y las repeticiones) del carrito.
+     * Si falta algún producto se informa de todos los IDs ausentes en un solo error.
+     */
+    private List<DetallePedido> snapshotProductos(List<String> productosIds, Map<String, Producto> productos) {
+        List<String> noEncontrados = productosIds.stream()
+                .filter(id -> !productos.containsKey(id))
+                .distinct()
+                .toList();
+        if (!noEncontrados.isEmpty()) {
+            throw new PedidoBadRequestException("Productos no encontrados: " + String.join(", ", noEncontrados));
+        }
+
+        List<DetallePedido> detalles = new ArrayList<>(productosIds.size());
+        for (String productoId : productosIds) {
+            Producto producto = productos.get(productoId);
+            // Crear detalle del pedido con snapshot del producto
+            detalles.add(DetallePedido.builder()
+                    .productoId(producto.getId())
+                    .nombre(producto.getNombre())
+                    .talla(producto.getTalla())
+                    .equipo(producto.getEquipo())
+                    .precioPagado(producto.getPrecio())
+                    .imageUrl(producto.getImageUrl())
+                    .build());
+        }
+        return detalles;
+    }
+
     // Devuelve todos los pedidos
     @Override
+    @Transactional(readOnly = true)
     public List<PedidoResponseDto> listarPedidos() {
         return pedidoMapper.toResponseList(pedidoRepository.findAll());
     }
 
+    // Recorre todos los pedidos con un cursor JDBC y entrega cada uno según se lee.
+    // La transacción mantiene abierto el cursor; cada pedido se desasocia del contexto
+    // de persistencia tras escribirlo para que la memoria no crezca con el volumen.
+    @Override
+    @Transactional(readOnly = true)
+    public long exportarPedidos(Consumer<PedidoResponseDto> consumidor) {
+        long exportados = 0;
+        try (Stream<Pedido> pedidos = pedidoRepository.streamAllByOrderByIdAsc()) {
+            for (Pedido pedido : (Iterable<Pedido>) pedidos::iterator) {
+                consumidor.accept(pedidoMapper.toResponseDto(pedido));
+                entityManager.detach(pedido);
+                exportados++;
+            }
+        }
+        return exportados;
+    }
+
+    // Devuelve una página de pedidos con id > cursor
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PedidoResponseDto> listarPedidosPagina(String cursor, Integer limit) {
+        long desde;
+        int size;
+        try {
+            desde = CursorPage.decodeLong(cursor);
+            size = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new PedidoBadRequestException(e.getMessage());
+        }
+        List<Pedido> pedidos = pedidoRepository.findByIdGreaterThanOrderByIdAsc(desde, Limit.of(size + 1));
+        return CursorPage.of(pedidos, size, Pedido::getId).map(pedidoMapper::toResponseDto);
+    }
+
     // Obtiene los pedidos del usuario específico
     @Override
     @Transactional(readOnly = true)
@@ -116,8 +190,10 @@ public class PedidoServiceImpl implements PedidoService {
         return pedidoMapper.toResponseList(pedidos);
     }
 
-    // Buscamos el pedido por su Id
+    // Buscamos el pedido por su Id. Los detalles se mapean dentro de la transacción: con hilos
+    // virtuales GraphQL ejecuta el controlador fuera del hilo de la petición y no hay Open Session In View
     @Override
+    @Transactional(readOnly = true)
     public PedidoResponseDto obtenerPorId(Long pedidoId) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new PedidoNotFoundException("Pedido con ID " + pedidoId + " no encontrado"));
@@ -127,9 +203,10 @@ public class PedidoServiceImpl implements PedidoService {
     // Actualizamos el estado del pedido y registra fechas de pago y envío
     @Override
     @Transactional
-    public PedidoResponseDto actualizarEstado(Long pedidoId, EstadoPedido estado) {
+    public PedidoResponseDto actualizarEstado(Long pedidoId, EstadoPedido estado, Long versionEsperada) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new PedidoNotFoundException("Pedido con ID " + pedidoId + " no encontrado"));
+        comprobarVersion(pedido, versionEsperada);
 
         if (pedido.getEstado() == EstadoPedido.CANCELADO) {
             throw new PedidoConflictException("No es posible modificar un pedido cancelado");
@@ -139,14 +216,26 @@ public class PedidoServiceImpl implements PedidoService {
         }
         pedido.setEstado(estado);
         switch (estado) {
-            case PAGADO -> pedido.setFechaPago(LocalDateTime.now());
+            case PAGADO -> {
+                reservasProductos.vender(pedido.getId(), productosIds(pedido));
+                pedido.setFechaPago(LocalDateTime.now());
+            }
             case ENVIADO -> pedido.setFechaEnvio(LocalDateTime.now());
+            case CANCELADO -> reservasProductos.liberar(pedido.getId(), productosIds(pedido));
             default -> {
             }
         }
-        Pedido actualizado = pedidoRepository.save(pedido);
+        // saveAndFlush para que la versión devuelta (el ETag) sea ya la nueva
+        Pedido actualizado = pedidoRepository.saveAndFlush(pedido);
         return pedidoMapper.toResponseDto(actualizado);
     }
+
+    // Si el cliente manda If-Match, el pedido tiene que seguir en esa versión
+    private void comprobarVersion(Pedido pedido, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(pedido.getVersion())) {
+            throw new PedidoPreconditionFailedException("El pedido con ID " + pedido.getId() + " ha cambiado desde la versión " + versionEsperada);
+        }
+    }
     //Posibles opcones en la actualizacion de los estados
     private boolean cambiosDeEstado(EstadoPedido estadoActual, EstadoPedido nuevoEstado) {
                 return switch (estadoActual){
@@ -160,19 +249,27 @@ public class PedidoServiceImpl implements PedidoService {
 
     // Pedidos filtrados por estado
     @Override
+    @Transactional(readOnly = true)
     public List<PedidoResponseDto> buscarPorEstado(EstadoPedido estado) {
         return pedidoMapper.toResponseList(pedidoRepository.findByEstado(estado));
     }
 
     //Eliminamos el pedido correspondiente
     @Override
-    public void eliminarPedido(Long id) {
+    @Transactional
+    public void eliminarPedido(Long id, Long versionEsperada) {
         Pedido pedido = pedidoRepository.findById(id) //validamos se esta el pedido
                 .orElseThrow(() -> new PedidoNotFoundException("Pedido con ID " + id + " no encontrado"));
+        comprobarVersion(pedido, versionEsperada);
 
         if (pedido.getEstado() != EstadoPedido.PENDIENTE_PAGO) { // Si El pedido esta Enviado, Pagado u otro que no este en proceso. NO SE PUEDE ELIMINAR
             throw new PedidoConflictException("No se puede eliminar un pedido procesado");
         }
         pedidoRepository.delete(pedido);
+        reservasProductos.liberar(pedido.getId(), productosIds(pedido));
+    }
+
+    private static List<String> productosIds(Pedido pedido) {
+        return pedido.getDetalles().stream().map(DetallePedido::getProductoId).toList();
     }
 }
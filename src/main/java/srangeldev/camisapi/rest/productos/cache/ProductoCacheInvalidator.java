@@ -0,0 +1,40 @@
+package srangeldev.camisapi.rest.productos.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Invalidación selectiva de la caché de productos
+ *
+ * En lugar de vaciar toda la caché en cada escritura, se eliminan solo las entradas
+ * que dependen del producto antes y después del cambio: si cambia el equipo, se invalida
+ * la búsqueda del equipo antiguo (ya no debe aparecer) y la del nuevo (ahora sí).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductoCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * Invalida las entradas que dependen de cualquiera de las versiones del producto.
+     */
+    public void invalidar(Producto... versiones) {
+        for (Map.Entry<String, Set<String>> region : ProductoCacheKeys.dependientes(versiones).entrySet()) {
+            Cache cache = cacheManager.getCache(region.getKey());
+            if (cache == null) {
+                continue;
+            }
+            log.debug("Invalidando en {}: {}", region.getKey(), region.getValue());
+            region.getValue().forEach(cache::evict);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package srangeldev.camisapi.rest.productos.cache;
+
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Regiones y claves de la caché de productos
+ *
+ * Cada consulta cacheada tiene su propia región (caché con nombre propio), con TTL y tamaño
+ * configurables en RedisConfig; así la talla "M" y un equipo "M" nunca comparten entrada.
+ * Dentro de cada región la clave es el argumento normalizado igual que lo compara Mongo
+ * (nombre y equipo sin distinguir mayúsculas), de modo que a partir de un producto se pueden
+ * calcular exactamente las entradas cuyo resultado lo incluye.
+ */
+public final class ProductoCacheKeys {
+
+    public static final String LISTA = "productos-lista";
+    public static final String POR_ID = "productos-id";
+    public static final String POR_NOMBRE = "productos-nombre";
+    public static final String POR_EQUIPO = "productos-equipo";
+    public static final String POR_TALLA = "productos-talla";
+    public static final String POR_ESTADO = "productos-estado";
+
+    public static final List<String> REGIONES = List.of(LISTA, POR_ID, POR_NOMBRE, POR_EQUIPO, POR_TALLA, POR_ESTADO);
+
+    /**
+     * Clave única de la región del listado completo
+     */
+    public static final String TODOS = "todos";
+
+    private ProductoCacheKeys() {
+    }
+
+    /**
+     * Clave dentro de una región para el argumento de la consulta.
+     */
+    public static String clave(String region, Object valor) {
+        return switch (region) {
+            case LISTA -> TODOS;
+            case POR_NOMBRE, POR_EQUIPO -> valor == null ? null : valor.toString().toLowerCase(Locale.ROOT);
+            default -> String.valueOf(valor);
+        };
+    }
+
+    /**
+     * Entradas de caché (región → claves) que dependen de alguna de las versiones del producto:
+     * su id, el listado completo y cada búsqueda cuyo predicado coincide con sus valores.
+     * Las versiones nulas se ignoran (no hay versión anterior al crear ni posterior al borrar).
+     */
+    public static Map<String, Set<String>> dependientes(Producto... versiones) {
+        Map<String, Set<String>> claves = new LinkedHashMap<>();
+        for (Producto producto : versiones) {
+            if (producto == null) {
+                continue;
+            }
+            agregar(claves, LISTA, null);
+            if (producto.getId() != null) {
+                agregar(claves, POR_ID, producto.getId());
+            }
+            agregar(claves, POR_NOMBRE, producto.getNombre());
+            agregar(claves, POR_EQUIPO, producto.getEquipo());
+            agregar(claves, POR_TALLA, producto.getTalla());
+            agregar(claves, POR_ESTADO, producto.getEstado());
+        }
+        return claves;
+    }
+
+    private static void agregar(Map<String, Set<String>> claves, String region, Object valor) {
+        claves.computeIfAbsent(region, r -> new LinkedHashSet<>()).add(clave(region, valor));
+    }
+}
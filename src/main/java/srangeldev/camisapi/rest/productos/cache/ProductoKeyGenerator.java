@@ -0,0 +1,38 @@
+package srangeldev.camisapi.rest.productos.cache;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generador de claves de la caché de productos
+ *
+ * Obtiene la región del @Cacheable del método y delega en ProductoCacheKeys,
+ * para que las claves que se cachean sean las mismas que después se invalidan.
+ */
+@Component(ProductoKeyGenerator.NOMBRE)
+public class ProductoKeyGenerator implements KeyGenerator {
+
+    public static final String NOMBRE = "productoKeyGenerator";
+
+    private final Map<Method, String> regiones = new ConcurrentHashMap<>();
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        String region = regiones.computeIfAbsent(method, ProductoKeyGenerator::region);
+        return ProductoCacheKeys.clave(region, params.length == 0 ? null : params[0]);
+    }
+
+    private static String region(Method method) {
+        Cacheable cacheable = AnnotatedElementUtils.findMergedAnnotation(method, Cacheable.class);
+        if (cacheable == null || cacheable.cacheNames().length != 1) {
+            throw new IllegalStateException("Se esperaba un @Cacheable con una única región en " + method);
+        }
+        return cacheable.cacheNames()[0];
+    }
+}
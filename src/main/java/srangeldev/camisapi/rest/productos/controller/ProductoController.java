@@ -11,12 +11,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import srangeldev.camisapi.rest.export.NdjsonWriter;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
 import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos;
+import srangeldev.camisapi.rest.productos.filtro.ProductoFiltro;
+import srangeldev.camisapi.rest.productos.filtro.ResultadoFiltro;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.search.IndiceBusquedaProductos;
 import srangeldev.camisapi.rest.productos.service.ProductoService;
 
 import java.util.List;
@@ -29,6 +37,9 @@ import java.util.List;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final NdjsonWriter ndjsonWriter;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final FiltroProductos filtroProductos;
 
     @Operation(
         summary = "Listar todos los productos",
@@ -51,6 +62,45 @@ public class ProductoController {
         return ResponseEntity.ok(productos);
     }
 
+    @Operation(
+        summary = "Listar productos paginados",
+        description = "Obtiene una página del catálogo usando paginación por cursor (keyset)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de productos recuperada exitosamente"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Cursor o límite inválidos"
+        )
+    })
+    @GetMapping("/pagina")
+    public ResponseEntity<CursorPage<ProductoResponseDTO>> listarProductosPagina(
+        @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)") @RequestParam(required = false) String cursor,
+        @Parameter(description = "Tamaño de página (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        log.info("GET: Listando productos paginados con cursor {}", cursor);
+        return ResponseEntity.ok(productoService.listarProductosPagina(cursor, limit));
+    }
+
+    @Operation(
+        summary = "Exportar el catálogo completo",
+        description = "Devuelve todos los productos en formato NDJSON (un producto por línea), leídos con un cursor de Mongo"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Exportación de productos en curso",
+            content = @Content(mediaType = "application/x-ndjson")
+        )
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarProductos() {
+        log.info("GET: Exportando el catálogo de productos");
+        return ndjsonWriter.respuesta(productoService::exportarProductos);
+    }
+
     @Operation(
         summary = "Obtener producto por ID",
         description = "Recupera un producto específico mediante su identificador único"
@@ -124,6 +174,10 @@ public class ProductoController {
         @ApiResponse(
             responseCode = "400",
             description = "Datos de entrada inválidos"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Cambio de estado de un producto reservado o vendido a un pedido"
         )
     })
     @PutMapping("/{id}")
@@ -158,6 +212,53 @@ public class ProductoController {
         return ResponseEntity.noContent().build();
     }
 
+    @Operation(
+        summary = "Buscar en el catálogo",
+        description = "Búsqueda de texto en nombre, equipo y descripción ordenada por relevancia. "
+            + "No distingue mayúsculas ni tildes y la última palabra se completa como prefijo"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Búsqueda realizada exitosamente",
+            content = @Content(
+                mediaType = "application/json",
+                array = @ArraySchema(schema = @Schema(implementation = ProductoResponseDTO.class))
+            )
+        )
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductoResponseDTO>> buscar(
+        @Parameter(description = "Texto a buscar", required = true) @RequestParam String q,
+        @Parameter(description = "Máximo de resultados (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        log.info("GET: Buscando productos con el texto {}", q);
+        return ResponseEntity.ok(indiceBusqueda.buscar(q, limit));
+    }
+
+    @Operation(
+        summary = "Filtrar productos con facetas",
+        description = "Combina equipo, talla, estado, rango de precio y de fecha de creación en una sola consulta. "
+            + "Devuelve una página ordenada, el total y el número de productos por equipo, talla y estado"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página filtrada recuperada exitosamente"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Rangos, cursor o límite inválidos"
+        )
+    })
+    @GetMapping("/filtro")
+    public ResponseEntity<ResultadoFiltro<ProductoResponseDTO>> filtrar(
+        @ParameterObject ProductoFiltro filtro,
+        @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)") @RequestParam(required = false) String cursor,
+        @Parameter(description = "Tamaño de página (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        log.info("GET: Filtrando productos con {}", filtro);
+        return ResponseEntity.ok(filtroProductos.filtrar(filtro, cursor, limit));
+    }
+
     @Operation(
         summary = "Buscar productos por nombre",
         description = "Busca productos que contengan el nombre especificado"
@@ -0,0 +1,10 @@
+package srangeldev.camisapi.rest.productos.exceptions;
+
+/**
+ * El producto ya está reservado o vendido a otro pedido (HTTP 409)
+ */
+public class ProductoNoDisponible extends ProductoException {
+    public ProductoNoDisponible(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Número de productos del filtro que tienen un valor concreto de una faceta
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetaValor {
+
+    private String valor;
+
+    private long total;
+}
@@ -0,0 +1,28 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Recuento por equipo, talla y estado de todos los productos que cumplen el filtro
+ * (no solo los de la página), de más a menos productos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Facetas {
+
+    @Builder.Default
+    private List<FacetaValor> equipo = List.of();
+
+    @Builder.Default
+    private List<FacetaValor> talla = List.of();
+
+    @Builder.Default
+    private List<FacetaValor> estado = List.of();
+}
@@ -0,0 +1,171 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.mongo.GestorIndices;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.count;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.skip;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sortByCount;
+
+/**
+ * Filtro combinado del catálogo con facetas
+ *
+ * Resuelve en una sola agregación lo que antes eran varias llamadas a /buscar/* que el cliente
+ * cruzaba por su cuenta: un $match con todos los criterios (sobre los índices de GestorIndices)
+ * seguido de un $facet que devuelve a la vez la página ordenada, el total y el recuento por
+ * equipo, talla y estado. Mongo lee los productos que cumplen el filtro una sola vez.
+ *
+ * Si se filtra por equipo se usa la colación sin mayúsculas, igual que buscarPorEquipo, para que
+ * la consulta aproveche el índice equipo_ci; sin equipo se usa la colación simple y el índice
+ * estado_equipo_talla o el de talla.
+ */
+@Slf4j
+@Component
+public class FiltroProductos {
+
+    static final String ITEMS = "items";
+    static final String TOTAL = "total";
+    static final String EQUIPO = "equipo";
+    static final String TALLA = "talla";
+    static final String ESTADO = "estado";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductoMapper productoMapper;
+
+    public FiltroProductos(MongoTemplate mongoTemplate, ProductoMapper productoMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.productoMapper = productoMapper;
+    }
+
+    /**
+     * Página de productos que cumplen el filtro, con el total y las facetas
+     */
+    public ResultadoFiltro<ProductoResponseDTO> filtrar(ProductoFiltro filtro, String cursor, Integer limit) {
+        ProductoFiltro criterios = filtro != null ? filtro : new ProductoFiltro();
+        long desde;
+        int size;
+        try {
+            criterios.validar();
+            desde = CursorPage.decodeLong(cursor);
+            size = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new ProductoBadRequest(e.getMessage());
+        }
+        log.info("Filtrando productos con {} desde la posición {} (limite {})", criterios, desde, size);
+
+        Agregacion resultado = mongoTemplate.aggregate(agregacion(criterios, desde, size), Agregacion.class)
+                .getUniqueMappedResult();
+        if (resultado == null) {
+            resultado = new Agregacion(List.of(), List.of(), List.of(), List.of(), List.of());
+        }
+
+        List<Producto> items = nulos(resultado.items());
+        boolean hasMore = items.size() > size;
+        List<Producto> pagina = hasMore ? items.subList(0, size) : items;
+        return ResultadoFiltro.<ProductoResponseDTO>builder()
+                .items(pagina.stream().map(productoMapper::toDTO).toList())
+                .nextCursor(hasMore ? CursorPage.encode(String.valueOf(desde + size)) : null)
+                .hasMore(hasMore)
+                .total(nulos(resultado.total()).stream().mapToLong(Conteo::count).findFirst().orElse(0))
+                .facetas(Facetas.builder()
+                        .equipo(valores(resultado.equipo()))
+                        .talla(valores(resultado.talla()))
+                        .estado(valores(resultado.estado()))
+                        .build())
+                .build();
+    }
+
+    TypedAggregation<Producto> agregacion(ProductoFiltro filtro, long desde, int size) {
+        FacetOperation facetas = Aggregation
+                .facet(sort(filtro.getOrden() != null ? filtro.getOrden().getSort() : OrdenProducto.ID.getSort()),
+                        skip(desde), limit(size + 1L)).as(ITEMS)
+                .and(count().as("count")).as(TOTAL)
+                .and(sortByCount(EQUIPO)).as(EQUIPO)
+                .and(sortByCount(TALLA)).as(TALLA)
+                .and(sortByCount(ESTADO)).as(ESTADO);
+
+        AggregationOptions.Builder opciones = AggregationOptions.builder();
+        if (filtro.getEquipo() != null) {
+            opciones.collation(GestorIndices.COLACION);
+        }
+        return Aggregation.newAggregation(Producto.class, match(criterios(filtro)), facetas)
+                .withOptions(opciones.build());
+    }
+
+    static Criteria criterios(ProductoFiltro filtro) {
+        List<Criteria> condiciones = new ArrayList<>();
+        if (filtro.getEquipo() != null) {
+            condiciones.add(Criteria.where("equipo").is(filtro.getEquipo()));
+        }
+        if (filtro.getTalla() != null) {
+            condiciones.add(Criteria.where("talla").is(filtro.getTalla()));
+        }
+        if (filtro.getEstado() != null) {
+            condiciones.add(Criteria.where("estado").is(filtro.getEstado()));
+        }
+        if (filtro.getPrecioMin() != null || filtro.getPrecioMax() != null) {
+            Criteria precio = Criteria.where("precio");
+            if (filtro.getPrecioMin() != null) {
+                precio.gte(filtro.getPrecioMin());
+            }
+            if (filtro.getPrecioMax() != null) {
+                precio.lte(filtro.getPrecioMax());
+            }
+            condiciones.add(precio);
+        }
+        if (filtro.getDesde() != null || filtro.getHasta() != null) {
+            Criteria fecha = Criteria.where("fechaCreacion");
+            if (filtro.getDesde() != null) {
+                fecha.gte(filtro.getDesde());
+            }
+            if (filtro.getHasta() != null) {
+                fecha.lte(filtro.getHasta());
+            }
+            condiciones.add(fecha);
+        }
+        return condiciones.isEmpty() ? new Criteria() : new Criteria().andOperator(condiciones);
+    }
+
+    private static List<FacetaValor> valores(List<Conteo> conteos) {
+        return nulos(conteos).stream()
+                .filter(conteo -> conteo.id() != null)
+                .map(conteo -> new FacetaValor(conteo.id(), conteo.count()))
+                .toList();
+    }
+
+    private static <T> List<T> nulos(List<T> lista) {
+        return lista != null ? lista : List.of();
+    }
+
+    /**
+     * Documento que devuelve el $facet: una lista por cada rama
+     */
+    public record Agregacion(List<Producto> items, List<Conteo> total, List<Conteo> equipo,
+                             List<Conteo> talla, List<Conteo> estado) {
+    }
+
+    /**
+     * Salida de $sortByCount ({_id: valor, count: n}) y de $count
+     */
+    public record Conteo(@Id String id, long count) {
+    }
+}
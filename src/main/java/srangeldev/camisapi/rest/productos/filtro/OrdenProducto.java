@@ -0,0 +1,26 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Orden de los resultados del filtro de productos
+ *
+ * Todos desempatan por id para que el orden sea estable entre páginas.
+ */
+public enum OrdenProducto {
+    ID(Sort.by(Sort.Direction.ASC, "_id")),
+    PRECIO_ASC(Sort.by(Sort.Direction.ASC, "precio")),
+    PRECIO_DESC(Sort.by(Sort.Direction.DESC, "precio")),
+    RECIENTES(Sort.by(Sort.Direction.DESC, "fechaCreacion")),
+    NOMBRE(Sort.by(Sort.Direction.ASC, "nombre"));
+
+    private final Sort sort;
+
+    OrdenProducto(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort getSort() {
+        return this == ID ? sort : sort.and(ID.sort);
+    }
+}
@@ -0,0 +1,66 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+
+import java.time.LocalDate;
+
+/**
+ * Criterios del filtro de productos; los que no se indican no filtran
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoFiltro {
+
+    /**
+     * Equipo exacto, sin distinguir mayúsculas ni tildes
+     */
+    private String equipo;
+
+    private String talla;
+
+    private EstadoProducto estado;
+
+    /**
+     * Precio mínimo (incluido)
+     */
+    private Double precioMin;
+
+    /**
+     * Precio máximo (incluido)
+     */
+    private Double precioMax;
+
+    /**
+     * Fecha de creación desde (incluida)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    /**
+     * Fecha de creación hasta (incluida)
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    @Builder.Default
+    private OrdenProducto orden = OrdenProducto.ID;
+
+    /**
+     * Comprueba que los rangos tienen sentido
+     */
+    public void validar() {
+        if (precioMin != null && precioMax != null && precioMin > precioMax) {
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor que el máximo");
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package srangeldev.camisapi.rest.productos.filtro;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página del filtro de productos junto con el total y las facetas del filtro completo
+ *
+ * Como el orden lo elige el cliente, el cursor codifica la posición y no una clave.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoFiltro<T> {
+
+    private List<T> items;
+
+    /**
+     * Cursor para pedir la siguiente página (null si no hay más)
+     */
+    private String nextCursor;
+
+    private boolean hasMore;
+
+    /**
+     * Productos que cumplen el filtro
+     */
+    private long total;
+
+    private Facetas facetas;
+
+    /**
+     * Transforma los elementos conservando cursor, total y facetas
+     */
+    public <R> ResultadoFiltro<R> map(Function<T, R> mapper) {
+        return new ResultadoFiltro<>(items.stream().map(mapper).toList(), nextCursor, hasMore, total, facetas);
+    }
+}
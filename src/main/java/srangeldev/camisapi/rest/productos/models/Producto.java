@@ -10,12 +10,13 @@ import org.springframework.data.annotation.TypeAlias;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Modelo Producto - MongoDB
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document("productos")
@@ -88,4 +89,14 @@ public class Producto {
     @PastOrPresent(message = "La fecha de creación no puede ser futura")
     @Builder.Default
     private LocalDate fechaCreacion = LocalDate.now();
+
+    /**
+     * Pedido que tiene el producto reservado o que lo compró (null si está disponible)
+     */
+    private Long pedidoId;
+
+    /**
+     * Hasta cuándo dura la reserva; pasado ese momento se libera si el pedido no se ha pagado
+     */
+    private LocalDateTime reservadoHasta;
 }
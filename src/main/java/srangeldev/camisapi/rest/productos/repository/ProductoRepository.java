@@ -1,19 +1,25 @@
 package srangeldev.camisapi.rest.productos.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
 import srangeldev.camisapi.rest.productos.models.Producto;
 
+import static srangeldev.camisapi.mongo.GestorIndices.COLACION_CI;
+
 import java.util.List;
 
 @Repository
 public interface ProductoRepository extends MongoRepository<Producto, String> {
 
-    // Buscar productos por nombre ignorando mayúsculas y minúsculas
+    // Buscar productos por nombre ignorando mayúsculas y tildes (colación del índice nombre_ci, no regex /i)
+    @Query(value = "{ 'nombre': ?0 }", collation = COLACION_CI)
     List<Producto> findByNombreIgnoreCase(String nombre);
 
-    // Buscar productos por equipo ignorando mayusculas y minusculas
+    // Buscar productos por equipo ignorando mayusculas y tildes (colación del índice equipo_ci)
+    @Query(value = "{ 'equipo': ?0 }", collation = COLACION_CI)
     List<Producto> findByEquipoIgnoreCase(String equipo);
 
     // Buscar productos por estado
@@ -21,4 +27,10 @@ public interface ProductoRepository extends MongoRepository<Producto, String> {
 
     // Buscar productos por talla
     List<Producto> findByTalla(String talla);
+
+    // Primera página de productos ordenados por _id (paginación por cursor)
+    List<Producto> findAllByOrderByIdAsc(Limit limit);
+
+    // Siguiente página: rango sobre el índice de _id a partir del cursor
+    List<Producto> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
 }
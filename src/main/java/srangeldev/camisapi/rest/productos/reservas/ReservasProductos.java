@@ -0,0 +1,324 @@
+package srangeldev.camisapi.rest.productos.reservas;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reservas de productos para que dos pedidos no puedan comprar la misma camiseta
+ *
+ * Cada cambio de estado es una actualización condicional en Mongo (el filtro incluye el estado
+ * esperado), y Mongo aplica cada una de forma atómica por documento: de dos checkouts a la vez sobre
+ * el mismo producto solo uno encuentra el producto DISPONIBLE y lo pasa a RESERVADO; el otro no lo
+ * encuentra y su pedido falla. No hay bloqueos ni coordinación entre réplicas. Salvo la reserva, que
+ * sabe qué cambió leyendo lo que quedó a nombre del pedido, los cambios van producto a producto con
+ * findAndModify, que devuelve el producto tal como estaba: así cada llamada sabe exactamente qué cambió.
+ *
+ * Un producto reservado guarda el pedido que lo tiene y hasta cuándo. Al pagar pasa a VENDIDO; si el
+ * pedido no se paga a tiempo, cada réplica libera periódicamente las reservas caducadas con la misma
+ * actualización condicional, así que da igual cuántas lo hagan a la vez. Un pedido cuya reserva
+ * caducó aún puede pagarse si nadie se ha llevado sus productos mientras tanto.
+ *
+ * Cada producto que cambia de estado publica un {@link CambioEvento} ACTUALIZADO con su estado nuevo.
+ *
+ * Mongo y Postgres no comparten transacción: si la transacción del pedido se deshace, las reservas y
+ * ventas que hizo se deshacen también (solo los productos que cambió, y a su estado anterior); la liberación al cancelar espera a que la transacción se
+ * confirme para no dejar libres productos de un pedido que sigue en pie.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ReservasProperties.class)
+public class ReservasProductos {
+
+    static final String ID = "_id";
+    static final String ESTADO = "estado";
+    static final String PEDIDO = "pedidoId";
+    static final String RESERVADO_HASTA = "reservadoHasta";
+
+    private static final String DISPONIBLE = EstadoProducto.DISPONIBLE.name();
+    private static final String RESERVADO = EstadoProducto.RESERVADO.name();
+    private static final String VENDIDO = EstadoProducto.VENDIDO.name();
+
+    private final MongoOperations mongo;
+    private final ProductoCacheInvalidator cacheInvalidator;
+    private final ReservasProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductoMapper productoMapper;
+
+    private ScheduledExecutorService liberador;
+
+    public ReservasProductos(MongoOperations mongo, ProductoCacheInvalidator cacheInvalidator, ReservasProperties properties,
+                             ApplicationEventPublisher eventPublisher, ProductoMapper productoMapper) {
+        this.mongo = mongo;
+        this.cacheInvalidator = cacheInvalidator;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.productoMapper = productoMapper;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        long intervalo = properties.getIntervaloLiberacion().toMillis();
+        liberador = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("reservas-liberacion").daemon().factory());
+        liberador.scheduleWithFixedDelay(this::liberarCaducadas, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        liberador.shutdownNow();
+    }
+
+    /**
+     * Reserva para el pedido todos los productos, o ninguno.
+     *
+     * @param productos productos leídos al crear el pedido; si alguno ya no estaba disponible se
+     *                  rechaza sin ir a Mongo
+     * @throws ProductoNoDisponible si alguno está reservado o vendido a otro pedido
+     */
+    public void reservar(Long pedidoId, Collection<Producto> productos) {
+        List<String> noDisponibles = productos.stream()
+                .filter(producto -> producto.getEstado() != EstadoProducto.DISPONIBLE)
+                .map(Producto::getId)
+                .distinct()
+                .toList();
+        if (!noDisponibles.isEmpty()) {
+            throw new ProductoNoDisponible("Productos no disponibles: " + String.join(", ", noDisponibles));
+        }
+        List<String> ids = productos.stream().map(Producto::getId).distinct().toList();
+
+        // Un solo updateMulti sea cual sea el tamaño del carrito. Los que acaban reservados para este pedido
+        // son justo los que cambió: ningún otro pedido usa su id y todos estaban DISPONIBLE, sin pedido
+        Query disponibles = new Query(Criteria.where(ID).in(ids).and(ESTADO).is(DISPONIBLE));
+        Update reserva = new Update()
+                .set(ESTADO, RESERVADO)
+                .set(PEDIDO, pedidoId)
+                .set(RESERVADO_HASTA, LocalDateTime.now().plus(properties.getTtl()));
+        mongo.updateMulti(disponibles, reserva, Producto.class);
+        Query delPedido = new Query(Criteria.where(ID).in(ids).and(PEDIDO).is(pedidoId).and(ESTADO).is(RESERVADO));
+        List<Cambio> reservados = mongo.find(delPedido, Producto.class).stream()
+                .map(reservado -> new Cambio(
+                        reservado.toBuilder().estado(EstadoProducto.DISPONIBLE).pedidoId(null).reservadoHasta(null).build(),
+                        reservado))
+                .toList();
+        publicar(reservados);
+
+        if (reservados.size() < ids.size()) {
+            // Otro pedido se adelantó con alguno: se sueltan los que sí se reservaron
+            deshacer(pedidoId, reservados);
+            throw new ProductoNoDisponible("Alguno de los productos se acaba de reservar para otro pedido");
+        }
+        log.debug("Reservados {} productos para el pedido {}", reservados.size(), pedidoId);
+        alDeshacer(() -> deshacer(pedidoId, reservados));
+    }
+
+    /**
+     * Marca como vendidos los productos del pedido al pagarlo.
+     *
+     * Vale tanto si siguen reservados para el pedido como si su reserva caducó y nadie los ha
+     * reservado después.
+     *
+     * @throws ProductoNoDisponible si la reserva caducó y alguno ya es de otro pedido
+     */
+    public void vender(Long pedidoId, Collection<String> productosIds) {
+        List<String> ids = productosIds.stream().distinct().toList();
+        Criteria delPedido = new Criteria().orOperator(
+                Criteria.where(ESTADO).in(RESERVADO, VENDIDO).and(PEDIDO).is(pedidoId),
+                Criteria.where(ESTADO).is(DISPONIBLE));
+        List<Cambio> vendidos = new ArrayList<>();
+        for (String id : ids) {
+            Optional<Cambio> vendido = cambiar(id, delPedido, EstadoProducto.VENDIDO, pedidoId, null);
+            if (vendido.isEmpty()) {
+                break;
+            }
+            vendidos.add(vendido.get());
+        }
+        publicar(vendidos);
+
+        if (vendidos.size() < ids.size()) {
+            deshacer(pedidoId, vendidos);
+            throw new ProductoNoDisponible("La reserva del pedido " + pedidoId + " caducó y alguno de sus productos ya es de otro pedido");
+        }
+        log.debug("Vendidos {} productos del pedido {}", vendidos.size(), pedidoId);
+        alDeshacer(() -> deshacer(pedidoId, vendidos));
+    }
+
+    /**
+     * Devuelve a disponibles los productos reservados o vendidos al pedido (al cancelarlo o borrarlo).
+     * Dentro de una transacción se hace cuando esta se confirma.
+     */
+    public void liberar(Long pedidoId, Collection<String> productosIds) {
+        List<String> ids = productosIds.stream().distinct().toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            soltar(pedidoId, ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    soltar(pedidoId, ids);
+                } catch (RuntimeException e) {
+                    // Las reservas se liberarán al caducar; lo ya vendido queda vendido
+                    log.warn("No se pudieron liberar los productos del pedido {}: {}", pedidoId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Libera las reservas caducadas, un lote por pasada, hasta que no quede ninguna.
+     */
+    void liberarCaducadas() {
+        try {
+            while (liberarLote() == properties.getLoteLiberacion()) {
+                log.debug("Quedan reservas caducadas; siguiente lote");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error liberando reservas caducadas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Libera un lote de reservas caducadas. La actualización repite la condición de la búsqueda, así
+     * que un producto que se ha pagado o vuelto a reservar entre medias no se toca.
+     *
+     * @return reservas liberadas
+     */
+    int liberarLote() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Producto> caducadas = mongo.find(
+                new Query(Criteria.where(ESTADO).is(RESERVADO).and(RESERVADO_HASTA).lt(ahora)).limit(properties.getLoteLiberacion()),
+                Producto.class);
+        if (caducadas.isEmpty()) {
+            return 0;
+        }
+        // Se repite la condición por producto: uno pagado o vuelto a reservar entre medias no se toca
+        Criteria sigueCaducada = Criteria.where(ESTADO).is(RESERVADO).and(RESERVADO_HASTA).lt(ahora);
+        List<Cambio> liberadas = caducadas.stream()
+                .flatMap(producto -> cambiar(producto.getId(), sigueCaducada, EstadoProducto.DISPONIBLE, null, null).stream())
+                .toList();
+        // Fuera de cualquier petición: las invalidaciones y eventos del lote salen juntos al final
+        publicar(liberadas);
+        log.info("Liberadas {} reservas caducadas", liberadas.size());
+        return liberadas.size();
+    }
+
+    private void soltar(Long pedidoId, List<String> ids) {
+        Criteria delPedido = Criteria.where(PEDIDO).is(pedidoId).and(ESTADO).in(RESERVADO, VENDIDO);
+        publicar(ids.stream()
+                .flatMap(id -> cambiar(id, delPedido, EstadoProducto.DISPONIBLE, null, null).stream())
+                .toList());
+    }
+
+    /**
+     * Devuelve al estado anterior solo los productos que cambió esta llamada y que siguen como los dejó:
+     * lo que estaba disponible vuelve a disponible y lo reservado a su reserva.
+     */
+    private void deshacer(Long pedidoId, List<Cambio> cambios) {
+        publicar(cambios.stream()
+                .filter(Cambio::cambiaEstado)
+                .flatMap(cambio -> {
+                    Producto anterior = cambio.anterior();
+                    Criteria comoLoDejo = Criteria.where(ESTADO).is(cambio.nuevo().getEstado().name()).and(PEDIDO).is(pedidoId);
+                    return cambiar(anterior.getId(), comoLoDejo, anterior.getEstado(), anterior.getPedidoId(),
+                            anterior.getReservadoHasta()).stream();
+                })
+                .toList());
+    }
+
+    /**
+     * Cambia el estado de un producto si cumple la condición, de forma atómica en Mongo.
+     *
+     * @return el producto antes y después del cambio, o vacío si no cumplía la condición
+     */
+    private Optional<Cambio> cambiar(String id, Criteria condicion, EstadoProducto estado, Long pedidoId, LocalDateTime hasta) {
+        Query query = new Query(Criteria.where(ID).is(id)).addCriteria(condicion);
+        Update update = new Update().set(ESTADO, estado.name());
+        if (pedidoId == null) {
+            update.unset(PEDIDO);
+        } else {
+            update.set(PEDIDO, pedidoId);
+        }
+        if (hasta == null) {
+            update.unset(RESERVADO_HASTA);
+        } else {
+            update.set(RESERVADO_HASTA, hasta);
+        }
+        return Optional.ofNullable(mongo.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Producto.class))
+                .map(anterior -> new Cambio(anterior, anterior.toBuilder().estado(estado).pedidoId(pedidoId).reservadoHasta(hasta).build()));
+    }
+
+    /**
+     * Invalida la caché de los productos cambiados y publica un evento por cada uno cuyo estado cambió
+     */
+    private void publicar(List<Cambio> cambios) {
+        if (cambios.isEmpty()) {
+            return;
+        }
+        cacheInvalidator.invalidar(cambios.stream()
+                .flatMap(cambio -> Stream.of(cambio.anterior(), cambio.nuevo()))
+                .toArray(Producto[]::new));
+        for (Cambio cambio : cambios) {
+            if (cambio.cambiaEstado()) {
+                Producto producto = cambio.nuevo();
+                eventPublisher.publishEvent(CambioEvento.de(ProductoService.ENTIDAD, producto.getId(), Operacion.ACTUALIZADO,
+                        productoMapper.toDTO(producto), producto.getEquipo()));
+            }
+        }
+    }
+
+    /**
+     * Si la transacción en curso se deshace, deshace también lo hecho en Mongo
+     */
+    private static void alDeshacer(Runnable compensacion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == STATUS_ROLLED_BACK) {
+                    compensacion.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Un producto antes y después de un cambio hecho por las reservas
+     */
+    private record Cambio(Producto anterior, Producto nuevo) {
+
+        boolean cambiaEstado() {
+            return anterior.getEstado() != nuevo.getEstado();
+        }
+    }
+}
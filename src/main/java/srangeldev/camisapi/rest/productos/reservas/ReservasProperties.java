@@ -0,0 +1,29 @@
+package srangeldev.camisapi.rest.productos.reservas;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Propiedades de las reservas de productos (camisapi.reservas.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.reservas")
+public class ReservasProperties {
+
+    /**
+     * Tiempo que un pedido sin pagar retiene sus productos antes de que vuelvan a estar disponibles
+     */
+    private Duration ttl = Duration.ofMinutes(15);
+
+    /**
+     * Cada cuánto se liberan las reservas caducadas
+     */
+    private Duration intervaloLiberacion = Duration.ofSeconds(30);
+
+    /**
+     * Reservas caducadas que se liberan como máximo en cada pasada a Mongo
+     */
+    private int loteLiberacion = 500;
+}
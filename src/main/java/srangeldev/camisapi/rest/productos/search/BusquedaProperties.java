@@ -0,0 +1,19 @@
+package srangeldev.camisapi.rest.productos.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Propiedades del buscador de productos (camisapi.busqueda.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.busqueda")
+public class BusquedaProperties {
+
+    /**
+     * Cada cuánto se reconstruye el índice desde Mongo para corregir eventos perdidos
+     */
+    private Duration intervaloReconstruccion = Duration.ofMinutes(5);
+}
@@ -0,0 +1,360 @@
+package srangeldev.camisapi.rest.productos.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioReplicado;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buscador de texto del catálogo: índice invertido en memoria con ranking BM25
+ *
+ * Indexa nombre, equipo y descripción (con pesos 3, 2 y 1) tras pasar por el {@link Tokenizador}.
+ * Se carga entero al arrancar y después se mantiene con los eventos de cambio de productos,
+ * tanto los de esta réplica (CambioEvento) como los de las demás (CambioReplicado).
+ *
+ * Los eventos de otras réplicas llegan por pub/sub, que no guarda los mensajes: uno perdido dejaría el
+ * índice mal hasta reiniciar. Por eso cada intervalo-reconstruccion se vuelve a construir en segundo plano
+ * desde Mongo y se sustituye de golpe; las búsquedas siguen usando el anterior mientras tanto. Los
+ * productos que cambian por eventos durante la reconstrucción conservan lo que dijo el evento, que es
+ * más reciente que lo leído.
+ *
+ * Una consulta solo recorre las listas de sus términos, así que su coste depende de cuántos
+ * productos los contienen y no del tamaño del catálogo. El último término se busca también como
+ * prefijo ("barc" → "barcelona") para poder buscar mientras se escribe.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(BusquedaProperties.class)
+public class IndiceBusquedaProductos {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final double PESO_NOMBRE = 3;
+    static final double PESO_EQUIPO = 2;
+    static final double PESO_DESCRIPCION = 1;
+    /**
+     * Un término completado por prefijo puntúa menos que el escrito entero
+     */
+    static final double PESO_PREFIJO = 0.5;
+    static final int LONGITUD_MINIMA_PREFIJO = 2;
+    static final int MAX_EXPANSIONES_PREFIJO = 50;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoMapper productoMapper;
+    private final ObjectMapper objectMapper;
+    private final BusquedaProperties properties;
+
+    /**
+     * Protege indice y tocados
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock reconstruyendo = new ReentrantLock();
+    private Indice indice = new Indice();
+    /**
+     * Productos cambiados por eventos desde que empezó la reconstrucción en curso, o null si no hay ninguna.
+     * Hasta la primera carga el índice se considera en reconstrucción.
+     */
+    private Set<String> tocados = new HashSet<>();
+
+    private ScheduledExecutorService reconstructor;
+
+    public IndiceBusquedaProductos(ProductoRepository productoRepository, ProductoMapper productoMapper, ObjectMapper objectMapper,
+                                   BusquedaProperties properties) {
+        this.productoRepository = productoRepository;
+        this.productoMapper = productoMapper;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        long intervalo = properties.getIntervaloReconstruccion().toMillis();
+        reconstructor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("busqueda-reconstruccion").daemon().factory());
+        reconstructor.scheduleWithFixedDelay(this::reconstruir, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void detener() {
+        reconstructor.shutdownNow();
+    }
+
+    /**
+     * Carga el catálogo al arrancar. Los productos que ya llegaron por eventos no se pisan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        reconstruir();
+    }
+
+    /**
+     * Construye un índice nuevo con el catálogo de Mongo y lo pone en lugar del actual.
+     * Si ya hay una reconstrucción en curso no hace nada.
+     */
+    public void reconstruir() {
+        if (!reconstruyendo.tryLock()) {
+            return;
+        }
+        try {
+            lock.writeLock().lock();
+            try {
+                if (tocados == null) {
+                    tocados = new HashSet<>();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Indice nuevo = new Indice();
+            for (var producto : productoRepository.findAll()) {
+                nuevo.indexar(documento(productoMapper.toDTO(producto)));
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (String id : tocados) {
+                    Documento actual = indice.documentos.get(id);
+                    if (actual == null) {
+                        nuevo.quitar(id);
+                    } else {
+                        nuevo.indexar(actual);
+                    }
+                }
+                indice = nuevo;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Índice de búsqueda de productos construido con {} productos", nuevo.documentos.size());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo construir el índice de búsqueda de productos: {}", e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                tocados = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reconstruyendo.unlock();
+        }
+    }
+
+    @EventListener
+    public void onCambio(CambioEvento evento) {
+        aplicar(evento);
+    }
+
+    @EventListener
+    public void onCambioReplicado(CambioReplicado cambio) {
+        aplicar(cambio.getEvento());
+    }
+
+    void aplicar(CambioEvento evento) {
+        if (!ProductoService.ENTIDAD.equals(evento.getEntidad())) {
+            return;
+        }
+        if (evento.getOperacion() == CambioEvento.Operacion.ELIMINADO) {
+            eliminar(evento.getId());
+        } else if (evento.getDatos() != null) {
+            ProductoResponseDTO producto = evento.getDatos() instanceof ProductoResponseDTO dto
+                    ? dto
+                    : objectMapper.convertValue(evento.getDatos(), ProductoResponseDTO.class);
+            indexar(producto);
+        }
+    }
+
+    /**
+     * Productos que mejor encajan con la consulta, de mayor a menor relevancia.
+     */
+    public List<ProductoResponseDTO> buscar(String consulta, Integer limit) {
+        List<String> tokens = Tokenizador.tokens(consulta);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        int maximo;
+        try {
+            maximo = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new ProductoBadRequest(e.getMessage());
+        }
+
+        lock.readLock().lock();
+        try {
+            Indice actual = indice;
+            if (actual.documentos.isEmpty()) {
+                return List.of();
+            }
+            double longitudMedia = actual.longitudTotal / actual.documentos.size();
+            Map<String, Double> puntuaciones = new HashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean ultimo = i == tokens.size() - 1;
+                terminos(actual, tokens.get(i), ultimo).forEach((termino, peso) ->
+                        puntuar(actual, actual.postings.get(termino), peso, longitudMedia, puntuaciones));
+            }
+            return mejores(actual, puntuaciones, maximo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTamano() {
+        lock.readLock().lock();
+        try {
+            return indice.documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Términos del índice que corresponden a un token: él mismo y, si es el último, los que empiezan por él.
+     */
+    private static Map<String, Double> terminos(Indice indice, String token, boolean prefijo) {
+        Map<String, Double> terminos = new LinkedHashMap<>();
+        if (indice.postings.containsKey(token)) {
+            terminos.put(token, 1.0);
+        }
+        if (prefijo && token.length() >= LONGITUD_MINIMA_PREFIJO) {
+            indice.postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet().stream()
+                    .limit(MAX_EXPANSIONES_PREFIJO)
+                    .forEach(termino -> terminos.put(termino, PESO_PREFIJO));
+        }
+        return terminos;
+    }
+
+    private static void puntuar(Indice indice, Map<String, Double> lista, double peso, double longitudMedia,
+                                Map<String, Double> puntuaciones) {
+        double n = indice.documentos.size();
+        double df = lista.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        lista.forEach((id, tf) -> {
+            double longitud = indice.documentos.get(id).longitud();
+            double saturada = tf * (K1 + 1) / (tf + K1 * (1 - B + B * longitud / longitudMedia));
+            puntuaciones.merge(id, peso * idf * saturada, Double::sum);
+        });
+    }
+
+    private static List<ProductoResponseDTO> mejores(Indice indice, Map<String, Double> puntuaciones, int maximo) {
+        Comparator<Map.Entry<String, Double>> orden = Map.Entry.<String, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        PriorityQueue<Map.Entry<String, Double>> cola = new PriorityQueue<>(orden);
+        for (Map.Entry<String, Double> entrada : puntuaciones.entrySet()) {
+            cola.offer(entrada);
+            if (cola.size() > maximo) {
+                cola.poll();
+            }
+        }
+        List<ProductoResponseDTO> resultado = new ArrayList<>(cola.size());
+        while (!cola.isEmpty()) {
+            resultado.add(indice.documentos.get(cola.poll().getKey()).producto());
+        }
+        return resultado.reversed();
+    }
+
+    void indexar(ProductoResponseDTO producto) {
+        Documento documento = documento(producto);
+        lock.writeLock().lock();
+        try {
+            indice.indexar(documento);
+            if (tocados != null) {
+                tocados.add(producto.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void eliminar(String id) {
+        lock.writeLock().lock();
+        try {
+            indice.quitar(id);
+            if (tocados != null) {
+                tocados.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Documento documento(ProductoResponseDTO producto) {
+        Map<String, Double> terminos = new HashMap<>();
+        sumar(terminos, producto.getNombre(), PESO_NOMBRE);
+        sumar(terminos, producto.getEquipo(), PESO_EQUIPO);
+        sumar(terminos, producto.getDescripcion(), PESO_DESCRIPCION);
+        double longitud = terminos.values().stream().mapToDouble(Double::doubleValue).sum();
+        return new Documento(producto, terminos, longitud);
+    }
+
+    private static void sumar(Map<String, Double> terminos, String texto, double peso) {
+        for (String token : Tokenizador.tokens(texto)) {
+            terminos.merge(token, peso, Double::sum);
+        }
+    }
+
+    private record Documento(ProductoResponseDTO producto, Map<String, Double> terminos, double longitud) {
+    }
+
+    /**
+     * Listas invertidas y documentos de una versión del índice
+     */
+    private static final class Indice {
+        /**
+         * término → (id de producto → frecuencia ponderada); ordenado para buscar por prefijo
+         */
+        private final NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+        private final Map<String, Documento> documentos = new HashMap<>();
+        private double longitudTotal;
+
+        void indexar(Documento documento) {
+            String id = documento.producto().getId();
+            quitar(id);
+            documentos.put(id, documento);
+            longitudTotal += documento.longitud();
+            documento.terminos().forEach((termino, tf) -> postings.computeIfAbsent(termino, t -> new HashMap<>()).put(id, tf));
+        }
+
+        void quitar(String id) {
+            Documento anterior = documentos.remove(id);
+            if (anterior == null) {
+                return;
+            }
+            longitudTotal -= anterior.longitud();
+            for (String termino : anterior.terminos().keySet()) {
+                Map<String, Double> lista = postings.get(termino);
+                lista.remove(id);
+                if (lista.isEmpty()) {
+                    postings.remove(termino);
+                }
+            }
+        }
+    }
+}
@@ -3,44 +3,84 @@ package srangeldev.camisapi.rest.productos.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.WebSocketHandler;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheKeys;
+import srangeldev.camisapi.rest.productos.cache.ProductoKeyGenerator;
 import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
 import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
 import srangeldev.camisapi.rest.productos.exceptions.ProductoNotFound;
 import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
 import srangeldev.camisapi.rest.productos.models.Producto;
 import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
-import srangeldev.camisapi.websocket.config.MyWebSocketHandler;
 
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
-@CacheConfig(cacheNames = {"productos"})
+@CacheConfig(keyGenerator = ProductoKeyGenerator.NOMBRE)
 public class ProductoService {
 
+    /**
+     * Documentos que el cursor de Mongo trae por cada viaje al servidor durante la exportación
+     */
+    static final int EXPORT_BATCH_SIZE = 500;
+
+    /**
+     * Entidad de los eventos de cambio; los clientes pueden suscribirse a "productos" o a "productos:{equipo}"
+     */
+    public static final String ENTIDAD = "productos";
+
+    private static final String ID = "_id";
+    private static final String NOMBRE = "nombre";
+    private static final String EQUIPO = "equipo";
+    private static final String TALLA = "talla";
+    private static final String DESCRIPCION = "descripcion";
+    private static final String PRECIO = "precio";
+    private static final String IMAGEN = "imageUrl";
+    private static final String ESTADO = "estado";
+    private static final String PEDIDO = "pedidoId";
+
     private final ProductoRepository productoRepository;
     private final ProductoMapper productoMapper;
     private final WebSocketHandler productosWebSocketHandler;
-    private final MyWebSocketHandler myWebSocketHandler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MongoTemplate mongoTemplate;
+    private final ProductoCacheInvalidator cacheInvalidator;
 
     @Autowired
-    public ProductoService(ProductoRepository repository, ProductoMapper mapper, WebSocketHandler productosWebSocketHandler, MyWebSocketHandler myWebSocketHandler) {
+    public ProductoService(ProductoRepository repository, ProductoMapper mapper, WebSocketHandler productosWebSocketHandler, ApplicationEventPublisher eventPublisher, MongoTemplate mongoTemplate, ProductoCacheInvalidator cacheInvalidator) {
         this.productoRepository = repository;
         this.productoMapper = mapper;
         this.productosWebSocketHandler = productosWebSocketHandler;
-        this.myWebSocketHandler = myWebSocketHandler;
+        this.eventPublisher = eventPublisher;
+        this.mongoTemplate = mongoTemplate;
+        this.cacheInvalidator = cacheInvalidator;
     }
 
     /**
      * Devuelve todos los productos del catálogo.
      */
-    @Cacheable("productos")
+    @Cacheable(ProductoCacheKeys.LISTA)
     public List<ProductoResponseDTO> listarProductos() {
         log.info("Listando todos los productos");
         List<ProductoResponseDTO> productos = productoRepository.findAll()
@@ -48,80 +88,161 @@ public class ProductoService {
                 .map(productoMapper::toDTO)
                 .toList();
 
-        myWebSocketHandler.enviarMensajeATodos("Productos listados correctamente");
-
         return productos;
     }
 
+    /**
+     * Devuelve una página del catálogo ordenada por id (paginación por cursor).
+     */
+    public CursorPage<ProductoResponseDTO> listarProductosPagina(String cursor, Integer limit) {
+        String desde;
+        int size;
+        try {
+            desde = CursorPage.decode(cursor);
+            size = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new ProductoBadRequest(e.getMessage());
+        }
+        log.info("Listando productos desde el id: {} (limite {})", desde, size);
+        List<Producto> productos = desde == null
+                ? productoRepository.findAllByOrderByIdAsc(Limit.of(size + 1))
+                : productoRepository.findByIdGreaterThanOrderByIdAsc(desde, Limit.of(size + 1));
+        return CursorPage.of(productos, size, Producto::getId).map(productoMapper::toDTO);
+    }
+
+    /**
+     * Recorre todo el catálogo con un cursor de Mongo y entrega cada producto al consumidor
+     * según se lee, sin cargar la colección en memoria. Devuelve el número de productos exportados.
+     */
+    public long exportarProductos(Consumer<ProductoResponseDTO> consumidor) {
+        log.info("Exportando el catálogo completo de productos");
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        long exportados = 0;
+        try (Stream<Producto> productos = mongoTemplate.stream(query, Producto.class)) {
+            for (Producto producto : (Iterable<Producto>) productos::iterator) {
+                consumidor.accept(productoMapper.toDTO(producto));
+                exportados++;
+            }
+        }
+        log.info("Exportados {} productos", exportados);
+        return exportados;
+    }
 
     /**
      * Busca un producto por su ID.
      */
-    @Cacheable(key = "#id")
+    @Cacheable(ProductoCacheKeys.POR_ID)
     public ProductoResponseDTO obtenerPorId(String id) {
         log.info("Obteniendo el productos por id: {}", id);
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new ProductoNotFound("No se encontró el producto con ID: " + id));
 
-        myWebSocketHandler.enviarMensajeATodos("Producto obtenido con id:" +id );
         return productoMapper.toDTO(producto);
     }
 
+    /**
+     * Busca varios productos por su ID en una sola consulta ($in sobre _id).
+     * Los que no existen no aparecen en el resultado.
+     */
+    public List<ProductoResponseDTO> obtenerPorIds(Collection<String> ids) {
+        log.info("Obteniendo {} productos por id", ids.size());
+        return productoRepository.findAllById(ids)
+                .stream()
+                .map(productoMapper::toDTO)
+                .toList();
+    }
+
     /**
      * Crea un nuevo producto.
      * Si no se especifica fechaCreacion, se asigna la fecha actual.
+     * Solo se invalidan el listado y las búsquedas en las que aparecerá.
+     * Publica un evento CREADO en "productos" y en el tema de su equipo.
      */
-    @CacheEvict(allEntries = true)
     public ProductoResponseDTO crearProducto(ProductoRequestDTO dto) {
         log.info("Creando el producto: {}", dto.getNombre());
         Producto producto = productoMapper.toEntity(dto);
 
         Producto guardado = productoRepository.save(producto);
+        cacheInvalidator.invalidar(guardado);
 
-        myWebSocketHandler.enviarMensajeATodos("Producto creado:" +dto.getNombre());
-        return productoMapper.toDTO(guardado);
+        ProductoResponseDTO respuesta = productoMapper.toDTO(guardado);
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, guardado.getId(), Operacion.CREADO, respuesta,
+                guardado.getEquipo()));
+        return respuesta;
     }
 
     /**
      * Actualiza un producto existente.
+     * Solo escribe los campos del catálogo; la reserva (pedidoId, reservadoHasta) es de ReservasProductos
+     * y no se toca. El estado solo puede cambiar si ningún pedido tiene el producto, y la condición va en
+     * el propio update: si un checkout lo reserva entre la lectura y la escritura, falla con 409 en lugar
+     * de devolverlo a DISPONIBLE.
+     * Se invalidan su entrada por id y las búsquedas que coinciden con sus valores
+     * anteriores o nuevos; el resto de la caché se conserva.
+     * El evento ACTUALIZADO llega también al tema del equipo anterior si ha cambiado.
      */
-    @CacheEvict(allEntries = true)
     public ProductoResponseDTO actualizarProducto(String id, ProductoRequestDTO dto) {
         log.info("Actualizando el producto con id: {}", id);
-        Producto existente = productoRepository.findById(id)
+        Producto anterior = productoRepository.findById(id)
                 .orElseThrow(() -> new ProductoNotFound("No se puede actualizar. No existe el producto con ID: " + id));
 
-        existente.setNombre(dto.getNombre());
-        existente.setEquipo(dto.getEquipo());
-        existente.setTalla(dto.getTalla());
-        existente.setDescripcion(dto.getDescripcion());
-        existente.setPrecio(dto.getPrecio());
-        existente.setImageUrl(dto.getImageUrl());
-        existente.setEstado(dto.getEstado());
+        Criteria condicion = Criteria.where(ID).is(id);
+        Update update = new Update()
+                .set(NOMBRE, dto.getNombre())
+                .set(EQUIPO, dto.getEquipo())
+                .set(TALLA, dto.getTalla())
+                .set(DESCRIPCION, dto.getDescripcion())
+                .set(PRECIO, dto.getPrecio())
+                .set(IMAGEN, dto.getImageUrl());
+        if (dto.getEstado() != null && dto.getEstado() != anterior.getEstado()) {
+            if (anterior.getPedidoId() != null) {
+                throw noDisponible(anterior);
+            }
+            condicion.and(ESTADO).is(anterior.getEstado().name()).and(PEDIDO).is(null);
+            update.set(ESTADO, dto.getEstado().name());
+        }
 
-        Producto actualizado = productoRepository.save(existente);
+        if (mongoTemplate.updateFirst(new Query(condicion), update, Producto.class).getMatchedCount() == 0) {
+            Producto actual = productoRepository.findById(id)
+                    .orElseThrow(() -> new ProductoNotFound("No se puede actualizar. No existe el producto con ID: " + id));
+            throw noDisponible(actual);
+        }
+        Producto actualizado = productoRepository.findById(id)
+                .orElseThrow(() -> new ProductoNotFound("No se puede actualizar. No existe el producto con ID: " + id));
+        cacheInvalidator.invalidar(anterior, actualizado);
+
+        ProductoResponseDTO respuesta = productoMapper.toDTO(actualizado);
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, id, Operacion.ACTUALIZADO, respuesta,
+                anterior.getEquipo(), actualizado.getEquipo()));
+        return respuesta;
+    }
 
-        myWebSocketHandler.enviarMensajeATodos("Producto actualizado con id:" +id );
-        return productoMapper.toDTO(actualizado);
+    private static ProductoNoDisponible noDisponible(Producto producto) {
+        String motivo = producto.getPedidoId() != null
+                ? "está " + producto.getEstado() + " por el pedido " + producto.getPedidoId()
+                : "ha pasado a " + producto.getEstado() + " mientras se editaba";
+        return new ProductoNoDisponible("No se puede cambiar el estado del producto " + producto.getId() + ": " + motivo);
     }
 
     /**
      * Elimina un producto por su ID.
      */
-    @CacheEvict(allEntries = true)
     public void eliminarProducto(String id) {
         log.info("Eliminando el producto con id: {}", id);
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(()-> new ProductoNotFound("No se encontro el producto con ID: " + id));
 
         productoRepository.deleteById(id);
-        myWebSocketHandler.enviarMensajeATodos("Producto eliminado con id" +id );
+        cacheInvalidator.invalidar(producto);
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, id, Operacion.ELIMINADO, null, producto.getEquipo()));
     }
 
     /**
      * Busca productos por nombre
      */
-    @Cacheable(key = "#nombre")
+    @Cacheable(ProductoCacheKeys.POR_NOMBRE)
     public List<ProductoResponseDTO> buscarPorNombre(String nombre) {
         log.info("Buscando el producto con nombre: {}", nombre);
         return productoRepository.findByNombreIgnoreCase(nombre)
@@ -133,7 +254,7 @@ public class ProductoService {
     /**
      * Busca productos por equipo.
      */
-    @Cacheable(key = "#equipo")
+    @Cacheable(ProductoCacheKeys.POR_EQUIPO)
     public List<ProductoResponseDTO> buscarPorEquipo(String equipo) {
         log.info("Buscando el producto con equipo: {}", equipo);
         return productoRepository.findByEquipoIgnoreCase(equipo)
@@ -145,7 +266,7 @@ public class ProductoService {
     /**
      * Busca productos por estado (DISPONIBLE, RESERVADO, VENDIDO).
      */
-    @Cacheable(key = "#estado")
+    @Cacheable(ProductoCacheKeys.POR_ESTADO)
     public List<ProductoResponseDTO> buscarPorEstado(EstadoProducto estado) {
         log.info("Buscando el producto con estado: {}", estado);
         return productoRepository.findByEstado(estado)
@@ -157,7 +278,7 @@ public class ProductoService {
     /**
      * Busca productos por talla (S, X, M, L, XL, XXL)
      */
-    @Cacheable(key = "#talla")
+    @Cacheable(ProductoCacheKeys.POR_TALLA)
     public List<ProductoResponseDTO> buscarPorTalla(String talla) {
         log.info("Buscando el producto con talla: {}", talla);
         return productoRepository.findByTalla(talla)
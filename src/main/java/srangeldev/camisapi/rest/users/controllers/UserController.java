@@ -16,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.users.dto.UserCreateRequestDto;
 import srangeldev.camisapi.rest.users.dto.UserResponseDto;
 import srangeldev.camisapi.rest.users.dto.UserUpdateRequestDto;
@@ -63,6 +64,32 @@ public class UserController {
         return ResponseEntity.ok(userService.findAll());
     }
 
+    @Operation(
+        summary = "Obtener usuarios paginados",
+        description = "Recupera una página de usuarios usando paginación por cursor (keyset) (Solo ADMIN)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de usuarios recuperada exitosamente"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Cursor o límite inválidos"
+        ),
+        @ApiResponse(
+            responseCode = "403",
+            description = "Acceso denegado - Requiere rol ADMIN"
+        )
+    })
+    @GetMapping("/pagina")
+    public ResponseEntity<CursorPage<UserResponseDto>> getUsersPage(
+        @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)") @RequestParam(required = false) String cursor,
+        @Parameter(description = "Tamaño de página (por defecto 20, máximo 100)") @RequestParam(required = false) Integer limit) {
+        log.info("Obteniendo usuarios paginados con cursor: {}", cursor);
+        return ResponseEntity.ok(userService.findPage(cursor, limit));
+    }
+
     @Operation(
         summary = "Obtener usuario por ID",
         description = "Recupera un usuario específico mediante su identificador único"
@@ -1,11 +1,13 @@
 package srangeldev.camisapi.rest.users.repositories;
 
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import srangeldev.camisapi.rest.users.models.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +33,14 @@ public interface UserRepository extends MongoRepository<User, ObjectId> {
      */
     Optional<User> findByIdUsuario(Long idUsuario);
 
+    /**
+     * Busca varios usuarios por su ID de negocio en una sola consulta ($in sobre el índice id_usuario)
+     *
+     * @param idsUsuario IDs de los usuarios
+     * @return Usuarios encontrados (los que no existen no aparecen)
+     */
+    List<User> findByIdUsuarioIn(Collection<Long> idsUsuario);
+
     /**
      * Busca un usuario por su nombre de usuario (username)
      *
@@ -87,4 +97,13 @@ public interface UserRepository extends MongoRepository<User, ObjectId> {
      * @return Optional con el usuario con mayor idUsuario
      */
     Optional<User> findFirstByOrderByIdUsuarioDesc();
+
+    /**
+     * Obtiene una página de usuarios con idUsuario mayor que el cursor (paginación keyset).
+     *
+     * @param idUsuario último idUsuario de la página anterior (0 para la primera página)
+     * @param limit número máximo de usuarios
+     * @return usuarios ordenados por idUsuario ascendente
+     */
+    List<User> findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(Long idUsuario, Limit limit);
 }
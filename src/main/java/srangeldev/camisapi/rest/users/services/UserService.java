@@ -1,9 +1,11 @@
 package srangeldev.camisapi.rest.users.services;
 
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.users.dto.UserCreateRequestDto;
 import srangeldev.camisapi.rest.users.dto.UserResponseDto;
 import srangeldev.camisapi.rest.users.dto.UserUpdateRequestDto;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,6 +19,15 @@ public interface UserService {
      */
     List<UserResponseDto> findAll();
 
+    /**
+     * Busca una página de usuarios ordenada por id (paginación por cursor).
+     *
+     * @param cursor Cursor opaco devuelto por la página anterior (null para la primera).
+     * @param limit  Tamaño de página (por defecto 20, máximo 100).
+     * @return Página de DTOs de respuesta de usuario.
+     */
+    CursorPage<UserResponseDto> findPage(String cursor, Integer limit);
+
     /**
      * Busca un usuario por su ID.
      *
@@ -25,6 +36,14 @@ public interface UserService {
      */
     UserResponseDto findById(Long id);
 
+    /**
+     * Busca varios usuarios por su ID en una sola consulta.
+     *
+     * @param ids IDs de los usuarios.
+     * @return DTOs de los usuarios que existen (sin orden garantizado).
+     */
+    List<UserResponseDto> findAllByIds(Collection<Long> ids);
+
     /**
      * Busca usuarios por nombre.
      *
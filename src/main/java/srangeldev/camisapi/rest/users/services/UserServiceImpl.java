@@ -6,7 +6,12 @@ import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.users.dto.UserCreateRequestDto;
 import srangeldev.camisapi.rest.users.dto.UserResponseDto;
 import srangeldev.camisapi.rest.users.dto.UserUpdateRequestDto;
@@ -15,9 +20,11 @@ import srangeldev.camisapi.rest.users.mappers.UserMapper;
 import srangeldev.camisapi.rest.users.models.User;
 import srangeldev.camisapi.rest.users.repositories.UserRepository;
 import srangeldev.camisapi.rest.users.exceptions.UserBadRequest;
-import srangeldev.camisapi.websocket.config.MyWebSocketHandler;
+import srangeldev.camisapi.secuencias.AsignadorSecuencias;
+import srangeldev.camisapi.security.PrincipalCache;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -29,15 +36,30 @@ import java.util.List;
 @CacheConfig(cacheNames = {"users"})
 public class UserServiceImpl implements UserService {
 
+    /**
+     * Entidad de los eventos de cambio; solo llevan el id, nunca los datos del usuario
+     */
+    public static final String ENTIDAD = "usuarios";
+
+    /**
+     * Secuencia de la que salen los idUsuario
+     */
+    public static final String SECUENCIA = "usuarios";
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final MyWebSocketHandler myWebSocketHandler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrincipalCache principalCache;
+    private final AsignadorSecuencias asignadorSecuencias;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, MyWebSocketHandler myWebSocketHandler) {
+    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, ApplicationEventPublisher eventPublisher,
+                           PrincipalCache principalCache, AsignadorSecuencias asignadorSecuencias) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
-        this.myWebSocketHandler = myWebSocketHandler;
+        this.eventPublisher = eventPublisher;
+        this.principalCache = principalCache;
+        this.asignadorSecuencias = asignadorSecuencias;
     }
 
     @Override
@@ -48,11 +70,24 @@ public class UserServiceImpl implements UserService {
                 .map(userMapper::toUsuarioResponseDto)
                 .toList();
 
-        myWebSocketHandler.enviarMensajeATodos("Usuarios listados correctamente");
-
         return usuarios;
     }
 
+    @Override
+    public CursorPage<UserResponseDto> findPage(String cursor, Integer limit) {
+        long desde;
+        int size;
+        try {
+            desde = CursorPage.decodeLong(cursor);
+            size = CursorPage.limit(limit);
+        } catch (IllegalArgumentException e) {
+            throw new UserBadRequest(e.getMessage());
+        }
+        log.info("Buscando usuarios con id mayor que {} (limite {})", desde, size);
+        List<User> usuarios = userRepository.findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(desde, Limit.of(size + 1));
+        return CursorPage.of(usuarios, size, User::getIdUsuario).map(userMapper::toUsuarioResponseDto);
+    }
+
     @Override
     @Cacheable(key = "#id")
     public UserResponseDto findById(Long id) {
@@ -60,10 +95,17 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findByIdUsuario(id)
                 .orElseThrow(() -> new UserNotFound("Usuario con id " + id + " no encontrado", true));
 
-        myWebSocketHandler.enviarMensajeATodos("Usuario encontrado con id:" +id);
         return userMapper.toUsuarioResponseDto(user);
     }
 
+    @Override
+    public List<UserResponseDto> findAllByIds(Collection<Long> ids) {
+        log.info("Buscando {} usuarios por id", ids.size());
+        return userRepository.findByIdUsuarioIn(ids).stream()
+                .map(userMapper::toUsuarioResponseDto)
+                .toList();
+    }
+
     @Override
     public List<UserResponseDto> findByNombre(String nombre) {
         log.info("Buscando usuarios por nombre: {}", nombre);
@@ -82,10 +124,11 @@ public class UserServiceImpl implements UserService {
             throw new UserBadRequest("Ya existe un usuario con el username " + userCreateRequestDto.getUsername());
         });
 
-        // Generar el siguiente ID de usuario automáticamente
-        Long nextId = userRepository.findFirstByOrderByIdUsuarioDesc()
-                .map(user -> user.getIdUsuario() + 1)
-                .orElse(1L);
+        // Generar el siguiente ID de usuario desde la secuencia (bloques reservados en memoria, únicos entre réplicas).
+        // El mayor idUsuario existente solo se consulta la primera vez, para sembrar el contador
+        Long nextId = asignadorSecuencias.siguiente(SECUENCIA, () -> userRepository.findFirstByOrderByIdUsuarioDesc()
+                .map(User::getIdUsuario)
+                .orElse(0L));
         
         log.info("Generando ID de usuario automático: {}", nextId);
 
@@ -98,7 +141,7 @@ public class UserServiceImpl implements UserService {
         // Guardar en MongoDB
         User savedUser = userRepository.save(user);
         
-        myWebSocketHandler.enviarMensajeATodos("Nuevo usuario creado con id: " + nextId);
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, nextId, Operacion.CREADO, null));
         
         return userMapper.toUsuarioResponseDto(savedUser);
     }
@@ -111,6 +154,7 @@ public class UserServiceImpl implements UserService {
         // Buscar usuario existente
         User existingUser = userRepository.findByIdUsuario(id)
                 .orElseThrow(() -> new UserNotFound("Usuario con id " + id + " no encontrado", true));
+        String usernameAnterior = existingUser.getUsername();
 
         // Verificar username si se está cambiando
         if (userUpdateRequestDto.getUsername() != null && 
@@ -136,6 +180,13 @@ public class UserServiceImpl implements UserService {
 
         // Guardar cambios en MongoDB
         User updatedUser = userRepository.save(existingUser);
+
+        // Los tokens ya emitidos deben ver los roles nuevos en la siguiente petición
+        principalCache.invalidar(usernameAnterior);
+        if (!usernameAnterior.equals(updatedUser.getUsername())) {
+            principalCache.invalidar(updatedUser.getUsername());
+        }
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, id, Operacion.ACTUALIZADO, null));
         return userMapper.toUsuarioResponseDto(updatedUser);
     }
 
@@ -150,7 +201,8 @@ public class UserServiceImpl implements UserService {
         
         // Borrado físico en MongoDB usando el ObjectId
         userRepository.deleteById(user.get_id());
+        principalCache.invalidar(user.getUsername());
 
-        myWebSocketHandler.enviarMensajeATodos("Usuario eliminado con id:" +id);
+        eventPublisher.publishEvent(CambioEvento.de(ENTIDAD, id, Operacion.ELIMINADO, null));
     }
 }
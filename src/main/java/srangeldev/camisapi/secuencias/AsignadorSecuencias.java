@@ -0,0 +1,142 @@
+package srangeldev.camisapi.secuencias;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Asignador de identificadores numéricos únicos en todo el clúster
+ *
+ * Cada secuencia es un documento contador en Mongo. Una réplica reserva un bloque de
+ * {@code tamanoBloque} identificadores con un único findAndModify {$inc} (atómico en Mongo, así dos
+ * réplicas nunca reciben el mismo bloque) y los reparte desde memoria con un AtomicLong, sin bloqueos
+ * ni viajes a la base de datos. Solo el hilo que agota el bloque va a Mongo a por el siguiente.
+ *
+ * Los identificadores son únicos y crecientes dentro de cada réplica, pero no consecutivos entre
+ * réplicas, y el resto de un bloque se pierde si la réplica se reinicia.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(SecuenciaProperties.class)
+public class AsignadorSecuencias {
+
+    private static final String CAMPO_VALOR = "valor";
+
+    private final MongoTemplate mongoTemplate;
+    private final SecuenciaProperties properties;
+    private final Map<String, Secuencia> secuencias = new ConcurrentHashMap<>();
+
+    public AsignadorSecuencias(MongoTemplate mongoTemplate, SecuenciaProperties properties) {
+        if (properties.getTamanoBloque() < 1) {
+            throw new IllegalArgumentException("camisapi.secuencias.tamano-bloque debe ser al menos 1");
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Devuelve el siguiente identificador de la secuencia.
+     *
+     * @param nombre nombre de la secuencia (el _id del contador)
+     * @param semilla último identificador ya usado; solo se consulta si el contador aún no existe,
+     *                para continuar a partir de los datos anteriores al asignador
+     */
+    public long siguiente(String nombre, LongSupplier semilla) {
+        Secuencia secuencia = secuencias.computeIfAbsent(nombre, Secuencia::new);
+        while (true) {
+            long id = secuencia.bloque.get().tomar();
+            if (id != Bloque.AGOTADO) {
+                return id;
+            }
+            secuencia.recargar(semilla);
+        }
+    }
+
+    /**
+     * Reserva en Mongo el siguiente bloque y devuelve el último identificador del bloque.
+     */
+    private long reservarBloque(String nombre, LongSupplier semilla) {
+        int tamano = properties.getTamanoBloque();
+        Query porNombre = new Query(Criteria.where("_id").is(nombre));
+        Update incremento = new Update().inc(CAMPO_VALOR, tamano);
+        FindAndModifyOptions devolverNuevo = FindAndModifyOptions.options().returnNew(true);
+
+        Document contador = mongoTemplate.findAndModify(porNombre, incremento, devolverNuevo, Document.class, properties.getColeccion());
+        if (contador == null) {
+            // Primer uso: se siembra con $max para que varias réplicas a la vez acaben con el mismo valor
+            long inicial = semilla.getAsLong();
+            log.info("Creando el contador {} a partir de {}", nombre, inicial);
+            mongoTemplate.upsert(porNombre, new Update().max(CAMPO_VALOR, inicial), properties.getColeccion());
+            contador = mongoTemplate.findAndModify(porNombre, incremento, devolverNuevo, Document.class, properties.getColeccion());
+        }
+        if (contador == null) {
+            throw new IllegalStateException("No se pudo reservar un bloque de la secuencia " + nombre);
+        }
+        return ((Number) contador.get(CAMPO_VALOR)).longValue();
+    }
+
+    /**
+     * Bloque de identificadores [siguiente, fin] reservado por esta réplica
+     */
+    private static final class Bloque {
+        static final long AGOTADO = Long.MIN_VALUE;
+        static final Bloque VACIO = new Bloque(1, 0);
+
+        private final AtomicLong siguiente;
+        private final long fin;
+
+        Bloque(long inicio, long fin) {
+            this.siguiente = new AtomicLong(inicio);
+            this.fin = fin;
+        }
+
+        long tomar() {
+            long id = siguiente.getAndIncrement();
+            return id <= fin ? id : AGOTADO;
+        }
+
+        boolean agotado() {
+            return siguiente.get() > fin;
+        }
+    }
+
+    private final class Secuencia {
+        private final String nombre;
+        private final AtomicReference<Bloque> bloque = new AtomicReference<>(Bloque.VACIO);
+        private final ReentrantLock recarga = new ReentrantLock();
+
+        Secuencia(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * Solo un hilo por secuencia va a Mongo; los demás esperan y usan el bloque que trae.
+         */
+        void recargar(LongSupplier semilla) {
+            recarga.lock();
+            try {
+                if (bloque.get().agotado()) {
+                    long fin = reservarBloque(nombre, semilla);
+                    long inicio = fin - properties.getTamanoBloque() + 1;
+                    log.debug("Reservado el bloque [{}, {}] de la secuencia {}", inicio, fin, nombre);
+                    bloque.set(new Bloque(inicio, fin));
+                }
+            } finally {
+                recarga.unlock();
+            }
+        }
+    }
+}
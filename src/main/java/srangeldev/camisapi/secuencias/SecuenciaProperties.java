@@ -0,0 +1,23 @@
+package srangeldev.camisapi.secuencias;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Propiedades del asignador de identificadores (camisapi.secuencias.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.secuencias")
+public class SecuenciaProperties {
+
+    /**
+     * Identificadores que reserva cada réplica en una sola ida a Mongo.
+     * Más grande = menos viajes, pero más huecos si la réplica se reinicia sin agotarlo.
+     */
+    private int tamanoBloque = 50;
+
+    /**
+     * Colección con un documento contador por secuencia ({_id: nombre, valor: último reservado})
+     */
+    private String coleccion = "contadores";
+}
@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,6 +19,9 @@ import java.io.IOException;
 /**
  * Filtro JWT simple para autenticación
  * Implementación básica para estudiantes de DAW
+ *
+ * El usuario se toma de PrincipalCache (o de los roles del token si camisapi.security.principal-cache
+ * .stateless-authorities=true), así que una petición con token no consulta Mongo salvo en el primer uso.
  */
 @Component
 @RequiredArgsConstructor
@@ -25,6 +29,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final PrincipalCacheProperties principalCacheProperties;
 
     @Override
     protected void doFilterInternal(
@@ -34,25 +40,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String jwt = null;
-        String username = null;
+        JwtClaims claims = null;
 
-        // Extraer token del header
+        // Extraer y verificar el token del header (una sola vez por petición); si no es válido
+        // se continúa sin autenticación
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
-                // Token inválido, continúa sin autenticación
+            claims = jwtUtil.verificar(authHeader.substring(7)).orElse(null);
+            if (claims != null) {
+                request.setAttribute(JwtClaims.ATRIBUTO, claims);
             }
         }
 
-        // Si tenemos username y no hay autenticación actual
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        // Si tenemos token válido y no hay autenticación actual
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = cargarUsuario(claims);
 
-            // Validar el token
-            if (jwtUtil.isTokenValid(jwt, userDetails)) {
+            // Validar que el token es del usuario
+            if (jwtUtil.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(
                         userDetails,
@@ -66,4 +70,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails cargarUsuario(JwtClaims claims) {
+        if (principalCacheProperties.isStatelessAuthorities() && claims.getAuthorities() != null) {
+            return User.withUsername(claims.getUsername())
+                    .password("")
+                    .authorities(claims.getAuthorities().toArray(String[]::new))
+                    .build();
+        }
+        return principalCache.obtener(claims.getUsername(), claims.getVersion(), userDetailsService::loadUserByUsername);
+    }
 }
@@ -0,0 +1,43 @@
+package srangeldev.camisapi.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Datos de un token JWT ya verificado
+ *
+ * El filtro verifica cada token una sola vez y deja el resultado en el atributo {@link #ATRIBUTO}
+ * de la petición, para que los controladores lo reutilicen sin volver a decodificarlo.
+ */
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+public class JwtClaims {
+
+    /**
+     * Atributo de la petición con los claims del token verificado
+     */
+    public static final String ATRIBUTO = "srangeldev.camisapi.security.JwtClaims";
+
+    private final String username;
+
+    /**
+     * Versión del usuario al emitir el token (0 en tokens sin versión)
+     */
+    private final long version;
+
+    /**
+     * Authorities del usuario al emitir el token (null en tokens que no las llevan)
+     */
+    private final List<String> authorities;
+
+    private final Instant issuedAt;
+
+    private final Instant expiresAt;
+}
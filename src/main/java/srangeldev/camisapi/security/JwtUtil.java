@@ -1,85 +1,125 @@
 package srangeldev.camisapi.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import srangeldev.camisapi.rest.users.models.User;
 
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * Utilidad para manejar tokens JWT de manera simple
  * Implementación básica para estudiantes de DAW
+ *
+ * El algoritmo y el verificador se crean una sola vez y se comparten entre hilos (son inmutables);
+ * {@link #verificar(String)} comprueba firma y caducidad en una sola pasada.
  */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret:miClaveSecretaSuperSegura123}")
-    private String secret;
+    /**
+     * Versión del usuario al emitir el token (su fecha de modificación en milisegundos)
+     */
+    static final String CLAIM_VERSION = "ver";
+
+    /**
+     * Authorities del usuario al emitir el token
+     */
+    static final String CLAIM_ROLES = "roles";
+
+    private final long expiration; // segundos
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
 
-    @Value("${jwt.expiration:86400}")
-    private long expiration; // 24 horas en segundos
+    public JwtUtil(@Value("${jwt.secret:miClaveSecretaSuperSegura123}") String secret,
+                   @Value("${jwt.expiration:86400}") long expiration) {
+        this.expiration = expiration;
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm).build();
+    }
 
     /**
      * Genera un token JWT para el usuario
      */
     public String generateToken(UserDetails userDetails) {
+        Instant ahora = Instant.now();
         return JWT.create()
                 .withSubject(userDetails.getUsername())
-                .withIssuedAt(Date.from(Instant.now()))
-                .withExpiresAt(Date.from(Instant.now().plus(expiration, ChronoUnit.SECONDS)))
-                .sign(Algorithm.HMAC256(secret));
+                .withClaim(CLAIM_VERSION, version(userDetails))
+                .withClaim(CLAIM_ROLES, userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                .withIssuedAt(Date.from(ahora))
+                .withExpiresAt(Date.from(ahora.plus(expiration, ChronoUnit.SECONDS)))
+                .sign(algorithm);
+    }
+
+    /**
+     * Verifica firma y caducidad del token y devuelve sus claims (vacío si no es válido o ha caducado)
+     */
+    public Optional<JwtClaims> verificar(String token) {
+        DecodedJWT jwt;
+        try {
+            jwt = verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return Optional.empty();
+        }
+        if (jwt.getSubject() == null) {
+            return Optional.empty();
+        }
+        Claim version = jwt.getClaim(CLAIM_VERSION);
+        Claim roles = jwt.getClaim(CLAIM_ROLES);
+        return Optional.of(JwtClaims.builder()
+                .username(jwt.getSubject())
+                .version(version.isMissing() || version.isNull() ? 0 : version.asLong())
+                .authorities(roles.isMissing() || roles.isNull() ? null : roles.asList(String.class))
+                .issuedAt(jwt.getIssuedAtAsInstant())
+                .expiresAt(jwt.getExpiresAtAsInstant())
+                .build());
     }
 
     /**
      * Extrae el username del token
      */
     public String extractUsername(String token) {
-        return getDecodedJWT(token).getSubject();
+        return verifier.verify(token).getSubject();
     }
 
     /**
      * Verifica si el token es válido
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        try {
-            String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verificar(token).map(claims -> isTokenValid(claims, userDetails)).orElse(false);
     }
 
     /**
-     * Verifica si el token ha expirado
+     * Comprueba que los claims ya verificados pertenecen al usuario y no han caducado
      */
-    private boolean isTokenExpired(String token) {
-        return getDecodedJWT(token).getExpiresAt().before(new Date());
+    public boolean isTokenValid(JwtClaims claims, UserDetails userDetails) {
+        return claims.getUsername().equals(userDetails.getUsername())
+                && (claims.getExpiresAt() == null || claims.getExpiresAt().isAfter(Instant.now()));
     }
 
-    /**
-     * Decodifica el JWT
-     */
-    private DecodedJWT getDecodedJWT(String token) {
-        return JWT.require(Algorithm.HMAC256(secret))
-                .build()
-                .verify(token);
+    private static long version(UserDetails userDetails) {
+        if (userDetails instanceof User user && user.getUpdatedAt() != null) {
+            return user.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        return 0;
     }
 
     /**
      * Valida el token básicamente
      */
     public boolean validateToken(String token) {
-        try {
-            getDecodedJWT(token);
-            return true;
-        } catch (JWTVerificationException e) {
-            return false;
-        }
+        return verificar(token).isPresent();
     }
 }
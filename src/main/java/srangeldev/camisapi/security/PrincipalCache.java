@@ -0,0 +1,85 @@
+package srangeldev.camisapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.cache.CacheInvalidationBus;
+
+import java.util.function.Function;
+
+/**
+ * Caché en memoria de los usuarios autenticados por JWT
+ *
+ * Evita consultar Mongo en cada petición con token. La clave es el username y la versión del token,
+ * así un token emitido tras cambiar el usuario nunca reutiliza el usuario anterior. Las modificaciones
+ * y borrados de usuarios la invalidan en esta réplica y, si la caché es Redis, en el resto por el bus
+ * de invalidaciones; el TTL acota el desfase si un aviso se pierde.
+ */
+@Slf4j
+@Component
+public class PrincipalCache {
+
+    /**
+     * Nombre con el que viajan sus invalidaciones por el bus
+     */
+    public static final String NOMBRE = "principals";
+
+    private final Cache<String, UserDetails> usuarios;
+    private final CacheInvalidationBus bus;
+
+    public PrincipalCache(PrincipalCacheProperties properties, ObjectProvider<CacheInvalidationBus> bus) {
+        this.usuarios = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+        this.bus = bus.getIfAvailable();
+        if (this.bus != null) {
+            this.bus.suscribir(invalidacion -> {
+                if (NOMBRE.equals(invalidacion.getCache())) {
+                    invalidarLocal(invalidacion.getClave());
+                }
+            });
+        }
+    }
+
+    /**
+     * Devuelve el usuario en caché o lo carga (y guarda) con el cargador.
+     */
+    public UserDetails obtener(String username, long version, Function<String, UserDetails> cargador) {
+        return usuarios.get(clave(username, version), k -> cargador.apply(username));
+    }
+
+    /**
+     * Olvida todas las versiones del usuario en todas las réplicas.
+     */
+    public void invalidar(String username) {
+        invalidarLocal(username);
+        if (bus != null) {
+            bus.publicar(NOMBRE, username);
+        }
+    }
+
+    /**
+     * Olvida todas las versiones del usuario solo en esta réplica (username null = todos).
+     */
+    public void invalidarLocal(String username) {
+        if (username == null) {
+            usuarios.invalidateAll();
+            return;
+        }
+        String prefijo = username + ":";
+        usuarios.asMap().keySet().removeIf(clave -> clave.startsWith(prefijo));
+        log.debug("Usuario {} invalidado de la caché de autenticación", username);
+    }
+
+    public long tamanio() {
+        return usuarios.estimatedSize();
+    }
+
+    private static String clave(String username, long version) {
+        return username + ":" + version;
+    }
+}
@@ -0,0 +1,30 @@
+package srangeldev.camisapi.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Propiedades de la caché de usuarios autenticados (camisapi.security.principal-cache.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.security.principal-cache")
+public class PrincipalCacheProperties {
+
+    /**
+     * Usuarios (por versión de token) que se guardan como máximo
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * Tiempo que se reutiliza un usuario cargado; acota el desfase si se pierde una invalidación
+     */
+    private Duration ttl = Duration.ofSeconds(60);
+
+    /**
+     * Si es true, los roles se toman del propio token sin consultar el usuario.
+     * Un usuario borrado o con roles cambiados conserva el acceso hasta que caduca su token.
+     */
+    private boolean statelessAuthorities = false;
+}
@@ -16,6 +16,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
+import srangeldev.camisapi.security.JwtClaims;
 import srangeldev.camisapi.security.JwtUtil;
 import srangeldev.camisapi.security.dto.AuthResponse;
 import srangeldev.camisapi.security.dto.LoginRequest;
@@ -107,7 +108,14 @@ public class AuthController {
         )
     })
     @GetMapping("/test")
-    public ResponseEntity<String> test() {
-        return ResponseEntity.ok("Acceso autorizado - JWT funciona correctamente");
+    public ResponseEntity<String> test(
+        @Parameter(hidden = true)
+        @RequestAttribute(name = JwtClaims.ATRIBUTO, required = false) JwtClaims claims) {
+        // Reutiliza los claims que ya verificó el filtro JWT
+        if (claims == null) {
+            return ResponseEntity.status(401).body("Token inválido o expirado");
+        }
+        return ResponseEntity.ok("Acceso autorizado - JWT funciona correctamente (usuario: "
+            + claims.getUsername() + ", caduca: " + claims.getExpiresAt() + ")");
     }
 }
@@ -0,0 +1,79 @@
+package srangeldev.camisapi.websocket.broadcast;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Propiedades del difusor de mensajes WebSocket (camisapi.websocket.*)
+ */
+@Data
+@ConfigurationProperties(prefix = "camisapi.websocket")
+public class WebSocketBroadcastProperties {
+
+    /**
+     * Mensajes pendientes como máximo; si la cola se llena se descartan los nuevos
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Tiempo que espera el despachador para agrupar una ráfaga antes de enviarla
+     */
+    private Duration coalesceWindow = Duration.ofMillis(50);
+
+    /**
+     * Mensajes máximos que se agrupan en una ráfaga
+     */
+    private int maxBatch = 500;
+
+    /**
+     * Hilos que escriben en las sesiones
+     */
+    private int sendThreads = 4;
+
+    /**
+     * Enviar cada lote en un hilo virtual en lugar de en el pool de send-threads
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Tiempo máximo que puede tardar un envío a una sesión antes de desconectarla
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(5);
+
+    /**
+     * Bytes pendientes máximos por sesión antes de desconectarla
+     */
+    private DataSize bufferSizeLimit = DataSize.ofKilobytes(512);
+
+    /**
+     * Temas a los que puede estar suscrita una sesión como máximo
+     */
+    private int maxTopicsPerSession = 100;
+
+    private Cluster cluster = new Cluster();
+
+    /**
+     * Difusión de los eventos entre réplicas (camisapi.websocket.cluster.*)
+     */
+    @Data
+    public static class Cluster {
+
+        /**
+         * redis para varias réplicas; memory para una sola instancia o tests
+         */
+        private String transport = "memory";
+
+        /**
+         * Canal de Redis por el que viajan los eventos
+         */
+        private String channel = "camisapi:ws:eventos";
+
+        /**
+         * Eventos y entidades recientes que se recuerdan para descartar duplicados y eventos atrasados
+         */
+        private int dedupeSize = 10_000;
+    }
+}
@@ -0,0 +1,361 @@
+package srangeldev.camisapi.websocket.broadcast;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Difusor asíncrono de mensajes a las sesiones WebSocket
+ *
+ * Los servicios solo encolan el mensaje y vuelven. Un hilo despachador agrupa las ráfagas
+ * (mensajes con la misma clave se fusionan y gana el último) y reparte cada ráfaga en un pool de envío
+ * solo a las sesiones suscritas a alguno de los temas del mensaje; una sesión sin mensajes para ella
+ * no cuesta ninguna escritura en el socket.
+ *
+ * Cada sesión tiene su propia cola de envíos y como mucho una tarea vaciándola, así que los mensajes le
+ * llegan en el orden en que se despacharon aunque el pool tenga varios hilos. Un cliente lento que
+ * arrastra de ráfagas anteriores más bytes sin enviar que buffer-size-limit, o cuyo envío en curso supera
+ * send-time-limit, se desconecta en lugar de frenar al resto.
+ *
+ * Con camisapi.websocket.virtual-threads cada envío va en su propio hilo virtual en lugar de en el pool fijo.
+ * Los temas de cada sesión se protegen con un ReentrantLock y no con synchronized para no fijar
+ * el hilo virtual a su hilo portador mientras se recorren.
+ */
+@Slf4j
+@Component
+public class WebSocketBroadcaster {
+
+    private final WebSocketBroadcastProperties properties;
+    private final Map<String, Cliente> sesiones = new ConcurrentHashMap<>();
+    private final BlockingQueue<Mensaje> cola;
+
+    private final AtomicLong publicados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong fusionados = new AtomicLong();
+    private final AtomicLong desconectados = new AtomicLong();
+
+    private ExecutorService envios;
+    private Thread despachador;
+    private volatile boolean activo;
+
+    public WebSocketBroadcaster(WebSocketBroadcastProperties properties) {
+        this.properties = properties;
+        this.cola = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        envios = properties.isVirtualThreads()
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-envio-", 0).factory())
+                : Executors.newFixedThreadPool(properties.getSendThreads(),
+                Thread.ofPlatform().name("ws-envio-", 0).daemon().factory());
+        despachador = Thread.ofPlatform().name("ws-despachador").daemon().start(this::despachar);
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        despachador.interrupt();
+        envios.shutdown();
+    }
+
+    /**
+     * Añade una sesión; los envíos a ella quedan limitados en tiempo y en buffer.
+     */
+    public void registrar(WebSocketSession session) {
+        sesiones.put(session.getId(), new Cliente(session));
+    }
+
+    public void eliminar(WebSocketSession session) {
+        sesiones.remove(session.getId());
+    }
+
+    public int sesionesActivas() {
+        return sesiones.size();
+    }
+
+    /**
+     * Suscribe la sesión a los temas indicados, sin pasar del máximo de temas por sesión.
+     *
+     * @return false si la sesión no está registrada o alcanzaría el máximo de temas
+     */
+    public boolean suscribir(WebSocketSession session, Collection<String> temas) {
+        Cliente cliente = sesiones.get(session.getId());
+        if (cliente == null) {
+            return false;
+        }
+        cliente.lock.lock();
+        try {
+            Set<String> nuevos = new LinkedHashSet<>(temas);
+            nuevos.removeAll(cliente.temas);
+            if (cliente.temas.size() + nuevos.size() > properties.getMaxTopicsPerSession()) {
+                return false;
+            }
+            cliente.temas.addAll(nuevos);
+        } finally {
+            cliente.lock.unlock();
+        }
+        return true;
+    }
+
+    public void desuscribir(WebSocketSession session, Collection<String> temas) {
+        Cliente cliente = sesiones.get(session.getId());
+        if (cliente != null) {
+            cliente.lock.lock();
+            try {
+                cliente.temas.removeAll(temas);
+            } finally {
+                cliente.lock.unlock();
+            }
+        }
+    }
+
+    public Set<String> temas(WebSocketSession session) {
+        Cliente cliente = sesiones.get(session.getId());
+        if (cliente == null) {
+            return Set.of();
+        }
+        cliente.lock.lock();
+        try {
+            return Set.copyOf(cliente.temas);
+        } finally {
+            cliente.lock.unlock();
+        }
+    }
+
+    /**
+     * Encola un mensaje para las sesiones suscritas a alguno de los temas sin bloquear al llamante.
+     * Si en la misma ráfaga llegan varios mensajes con la misma clave, solo se envía el último
+     * (a los suscriptores de cualquiera de los temas de los mensajes fusionados).
+     *
+     * @return false si la cola estaba llena y el mensaje se ha descartado
+     */
+    public boolean publicar(String clave, String mensaje, Set<String> temas) {
+        if (!cola.offer(new Mensaje(clave, mensaje, Set.copyOf(temas)))) {
+            long total = descartados.incrementAndGet();
+            log.warn("Cola de WebSocket llena ({} mensajes): descartado '{}' ({} descartados en total)",
+                    properties.getQueueCapacity(), clave, total);
+            return false;
+        }
+        publicados.incrementAndGet();
+        return true;
+    }
+
+    public long getPublicados() {
+        return publicados.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public long getFusionados() {
+        return fusionados.get();
+    }
+
+    public long getDesconectados() {
+        return desconectados.get();
+    }
+
+    private void despachar() {
+        List<Mensaje> rafaga = new ArrayList<>();
+        while (activo) {
+            try {
+                rafaga.add(cola.take());
+                agruparRafaga(rafaga);
+                enviarATodas(fusionar(rafaga));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error despachando mensajes WebSocket", e);
+            } finally {
+                rafaga.clear();
+            }
+        }
+    }
+
+    /**
+     * Espera como mucho la ventana de agrupación a que lleguen más mensajes de la misma ráfaga.
+     */
+    private void agruparRafaga(List<Mensaje> rafaga) throws InterruptedException {
+        long limite = System.nanoTime() + properties.getCoalesceWindow().toNanos();
+        while (rafaga.size() < properties.getMaxBatch()) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                break;
+            }
+            Mensaje siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            rafaga.add(siguiente);
+        }
+        cola.drainTo(rafaga, properties.getMaxBatch() - rafaga.size());
+    }
+
+    /**
+     * Una entrada por clave con el último contenido, en el orden de su primera aparición.
+     */
+    private Collection<Mensaje> fusionar(List<Mensaje> rafaga) {
+        Map<String, Mensaje> porClave = new LinkedHashMap<>();
+        for (Mensaje mensaje : rafaga) {
+            porClave.merge(mensaje.clave(), mensaje, (anterior, ultimo) -> ultimo.conTemas(anterior.temas()));
+        }
+        fusionados.addAndGet(rafaga.size() - porClave.size());
+        return porClave.values();
+    }
+
+    private void enviarATodas(Collection<Mensaje> mensajes) {
+        Map<Mensaje, TextMessage> textos = new LinkedHashMap<>();
+        for (Cliente cliente : sesiones.values()) {
+            List<TextMessage> suyos = new ArrayList<>();
+            cliente.lock.lock();
+            try {
+                for (Mensaje mensaje : mensajes) {
+                    if (!Collections.disjoint(cliente.temas, mensaje.temas())) {
+                        suyos.add(textos.computeIfAbsent(mensaje, m -> new TextMessage(m.contenido())));
+                    }
+                }
+            } finally {
+                cliente.lock.unlock();
+            }
+            if (!suyos.isEmpty()) {
+                encolar(cliente, suyos);
+            }
+        }
+    }
+
+    /**
+     * Añade los mensajes a la cola de la sesión y, si nadie la está vaciando, lanza la tarea que lo hace.
+     */
+    private void encolar(Cliente cliente, List<TextMessage> mensajes) {
+        long inicioEnvio = cliente.inicioEnvio;
+        if (inicioEnvio != 0 && System.nanoTime() - inicioEnvio > properties.getSendTimeLimit().toNanos()) {
+            desconectarLento(cliente, "un envío lleva más de " + properties.getSendTimeLimit());
+            return;
+        }
+        long bytes = 0;
+        for (TextMessage mensaje : mensajes) {
+            cliente.pendientes.add(mensaje);
+            bytes += mensaje.getPayloadLength();
+        }
+        // El límite se aplica a lo que quedó sin enviar de ráfagas anteriores, no al tamaño de esta
+        if (cliente.bytesPendientes.getAndAdd(bytes) > properties.getBufferSizeLimit().toBytes()) {
+            desconectarLento(cliente, "más de " + properties.getBufferSizeLimit() + " pendientes");
+            return;
+        }
+        programar(cliente);
+    }
+
+    private void programar(Cliente cliente) {
+        if (cliente.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> drenar(cliente));
+        }
+    }
+
+    /**
+     * Escribe en orden los mensajes pendientes de la sesión. Solo hay una a la vez por sesión.
+     */
+    private void drenar(Cliente cliente) {
+        WebSocketSession sesion = cliente.sesion;
+        try {
+            TextMessage mensaje;
+            while ((mensaje = cliente.pendientes.poll()) != null) {
+                if (!sesion.isOpen()) {
+                    sesiones.remove(sesion.getId(), cliente);
+                    cliente.pendientes.clear();
+                    return;
+                }
+                cliente.inicioEnvio = System.nanoTime();
+                sesion.sendMessage(mensaje);
+                cliente.inicioEnvio = 0;
+                cliente.bytesPendientes.addAndGet(-mensaje.getPayloadLength());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error enviando a la sesión {}: {}", sesion.getId(), e.getMessage());
+            cerrar(cliente, CloseStatus.SERVER_ERROR);
+            return;
+        } finally {
+            cliente.inicioEnvio = 0;
+            cliente.enviando.set(false);
+        }
+        // Lo encolado entre el último poll y soltar el indicador no lo vaciaría nadie
+        if (!cliente.pendientes.isEmpty()) {
+            programar(cliente);
+        }
+    }
+
+    private void desconectarLento(Cliente cliente, String motivo) {
+        if (sesiones.get(cliente.sesion.getId()) != cliente) {
+            return;
+        }
+        desconectados.incrementAndGet();
+        log.warn("Desconectando cliente lento {}: {}", cliente.sesion.getId(), motivo);
+        cerrar(cliente, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void cerrar(Cliente cliente, CloseStatus status) {
+        WebSocketSession sesion = cliente.sesion;
+        sesiones.remove(sesion.getId(), cliente);
+        cliente.pendientes.clear();
+        try {
+            sesion.close(status);
+        } catch (IOException e) {
+            log.debug("Error cerrando la sesión {}", sesion.getId(), e);
+        }
+    }
+
+    private record Mensaje(String clave, String contenido, Set<String> temas) {
+
+        Mensaje conTemas(Set<String> otros) {
+            Set<String> union = new LinkedHashSet<>(temas);
+            union.addAll(otros);
+            return new Mensaje(clave, contenido, union);
+        }
+    }
+
+    private static final class Cliente {
+        private final WebSocketSession sesion;
+        private final Set<String> temas = new LinkedHashSet<>();
+        private final Lock lock = new ReentrantLock();
+        private final Queue<TextMessage> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicLong bytesPendientes = new AtomicLong();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        /**
+         * System.nanoTime() al empezar el envío en curso, o 0 si no se está enviando nada
+         */
+        private volatile long inicioEnvio;
+
+        private Cliente(WebSocketSession sesion) {
+            this.sesion = sesion;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal por el que las réplicas se reenvían los eventos de cambio
+ *
+ * Igual que Redis pub/sub, cada mensaje publicado llega a todos los suscriptores,
+ * también a los de la réplica que lo publica.
+ */
+public interface ClusterTransport {
+
+    void publicar(String mensaje);
+
+    void suscribir(Consumer<String> receptor);
+
+    /**
+     * Siguiente versión de la entidad, de un contador que comparten todas las réplicas:
+     * no depende del reloj de ninguna, así que todas ordenan igual los cambios de la entidad.
+     */
+    long siguienteVersion(String clave);
+}
@@ -0,0 +1,42 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Evento de cambio tal y como viaja entre réplicas
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoCluster {
+
+    /**
+     * Identificador único del evento, para descartar duplicados
+     */
+    private String eventoId;
+
+    /**
+     * Réplica que lo publicó
+     */
+    private String nodo;
+
+    /**
+     * Entidad afectada ("productos:1"); el orden se respeta por clave
+     */
+    private String clave;
+
+    private long version;
+
+    private Set<String> temas;
+
+    /**
+     * JSON que se envía tal cual a los clientes
+     */
+    private String payload;
+}
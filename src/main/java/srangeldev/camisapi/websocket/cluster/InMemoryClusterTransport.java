@@ -0,0 +1,53 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Transporte en memoria: una sola réplica o varias réplicas simuladas en el mismo proceso
+ *
+ * Entrega de forma síncrona a todos los nodos de la misma red, incluido el que publica.
+ * Los nodos de una misma red comparten los contadores de versión.
+ */
+public class InMemoryClusterTransport implements ClusterTransport {
+
+    private final List<Consumer<String>> red;
+    private final Map<String, AtomicLong> versiones;
+
+    public InMemoryClusterTransport() {
+        this(new CopyOnWriteArrayList<>(), new ConcurrentHashMap<>());
+    }
+
+    private InMemoryClusterTransport(List<Consumer<String>> red, Map<String, AtomicLong> versiones) {
+        this.red = red;
+        this.versiones = versiones;
+    }
+
+    /**
+     * Transporte de otro nodo conectado a la misma red que este.
+     */
+    public InMemoryClusterTransport unirNodo() {
+        return new InMemoryClusterTransport(red, versiones);
+    }
+
+    @Override
+    public void publicar(String mensaje) {
+        for (Consumer<String> receptor : red) {
+            receptor.accept(mensaje);
+        }
+    }
+
+    @Override
+    public long siguienteVersion(String clave) {
+        return versiones.computeIfAbsent(clave, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public void suscribir(Consumer<String> receptor) {
+        red.add(receptor);
+    }
+}
@@ -0,0 +1,73 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transporte entre réplicas sobre Redis pub/sub
+ *
+ * Usa su propio contenedor de listeners para no depender de que la caché sea Redis.
+ * La entrega de pub/sub no está garantizada: un evento perdido se corrige con el siguiente de la misma entidad.
+ * Las versiones de cada entidad salen de un INCR sobre "{canal}:version:{clave}".
+ */
+@Slf4j
+public class RedisClusterTransport implements ClusterTransport, MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final String canal;
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    private final List<Consumer<String>> receptores = new CopyOnWriteArrayList<>();
+
+    public RedisClusterTransport(StringRedisTemplate redisTemplate, String canal) {
+        this.redisTemplate = redisTemplate;
+        this.canal = canal;
+        container.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+        container.addMessageListener(this, new ChannelTopic(canal));
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @PreDestroy
+    public void detener() throws Exception {
+        container.destroy();
+    }
+
+    @Override
+    public void publicar(String mensaje) {
+        redisTemplate.convertAndSend(canal, mensaje);
+    }
+
+    @Override
+    public long siguienteVersion(String clave) {
+        Long version = redisTemplate.opsForValue().increment(canal + ":version:" + clave);
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public void suscribir(Consumer<String> receptor) {
+        receptores.add(receptor);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String mensaje = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (Consumer<String> receptor : receptores) {
+            receptor.accept(mensaje);
+        }
+    }
+}
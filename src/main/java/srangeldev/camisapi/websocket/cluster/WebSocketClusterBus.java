@@ -0,0 +1,179 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioReplicado;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcastProperties;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcaster;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Difusión de los eventos de cambio a los clientes WebSocket de todas las réplicas
+ *
+ * La réplica que produce el cambio lo entrega a sus propios clientes y lo publica una sola vez
+ * en el transporte; las demás lo entregan a los suyos. Antes de publicarlo le asigna la siguiente versión
+ * de la entidad con el contador compartido del transporte, no con el reloj de la réplica: con relojes
+ * desfasados un cambio nuevo hecho en una réplica atrasada seguiría siendo posterior. Cada réplica
+ * descarta los eventos repetidos (por eventoId) y los que llegan tarde: si ya entregó una versión igual o
+ * posterior de la misma entidad, el evento antiguo no sale. Los cambios de otras réplicas que se entregan
+ * se publican también dentro de esta como {@link CambioReplicado}.
+ */
+@Slf4j
+@Component
+public class WebSocketClusterBus {
+
+    private final String nodo = UUID.randomUUID().toString();
+    private final ClusterTransport transport;
+    private final WebSocketBroadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, Boolean> vistos;
+    private final Map<String, Long> versiones;
+    /**
+     * Protege vistos y versiones; ReentrantLock en lugar de synchronized para no fijar hilos virtuales
+     */
+    private final Lock lock = new ReentrantLock();
+
+    private final AtomicLong entregados = new AtomicLong();
+    private final AtomicLong duplicados = new AtomicLong();
+    private final AtomicLong desordenados = new AtomicLong();
+
+    public WebSocketClusterBus(ClusterTransport transport, WebSocketBroadcaster broadcaster, ObjectMapper objectMapper,
+                               WebSocketBroadcastProperties properties, ApplicationEventPublisher eventPublisher) {
+        this.transport = transport;
+        this.broadcaster = broadcaster;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.vistos = limitado(properties.getCluster().getDedupeSize());
+        this.versiones = limitado(properties.getCluster().getDedupeSize());
+        transport.suscribir(this::recibir);
+    }
+
+    public String getNodo() {
+        return nodo;
+    }
+
+    @EventListener
+    public void onCambio(CambioEvento evento) {
+        String clave = evento.getEntidad() + ":" + evento.getId();
+        try {
+            evento.setVersion(transport.siguienteVersion(clave));
+        } catch (RuntimeException e) {
+            // Sin versión se entrega igual, pero sin poder ordenarlo frente a otros cambios de la entidad
+            log.warn("No se pudo obtener la versión de {}: {}", clave, e.getMessage());
+        }
+        EventoCluster mensaje;
+        try {
+            mensaje = EventoCluster.builder()
+                    .eventoId(UUID.randomUUID().toString())
+                    .nodo(nodo)
+                    .clave(clave)
+                    .version(evento.getVersion())
+                    .temas(evento.getTemas())
+                    .payload(objectMapper.writeValueAsString(evento))
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.error("No se pudo serializar el evento {} {}:{}", evento.getOperacion(), evento.getEntidad(), evento.getId(), e);
+            return;
+        }
+        entregar(mensaje);
+        try {
+            transport.publicar(objectMapper.writeValueAsString(mensaje));
+        } catch (JsonProcessingException e) {
+            log.error("No se pudo serializar el evento {} para el resto de réplicas", mensaje.getClave(), e);
+        } catch (RuntimeException e) {
+            // El cambio ya está guardado: las demás réplicas se enterarán con el siguiente evento de la entidad
+            log.warn("No se pudo publicar el evento {} al resto de réplicas: {}", mensaje.getClave(), e.getMessage());
+        }
+    }
+
+    void recibir(String json) {
+        EventoCluster mensaje;
+        try {
+            mensaje = objectMapper.readValue(json, EventoCluster.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Evento de cluster no válido: {}", e.getOriginalMessage());
+            return;
+        }
+        if (nodo.equals(mensaje.getNodo())) {
+            return;
+        }
+        if (entregar(mensaje)) {
+            publicarLocal(mensaje);
+        }
+    }
+
+    private void publicarLocal(EventoCluster mensaje) {
+        try {
+            eventPublisher.publishEvent(new CambioReplicado(objectMapper.readValue(mensaje.getPayload(), CambioEvento.class)));
+        } catch (JsonProcessingException e) {
+            log.warn("Evento {} de otra réplica no válido: {}", mensaje.getClave(), e.getOriginalMessage());
+        } catch (RuntimeException e) {
+            log.warn("Error aplicando el evento {} de otra réplica: {}", mensaje.getClave(), e.getMessage());
+        }
+    }
+
+    /**
+     * Entrega el evento a los clientes locales salvo que sea repetido o más antiguo que el último de su entidad.
+     * Un evento sin versión (0) solo se descarta si es repetido.
+     */
+    boolean entregar(EventoCluster mensaje) {
+        lock.lock();
+        try {
+            if (vistos.put(mensaje.getEventoId(), Boolean.TRUE) != null) {
+                duplicados.incrementAndGet();
+                return false;
+            }
+            if (mensaje.getVersion() > 0) {
+                Long ultima = versiones.get(mensaje.getClave());
+                if (ultima != null && ultima >= mensaje.getVersion()) {
+                    desordenados.incrementAndGet();
+                    log.debug("Descartado {} v{}: ya se entregó la v{}", mensaje.getClave(), mensaje.getVersion(), ultima);
+                    return false;
+                }
+                versiones.put(mensaje.getClave(), mensaje.getVersion());
+            }
+            broadcaster.publicar(mensaje.getClave(), mensaje.getPayload(), mensaje.getTemas());
+            entregados.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEntregados() {
+        return entregados.get();
+    }
+
+    public long getDuplicados() {
+        return duplicados.get();
+    }
+
+    public long getDesordenados() {
+        return desordenados.get();
+    }
+
+    /**
+     * Mapa que olvida las entradas más antiguas al superar el máximo.
+     */
+    private static <V> Map<String, V> limitado(int maximo) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maximo;
+            }
+        };
+    }
+}
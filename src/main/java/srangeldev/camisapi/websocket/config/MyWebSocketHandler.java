@@ -1,42 +1,67 @@
 package srangeldev.camisapi.websocket.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcaster;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Objects;
 
+/**
+ * Handler de /ws: los clientes reciben solo los eventos de cambio de los temas a los que se suscriben
+ * (ver {@link SuscripcionMensaje}); una sesión recién conectada no está suscrita a nada.
+ */
+@Slf4j
 @Component
 public class MyWebSocketHandler extends TextWebSocketHandler {
 
-    private final Set<WebSocketSession> sessions = Collections.synchronizedSet(new HashSet<>());
+    private final WebSocketBroadcaster broadcaster;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    public MyWebSocketHandler(WebSocketBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.add(session);
-        System.out.println("Cliente conectado: " + session.getId());
+        broadcaster.registrar(session);
+        log.info("Cliente conectado: {}", session.getId());
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        sessions.remove(session);
-        System.out.println("Cliente desconectado: " + session.getId());
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        SuscripcionMensaje suscripcion;
+        try {
+            suscripcion = objectMapper.readValue(message.getPayload(), SuscripcionMensaje.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Mensaje no válido del cliente {}: {}", session.getId(), e.getOriginalMessage());
+            return;
+        }
+        List<String> temas = suscripcion.getTemas() == null ? List.of() : suscripcion.getTemas().stream()
+                .filter(Objects::nonNull)
+                .map(CambioEvento::normalizarTema)
+                .toList();
+        if (SuscripcionMensaje.SUSCRIBIR.equals(suscripcion.getAccion())) {
+            if (!broadcaster.suscribir(session, temas)) {
+                log.warn("Suscripción rechazada para el cliente {}: demasiados temas", session.getId());
+            }
+        } else if (SuscripcionMensaje.DESUSCRIBIR.equals(suscripcion.getAccion())) {
+            broadcaster.desuscribir(session, temas);
+        } else {
+            log.warn("Acción desconocida del cliente {}: {}", session.getId(), suscripcion.getAccion());
+        }
     }
 
-    public void enviarMensajeATodos(String mensaje) {
-        sessions.forEach(session -> {
-            try {
-                session.sendMessage(new TextMessage(mensaje));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        });
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        broadcaster.eliminar(session);
+        log.info("Cliente desconectado: {}", session.getId());
     }
-}
\ No newline at end of file
+}
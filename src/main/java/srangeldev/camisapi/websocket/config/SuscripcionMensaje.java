@@ -0,0 +1,29 @@
+package srangeldev.camisapi.websocket.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mensaje que envía el cliente para gestionar sus suscripciones
+ *
+ * Ejemplo: {"accion":"suscribir","temas":["productos:real madrid","usuarios"]}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuscripcionMensaje {
+
+    public static final String SUSCRIBIR = "suscribir";
+    public static final String DESUSCRIBIR = "desuscribir";
+
+    private String accion;
+
+    @Builder.Default
+    private List<String> temas = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package srangeldev.camisapi.websocket.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcastProperties;
+import srangeldev.camisapi.websocket.cluster.ClusterTransport;
+import srangeldev.camisapi.websocket.cluster.InMemoryClusterTransport;
+import srangeldev.camisapi.websocket.cluster.RedisClusterTransport;
+
+/**
+ * Transporte de eventos entre réplicas según camisapi.websocket.cluster.transport
+ */
+@Configuration
+public class WebSocketClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "camisapi.websocket.cluster.transport", havingValue = "redis")
+    public ClusterTransport redisClusterTransport(StringRedisTemplate redisTemplate, WebSocketBroadcastProperties properties) {
+        return new RedisClusterTransport(redisTemplate, properties.getCluster().getChannel());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "camisapi.websocket.cluster.transport", havingValue = "memory", matchIfMissing = true)
+    public ClusterTransport inMemoryClusterTransport() {
+        return new InMemoryClusterTransport();
+    }
+}
@@ -1,13 +1,16 @@
 package srangeldev.camisapi.websocket.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcastProperties;
 
 @Configuration
 @EnableWebSocket
+@EnableConfigurationProperties(WebSocketBroadcastProperties.class)
 public class WebSocketConfig implements WebSocketConfigurer {
 
     @Value("${api.version:v1}")
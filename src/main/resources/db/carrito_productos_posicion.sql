@@ -0,0 +1,36 @@
+-- Migración de carrito_productos (PostgreSQL): de la lista sin índice a producto_id -> posicion
+--
+-- Con ddl-auto=update Hibernate añade la columna posicion, pero nula y sin la clave (carrito_id, producto_id),
+-- y deja las filas repetidas que admitía la lista. Este script deja una fila por producto, rellena la posición
+-- y crea la clave. Se ejecuta una vez, con la aplicación parada (y los carritos de Redis ya volcados):
+--   psql -h localhost -U postgres -d camisapi -f carrito_productos_posicion.sql
+--
+-- La lista no guardaba su orden; se toma el físico de las filas (ctid), que con la lista era el de la última
+-- vez que se reescribió la colección. Las filas que ya tienen posición (escritas con el mapa) van primero.
+
+BEGIN;
+
+LOCK TABLE carrito_productos IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE carrito_productos ADD COLUMN IF NOT EXISTS posicion BIGINT;
+
+CREATE TEMPORARY TABLE carrito_productos_unicos ON COMMIT DROP AS
+SELECT carrito_id,
+       producto_id,
+       ROW_NUMBER() OVER (PARTITION BY carrito_id ORDER BY anterior NULLS LAST, primera) AS posicion
+FROM (SELECT carrito_id, producto_id, MIN(posicion) AS anterior, MIN(ctid) AS primera
+      FROM carrito_productos
+      WHERE producto_id IS NOT NULL
+      GROUP BY carrito_id, producto_id) filas;
+
+DELETE FROM carrito_productos;
+
+INSERT INTO carrito_productos (carrito_id, producto_id, posicion)
+SELECT carrito_id, producto_id, posicion
+FROM carrito_productos_unicos;
+
+ALTER TABLE carrito_productos ALTER COLUMN posicion SET NOT NULL;
+ALTER TABLE carrito_productos ALTER COLUMN producto_id SET NOT NULL;
+ALTER TABLE carrito_productos ADD PRIMARY KEY (carrito_id, producto_id);
+
+COMMIT;
@@ -0,0 +1,95 @@
+package srangeldev.camisapi.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests de CacheInvalidationBus")
+class CacheInvalidationBusTest {
+
+    private static final String CANAL = "camisapi:cache:invalidacion";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CacheInvalidationBus bus;
+    private final List<CacheInvalidationMessage> recibidos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bus = new CacheInvalidationBus(redisTemplate, objectMapper, CANAL);
+        bus.suscribir(recibidos::add);
+    }
+
+    private DefaultMessage mensaje(CacheInvalidationMessage invalidacion) throws Exception {
+        return new DefaultMessage(CANAL.getBytes(StandardCharsets.UTF_8), objectMapper.writeValueAsBytes(invalidacion));
+    }
+
+    @Test
+    @DisplayName("Debería publicar la invalidación con el id de la réplica")
+    void publicar() throws Exception {
+        bus.publicar("productos", "1");
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(CANAL), json.capture());
+        CacheInvalidationMessage enviado = objectMapper.readValue(json.getValue(), CacheInvalidationMessage.class);
+        assertAll(
+                () -> assertEquals(bus.getNodo(), enviado.getNodo()),
+                () -> assertEquals("productos", enviado.getCache()),
+                () -> assertEquals("1", enviado.getClave())
+        );
+    }
+
+    @Test
+    @DisplayName("No debería propagar errores de Redis al publicar")
+    void publicarConRedisCaido() {
+        when(redisTemplate.convertAndSend(anyString(), anyString())).thenThrow(new IllegalStateException("Redis caído"));
+
+        assertDoesNotThrow(() -> bus.publicar("productos", "1"));
+    }
+
+    @Test
+    @DisplayName("Debería entregar las invalidaciones de otras réplicas")
+    void recibirDeOtraReplica() throws Exception {
+        bus.onMessage(mensaje(new CacheInvalidationMessage("otro-nodo", "productos", "1")), null);
+
+        assertAll(
+                () -> assertEquals(1, recibidos.size()),
+                () -> assertEquals("1", recibidos.get(0).getClave())
+        );
+    }
+
+    @Test
+    @DisplayName("Debería ignorar sus propias invalidaciones")
+    void ignorarPropias() throws Exception {
+        bus.onMessage(mensaje(new CacheInvalidationMessage(bus.getNodo(), "productos", "1")), null);
+
+        assertTrue(recibidos.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería descartar mensajes mal formados")
+    void mensajeMalFormado() {
+        bus.onMessage(new DefaultMessage(CANAL.getBytes(StandardCharsets.UTF_8), "no-json".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(recibidos.isEmpty());
+    }
+}
@@ -0,0 +1,228 @@
+package srangeldev.camisapi.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests de la caché de dos niveles")
+class TwoTierCacheTest {
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    private ConcurrentMapCacheManager redis;
+    private SimpleMeterRegistry meterRegistry;
+    private TwoTierCacheManager cacheManager;
+    private TwoTierCache cache;
+    private ConcurrentMapCache remota;
+
+    @BeforeEach
+    void setUp() {
+        redis = new ConcurrentMapCacheManager("productos");
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = new TwoTierCacheManager(redis, new TwoTierCacheProperties(), bus, meterRegistry);
+        cache = (TwoTierCache) cacheManager.getCache("productos");
+        remota = (ConcurrentMapCache) redis.getCache("productos");
+    }
+
+    private double lecturas(String nivel, String resultado) {
+        return meterRegistry.get("cache.tier.gets")
+                .tags("cache", "productos", "tier", nivel, "result", resultado)
+                .functionCounter().count();
+    }
+
+    @Nested
+    @DisplayName("Lecturas")
+    class Lecturas {
+
+        @Test
+        @DisplayName("Un acierto en memoria no debería consultar Redis")
+        void aciertoCercanoNoVaARedis() {
+            cache.put("1", "camiseta");
+            remota.clear();
+
+            assertAll(
+                    () -> assertEquals("camiseta", cache.get("1").get()),
+                    () -> assertEquals(1, lecturas("near", "hit")),
+                    () -> assertEquals(0, lecturas("remote", "hit"))
+            );
+        }
+
+        @Test
+        @DisplayName("Un acierto en Redis debería copiarse al nivel cercano")
+        void aciertoRemotoRellenaMemoria() {
+            remota.put("1", "camiseta");
+
+            cache.get("1");
+            remota.clear();
+
+            assertAll(
+                    () -> assertEquals("camiseta", cache.get("1").get()),
+                    () -> assertEquals(1, lecturas("near", "miss")),
+                    () -> assertEquals(1, lecturas("remote", "hit")),
+                    () -> assertEquals(1, lecturas("near", "hit"))
+            );
+        }
+
+        @Test
+        @DisplayName("Un fallo en ambos niveles debería devolver null y contarse en los dos")
+        void falloEnAmbosNiveles() {
+            assertAll(
+                    () -> assertNull(cache.get("no-existe")),
+                    () -> assertEquals(1, lecturas("near", "miss")),
+                    () -> assertEquals(1, lecturas("remote", "miss"))
+            );
+        }
+
+        @Test
+        @DisplayName("get con loader debería cargar una vez y servir después desde memoria")
+        void getConLoader() {
+            assertEquals("cargado", cache.get("1", () -> "cargado"));
+            assertEquals("cargado", cache.get("1", () -> fail("no debería volver a cargar")));
+
+            assertAll(
+                    () -> assertEquals("cargado", remota.get("1").get()),
+                    () -> assertEquals(1, lecturas("remote", "miss")),
+                    () -> assertEquals(1, lecturas("near", "hit"))
+            );
+        }
+
+        @Test
+        @DisplayName("Las claves no String deberían compartir entrada con su representación en texto")
+        void claveNoString() {
+            cache.put(1L, "camiseta");
+
+            assertEquals("camiseta", cache.get(1L).get());
+            verify(bus).publicar("productos", "1");
+        }
+    }
+
+    @Nested
+    @DisplayName("Escrituras e invalidaciones")
+    class Invalidaciones {
+
+        @Test
+        @DisplayName("evict debería borrar ambos niveles y avisar al resto de réplicas")
+        void evictBorraYPublica() {
+            remota.put("1", "camiseta");
+            cache.get("1");
+
+            cache.evict("1");
+
+            assertAll(
+                    () -> assertNull(cache.get("1")),
+                    () -> assertNull(remota.get("1")),
+                    () -> verify(bus).publicar("productos", "1")
+            );
+        }
+
+        @Test
+        @DisplayName("clear debería vaciar ambos niveles y publicar una invalidación completa")
+        void clearVaciaTodo() {
+            cache.put("1", "a");
+            cache.put("2", "b");
+
+            cache.clear();
+
+            assertAll(
+                    () -> assertNull(cache.get("1")),
+                    () -> assertNull(cache.get("2")),
+                    () -> verify(bus).publicar("productos", null)
+            );
+        }
+
+        @Test
+        @DisplayName("Una invalidación de otra réplica debería descartar solo la copia en memoria")
+        void invalidacionRemota() {
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Consumer<CacheInvalidationMessage>> suscriptor = ArgumentCaptor.forClass(Consumer.class);
+            verify(bus).suscribir(suscriptor.capture());
+            cache.put("1", "antiguo");
+            // Otra réplica actualiza Redis y publica la invalidación
+            remota.put("1", "nuevo");
+
+            suscriptor.getValue().accept(new CacheInvalidationMessage("otro-nodo", "productos", "1"));
+
+            assertEquals("nuevo", cache.get("1").get());
+        }
+
+        @Test
+        @DisplayName("Una invalidación completa de otra réplica debería vaciar la memoria local")
+        void invalidacionRemotaCompleta() {
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Consumer<CacheInvalidationMessage>> suscriptor = ArgumentCaptor.forClass(Consumer.class);
+            verify(bus).suscribir(suscriptor.capture());
+            cache.put("1", "a");
+            remota.clear();
+
+            suscriptor.getValue().accept(new CacheInvalidationMessage("otro-nodo", "productos", null));
+
+            assertNull(cache.get("1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("CacheManager")
+    class Manager {
+
+        @Test
+        @DisplayName("Debería reutilizar la misma caché por nombre")
+        void mismaCachePorNombre() {
+            assertSame(cache, cacheManager.getCache("productos"));
+        }
+
+        @Test
+        @DisplayName("Con el nivel cercano deshabilitado debería devolver la caché de Redis")
+        void nivelCercanoDeshabilitado() {
+            TwoTierCacheProperties properties = new TwoTierCacheProperties();
+            properties.getNear().setEnabled(false);
+            TwoTierCacheManager manager = new TwoTierCacheManager(redis, properties, bus, meterRegistry);
+
+            Cache resultado = manager.getCache("productos");
+
+            assertSame(remota, resultado);
+        }
+
+        @Test
+        @DisplayName("Debería resolver el presupuesto de la región y usar los valores por defecto en el resto")
+        void presupuestoPorRegion() {
+            TwoTierCacheProperties properties = new TwoTierCacheProperties();
+            TwoTierCacheProperties.Region region = new TwoTierCacheProperties.Region();
+            region.setNearMaximumSize(1L);
+            properties.getRegions().put("productos-lista", region);
+            TwoTierCacheManager manager = new TwoTierCacheManager(new ConcurrentMapCacheManager(), properties, bus, meterRegistry);
+
+            assertAll(
+                    () -> assertInstanceOf(TwoTierCache.class, manager.getCache("productos-lista")),
+                    () -> assertEquals(1L, properties.nearMaximumSize("productos-lista")),
+                    () -> assertEquals(1000L, properties.nearMaximumSize("productos-id")),
+                    () -> assertEquals(properties.getTtl(), properties.ttl("productos-lista"))
+            );
+        }
+
+        @Test
+        @DisplayName("Debería publicar el tamaño del nivel cercano como métrica")
+        void metricaTamano() {
+            cache.put("1", "a");
+
+            assertEquals(1.0, meterRegistry.get("cache.near.size").tag("cache", "productos").gauge().value());
+            verify(bus, atLeastOnce()).publicar(any(), any());
+        }
+    }
+}
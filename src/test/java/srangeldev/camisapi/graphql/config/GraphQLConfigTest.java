@@ -0,0 +1,254 @@
+package srangeldev.camisapi.graphql.config;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.introspection.IntrospectionQuery;
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ejecuta consultas sobre el esquema real con la misma configuración que GraphQLConfig
+ */
+@DisplayName("Tests de la ejecución de GraphQL (caché de documentos, APQ y complejidad)")
+class GraphQLConfigTest {
+
+    private static final String PRODUCTOS = "{ productos { id nombre } }";
+    private static final Map<String, Object> PRODUCTO = Map.of(
+            "id", "1", "nombre", "Camiseta", "equipo", "Real Madrid", "precio", 80.0,
+            "estado", "DISPONIBLE", "talla", "M", "esDisponible", true);
+
+    private final AtomicInteger analisis = new AtomicInteger();
+    private GraphQLProperties properties;
+    private DocumentosGraphQL documentos;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new GraphQLProperties();
+        GraphQLConfig config = new GraphQLConfig();
+        documentos = config.documentosGraphQL(properties);
+        graphQL = GraphQL.newGraphQL(esquema())
+                .preparsedDocumentProvider(documentos)
+                .instrumentation(new ChainedInstrumentation(List.of(
+                        new ContadorAnalisis(),
+                        config.complejidadMaxima(properties),
+                        config.profundidadMaxima(properties))))
+                .build();
+    }
+
+    private static GraphQLSchema esquema() throws IOException {
+        TypeDefinitionRegistry registro = new TypeDefinitionRegistry();
+        for (String fichero : List.of("carrito", "pedidos", "productos", "usuarios")) {
+            String sdl = new ClassPathResource("graphql/" + fichero + ".graphqls").getContentAsString(StandardCharsets.UTF_8);
+            registro.merge(new SchemaParser().parse(sdl));
+        }
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", tipo -> tipo
+                        .dataFetcher("productos", entorno -> List.of(PRODUCTO))
+                        .dataFetcher("producto", entorno -> PRODUCTO)
+                        .dataFetcher("productosPagina", entorno -> Map.of("items", List.of(PRODUCTO), "hasMore", false)))
+                .build();
+        return new SchemaGenerator().makeExecutableSchema(registro, wiring);
+    }
+
+    private ExecutionResult ejecutar(String consulta) {
+        return graphQL.execute(consulta);
+    }
+
+    private ExecutionResult ejecutar(String consulta, String hash) {
+        return graphQL.execute(ExecutionInput.newExecutionInput(consulta)
+                .extensions(Map.of(DocumentosGraphQL.EXTENSION, Map.of("version", 1, DocumentosGraphQL.HASH, hash)))
+                .build());
+    }
+
+    private static String mensajes(ExecutionResult resultado) {
+        return resultado.getErrors().stream().map(GraphQLError::getMessage).collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Cuenta las veces que graphql-java analiza (parsea) un documento
+     */
+    private class ContadorAnalisis extends SimplePerformantInstrumentation {
+        @Override
+        public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters, InstrumentationState state) {
+            analisis.incrementAndGet();
+            return SimpleInstrumentationContext.noOp();
+        }
+    }
+
+    @Nested
+    @DisplayName("Caché de documentos")
+    class CacheDocumentos {
+
+        @Test
+        @DisplayName("Debe analizar y validar cada consulta distinta una sola vez")
+        void analizaUnaVez() {
+            ExecutionResult primera = ejecutar(PRODUCTOS);
+            ExecutionResult segunda = ejecutar(PRODUCTOS);
+            ejecutar("{ producto(id: \"1\") { nombre } }");
+
+            assertAll(
+                    () -> assertTrue(primera.getErrors().isEmpty(), mensajes(primera)),
+                    () -> assertEquals(primera.<Object>getData(), segunda.getData()),
+                    () -> assertEquals(2, analisis.get()),
+                    () -> assertEquals(2, documentos.tamanio())
+            );
+        }
+
+        @Test
+        @DisplayName("No debe guardar documentos con errores de validación")
+        void noGuardaInvalidos() {
+            ExecutionResult resultado = ejecutar("{ productos { campoInexistente } }");
+
+            assertAll(
+                    () -> assertFalse(resultado.getErrors().isEmpty()),
+                    () -> assertEquals(0, documentos.tamanio())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Consultas persistidas automáticas (APQ)")
+    class ConsultasPersistidas {
+
+        @Test
+        @DisplayName("Un hash desconocido sin texto debe devolver PersistedQueryNotFound")
+        void hashDesconocido() {
+            ExecutionResult resultado = ejecutar(PersistedQuerySupport.PERSISTED_QUERY_MARKER, DocumentosGraphQL.sha256(PRODUCTOS));
+
+            assertEquals("PersistedQueryNotFound", mensajes(resultado));
+        }
+
+        @Test
+        @DisplayName("Tras registrar la consulta con su texto, basta con el hash")
+        void registraYReutiliza() {
+            String hash = DocumentosGraphQL.sha256(PRODUCTOS);
+
+            ExecutionResult registro = ejecutar(PRODUCTOS, hash);
+            ExecutionResult soloHash = ejecutar(PersistedQuerySupport.PERSISTED_QUERY_MARKER, hash);
+
+            assertAll(
+                    () -> assertTrue(registro.getErrors().isEmpty(), mensajes(registro)),
+                    () -> assertTrue(soloHash.getErrors().isEmpty(), mensajes(soloHash)),
+                    () -> assertEquals(registro.<Object>getData(), soloHash.getData()),
+                    () -> assertEquals(1, analisis.get())
+            );
+        }
+
+        @Test
+        @DisplayName("Una consulta enviada sin APQ también queda disponible por su hash")
+        void compartenCache() {
+            ejecutar(PRODUCTOS);
+
+            ExecutionResult soloHash = ejecutar(PersistedQuerySupport.PERSISTED_QUERY_MARKER, DocumentosGraphQL.sha256(PRODUCTOS));
+
+            assertTrue(soloHash.getErrors().isEmpty(), mensajes(soloHash));
+        }
+
+        @Test
+        @DisplayName("Debe rechazar un hash que no corresponde al texto enviado")
+        void hashInvalido() {
+            ExecutionResult resultado = ejecutar(PRODUCTOS, DocumentosGraphQL.sha256("{ productos { id } }"));
+
+            assertAll(
+                    () -> assertEquals("PersistedQueryIdInvalid", mensajes(resultado)),
+                    () -> assertEquals(0, documentos.tamanio())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Complejidad")
+    class Complejidad {
+
+        private String alias(int veces) {
+            return IntStream.range(0, veces)
+                    .mapToObj(i -> "p" + i + ": productos { id }")
+                    .collect(Collectors.joining(" ", "{ ", " }"));
+        }
+
+        @Test
+        @DisplayName("Debe permitir varios listados completos dentro del presupuesto")
+        void dentroDelPresupuesto() {
+            ExecutionResult resultado = ejecutar(alias(5));
+
+            assertTrue(resultado.getErrors().isEmpty(), mensajes(resultado));
+        }
+
+        @Test
+        @DisplayName("Debe rechazar antes de ejecutar una consulta que repite el listado completo")
+        void fueraDelPresupuesto() {
+            ExecutionResult resultado = ejecutar(alias(6));
+
+            assertAll(
+                    () -> assertTrue(mensajes(resultado).contains("maximum query complexity exceeded 1200 > 1000"), mensajes(resultado)),
+                    () -> assertNull(resultado.getData())
+            );
+        }
+
+        @Test
+        @DisplayName("Debe seguir rechazando la consulta cuando su documento sale de la caché")
+        void rechazaDesdeCache() {
+            String consulta = alias(6);
+            ejecutar(consulta);
+
+            ExecutionResult segunda = ejecutar(consulta);
+
+            assertAll(
+                    () -> assertEquals(1, analisis.get()),
+                    () -> assertTrue(mensajes(segunda).contains("maximum query complexity exceeded"), mensajes(segunda))
+            );
+        }
+
+        @Test
+        @DisplayName("El coste de los objetos anidados de una página debe crecer con su limit")
+        void costeSegunLimit() {
+            String pagina = "{ pedidosPagina(limit: %d) { items { usuario { id } detalles { producto { id } } } } }";
+
+            ExecutionResult pequena = ejecutar(pagina.formatted(10));
+            ExecutionResult grande = ejecutar(pagina.formatted(100));
+
+            assertAll(
+                    () -> assertFalse(mensajes(pequena).contains("maximum query complexity exceeded"), mensajes(pequena)),
+                    // pedidosPagina 1 + items (10 + 100 × (usuario 1 + detalles (10 + 10 × producto 1))) = 2111
+                    () -> assertTrue(mensajes(grande).contains("maximum query complexity exceeded 2111 > 1000"), mensajes(grande))
+            );
+        }
+
+        @Test
+        @DisplayName("La introspección de GraphiQL no debe contar ni superar la profundidad")
+        void introspeccion() {
+            ExecutionResult resultado = ejecutar(IntrospectionQuery.INTROSPECTION_QUERY);
+
+            assertTrue(resultado.getErrors().isEmpty(), mensajes(resultado));
+        }
+    }
+}
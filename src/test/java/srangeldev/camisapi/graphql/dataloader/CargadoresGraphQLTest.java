@@ -0,0 +1,214 @@
+package srangeldev.camisapi.graphql.dataloader;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.graphql.data.method.annotation.support.AnnotatedControllerConfigurer;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.graphql.execution.DefaultBatchLoaderRegistry;
+import org.springframework.graphql.execution.DefaultExecutionGraphQlService;
+import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import srangeldev.camisapi.graphql.carrito.controller.CarritoGraphQLController;
+import srangeldev.camisapi.graphql.carrito.mapper.CarritoGraphQLMapper;
+import srangeldev.camisapi.graphql.pedidos.controller.PedidoGraphQLController;
+import srangeldev.camisapi.graphql.pedidos.mapper.PedidoGraphQLMapper;
+import srangeldev.camisapi.graphql.productos.mapper.ProductoGraphQLMapper;
+import srangeldev.camisapi.graphql.users.mapper.UserGraphQLMapper;
+import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
+import srangeldev.camisapi.rest.carrito.service.CarritoService;
+import srangeldev.camisapi.rest.pedidos.dto.DetallePedidoDto;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
+import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
+import srangeldev.camisapi.rest.pedidos.services.PedidoService;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+import srangeldev.camisapi.rest.users.dto.UserResponseDto;
+import srangeldev.camisapi.rest.users.services.UserService;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Ejecuta consultas reales sobre los esquemas y controladores de pedidos y carritos
+ * para comprobar cuántas veces se llega a los servicios de productos y usuarios.
+ */
+@DisplayName("Tests de los DataLoaders de GraphQL")
+class CargadoresGraphQLTest {
+
+    private final PedidoService pedidoService = mock(PedidoService.class);
+    private final CarritoService carritoService = mock(CarritoService.class);
+    private final ProductoService productoService = mock(ProductoService.class);
+    private final UserService userService = mock(UserService.class);
+
+    private AnnotationConfigApplicationContext contexto;
+    private ExecutionGraphQlServiceTester tester;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        contexto = new AnnotationConfigApplicationContext();
+        contexto.registerBean(PedidoService.class, () -> pedidoService);
+        contexto.registerBean(CarritoService.class, () -> carritoService);
+        contexto.registerBean(ProductoService.class, () -> productoService);
+        contexto.registerBean(UserService.class, () -> userService);
+        contexto.registerBean(BatchLoaderRegistry.class, () -> new DefaultBatchLoaderRegistry());
+        contexto.register(PedidoGraphQLController.class, CarritoGraphQLController.class, PedidoGraphQLMapper.class,
+                CarritoGraphQLMapper.class, ProductoGraphQLMapper.class, UserGraphQLMapper.class, CargadoresGraphQL.class);
+        contexto.refresh();
+
+        AnnotatedControllerConfigurer configurer = new AnnotatedControllerConfigurer();
+        configurer.setApplicationContext(contexto);
+        configurer.afterPropertiesSet();
+
+        GraphQlSource source = GraphQlSource.schemaResourceBuilder()
+                .schemaResources(
+                        new ClassPathResource("graphql/carrito.graphqls"),
+                        new ClassPathResource("graphql/pedidos.graphqls"),
+                        new ClassPathResource("graphql/productos.graphqls"),
+                        new ClassPathResource("graphql/usuarios.graphqls"))
+                .configureRuntimeWiring(configurer)
+                .build();
+        DefaultExecutionGraphQlService servicio = new DefaultExecutionGraphQlService(source);
+        servicio.addDataLoaderRegistrar(contexto.getBean(BatchLoaderRegistry.class));
+        tester = ExecutionGraphQlServiceTester.create(servicio);
+
+        when(productoService.obtenerPorIds(anyCollection())).thenAnswer(invocacion -> {
+            Collection<String> ids = invocacion.getArgument(0);
+            return ids.stream().filter(id -> !id.equals("borrado")).map(CargadoresGraphQLTest::producto).toList();
+        });
+        when(userService.findAllByIds(anyCollection())).thenAnswer(invocacion -> {
+            Collection<Long> ids = invocacion.getArgument(0);
+            return ids.stream().map(CargadoresGraphQLTest::usuario).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        contexto.close();
+    }
+
+    private static ProductoResponseDTO producto(String id) {
+        return ProductoResponseDTO.builder()
+                .id(id).nombre("Camiseta " + id).equipo("Real Madrid").talla("M")
+                .precio(80.0).estado(EstadoProducto.DISPONIBLE).build();
+    }
+
+    private static UserResponseDto usuario(Long id) {
+        return UserResponseDto.builder().id(id).nombre("Usuario " + id).username("usuario" + id).build();
+    }
+
+    private static PedidoResponseDto pedido(long id, long userId, String... productos) {
+        return PedidoResponseDto.builder()
+                .id(id)
+                .userId(userId)
+                .estado(EstadoPedido.PENDIENTE_PAGO)
+                .createdAt(LocalDateTime.now())
+                .total(80.0 * productos.length)
+                .detalles(Arrays.stream(productos)
+                        .map(p -> DetallePedidoDto.builder().productoId(p).nombre("Camiseta " + p)
+                                .talla("M").equipo("Real Madrid").precioPagado(80.0).build())
+                        .toList())
+                .build();
+    }
+
+    private static CarritoResponseDto carrito(long id, long userId, String... productos) {
+        return CarritoResponseDto.builder()
+                .id(id)
+                .userId(userId)
+                .productosIds(List.of(productos))
+                .totalProductos(productos.length)
+                .creadoEn(LocalDateTime.now())
+                .modificadoEn(LocalDateTime.now())
+                .build();
+    }
+
+    @Nested
+    @DisplayName("Pedidos")
+    class Pedidos {
+
+        @Test
+        @DisplayName("Debe cargar todos los productos de los detalles con una sola consulta")
+        void productosEnLote() {
+            when(pedidoService.listarPedidos()).thenReturn(List.of(
+                    pedido(1, 1, "a", "b"),
+                    pedido(2, 2, "b", "c"),
+                    pedido(3, 1, "a", "borrado")));
+
+            List<String> nombres = tester.document("{ pedidos { id detalles { productoId producto { nombre } } } }")
+                    .execute()
+                    .path("pedidos[*].detalles[*].producto.nombre").entityList(String.class).get();
+
+            assertEquals(List.of("Camiseta a", "Camiseta b", "Camiseta b", "Camiseta c", "Camiseta a"), nombres);
+            verify(productoService, times(1)).obtenerPorIds(Set.of("a", "b", "c", "borrado"));
+            verifyNoInteractions(userService);
+        }
+
+        @Test
+        @DisplayName("Debe cargar los usuarios de todos los pedidos con una sola consulta")
+        void usuariosEnLote() {
+            when(pedidoService.listarPedidos()).thenReturn(List.of(
+                    pedido(1, 1, "a"), pedido(2, 2, "a"), pedido(3, 1, "a")));
+
+            tester.document("{ pedidos { usuarioId usuario { username } } }")
+                    .execute()
+                    .path("pedidos[*].usuario.username").entityList(String.class)
+                    .containsExactly("usuario1", "usuario2", "usuario1");
+
+            verify(userService, times(1)).findAllByIds(Set.of(1L, 2L));
+            verifyNoInteractions(productoService);
+        }
+
+        @Test
+        @DisplayName("Un producto eliminado debe resolverse como null sin romper la respuesta")
+        void productoEliminado() {
+            when(pedidoService.listarPedidos()).thenReturn(List.of(pedido(1, 1, "borrado")));
+
+            tester.document("{ pedidos { detalles { nombre producto { id } } } }")
+                    .execute()
+                    .path("pedidos[0].detalles[0].nombre").entity(String.class).isEqualTo("Camiseta borrado")
+                    .path("pedidos[0].detalles[0].producto").valueIsNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Carritos")
+    class Carritos {
+
+        @Test
+        @DisplayName("Debe resolver los productos de varios carritos con una sola consulta y en su orden")
+        void itemsEnLote() {
+            when(carritoService.getAll()).thenReturn(List.of(carrito(1, 1, "c", "a"), carrito(2, 2, "a", "b")));
+
+            tester.document("{ carritos { itemIds items { id } } }")
+                    .execute()
+                    .path("carritos[0].items[*].id").entityList(String.class).containsExactly("c", "a")
+                    .path("carritos[1].items[*].id").entityList(String.class).containsExactly("a", "b");
+
+            verify(productoService, times(1)).obtenerPorIds(Set.of("a", "b", "c"));
+        }
+
+        @Test
+        @DisplayName("Debe cargar los dueños de todos los carritos con una sola consulta")
+        void usuariosEnLote() {
+            when(carritoService.getAll()).thenReturn(List.of(carrito(1, 1, "a"), carrito(2, 2, "a"), carrito(3, 1)));
+
+            tester.document("{ carritos { usuario { id } } }")
+                    .execute()
+                    .path("carritos[*].usuario.id").entityList(String.class).containsExactly("1", "2", "1");
+
+            verify(userService, times(1)).findAllByIds(Set.of(1L, 2L));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package srangeldev.camisapi.mongo;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.users.models.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class GestorIndicesTest {
+
+    private static final Document PLAN_IXSCAN = new Document("queryPlanner", new Document("winningPlan",
+            new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN").append("indexName", "talla"))));
+    private static final Document PLAN_COLLSCAN = new Document("queryPlanner", new Document("winningPlan",
+            new Document("stage", "COLLSCAN")));
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Mock
+    private MongoCollection<Document> coleccion;
+
+    private FindIterable<Document> find;
+    private IndicesProperties properties;
+    private GestorIndices gestor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        find = mock(FindIterable.class, RETURNS_SELF);
+        properties = new IndicesProperties();
+        when(mongoTemplate.getCollectionName(Producto.class)).thenReturn("productos");
+        when(mongoTemplate.getCollectionName(User.class)).thenReturn("users");
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOperations);
+        when(indexOperations.createIndex(any(Index.class))).thenReturn("indice");
+        when(mongoTemplate.getCollection(anyString())).thenReturn(coleccion);
+        when(coleccion.find(any(Bson.class))).thenReturn(find);
+        gestor = new GestorIndices(mongoTemplate, properties);
+    }
+
+    @Nested
+    @DisplayName("Arranque")
+    class Arranque {
+
+        @Test
+        @DisplayName("Debe crear todos los índices declarados y verificar cada consulta")
+        void creaYVerifica() {
+            when(find.explain()).thenReturn(PLAN_IXSCAN);
+
+            gestor.run(null);
+
+            InformeIndices informe = gestor.getInforme();
+            assertAll(
+                    () -> assertTrue(informe.isCorrecto()),
+                    () -> assertEquals(gestor.declaraciones().size(), informe.getIndices().size()),
+                    () -> assertEquals(gestor.consultas().size(), informe.getPlanes().size()),
+                    () -> assertEquals(List.of("FETCH", "IXSCAN"), informe.getPlanes().get("ProductoRepository.findByTalla"))
+            );
+            verify(indexOperations, times(gestor.declaraciones().size())).createIndex(any(Index.class));
+        }
+
+        @Test
+        @DisplayName("Debe consultar con la colación del índice las búsquedas IgnoreCase")
+        void colacionEnBusquedasIgnoreCase() {
+            when(find.explain()).thenReturn(PLAN_IXSCAN);
+
+            gestor.run(null);
+
+            verify(find, times(2)).collation(argThat(c -> "es".equals(c.getLocale()) && c.getStrength().getIntRepresentation() == 1));
+        }
+
+        @Test
+        @DisplayName("En modo estricto debe fallar si alguna consulta hace COLLSCAN")
+        void estrictoFallaConCollscan() {
+            properties.setEstricto(true);
+            when(find.explain()).thenReturn(PLAN_IXSCAN, PLAN_COLLSCAN, PLAN_IXSCAN);
+
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> gestor.run(null));
+
+            assertAll(
+                    () -> assertTrue(error.getMessage().contains("ProductoRepository.findByEquipoIgnoreCase")),
+                    () -> assertEquals(List.of("ProductoRepository.findByEquipoIgnoreCase"), gestor.getInforme().getColscans())
+            );
+        }
+
+        @Test
+        @DisplayName("Fuera del modo estricto solo debe avisar de los COLLSCAN")
+        void noEstrictoSoloAvisa() {
+            when(find.explain()).thenReturn(PLAN_COLLSCAN);
+
+            assertDoesNotThrow(() -> gestor.run(null));
+            assertFalse(gestor.getInforme().isCorrecto());
+        }
+
+        @Test
+        @DisplayName("En modo estricto debe fallar si un índice no se puede crear")
+        void estrictoFallaSiNoCreaIndice() {
+            properties.setEstricto(true);
+            when(indexOperations.createIndex(any(Index.class)))
+                    .thenReturn("indice")
+                    .thenThrow(new IllegalStateException("E11000 duplicate key"));
+            when(find.explain()).thenReturn(PLAN_IXSCAN);
+
+            assertThrows(IllegalStateException.class, () -> gestor.run(null));
+            assertFalse(gestor.getInforme().getErrores().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Debe volver a crear un índice que existe con el mismo nombre y otra colación")
+        void recreaIndiceConOtrasOpciones() {
+            properties.setEstricto(true);
+            MongoCommandException conflicto = new MongoCommandException(
+                    new BsonDocument("code", new BsonInt32(85)).append("errmsg", new BsonString("IndexOptionsConflict")),
+                    new ServerAddress());
+            when(indexOperations.createIndex(any(Index.class)))
+                    .thenThrow(new UncategorizedMongoDbException("Index already exists with different options", conflicto))
+                    .thenReturn("nombre_ci");
+            when(find.explain()).thenReturn(PLAN_IXSCAN);
+
+            assertDoesNotThrow(() -> gestor.run(null));
+
+            assertAll(
+                    () -> verify(indexOperations).dropIndex("nombre_ci"),
+                    () -> verify(indexOperations, times(gestor.declaraciones().size() + 1)).createIndex(any(Index.class)),
+                    () -> assertTrue(gestor.getInforme().isCorrecto())
+            );
+        }
+
+        @Test
+        @DisplayName("No debe borrar índices por otros errores de creación")
+        void noBorraPorOtrosErrores() {
+            when(indexOperations.createIndex(any(Index.class))).thenThrow(new IllegalStateException("E11000 duplicate key"));
+            when(find.explain()).thenReturn(PLAN_IXSCAN);
+
+            gestor.run(null);
+
+            verify(indexOperations, never()).dropIndex(anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Lectura de planes")
+    class LecturaDePlanes {
+
+        @Test
+        @DisplayName("Debe recorrer las etapas anidadas del plan ganador")
+        void etapasAnidadas() {
+            Document explicacion = new Document("queryPlanner", new Document("winningPlan",
+                    new Document("stage", "LIMIT").append("inputStage", new Document("stage", "OR")
+                            .append("inputStages", List.of(new Document("stage", "IXSCAN"), new Document("stage", "COLLSCAN"))))));
+
+            assertEquals(List.of("LIMIT", "OR", "IXSCAN", "COLLSCAN"), GestorIndices.etapas(explicacion));
+        }
+
+        @Test
+        @DisplayName("Debe leer el plan del motor SBE (winningPlan.queryPlan)")
+        void etapasSbe() {
+            Document explicacion = new Document("queryPlanner", new Document("winningPlan",
+                    new Document("queryPlan", new Document("stage", "FETCH").append("inputStage", new Document("stage", "IXSCAN")))
+                            .append("slotBasedPlan", new Document("stages", "[1] scan ..."))));
+
+            assertEquals(List.of("FETCH", "IXSCAN"), GestorIndices.etapas(explicacion));
+        }
+    }
+}
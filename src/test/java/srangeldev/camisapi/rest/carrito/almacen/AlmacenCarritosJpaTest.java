@@ -0,0 +1,151 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests del almacén de carritos en Postgres")
+class AlmacenCarritosJpaTest {
+
+    @Mock
+    private CarritoRepository carritoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlmacenCarritosJpa almacen;
+    private Carrito carrito;
+
+    @BeforeEach
+    void setUp() {
+        almacen = new AlmacenCarritosJpa(carritoRepository, new CarritoMapper(), transactionManager);
+        carrito = Carrito.builder().id(1L).userId(101L).productosIds(new ArrayList<>(List.of("p1"))).version(3L).build();
+    }
+
+    @Test
+    @DisplayName("Añadir debe guardar solo los productos que no estaban")
+    void agregar() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito)).thenReturn(carrito);
+
+        Carrito resultado = almacen.agregar(1L, List.of("p1", "p2"));
+
+        assertEquals(List.of("p1", "p2"), resultado.getProductosIds());
+        verify(carritoRepository).saveAndFlush(carrito);
+    }
+
+    @Test
+    @DisplayName("Quitar y reemplazar deben aplicar la acción del mapper")
+    void quitarYReemplazar() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito)).thenReturn(carrito);
+
+        assertAll(
+                () -> assertEquals(List.of(), almacen.quitar(1L, List.of("p1")).getProductosIds()),
+                () -> assertEquals(List.of("p3", "p4"), almacen.reemplazar(1L, List.of("p3", "p4"), null).getProductosIds())
+        );
+    }
+
+    @Test
+    @DisplayName("El lote debe quitar y después añadir sobre el mismo carrito")
+    void modificar() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito)).thenReturn(carrito);
+
+        Carrito resultado = almacen.modificar(1L, List.of("p2", "p1"), List.of("p1"));
+
+        assertEquals(List.of("p2", "p1"), resultado.getProductosIds());
+        verify(carritoRepository).saveAndFlush(carrito);
+    }
+
+    @Test
+    @DisplayName("Modificar un carrito que no existe debe lanzar CarritoNotFound")
+    void noExiste() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(CarritoNotFound.class, () -> almacen.agregar(1L, List.of("p1")));
+        verify(carritoRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Eliminar debe devolver el carrito borrado")
+    void eliminar() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+
+        assertEquals(Optional.of(carrito), almacen.eliminar(1L, 3L));
+        verify(carritoRepository).delete(carrito);
+    }
+
+    @Test
+    @DisplayName("Si otra escritura gana la carrera, añadir debe repetirse sobre el carrito recién leído")
+    void agregarReintenta() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Carrito.class, 1L))
+                .thenReturn(carrito);
+
+        Carrito resultado = almacen.agregar(1L, List.of("p2"));
+
+        assertEquals(List.of("p1", "p2"), resultado.getProductosIds());
+        verify(carritoRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Tras INTENTOS carreras perdidas, añadir debe propagar el conflicto")
+    void agregarAgotaReintentos() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Carrito.class, 1L));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> almacen.agregar(1L, List.of("p2")));
+        verify(carritoRepository, times(AlmacenCarritosJpa.INTENTOS)).saveAndFlush(carrito);
+    }
+
+    @Test
+    @DisplayName("Reemplazar con una versión que ya no es la actual debe fallar sin guardar")
+    void reemplazarVersionAntigua() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+
+        assertThrows(CarritoPreconditionFailed.class, () -> almacen.reemplazar(1L, List.of("p2"), 2L));
+        verify(carritoRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Reemplazar con versión esperada no debe reintentar si pierde la carrera")
+    void reemplazarCarreraPerdida() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+        when(carritoRepository.saveAndFlush(carrito))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Carrito.class, 1L));
+
+        assertThrows(CarritoPreconditionFailed.class, () -> almacen.reemplazar(1L, List.of("p2"), 3L));
+        verify(carritoRepository, times(1)).saveAndFlush(carrito);
+    }
+
+    @Test
+    @DisplayName("Eliminar con una versión que ya no es la actual debe fallar sin borrar")
+    void eliminarVersionAntigua() {
+        when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+
+        assertThrows(CarritoPreconditionFailed.class, () -> almacen.eliminar(1L, 2L));
+        verify(carritoRepository, never()).delete(any());
+    }
+}
@@ -0,0 +1,317 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Almacén de carritos contra un Redis real (embebido) y JPA sobre H2: los scripts Lua se ejecutan de
+ * verdad, no se simulan sus respuestas.
+ *
+ * ./gradlew test -PintegrationTest --tests '*AlmacenCarritosRedisIT*'
+ */
+@Tag("integration")
+@DataJpaTest
+@ContextConfiguration(classes = AlmacenCarritosRedisIT.Jpa.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Tests de integración del almacén de carritos en Redis")
+class AlmacenCarritosRedisIT {
+
+    private static final String PREFIJO = "camisapi:carrito:";
+
+    private static RedisServer servidor;
+    private static LettuceConnectionFactory conexiones;
+    private static StringRedisTemplate redis;
+
+    @Autowired
+    private CarritoRepository carritoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private AlmacenCarritosRedis almacen;
+
+    /**
+     * Solo el repositorio de carritos: la aplicación completa pediría también Mongo
+     */
+    @Configuration
+    @EntityScan(basePackageClasses = Carrito.class)
+    @EnableJpaRepositories(basePackageClasses = CarritoRepository.class)
+    static class Jpa {
+    }
+
+    @BeforeAll
+    static void arrancarRedis() throws IOException {
+        int puerto;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            puerto = socket.getLocalPort();
+        }
+        servidor = new RedisServer(puerto);
+        servidor.start();
+        conexiones = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", puerto));
+        conexiones.afterPropertiesSet();
+        conexiones.start();
+        redis = new StringRedisTemplate(conexiones);
+    }
+
+    @AfterAll
+    static void pararRedis() throws IOException {
+        if (conexiones != null) {
+            conexiones.destroy();
+        }
+        if (servidor != null) {
+            servidor.stop();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.execute(conexion -> {
+            conexion.serverCommands().flushAll();
+            return null;
+        }, true);
+        carritoRepository.deleteAll();
+        almacen = almacen(new CarritosProperties(), carritoRepository);
+    }
+
+    private AlmacenCarritosRedis almacen(CarritosProperties properties, CarritoRepository repositorio) {
+        return new AlmacenCarritosRedis(redis, repositorio, transactionManager, properties);
+    }
+
+    private Carrito crear(Long userId, String... productos) {
+        return almacen.crear(Carrito.builder().userId(userId).productosIds(List.of(productos)).build());
+    }
+
+    /**
+     * Productos y versión del carrito en Postgres, leídos dentro de una transacción
+     */
+    private Optional<Carrito> enPostgres(Long id) {
+        return new TransactionTemplate(transactionManager).execute(estado -> carritoRepository.findById(id)
+                .map(carrito -> Carrito.builder()
+                        .id(carrito.getId())
+                        .userId(carrito.getUserId())
+                        .productosIds(carrito.getProductosIds())
+                        .version(carrito.getVersion())
+                        .build()));
+    }
+
+    private boolean pendiente(Long id) {
+        return Boolean.TRUE.equals(redis.opsForSet().isMember(PREFIJO + "pendientes", id.toString()));
+    }
+
+    @Nested
+    @DisplayName("Operaciones")
+    class Operaciones {
+
+        @Test
+        @DisplayName("Añadir, quitar y reemplazar deben mantener el orden de inserción sin repetidos")
+        void orden() {
+            Long id = crear(101L, "p1").getId();
+
+            almacen.agregar(id, List.of("p2", "p3", "p1"));
+            almacen.quitar(id, List.of("p2"));
+            almacen.agregar(id, List.of("p2"));
+            Carrito reemplazado = almacen.reemplazar(id, List.of("p4", "p2", "p1"), null);
+            Carrito lote = almacen.modificar(id, List.of("p5", "p1"), List.of("p4"));
+
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2", "p4"), reemplazado.getProductosIds()),
+                    () -> assertEquals(List.of("p1", "p2", "p5"), lote.getProductosIds()),
+                    () -> assertEquals(5L, lote.getVersion()),
+                    () -> assertEquals(lote.getProductosIds(), almacen.obtener(id).orElseThrow().getProductosIds()),
+                    () -> assertTrue(pendiente(id))
+            );
+        }
+
+        @Test
+        @DisplayName("Reemplazar o eliminar con una versión antigua debe dar 412 sin cambiar nada")
+        void versionAntigua() {
+            Long id = crear(101L, "p1").getId();
+            Carrito actual = almacen.agregar(id, List.of("p2"));
+            long antigua = actual.getVersion() - 1;
+
+            assertAll(
+                    () -> assertThrows(CarritoPreconditionFailed.class, () -> almacen.reemplazar(id, List.of("p3"), antigua)),
+                    () -> assertThrows(CarritoPreconditionFailed.class, () -> almacen.eliminar(id, antigua)),
+                    () -> assertEquals(actual.getProductosIds(), almacen.obtener(id).orElseThrow().getProductosIds()),
+                    () -> assertEquals(actual.getVersion(), almacen.obtener(id).orElseThrow().getVersion()),
+                    () -> assertTrue(enPostgres(id).isPresent())
+            );
+        }
+
+        @Test
+        @DisplayName("Eliminar con la versión actual debe borrar las claves, el pendiente y la fila de Postgres")
+        void eliminar() {
+            Long id = crear(101L, "p1").getId();
+            Carrito actual = almacen.agregar(id, List.of("p2"));
+
+            Carrito borrado = almacen.eliminar(id, actual.getVersion()).orElseThrow();
+
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2"), borrado.getProductosIds()),
+                    () -> assertEquals(0L, redis.countExistingKeys(List.of(PREFIJO + id, PREFIJO + id + ":productos",
+                            PREFIJO + "usuario:101"))),
+                    () -> assertFalse(pendiente(id)),
+                    () -> assertTrue(enPostgres(id).isEmpty()),
+                    () -> assertTrue(almacen.obtener(id).isEmpty()),
+                    () -> assertTrue(almacen.eliminar(id, null).isEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Modificar el carrito debe renovar la clave del usuario y recrearla si caducó")
+        void claveUsuario() {
+            Long id = crear(101L, "p1").getId();
+            redis.delete(PREFIJO + "usuario:101");
+
+            almacen.agregar(id, List.of("p2"));
+
+            Long ttl = redis.getExpire(PREFIJO + "usuario:101");
+            assertAll(
+                    () -> assertEquals(id.toString(), redis.opsForValue().get(PREFIJO + "usuario:101")),
+                    () -> assertTrue(ttl != null && ttl > 0)
+            );
+        }
+
+        @Test
+        @DisplayName("Buscar por usuario sin clave de usuario debe volver a guardarla aunque el carrito siga en Redis")
+        void claveUsuarioConCarritoEnRedis() {
+            Long id = crear(101L, "p1").getId();
+            redis.opsForHash().delete(PREFIJO + id, "usuario");
+            redis.delete(PREFIJO + "usuario:101");
+
+            assertEquals(id, almacen.obtenerPorUsuario(101L).orElseThrow().getId());
+            assertEquals(id.toString(), redis.opsForValue().get(PREFIJO + "usuario:101"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Volcado a Postgres")
+    class Volcado {
+
+        @Test
+        @DisplayName("Debe dejar en Postgres los productos y la versión de Redis")
+        void volcar() {
+            Long id = crear(101L, "p1").getId();
+            almacen.agregar(id, List.of("p2", "p3"));
+            Carrito actual = almacen.quitar(id, List.of("p1"));
+
+            almacen.volcarPendientes();
+
+            Carrito guardado = enPostgres(id).orElseThrow();
+            assertAll(
+                    () -> assertEquals(List.of("p2", "p3"), guardado.getProductosIds()),
+                    () -> assertEquals(actual.getVersion(), guardado.getVersion()),
+                    () -> assertFalse(pendiente(id)),
+                    () -> assertEquals(0L, redis.opsForSet().size(almacen.claveEnVuelo()))
+            );
+        }
+
+        @Test
+        @DisplayName("Si Postgres falla el lote debe volver a pendientes y volcarse en el siguiente intento")
+        void falloEnPostgres() {
+            Long id = crear(101L, "p1").getId();
+            almacen.agregar(id, List.of("p2"));
+            CarritoRepository caido = mock(CarritoRepository.class, delegatesTo(carritoRepository));
+            doThrow(new DataAccessResourceFailureException("Postgres caído")).when(caido).saveAll(anyIterable());
+            AlmacenCarritosRedis fallido = almacen(new CarritosProperties(), caido);
+
+            fallido.volcarPendientes();
+
+            assertAll(
+                    () -> assertTrue(pendiente(id)),
+                    () -> assertEquals(0L, redis.opsForSet().size(fallido.claveEnVuelo())),
+                    () -> assertEquals(List.of("p1"), enPostgres(id).orElseThrow().getProductosIds())
+            );
+
+            almacen.volcarPendientes();
+
+            assertAll(
+                    () -> assertFalse(pendiente(id)),
+                    () -> assertEquals(List.of("p1", "p2"), enPostgres(id).orElseThrow().getProductosIds())
+            );
+        }
+
+        @Test
+        @DisplayName("Al arrancar debe devolver a pendientes lo que otra réplica dejó en vuelo")
+        void recuperarEnVuelo() {
+            Long id = crear(101L, "p1").getId();
+            almacen.agregar(id, List.of("p2"));
+            String otraReplica = PREFIJO + "volcando:otra";
+            redis.opsForSet().remove(PREFIJO + "pendientes", id.toString());
+            redis.opsForSet().add(otraReplica, id.toString());
+            redis.opsForSet().add(PREFIJO + "volcando", otraReplica);
+
+            almacen.recuperarEnVuelo();
+
+            assertAll(
+                    () -> assertTrue(pendiente(id)),
+                    () -> assertFalse(redis.hasKey(otraReplica)),
+                    () -> assertFalse(Boolean.TRUE.equals(redis.opsForSet().isMember(PREFIJO + "volcando", otraReplica)))
+            );
+
+            almacen.volcarPendientes();
+
+            assertEquals(List.of("p1", "p2"), enPostgres(id).orElseThrow().getProductosIds());
+        }
+
+        @Test
+        @DisplayName("Tras caducar en Redis debe reconstruirse desde Postgres sin repetir versión")
+        void reconstruirTrasCaducar() throws InterruptedException {
+            CarritosProperties properties = new CarritosProperties();
+            properties.setTtl(Duration.ofSeconds(1));
+            almacen = almacen(properties, carritoRepository);
+            Long id = crear(101L, "p1").getId();
+            Carrito volcado = almacen.agregar(id, List.of("p2"));
+            almacen.volcarPendientes();
+
+            long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (redis.hasKey(PREFIJO + id) && System.nanoTime() < limite) {
+                Thread.sleep(100);
+            }
+            assertFalse(redis.hasKey(PREFIJO + id));
+
+            Carrito reconstruido = almacen.agregar(id, List.of("p3"));
+
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2", "p3"), reconstruido.getProductosIds()),
+                    () -> assertEquals(volcado.getVersion() + 1, reconstruido.getVersion()),
+                    () -> assertEquals(id, almacen.obtenerPorUsuario(101L).orElseThrow().getId())
+            );
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package srangeldev.camisapi.rest.carrito.almacen;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoPreconditionFailed;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("Tests del almacén de carritos en Redis")
+class AlmacenCarritosRedisTest {
+
+    private static final String CREADO = "2026-10-01T10:00";
+    private static final String MODIFICADO = "2026-10-02T12:30";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private CarritoRepository carritoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CarritosProperties properties;
+    private AlmacenCarritosRedis almacen;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CarritosProperties();
+        properties.setLoteVolcado(2);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        almacen = new AlmacenCarritosRedis(redisTemplate, carritoRepository, transactionManager, properties);
+    }
+
+    /**
+     * Respuesta del script MODIFICAR: userId, creadoEn, modificadoEn, versión y productos
+     */
+    private static List<String> estado(String version, String... productos) {
+        List<String> estado = new ArrayList<>(List.of("101", CREADO, MODIFICADO, version));
+        estado.addAll(Arrays.asList(productos));
+        return estado;
+    }
+
+    private void modificarDevuelve(List<?> primero, List<?>... siguientes) {
+        when(redisTemplate.execute(eq(AlmacenCarritosRedis.MODIFICAR), anyList(), any(Object[].class)))
+                .thenReturn(primero, siguientes);
+    }
+
+    private static Carrito enPostgres(String... productos) {
+        return Carrito.builder()
+                .id(1L)
+                .userId(101L)
+                .productosIds(new ArrayList<>(List.of(productos)))
+                .creadoEn(LocalDateTime.parse(CREADO))
+                .modificadoEn(LocalDateTime.parse(CREADO))
+                .build();
+    }
+
+    private Object[] argumentosModificar() {
+        ArgumentCaptor<Object[]> argumentos = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate, atLeastOnce()).execute(eq(AlmacenCarritosRedis.MODIFICAR), anyList(), argumentos.capture());
+        return argumentos.getValue();
+    }
+
+    @Nested
+    @DisplayName("Operaciones")
+    class Operaciones {
+
+        @Test
+        @DisplayName("Un carrito que está en Redis no debe tocar Postgres")
+        void carritoEnRedis() {
+            modificarDevuelve(estado("3", "p1", "p2"));
+
+            Carrito carrito = almacen.obtener(1L).orElseThrow();
+
+            assertAll(
+                    () -> assertEquals(101L, carrito.getUserId()),
+                    () -> assertEquals(List.of("p1", "p2"), carrito.getProductosIds()),
+                    () -> assertEquals(LocalDateTime.parse(MODIFICADO), carrito.getModificadoEn())
+            );
+            verifyNoInteractions(carritoRepository, transactionManager);
+        }
+
+        @Test
+        @DisplayName("Añadir debe ser un único script con la operación, el id y los productos")
+        void agregar() {
+            modificarDevuelve(estado("4", "p1", "p2", "p3"));
+
+            Carrito carrito = almacen.agregar(1L, List.of("p3"));
+
+            Object[] argumentos = argumentosModificar();
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2", "p3"), carrito.getProductosIds()),
+                    () -> assertEquals(AlmacenCarritosRedis.AGREGAR, argumentos[0]),
+                    () -> assertEquals("86400", argumentos[1]),
+                    () -> assertEquals("1", argumentos[3]),
+                    () -> assertEquals("", argumentos[4]),
+                    () -> assertEquals("p3", argumentos[5])
+            );
+            verify(redisTemplate).execute(eq(AlmacenCarritosRedis.MODIFICAR),
+                    eq(List.of("camisapi:carrito:1", "camisapi:carrito:1:productos", "camisapi:carrito:pendientes")),
+                    any(Object[].class));
+            verifyNoInteractions(carritoRepository);
+        }
+
+        @Test
+        @DisplayName("El lote debe ser un único script con cuántos se quitan, los que se quitan y los que se añaden")
+        void modificar() {
+            modificarDevuelve(estado("5", "p2", "p4"));
+
+            Carrito carrito = almacen.modificar(1L, List.of("p4"), List.of("p1", "p3"));
+
+            Object[] argumentos = argumentosModificar();
+            assertAll(
+                    () -> assertEquals(List.of("p2", "p4"), carrito.getProductosIds()),
+                    () -> assertEquals(AlmacenCarritosRedis.MODIFICAR_LOTE, argumentos[0]),
+                    () -> assertEquals(List.of("2", "p1", "p3", "p4"), List.of(argumentos).subList(5, argumentos.length))
+            );
+            verify(redisTemplate, times(1)).execute(eq(AlmacenCarritosRedis.MODIFICAR), anyList(), any(Object[].class));
+        }
+
+        @Test
+        @DisplayName("Si el carrito no está en Redis debe reconstruirlo desde Postgres y repetir la operación")
+        void reconstruirDesdePostgres() {
+            modificarDevuelve(List.of(), estado("1", "p1", "p2"));
+            when(carritoRepository.findById(1L)).thenReturn(Optional.of(enPostgres("p1")));
+
+            Carrito carrito = almacen.agregar(1L, List.of("p2"));
+
+            ArgumentCaptor<Object[]> carga = ArgumentCaptor.forClass(Object[].class);
+            verify(redisTemplate).execute(eq(AlmacenCarritosRedis.CARGAR),
+                    eq(List.of("camisapi:carrito:1", "camisapi:carrito:1:productos", "camisapi:carrito:usuario:101")),
+                    carga.capture());
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2"), carrito.getProductosIds()),
+                    () -> assertEquals(List.of("86400", "101", CREADO, CREADO, "1", "0", "p1"), List.of(carga.getValue())),
+                    () -> verify(redisTemplate, times(2)).execute(eq(AlmacenCarritosRedis.MODIFICAR), anyList(), any(Object[].class))
+            );
+        }
+
+        @Test
+        @DisplayName("Debe lanzar CarritoNotFound si el carrito no está ni en Redis ni en Postgres")
+        void noExiste() {
+            modificarDevuelve(List.of());
+            when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+
+            assertAll(
+                    () -> assertThrows(CarritoNotFound.class, () -> almacen.quitar(1L, List.of("p1"))),
+                    () -> assertTrue(almacen.obtener(1L).isEmpty())
+            );
+            verify(redisTemplate, never()).execute(eq(AlmacenCarritosRedis.CARGAR), anyList(), any(Object[].class));
+        }
+
+        @Test
+        @DisplayName("Debe encontrar el carrito de un usuario por la clave de usuario sin ir a Postgres")
+        void porUsuario() {
+            when(valueOperations.get("camisapi:carrito:usuario:101")).thenReturn("1");
+            modificarDevuelve(estado("0", "p1"));
+
+            assertEquals(List.of("p1"), almacen.obtenerPorUsuario(101L).orElseThrow().getProductosIds());
+            verifyNoInteractions(carritoRepository);
+        }
+
+        @Test
+        @DisplayName("Al eliminar debe comprobar la versión y borrar de Redis en el script y después la fila de Postgres")
+        void eliminar() {
+            modificarDevuelve(estado("2", "p1"));
+
+            assertEquals(List.of("p1"), almacen.eliminar(1L, 2L).orElseThrow().getProductosIds());
+
+            Object[] argumentos = argumentosModificar();
+            InOrder orden = inOrder(redisTemplate, carritoRepository);
+            orden.verify(redisTemplate).execute(eq(AlmacenCarritosRedis.MODIFICAR), anyList(), any(Object[].class));
+            orden.verify(carritoRepository).deleteById(1L);
+            assertAll(
+                    () -> assertEquals(AlmacenCarritosRedis.ELIMINAR, argumentos[0]),
+                    () -> assertEquals("2", argumentos[4])
+            );
+        }
+
+        @Test
+        @DisplayName("Eliminar un carrito que no existe no debe tocar la fila de Postgres")
+        void eliminarNoExiste() {
+            modificarDevuelve(List.of());
+            when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+
+            assertTrue(almacen.eliminar(1L, null).isEmpty());
+            verify(carritoRepository, never()).deleteById(any());
+        }
+
+        @Test
+        @DisplayName("Reemplazar debe enviar la versión esperada y fallar si el script no la acepta")
+        void reemplazarVersionAntigua() {
+            modificarDevuelve(List.of(AlmacenCarritosRedis.PRECONDICION));
+
+            assertThrows(CarritoPreconditionFailed.class, () -> almacen.reemplazar(1L, List.of("p2"), 3L));
+            assertEquals("3", argumentosModificar()[4]);
+            verifyNoInteractions(carritoRepository);
+        }
+
+        @Test
+        @DisplayName("Eliminar con una versión que ya no es la actual no debe borrar nada")
+        void eliminarVersionAntigua() {
+            modificarDevuelve(List.of(AlmacenCarritosRedis.PRECONDICION));
+
+            assertThrows(CarritoPreconditionFailed.class, () -> almacen.eliminar(1L, 3L));
+
+            verify(carritoRepository, never()).deleteById(any());
+            verify(redisTemplate, never()).delete(anyCollection());
+        }
+    }
+
+    @Nested
+    @DisplayName("Volcado a Postgres")
+    class Volcado {
+
+        @Test
+        @DisplayName("Debe guardar en una transacción el estado de Redis de los carritos pendientes")
+        @SuppressWarnings("unchecked")
+        void volcarLote() {
+            Carrito carrito = enPostgres("viejo");
+            sacaDePendientes("1", "2");
+            when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(
+                    // Lectura: el 2 ya no está en Redis y se ignora
+                    Arrays.asList(List.of(MODIFICADO, "5"), new LinkedHashSet<>(List.of("p1", "p2")),
+                            Arrays.asList(null, null), new LinkedHashSet<>()),
+                    // Confirmación: la versión no ha cambiado
+                    List.of("5"));
+            when(carritoRepository.findAllById(any())).thenReturn(List.of(carrito));
+
+            assertEquals(2, almacen.volcar());
+
+            ArgumentCaptor<Iterable<Long>> ids = ArgumentCaptor.forClass(Iterable.class);
+            verify(carritoRepository).findAllById(ids.capture());
+            assertAll(
+                    () -> assertEquals(List.of(1L), List.copyOf((java.util.Collection<Long>) ids.getValue())),
+                    () -> assertEquals(List.of("p1", "p2"), carrito.getProductosIds()),
+                    () -> assertEquals(LocalDateTime.parse(MODIFICADO), carrito.getModificadoEn())
+            );
+            verify(carritoRepository).saveAll(List.of(carrito));
+            verify(carritoRepository).flush();
+            verify(carritoRepository).igualarVersion(1L, 5L);
+            verify(transactionManager).commit(any());
+            verify(setOperations, never()).add(any(), any(String[].class));
+            // Solo sale de en vuelo tras el commit
+            InOrder orden = inOrder(transactionManager, setOperations);
+            orden.verify(transactionManager).commit(any());
+            orden.verify(setOperations).remove(almacen.claveEnVuelo(), "1", "2");
+        }
+
+        @Test
+        @DisplayName("Un carrito que cambió durante el volcado debe volver a quedar pendiente")
+        @SuppressWarnings("unchecked")
+        void cambioDuranteElVolcado() {
+            sacaDePendientes("1");
+            when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(
+                    Arrays.asList(List.of(MODIFICADO, "5"), new LinkedHashSet<>(List.of("p1"))),
+                    List.of("6"));
+            when(carritoRepository.findAllById(any())).thenReturn(List.of(enPostgres()));
+
+            almacen.volcar();
+
+            verify(setOperations).add("camisapi:carrito:pendientes", "1");
+        }
+
+        @Test
+        @DisplayName("Si Postgres falla los carritos deben volver a pendientes")
+        @SuppressWarnings("unchecked")
+        void falloEnPostgres() {
+            sacaDePendientes("1", "2");
+            when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(
+                    Arrays.asList(List.of(MODIFICADO, "5"), new LinkedHashSet<>(List.of("p1")),
+                            List.of(MODIFICADO, "1"), new LinkedHashSet<>()));
+            when(carritoRepository.findAllById(any())).thenThrow(new IllegalStateException("Postgres caído"));
+
+            assertThrows(IllegalStateException.class, () -> almacen.volcar());
+
+            verify(redisTemplate).execute(AlmacenCarritosRedis.DEVOLVER, List.of("camisapi:carrito:pendientes",
+                    almacen.claveEnVuelo(), "camisapi:carrito:volcando"));
+            verify(setOperations, never()).remove(eq(almacen.claveEnVuelo()), any(Object[].class));
+            verify(transactionManager).rollback(any());
+        }
+
+        @Test
+        @DisplayName("Sin pendientes no debe abrir ninguna transacción")
+        void sinPendientes() {
+            sacaDePendientes();
+
+            assertEquals(0, almacen.volcar());
+            verifyNoInteractions(transactionManager, carritoRepository);
+        }
+
+        @Test
+        @DisplayName("El lote debe sacarse de pendientes al conjunto en vuelo de la réplica")
+        void sacarAEnVuelo() {
+            sacaDePendientes();
+
+            almacen.volcar();
+
+            verify(redisTemplate).execute(AlmacenCarritosRedis.SACAR, List.of("camisapi:carrito:pendientes",
+                    almacen.claveEnVuelo(), "camisapi:carrito:volcando"), "2");
+        }
+
+        @Test
+        @DisplayName("Al arrancar debe devolver a pendientes lo que otras réplicas dejaron en vuelo")
+        void recuperarEnVuelo() {
+            when(setOperations.members("camisapi:carrito:volcando"))
+                    .thenReturn(Set.of("camisapi:carrito:volcando:muerta"));
+
+            almacen.recuperarEnVuelo();
+
+            verify(redisTemplate).execute(AlmacenCarritosRedis.DEVOLVER, List.of("camisapi:carrito:pendientes",
+                    "camisapi:carrito:volcando:muerta", "camisapi:carrito:volcando"));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void sacaDePendientes(String... ids) {
+            when(redisTemplate.execute(eq(AlmacenCarritosRedis.SACAR), anyList(), any(Object[].class)))
+                    .thenReturn((List) List.of(ids));
+        }
+    }
+}
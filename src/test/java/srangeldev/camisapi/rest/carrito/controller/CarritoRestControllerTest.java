@@ -10,15 +10,22 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemsRequestDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
+import srangeldev.camisapi.rest.carrito.idempotencia.IdempotenciaCarritos;
 import srangeldev.camisapi.rest.carrito.service.CarritoServiceImpl;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,6 +38,9 @@ class CarritoRestControllerTest {
     @Mock
     private CarritoServiceImpl carritoService;
 
+    @Mock
+    private IdempotenciaCarritos idempotencia;
+
     @InjectMocks
     private CarritoRestController carritoRestController;
 
@@ -130,17 +140,95 @@ class CarritoRestControllerTest {
         @Test
         @DisplayName("Debe actualizar un carrito correctamente")
         void actualizarCarrito() {
-            when(carritoService.update(1L, carritoUpdateRequest)).thenReturn(carritoResponse);
+            when(carritoService.update(1L, carritoUpdateRequest, null)).thenReturn(carritoResponse);
+
+            ResponseEntity<CarritoResponseDto> response =
+                    carritoRestController.update(1L, null, carritoUpdateRequest);
+
+            assertAll(
+                    () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
+                    () -> assertEquals(carritoResponse, response.getBody())
+            );
+
+            verify(carritoService).update(1L, carritoUpdateRequest, null);
+        }
+
+        @Test
+        @DisplayName("Debe pasar la versión de If-Match y devolver el nuevo ETag")
+        void actualizarCarritoConIfMatch() {
+            carritoResponse.setVersion(5L);
+            when(carritoService.update(1L, carritoUpdateRequest, 4L)).thenReturn(carritoResponse);
 
             ResponseEntity<CarritoResponseDto> response =
-                    carritoRestController.update(1L, carritoUpdateRequest);
+                    carritoRestController.update(1L, "\"4\"", carritoUpdateRequest);
+
+            assertAll(
+                    () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
+                    () -> assertEquals("\"5\"", response.getHeaders().getETag())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("POST/DELETE/PATCH /carritos/{id}/items")
+    class ItemsDelCarrito {
+
+        private void idempotenciaEjecuta() {
+            when(idempotencia.ejecutar(any(), any(), any(), any())).thenAnswer(invocacion ->
+                    invocacion.<Supplier<ResponseEntity<CarritoResponseDto>>>getArgument(3).get());
+        }
+
+        @Test
+        @DisplayName("Debe añadir un producto a través de la idempotencia con la clave recibida")
+        void agregarItem() {
+            idempotenciaEjecuta();
+            CarritoItemRequestDto item = CarritoItemRequestDto.builder().productoId("p1").build();
+            when(carritoService.agregarItem(1L, "p1")).thenReturn(carritoResponse);
+
+            ResponseEntity<CarritoResponseDto> response = carritoRestController.agregarItem(1L, "clave-1", item);
 
             assertAll(
                     () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
                     () -> assertEquals(carritoResponse, response.getBody())
             );
+            verify(idempotencia).ejecutar(eq("clave-1"), eq("POST /api/carritos/1/items"), eq(item), any());
+        }
+
+        @Test
+        @DisplayName("Debe quitar un producto identificando la petición por su ruta")
+        void quitarItem() {
+            idempotenciaEjecuta();
+            when(carritoService.quitarItem(1L, "p1")).thenReturn(carritoResponse);
+
+            ResponseEntity<CarritoResponseDto> response = carritoRestController.quitarItem(1L, "p1", null);
+
+            assertEquals(carritoResponse, response.getBody());
+            verify(idempotencia).ejecutar(isNull(), eq("DELETE /api/carritos/1/items/p1"), isNull(), any());
+        }
+
+        @Test
+        @DisplayName("Debe modificar varios productos en una sola llamada al servicio")
+        void modificarItems() {
+            idempotenciaEjecuta();
+            CarritoItemsRequestDto items = CarritoItemsRequestDto.builder().agregar(List.of("p2")).quitar(List.of("p1")).build();
+            when(carritoService.modificarItems(1L, items)).thenReturn(carritoResponse);
+
+            ResponseEntity<CarritoResponseDto> response = carritoRestController.modificarItems(1L, "clave-2", items);
+
+            assertEquals(carritoResponse, response.getBody());
+            verify(carritoService).modificarItems(1L, items);
+        }
+
+        @Test
+        @DisplayName("Un reintento servido por la idempotencia no debe llegar al servicio")
+        void reintento() {
+            when(idempotencia.ejecutar(any(), any(), any(), any())).thenReturn(ResponseEntity.ok(carritoResponse));
+
+            ResponseEntity<CarritoResponseDto> response = carritoRestController.agregarItem(1L, "clave-1",
+                    CarritoItemRequestDto.builder().productoId("p1").build());
 
-            verify(carritoService).update(1L, carritoUpdateRequest);
+            assertEquals(carritoResponse, response.getBody());
+            verifyNoInteractions(carritoService);
         }
     }
 
@@ -150,16 +238,16 @@ class CarritoRestControllerTest {
         @Test
         @DisplayName("Debe eliminar un carrito correctamente")
         void eliminarCarrito() {
-            when(carritoService.delete(1L)).thenReturn(carritoResponse);
+            when(carritoService.delete(1L, null)).thenReturn(carritoResponse);
 
-            ResponseEntity<CarritoResponseDto> response = carritoRestController.delete(1L);
+            ResponseEntity<CarritoResponseDto> response = carritoRestController.delete(1L, null);
 
             assertAll(
                     () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
                     () -> assertEquals(carritoResponse, response.getBody())
             );
 
-            verify(carritoService).delete(1L);
+            verify(carritoService).delete(1L, null);
         }
     }
 
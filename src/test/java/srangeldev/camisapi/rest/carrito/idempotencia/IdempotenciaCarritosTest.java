@@ -0,0 +1,164 @@
+package srangeldev.camisapi.rest.carrito.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoConflict;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.almacen.CarritosProperties;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests de la idempotencia de las peticiones de carrito")
+class IdempotenciaCarritosTest {
+
+    private static final String CLAVE = "camisapi:carrito:idempotencia:clave-1";
+    private static final String PETICION = "POST /api/carritos/1/items";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final CarritoItemRequestDto item = CarritoItemRequestDto.builder().productoId("p1").build();
+    private final CarritoResponseDto carrito = CarritoResponseDto.builder()
+            .id(1L)
+            .userId(101L)
+            .productosIds(List.of("p1"))
+            .totalProductos(1)
+            .creadoEn(LocalDateTime.of(2026, 10, 1, 10, 0))
+            .modificadoEn(LocalDateTime.of(2026, 10, 2, 12, 30))
+            .build();
+
+    private IdempotenciaCarritos idempotencia;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        idempotencia = new IdempotenciaCarritos(redisTemplate, objectMapper, new CarritosProperties());
+        ejecuciones = new AtomicInteger();
+    }
+
+    private Supplier<ResponseEntity<CarritoResponseDto>> operacion() {
+        return () -> {
+            ejecuciones.incrementAndGet();
+            return ResponseEntity.ok(carrito);
+        };
+    }
+
+    /**
+     * Ejecuta la petición con Redis vacío y devuelve lo que quedó guardado
+     */
+    private String primeraPeticion() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(CLAVE), anyString(), eq(IdempotenciaCarritos.EN_CURSO))).thenReturn(true);
+        idempotencia.ejecutar("clave-1", PETICION, item, operacion());
+        ArgumentCaptor<String> guardada = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(eq(CLAVE), guardada.capture(), eq(Duration.ofHours(24)));
+        return guardada.getValue();
+    }
+
+    @Test
+    @DisplayName("Sin Idempotency-Key debe ejecutar la operación sin usar Redis")
+    void sinClave() {
+        ResponseEntity<CarritoResponseDto> respuesta = idempotencia.ejecutar(null, PETICION, item, operacion());
+
+        assertEquals(carrito, respuesta.getBody());
+        assertEquals(1, ejecuciones.get());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("La primera petición debe reservar la clave, ejecutarse y guardar su respuesta")
+    void primeraVez() {
+        String guardada = primeraPeticion();
+
+        assertAll(
+                () -> assertEquals(1, ejecuciones.get()),
+                () -> assertTrue(guardada.contains("\"estado\":200")),
+                () -> assertTrue(guardada.contains("\"productosIds\":[\"p1\"]"))
+        );
+    }
+
+    @Test
+    @DisplayName("Un reintento con la misma clave debe recibir la respuesta guardada sin ejecutar nada")
+    void reintento() {
+        String guardada = primeraPeticion();
+        when(valueOperations.setIfAbsent(eq(CLAVE), anyString(), eq(IdempotenciaCarritos.EN_CURSO))).thenReturn(false);
+        when(valueOperations.get(CLAVE)).thenReturn(guardada);
+
+        ResponseEntity<CarritoResponseDto> respuesta = idempotencia.ejecutar("clave-1", PETICION, item, operacion());
+
+        assertAll(
+                () -> assertEquals(1, ejecuciones.get()),
+                () -> assertEquals(HttpStatus.OK, respuesta.getStatusCode()),
+                () -> assertEquals(carrito, respuesta.getBody()),
+                () -> assertEquals("true", respuesta.getHeaders().getFirst(IdempotenciaCarritos.CABECERA_REPETIDA))
+        );
+    }
+
+    @Test
+    @DisplayName("Reutilizar la clave con otra petición debe ser un conflicto")
+    void otraPeticion() {
+        String guardada = primeraPeticion();
+        when(valueOperations.setIfAbsent(eq(CLAVE), anyString(), eq(IdempotenciaCarritos.EN_CURSO))).thenReturn(false);
+        when(valueOperations.get(CLAVE)).thenReturn(guardada);
+        CarritoItemRequestDto otro = CarritoItemRequestDto.builder().productoId("p2").build();
+
+        assertThrows(CarritoConflict.class, () -> idempotencia.ejecutar("clave-1", PETICION, otro, operacion()));
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Repetir la petición mientras la primera está en curso debe ser un conflicto")
+    void enCurso() throws Exception {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        ArgumentCaptor<String> reserva = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.setIfAbsent(eq(CLAVE), reserva.capture(), eq(IdempotenciaCarritos.EN_CURSO)))
+                .thenAnswer(invocacion -> {
+                    when(valueOperations.get(CLAVE)).thenReturn(reserva.getValue());
+                    return false;
+                });
+
+        assertThrows(CarritoConflict.class, () -> idempotencia.ejecutar("clave-1", PETICION, item, operacion()));
+        assertEquals(0, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Si la operación falla debe liberar la clave para que el reintento se ejecute")
+    void fallo() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(CLAVE), anyString(), any(Duration.class))).thenReturn(true);
+
+        assertThrows(CarritoNotFound.class, () -> idempotencia.ejecutar("clave-1", PETICION, item, () -> {
+            throw new CarritoNotFound(1L);
+        }));
+
+        verify(redisTemplate).delete(CLAVE);
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+}
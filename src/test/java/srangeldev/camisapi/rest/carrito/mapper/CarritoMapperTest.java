@@ -12,6 +12,7 @@ import srangeldev.camisapi.rest.carrito.models.Carrito;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -210,6 +211,27 @@ class CarritoMapperTest {
             );
         }
 
+        @Test
+        @DisplayName("AGREGAR no debe repetir productos y REEMPLAZAR debe conservar la posición de los que siguen")
+        void debeMantenerOrdenSinRepetidos() {
+            Carrito conProductos = Carrito.builder().id(1L).userId(101L).productosIds(List.of("p1", "p2", "p3")).build();
+
+            carritoMapper.updateFromDto(conProductos, CarritoUpdateRequestDto.builder()
+                    .accion("AGREGAR").productosIds(List.of("p2", "p4", "p4")).build());
+            List<String> trasAgregar = conProductos.getProductosIds();
+            carritoMapper.updateFromDto(conProductos, CarritoUpdateRequestDto.builder()
+                    .accion("QUITAR").productosIds(List.of("p1")).build());
+            carritoMapper.updateFromDto(conProductos, CarritoUpdateRequestDto.builder()
+                    .accion("REEMPLAZAR").productosIds(List.of("p5", "p4", "p2")).build());
+
+            assertAll(
+                    () -> assertEquals(List.of("p1", "p2", "p3", "p4"), trasAgregar),
+                    () -> assertEquals(List.of("p2", "p4", "p5"), conProductos.getProductosIds()),
+                    () -> assertTrue(conProductos.contiene("p5")),
+                    () -> assertFalse(conProductos.contiene("p3"))
+            );
+        }
+
         @Test
         @DisplayName("Debe retornar entidad original cuando carrito es null")
         void debeRetornarOriginalCuandoCarritoEsNull() {
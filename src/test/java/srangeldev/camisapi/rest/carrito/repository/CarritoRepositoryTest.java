@@ -0,0 +1,161 @@
+package srangeldev.camisapi.rest.carrito.repository;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import srangeldev.camisapi.rest.carrito.models.Carrito;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sentencias que Hibernate lanza sobre carrito_productos al cambiar un carrito (H2)
+ */
+@DataJpaTest
+@ContextConfiguration(classes = CarritoRepositoryTest.Jpa.class)
+@DisplayName("Tests de persistencia de los productos del carrito")
+class CarritoRepositoryTest {
+
+    private static final List<String> SENTENCIAS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private CarritoRepository carritoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long id;
+
+    /**
+     * Solo el repositorio de carritos, con las sentencias SQL capturadas
+     */
+    @Configuration
+    @EntityScan(basePackageClasses = Carrito.class)
+    @EnableJpaRepositories(basePackageClasses = CarritoRepository.class)
+    static class Jpa {
+
+        @Bean
+        HibernatePropertiesCustomizer capturarSentencias() {
+            StatementInspector inspector = sql -> {
+                SENTENCIAS.add(sql.toLowerCase(Locale.ROOT));
+                return sql;
+            };
+            return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        id = entityManager.persistAndFlush(Carrito.builder()
+                .userId(101L)
+                .productosIds(List.of("p1", "p2", "p3"))
+                .build()).getId();
+        entityManager.clear();
+        SENTENCIAS.clear();
+    }
+
+    private Carrito cargado() {
+        return carritoRepository.findById(id).orElseThrow();
+    }
+
+    /**
+     * Vuelca los cambios y devuelve las sentencias lanzadas sobre carrito_productos
+     */
+    private List<String> volcarProductos() {
+        SENTENCIAS.clear();
+        entityManager.flush();
+        entityManager.clear();
+        return SENTENCIAS.stream().filter(sql -> sql.contains("carrito_productos")).toList();
+    }
+
+    private static long contar(List<String> sentencias, String inicio) {
+        return sentencias.stream().filter(sql -> sql.startsWith(inicio)).count();
+    }
+
+    @Nested
+    @DisplayName("Cambios en los productos")
+    class Cambios {
+
+        @Test
+        @DisplayName("Añadir un producto debe ser un único INSERT")
+        void agregar() {
+            cargado().agregar(List.of("p4"));
+
+            List<String> sentencias = volcarProductos();
+
+            assertAll(
+                    () -> assertEquals(1, sentencias.size(), sentencias::toString),
+                    () -> assertEquals(1, contar(sentencias, "insert into carrito_productos")),
+                    () -> assertEquals(List.of("p1", "p2", "p3", "p4"), cargado().getProductosIds())
+            );
+        }
+
+        @Test
+        @DisplayName("Quitar un producto debe ser un único DELETE de su fila")
+        void quitar() {
+            cargado().quitar(List.of("p2"));
+
+            List<String> sentencias = volcarProductos();
+
+            assertAll(
+                    () -> assertEquals(1, sentencias.size(), sentencias::toString),
+                    () -> assertEquals(1, contar(sentencias, "delete from carrito_productos")),
+                    () -> assertTrue(sentencias.get(0).contains("producto_id"), sentencias::toString),
+                    () -> assertEquals(List.of("p1", "p3"), cargado().getProductosIds())
+            );
+        }
+
+        @Test
+        @DisplayName("Reemplazar debe tocar solo los productos que salen y los que entran")
+        void reemplazar() {
+            cargado().setProductosIds(List.of("p4", "p3", "p1"));
+
+            List<String> sentencias = volcarProductos();
+
+            assertAll(
+                    () -> assertEquals(2, sentencias.size(), sentencias::toString),
+                    () -> assertEquals(1, contar(sentencias, "delete from carrito_productos")),
+                    () -> assertEquals(1, contar(sentencias, "insert into carrito_productos")),
+                    () -> assertEquals(List.of("p1", "p3", "p4"), cargado().getProductosIds())
+            );
+        }
+
+        @Test
+        @DisplayName("Vaciar debe ser un único DELETE por carrito")
+        void vaciar() {
+            cargado().vaciar();
+
+            List<String> sentencias = volcarProductos();
+
+            assertAll(
+                    () -> assertEquals(1, sentencias.size(), sentencias::toString),
+                    () -> assertEquals(1, contar(sentencias, "delete from carrito_productos")),
+                    () -> assertFalse(sentencias.get(0).contains("producto_id"), sentencias::toString),
+                    () -> assertTrue(cargado().getProductosIds().isEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Un producto que ya está no debe escribir nada en carrito_productos")
+        void agregarRepetido() {
+            cargado().agregar(List.of("p2"));
+
+            assertTrue(volcarProductos().isEmpty());
+        }
+    }
+}
@@ -8,14 +8,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoBadId;
+import srangeldev.camisapi.rest.carrito.Exceptions.CarritoBadRequest;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoException;
 import srangeldev.camisapi.rest.carrito.Exceptions.CarritoNotFound;
+import srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritos;
 import srangeldev.camisapi.rest.carrito.dto.CarritoCreateRequestDto;
+import srangeldev.camisapi.rest.carrito.dto.CarritoItemsRequestDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoResponseDto;
 import srangeldev.camisapi.rest.carrito.dto.CarritoUpdateRequestDto;
 import srangeldev.camisapi.rest.carrito.mapper.CarritoMapper;
 import srangeldev.camisapi.rest.carrito.models.Carrito;
 import srangeldev.camisapi.rest.carrito.repository.CarritoRepository;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -38,6 +43,9 @@ class CarritoServiceImplTest {
     @Mock
     private CarritoMapper carritoMapper;
 
+    @Mock
+    private AlmacenCarritos almacenCarritos;
+
     @InjectMocks
     private CarritoServiceImpl carritoService;
 
@@ -76,6 +84,7 @@ class CarritoServiceImplTest {
         @DisplayName("Debe obtener todos los carritos")
         void obtenerTodos() {
             when(carritoRepository.findAll()).thenReturn(List.of(carrito));
+            when(almacenCarritos.actualizar(List.of(carrito))).thenReturn(List.of(carrito));
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             List<CarritoResponseDto> result = carritoService.getAll();
@@ -90,29 +99,58 @@ class CarritoServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("GET /api/carritos/pagina")
+    class ObtenerPaginaDeCarritos {
+        @Test
+        @DisplayName("Debe pedir limit + 1 carritos con id mayor que el cursor")
+        void obtenerPagina() {
+            Carrito siguiente = Carrito.builder().id(2L).userId(102L).productosIds(new ArrayList<>()).build();
+            when(carritoRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(carrito, siguiente));
+            when(almacenCarritos.actualizar(List.of(carrito, siguiente))).thenReturn(List.of(carrito, siguiente));
+            when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
+
+            CursorPage<CarritoResponseDto> result = carritoService.getPage(null, 1);
+
+            assertAll(
+                    () -> assertEquals(List.of(carritoResponse), result.getItems()),
+                    () -> assertTrue(result.isHasMore()),
+                    () -> assertEquals(1L, CursorPage.decodeLong(result.getNextCursor()))
+            );
+        }
+
+        @Test
+        @DisplayName("Debe lanzar CarritoBadRequest con un cursor inválido")
+        void obtenerPaginaCursorInvalido() {
+            assertThrows(CarritoBadRequest.class, () -> carritoService.getPage("no-es-un-cursor", 10));
+            verifyNoInteractions(carritoRepository);
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/carritos/{id}")
     class ObtenerCarritoPorId {
         @Test
         @DisplayName("Debe obtener un carrito por su ID")
         void obtenerPorId() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             CarritoResponseDto result = carritoService.getById(1L);
 
             assertEquals(carritoResponse, result);
-            verify(carritoRepository).findById(1L);
+            verify(almacenCarritos).obtener(1L);
             verify(carritoMapper).toResponseDto(carrito);
+            verifyNoInteractions(carritoRepository);
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando el carrito no existe")
         void obtenerPorIdNoExiste() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.empty());
 
             assertThrows(CarritoNotFound.class, () -> carritoService.getById(1L));
-            verify(carritoRepository).findById(1L);
+            verify(almacenCarritos).obtener(1L);
         }
     }
 
@@ -122,77 +160,165 @@ class CarritoServiceImplTest {
         @Test
         @DisplayName("Debe crear un nuevo carrito correctamente")
         void crearCarrito() {
-            when(carritoRepository.findByUserId(101L)).thenReturn(Optional.empty());
+            when(almacenCarritos.obtenerPorUsuario(101L)).thenReturn(Optional.empty());
             when(carritoMapper.toEntity(carritoCreateRequest)).thenReturn(carrito);
-            when(carritoRepository.save(carrito)).thenReturn(carrito);
+            when(almacenCarritos.crear(carrito)).thenReturn(carrito);
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             CarritoResponseDto result = carritoService.save(carritoCreateRequest);
 
             assertEquals(carritoResponse, result);
-            verify(carritoRepository).findByUserId(101L);
+            verify(almacenCarritos).obtenerPorUsuario(101L);
             verify(carritoMapper).toEntity(carritoCreateRequest);
-            verify(carritoRepository).save(carrito);
+            verify(almacenCarritos).crear(carrito);
             verify(carritoMapper).toResponseDto(carrito);
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando ya existe carrito para el usuario")
         void crearCarritoYaExiste() {
-            when(carritoRepository.findByUserId(101L)).thenReturn(Optional.of(carrito));
+            when(almacenCarritos.obtenerPorUsuario(101L)).thenReturn(Optional.of(carrito));
 
             assertThrows(CarritoException.class, () -> carritoService.save(carritoCreateRequest));
-            verify(carritoRepository).findByUserId(101L);
+            verify(almacenCarritos, never()).crear(any());
         }
     }
 
     @Nested
     @DisplayName("PUT /api/carritos/{id}")
     class ActualizarCarrito {
+
+        private CarritoUpdateRequestDto cambio(String accion, List<String> productosIds) {
+            return CarritoUpdateRequestDto.builder().accion(accion).productosIds(productosIds).build();
+        }
+
         @Test
-        @DisplayName("Debe actualizar un carrito correctamente")
+        @DisplayName("Debe reemplazar los productos del carrito")
         void actualizarCarrito() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
-            when(carritoRepository.save(any(Carrito.class))).thenReturn(carrito);
+            when(almacenCarritos.reemplazar(1L, carritoUpdateRequest.getProductosIds(), null)).thenReturn(carrito);
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             CarritoResponseDto result = carritoService.update(1L, carritoUpdateRequest);
 
             assertEquals(carritoResponse, result);
-            verify(carritoRepository, times(1)).findById(1L);
-            verify(carritoMapper).updateFromDto(carrito, carritoUpdateRequest);
-            verify(carritoRepository).save(any(Carrito.class));
-            verify(carritoMapper).toResponseDto(carrito);
+            verify(almacenCarritos).reemplazar(1L, carritoUpdateRequest.getProductosIds(), null);
+            verifyNoInteractions(carritoRepository);
+        }
+
+        @Test
+        @DisplayName("Sin acción debe reemplazar, como REEMPLAZAR")
+        void actualizarSinAccion() {
+            when(almacenCarritos.reemplazar(1L, List.of("p1"), null)).thenReturn(carrito);
+
+            carritoService.update(1L, cambio(null, List.of("p1")));
+
+            verify(almacenCarritos).reemplazar(1L, List.of("p1"), null);
+        }
+
+        @Test
+        @DisplayName("Cada acción debe ser una única operación del almacén")
+        void accionesAtomicas() {
+            when(almacenCarritos.agregar(1L, List.of("p1"))).thenReturn(carrito);
+            when(almacenCarritos.quitar(1L, List.of("p2"))).thenReturn(carrito);
+            when(almacenCarritos.reemplazar(1L, List.of(), null)).thenReturn(carrito);
+
+            carritoService.update(1L, cambio("AGREGAR", List.of("p1")));
+            carritoService.update(1L, cambio("QUITAR", List.of("p2")));
+            carritoService.update(1L, cambio("LIMPIAR", null));
+
+            assertAll(
+                    () -> verify(almacenCarritos).agregar(1L, List.of("p1")),
+                    () -> verify(almacenCarritos).quitar(1L, List.of("p2")),
+                    () -> verify(almacenCarritos).reemplazar(1L, List.of(), null),
+                    () -> verify(almacenCarritos, never()).obtener(anyLong())
+            );
+        }
+
+        @Test
+        @DisplayName("Sin productos o con una acción desconocida debe devolver el carrito sin cambiarlo")
+        void sinCambios() {
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
+            when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
+
+            assertAll(
+                    () -> assertEquals(carritoResponse, carritoService.update(1L, cambio("AGREGAR", null))),
+                    () -> assertEquals(carritoResponse, carritoService.update(1L, cambio("OTRA", List.of("p1"))))
+            );
+            verify(almacenCarritos, never()).agregar(anyLong(), any());
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando el carrito no existe")
         void actualizarCarritoNoExiste() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+            when(almacenCarritos.reemplazar(1L, carritoUpdateRequest.getProductosIds(), null)).thenThrow(new CarritoNotFound(1L));
 
             assertThrows(CarritoNotFound.class, () -> carritoService.update(1L, carritoUpdateRequest));
-            verify(carritoRepository, times(1)).findById(1L);
         }
 
         @Test
-        @DisplayName("Debe actualizar carrito sin validaciones adicionales de ID")
-        void testUpdate_SinValidacionesAdicionales() {
-            CarritoUpdateRequestDto dtoActualizar = CarritoUpdateRequestDto.builder()
-                    .productosIds(new ArrayList<>())
-                    .accion("REEMPLAZAR")
-                    .productoId("1")
-                    .build();
+        @DisplayName("La versión esperada debe llegar a reemplazar y limpiar, pero no a añadir")
+        void versionEsperada() {
+            when(almacenCarritos.reemplazar(1L, List.of(), 4L)).thenReturn(carrito);
+            when(almacenCarritos.agregar(1L, List.of("p1"))).thenReturn(carrito);
+
+            carritoService.update(1L, cambio("LIMPIAR", null), 4L);
+            carritoService.update(1L, cambio("AGREGAR", List.of("p1")), 4L);
+
+            assertAll(
+                    () -> verify(almacenCarritos).reemplazar(1L, List.of(), 4L),
+                    () -> verify(almacenCarritos).agregar(1L, List.of("p1"))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("POST/DELETE/PATCH /api/carritos/{id}/items")
+    class ItemsDelCarrito {
+
+        @Test
+        @DisplayName("Añadir y quitar un producto deben ser una sola operación del almacén")
+        void agregarYQuitarItem() {
+            when(almacenCarritos.agregar(1L, List.of("p1"))).thenReturn(carrito);
+            when(almacenCarritos.quitar(1L, List.of("p2"))).thenReturn(carrito);
+            when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
+
+            assertAll(
+                    () -> assertEquals(carritoResponse, carritoService.agregarItem(1L, "p1")),
+                    () -> assertEquals(carritoResponse, carritoService.quitarItem(1L, "p2"))
+            );
+            verifyNoInteractions(carritoRepository);
+        }
+
+        @Test
+        @DisplayName("El lote debe quitar y añadir en una única operación del almacén")
+        void modificarItems() {
+            when(almacenCarritos.modificar(1L, List.of("p3"), List.of("p1", "p2"))).thenReturn(carrito);
+            when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
+
+            CarritoResponseDto result = carritoService.modificarItems(1L, CarritoItemsRequestDto.builder()
+                    .agregar(List.of("p3")).quitar(List.of("p1", "p2")).build());
 
-            when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
-            when(carritoMapper.updateFromDto(carrito, dtoActualizar)).thenReturn(carrito);
-            when(carritoRepository.save(carrito)).thenReturn(carrito);
+            assertEquals(carritoResponse, result);
+            verify(almacenCarritos, never()).agregar(anyLong(), any());
+            verify(almacenCarritos, never()).quitar(anyLong(), any());
+        }
+
+        @Test
+        @DisplayName("Un lote vacío debe devolver el carrito sin modificarlo")
+        void loteVacio() {
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
-            CarritoResponseDto result = carritoService.update(1L, dtoActualizar);
+            assertEquals(carritoResponse, carritoService.modificarItems(1L, CarritoItemsRequestDto.builder().quitar(null).build()));
+            verify(almacenCarritos, never()).modificar(anyLong(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Debe lanzar excepción cuando el carrito no existe")
+        void itemCarritoNoExiste() {
+            when(almacenCarritos.agregar(1L, List.of("p1"))).thenThrow(new CarritoNotFound(1L));
 
-            assertNotNull(result);
-            verify(carritoRepository).findById(1L);
-            verify(carritoRepository).save(carrito);
+            assertThrows(CarritoNotFound.class, () -> carritoService.agregarItem(1L, "p1"));
         }
     }
 
@@ -202,24 +328,23 @@ class CarritoServiceImplTest {
         @Test
         @DisplayName("Debe eliminar un carrito correctamente")
         void eliminarCarrito() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
+            when(almacenCarritos.eliminar(1L, null)).thenReturn(Optional.of(carrito));
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             CarritoResponseDto result = carritoService.delete(1L);
 
             assertEquals(carritoResponse, result);
-            verify(carritoRepository).findById(1L);
-            verify(carritoRepository).delete(carrito);
+            verify(almacenCarritos).eliminar(1L, null);
             verify(carritoMapper).toResponseDto(carrito);
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando el carrito no existe")
         void eliminarCarritoNoExiste() {
-            when(carritoRepository.findById(1L)).thenReturn(Optional.empty());
+            when(almacenCarritos.eliminar(1L, null)).thenReturn(Optional.empty());
 
             assertThrows(CarritoNotFound.class, () -> carritoService.delete(1L));
-            verify(carritoRepository).findById(1L);
+            verify(almacenCarritos).eliminar(1L, null);
         }
     }
 
@@ -229,23 +354,23 @@ class CarritoServiceImplTest {
         @Test
         @DisplayName("Debe obtener carrito por ID de usuario")
         void obtenerPorUsuario() {
-            when(carritoRepository.findByUserId(101L)).thenReturn(Optional.of(carrito));
+            when(almacenCarritos.obtenerPorUsuario(101L)).thenReturn(Optional.of(carrito));
             when(carritoMapper.toResponseDto(carrito)).thenReturn(carritoResponse);
 
             CarritoResponseDto result = carritoService.findByUserId(101L);
 
             assertEquals(carritoResponse, result);
-            verify(carritoRepository).findByUserId(101L);
+            verify(almacenCarritos).obtenerPorUsuario(101L);
             verify(carritoMapper).toResponseDto(carrito);
         }
 
         @Test
         @DisplayName("Debe lanzar excepción cuando no existe carrito para el usuario")
         void obtenerPorUsuarioNoExiste() {
-            when(carritoRepository.findByUserId(101L)).thenReturn(Optional.empty());
+            when(almacenCarritos.obtenerPorUsuario(101L)).thenReturn(Optional.empty());
 
             assertThrows(CarritoBadId.class, () -> carritoService.findByUserId(101L));
-            verify(carritoRepository).findByUserId(101L);
+            verify(almacenCarritos).obtenerPorUsuario(101L);
         }
     }
 }
@@ -0,0 +1,70 @@
+package srangeldev.camisapi.rest.concurrencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ETags Tests")
+class ETagsTest {
+
+    @Nested
+    @DisplayName("de")
+    class De {
+
+        @Test
+        @DisplayName("El ETag es la versión entre comillas, o null sin versión")
+        void de_version() {
+            assertAll(
+                    () -> assertEquals("\"7\"", ETags.de(7L)),
+                    () -> assertNull(ETags.de(null))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("versionEsperada")
+    class VersionEsperada {
+
+        @Test
+        @DisplayName("Sin cabecera o con * no hay condición")
+        void versionEsperada_sinCondicion() {
+            assertAll(
+                    () -> assertNull(ETags.versionEsperada(null)),
+                    () -> assertNull(ETags.versionEsperada(" ")),
+                    () -> assertNull(ETags.versionEsperada("*"))
+            );
+        }
+
+        @Test
+        @DisplayName("Un ETag fuerte de la API devuelve su versión")
+        void versionEsperada_etagFuerte() {
+            assertAll(
+                    () -> assertEquals(3L, ETags.versionEsperada("\"3\"")),
+                    () -> assertEquals(3L, ETags.versionEsperada(" \"3\" ,")),
+                    () -> assertEquals(ETags.de(12L), ETags.de(ETags.versionEsperada(ETags.de(12L))))
+            );
+        }
+
+        @Test
+        @DisplayName("Un ETag débil o que no es una versión no coincide con ninguna")
+        void versionEsperada_noCoincide() {
+            assertAll(
+                    () -> assertEquals(ETags.NINGUNA, ETags.versionEsperada("W/\"3\"")),
+                    () -> assertEquals(ETags.NINGUNA, ETags.versionEsperada("3")),
+                    () -> assertEquals(ETags.NINGUNA, ETags.versionEsperada("\"abc\"")),
+                    () -> assertEquals(ETags.NINGUNA, ETags.versionEsperada("\"\""))
+            );
+        }
+
+        @Test
+        @DisplayName("Una lista de varios ETags se rechaza en lugar de comprobar solo el primero")
+        void versionEsperada_lista() {
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> ETags.versionEsperada("\"3\", \"4\"")),
+                    () -> assertThrows(IllegalArgumentException.class, () -> ETags.versionEsperada("*, \"4\""))
+            );
+        }
+    }
+}
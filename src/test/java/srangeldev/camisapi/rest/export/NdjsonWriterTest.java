@@ -0,0 +1,114 @@
+package srangeldev.camisapi.rest.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
+import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests de NdjsonWriter")
+class NdjsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper);
+
+    private PedidoResponseDto pedido(long id) {
+        return PedidoResponseDto.builder()
+                .id(id)
+                .userId(1L)
+                .estado(EstadoPedido.PAGADO)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 10, 0))
+                .total(50.0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Debería escribir un objeto JSON por línea con content-type application/x-ndjson")
+    void escribeUnaLineaPorRegistro() throws IOException {
+        ResponseEntity<StreamingResponseBody> respuesta = ndjsonWriter.<PedidoResponseDto>respuesta(consumidor -> {
+            consumidor.accept(pedido(1L));
+            consumidor.accept(pedido(2L));
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        respuesta.getBody().writeTo(out);
+
+        String[] lineas = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertAll(
+                () -> assertEquals(HttpStatus.OK, respuesta.getStatusCode()),
+                () -> assertEquals(MediaType.APPLICATION_NDJSON, respuesta.getHeaders().getContentType()),
+                () -> assertEquals(2, lineas.length),
+                () -> assertEquals(1L, objectMapper.readValue(lineas[0], PedidoResponseDto.class).getId()),
+                () -> assertEquals(2L, objectMapper.readValue(lineas[1], PedidoResponseDto.class).getId()),
+                () -> assertTrue(lineas[0].contains("\"2025-01-01T10:00:00\""))
+        );
+    }
+
+    @Test
+    @DisplayName("No debería cerrar ni hacer flush del stream de la respuesta en cada registro")
+    void noCierraNiVaciaLaRespuesta() throws IOException {
+        int[] flushes = {0};
+        boolean[] cerrado = {false};
+        OutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+
+            @Override
+            public void close() {
+                cerrado[0] = true;
+            }
+        };
+        Consumer<Consumer<PedidoResponseDto>> exportador = consumidor -> {
+            for (long i = 0; i < 100; i++) {
+                consumidor.accept(pedido(i));
+            }
+        };
+
+        ndjsonWriter.respuesta(exportador).getBody().writeTo(out);
+
+        assertAll(
+                () -> assertEquals(0, flushes[0]),
+                () -> assertFalse(cerrado[0])
+        );
+    }
+
+    @Test
+    @DisplayName("Debería propagar la IOException de la respuesta (cliente desconectado)")
+    void propagaIOException() {
+        OutputStream roto = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> ndjsonWriter.<PedidoResponseDto>respuesta(
+                consumidor -> consumidor.accept(pedido(1L))).getBody().writeTo(roto));
+        assertEquals("Broken pipe", e.getMessage());
+    }
+}
@@ -0,0 +1,102 @@
+package srangeldev.camisapi.rest.pagination;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CursorPage Tests")
+class CursorPageTest {
+
+    @Nested
+    @DisplayName("of")
+    class Of {
+
+        @Test
+        @DisplayName("Si se leyó un elemento extra hay más páginas y el cursor apunta al último devuelto")
+        void of_conMasResultados() {
+            CursorPage<Long> pagina = CursorPage.of(List.of(1L, 2L, 3L), 2, id -> id);
+
+            assertAll(
+                    () -> assertEquals(List.of(1L, 2L), pagina.getItems()),
+                    () -> assertTrue(pagina.isHasMore()),
+                    () -> assertEquals(2L, CursorPage.decodeLong(pagina.getNextCursor()))
+            );
+        }
+
+        @Test
+        @DisplayName("Última página: sin cursor siguiente")
+        void of_ultimaPagina() {
+            CursorPage<Long> pagina = CursorPage.of(List.of(1L, 2L), 2, id -> id);
+
+            assertAll(
+                    () -> assertEquals(List.of(1L, 2L), pagina.getItems()),
+                    () -> assertFalse(pagina.isHasMore()),
+                    () -> assertNull(pagina.getNextCursor())
+            );
+        }
+
+        @Test
+        @DisplayName("map conserva el cursor")
+        void map_conservaCursor() {
+            CursorPage<Long> pagina = CursorPage.of(List.of(1L, 2L, 3L), 2, id -> id);
+
+            CursorPage<String> mapeada = pagina.map(String::valueOf);
+
+            assertAll(
+                    () -> assertEquals(List.of("1", "2"), mapeada.getItems()),
+                    () -> assertEquals(pagina.getNextCursor(), mapeada.getNextCursor()),
+                    () -> assertTrue(mapeada.isHasMore())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Cursor y límite")
+    class CursorYLimite {
+
+        @Test
+        @DisplayName("El cursor es opaco y reversible")
+        void encodeDecode() {
+            String cursor = CursorPage.encode("6740c1f1a2b3c4d5e6f70812");
+
+            assertAll(
+                    () -> assertNotEquals("6740c1f1a2b3c4d5e6f70812", cursor),
+                    () -> assertEquals("6740c1f1a2b3c4d5e6f70812", CursorPage.decode(cursor))
+            );
+        }
+
+        @Test
+        @DisplayName("Sin cursor se empieza desde el principio")
+        void sinCursor() {
+            assertAll(
+                    () -> assertNull(CursorPage.decode(null)),
+                    () -> assertEquals(0L, CursorPage.decodeLong(""))
+            );
+        }
+
+        @Test
+        @DisplayName("Un cursor mal formado lanza IllegalArgumentException")
+        void cursorInvalido() {
+            assertAll(
+                    () -> assertThrows(IllegalArgumentException.class, () -> CursorPage.decode("%%%")),
+                    () -> assertThrows(IllegalArgumentException.class,
+                            () -> CursorPage.decodeLong(CursorPage.encode("abc")))
+            );
+        }
+
+        @Test
+        @DisplayName("El límite tiene valor por defecto y un máximo")
+        void limite() {
+            assertAll(
+                    () -> assertEquals(CursorPage.DEFAULT_LIMIT, CursorPage.limit(null)),
+                    () -> assertEquals(5, CursorPage.limit(5)),
+                    () -> assertEquals(CursorPage.MAX_LIMIT, CursorPage.limit(10_000)),
+                    () -> assertThrows(IllegalArgumentException.class, () -> CursorPage.limit(0))
+            );
+        }
+    }
+}
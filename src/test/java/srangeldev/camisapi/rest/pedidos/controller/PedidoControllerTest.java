@@ -160,17 +160,29 @@ public class PedidoControllerTest {
         @Test
         @DisplayName("Debe actualizar el estado del pedido")
         void actualizarPedido_ok() {
-            when(pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO)).thenReturn(pedidoResponseDto);
+            when(pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO, null)).thenReturn(pedidoResponseDto);
 
             ResponseEntity<PedidoResponseDto> response =
-                    pedidoController.actualizarEstado(1L, EstadoPedido.PAGADO);
+                    pedidoController.actualizarEstado(1L, EstadoPedido.PAGADO, null);
 
             assertAll(
                     () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
                     () -> assertEquals(pedidoResponseDto, response.getBody())
             );
 
-            verify(pedidoService).actualizarEstado(1L, EstadoPedido.PAGADO);
+            verify(pedidoService).actualizarEstado(1L, EstadoPedido.PAGADO, null);
+        }
+
+        @Test
+        @DisplayName("Debe pasar la versión de If-Match y devolver el nuevo ETag")
+        void actualizarPedido_ifMatch() {
+            pedidoResponseDto.setVersion(3L);
+            when(pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO, 2L)).thenReturn(pedidoResponseDto);
+
+            ResponseEntity<PedidoResponseDto> response =
+                    pedidoController.actualizarEstado(1L, EstadoPedido.PAGADO, "\"2\"");
+
+            assertEquals("\"3\"", response.getHeaders().getETag());
         }
     }
     @Nested
@@ -199,12 +211,12 @@ public class PedidoControllerTest {
         @Test
         @DisplayName("Debe eliminar el pedido")
         void eliminarPedido() {
-            doNothing().when(pedidoService).eliminarPedido(1L);
+            doNothing().when(pedidoService).eliminarPedido(1L, null);
 
-            ResponseEntity<Void> response = pedidoController.eliminarPedido(1L);
+            ResponseEntity<Void> response = pedidoController.eliminarPedido(1L, null);
 
             assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
-            verify(pedidoService).eliminarPedido(1L);
+            verify(pedidoService).eliminarPedido(1L, null);
         }
     }
 
@@ -1,5 +1,6 @@
 package srangeldev.camisapi.rest.pedidos.services;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -8,22 +9,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import srangeldev.camisapi.rest.pagination.CursorPage;
 import srangeldev.camisapi.rest.pedidos.dto.DetallePedidoDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoRequestDto;
 import srangeldev.camisapi.rest.pedidos.dto.PedidoResponseDto;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoBadRequestException;
 import srangeldev.camisapi.rest.pedidos.exceptions.PedidoConflictException;
 import srangeldev.camisapi.rest.pedidos.exceptions.PedidoNotFoundException;
+import srangeldev.camisapi.rest.pedidos.exceptions.PedidoPreconditionFailedException;
 import srangeldev.camisapi.rest.pedidos.mappers.PedidoMappers;
 import srangeldev.camisapi.rest.pedidos.models.DetallePedido;
 import srangeldev.camisapi.rest.pedidos.models.EstadoPedido;
 import srangeldev.camisapi.rest.pedidos.models.Pedido;
 import srangeldev.camisapi.rest.pedidos.repository.PedidoRepository;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
+import srangeldev.camisapi.rest.productos.reservas.ReservasProductos;
+
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,9 +48,13 @@ import static org.mockito.Mockito.*;
     @Mock
     private PedidoMappers pedidoMappers;
     @Mock
-    private srangeldev.camisapi.rest.carrito.repository.CarritoRepository carritoRepository;
+    private srangeldev.camisapi.rest.carrito.almacen.AlmacenCarritos almacenCarritos;
     @Mock
     private srangeldev.camisapi.rest.productos.repository.ProductoRepository productoRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ReservasProductos reservasProductos;
 
     @InjectMocks
     private PedidoServiceImpl pedidoService;
@@ -123,25 +137,102 @@ import static org.mockito.Mockito.*;
                     .imageUrl("/camisetaDeFutbol.png")
                     .build();
             
-            when(carritoRepository.findById(1L)).thenReturn(Optional.of(carrito));
-            when(productoRepository.findById("10L")).thenReturn(Optional.of(producto));
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
+            when(productoRepository.findAllById(any())).thenReturn(List.of(producto));
             when(pedidoMappers.toPedido(anyLong(), anyLong(), anyString(), anyDouble(), anyList())).thenReturn(pedido);
             when(pedidoRepository.save(any())).thenReturn(pedido);
             when(pedidoMappers.toResponseDto(pedido)).thenReturn(pedidoResponseDto);
-            when(carritoRepository.save(any())).thenReturn(carrito);
 
             PedidoResponseDto resultado = pedidoService.crearPedido(pedidoRequestDto);
 
             assertAll(
                     () -> assertEquals(EstadoPedido.PENDIENTE_PAGO, resultado.getEstado()),
                     () -> assertEquals(pedidoResponseDto.getDetalles(), resultado.getDetalles()),
-                    () -> verify(carritoRepository, times(1)).findById(1L),
-                    () -> verify(productoRepository, times(1)).findById("10L"),
+                    () -> verify(almacenCarritos, times(1)).obtener(1L),
+                    () -> verify(productoRepository, times(1)).findAllById(any()),
+                    () -> verify(productoRepository, never()).findById(anyString()),
                     () -> verify(pedidoRepository, times(1)).save(any()),
-                    () -> verify(carritoRepository, times(1)).save(carrito), // Verifica que el carrito se vació
+                    () -> verify(reservasProductos, times(1)).reservar(eq(1L), argThat(productos -> productos.contains(producto))),
+                    () -> verify(almacenCarritos, times(1)).quitar(1L, List.of("10L")), // Verifica que el carrito se vació
                     () -> verify(pedidoMappers, times(1)).toResponseDto(pedido)
             );
         }
+        @Test
+        @DisplayName("Carga todos los productos del carrito con una sola consulta")
+        void crearPedido_unaSolaConsultaDeProductos() {
+            srangeldev.camisapi.rest.carrito.models.Carrito carrito = srangeldev.camisapi.rest.carrito.models.Carrito.builder()
+                    .id(1L)
+                    .userId(2L)
+                    .productosIds(new java.util.ArrayList<>(List.of("p1", "p2")))
+                    .build();
+            srangeldev.camisapi.rest.productos.models.Producto p1 = srangeldev.camisapi.rest.productos.models.Producto.builder()
+                    .id("p1").nombre("Local").talla("M").equipo("Betis").precio(60.0).build();
+            srangeldev.camisapi.rest.productos.models.Producto p2 = srangeldev.camisapi.rest.productos.models.Producto.builder()
+                    .id("p2").nombre("Visitante").talla("L").equipo("Sevilla").precio(40.0).build();
+
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
+            when(productoRepository.findAllById(any())).thenReturn(List.of(p2, p1));
+            when(pedidoMappers.toPedido(anyLong(), anyLong(), anyString(), anyDouble(), anyList())).thenReturn(pedido);
+            when(pedidoRepository.save(any())).thenReturn(pedido);
+            when(pedidoMappers.toResponseDto(pedido)).thenReturn(pedidoResponseDto);
+
+            pedidoService.crearPedido(pedidoRequestDto);
+
+            org.mockito.ArgumentCaptor<List<DetallePedido>> detalles = org.mockito.ArgumentCaptor.captor();
+            verify(pedidoMappers).toPedido(eq(2L), eq(1L), anyString(), eq(100.0), detalles.capture());
+            assertAll(
+                    () -> verify(productoRepository, times(1)).findAllById(any()),
+                    () -> assertEquals(List.of("p1", "p2"),
+                            detalles.getValue().stream().map(DetallePedido::getProductoId).toList())
+            );
+        }
+
+        @Test
+        @DisplayName("Si otro pedido ya tiene algún producto, falla sin vaciar el carrito")
+        void crearPedido_productoNoDisponible() {
+            srangeldev.camisapi.rest.carrito.models.Carrito carrito = srangeldev.camisapi.rest.carrito.models.Carrito.builder()
+                    .id(1L)
+                    .userId(2L)
+                    .productosIds(new java.util.ArrayList<>(List.of("p1")))
+                    .build();
+            srangeldev.camisapi.rest.productos.models.Producto p1 = srangeldev.camisapi.rest.productos.models.Producto.builder()
+                    .id("p1").nombre("Local").talla("M").equipo("Betis").precio(60.0).build();
+
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
+            when(productoRepository.findAllById(any())).thenReturn(List.of(p1));
+            when(pedidoMappers.toPedido(anyLong(), anyLong(), anyString(), anyDouble(), anyList())).thenReturn(pedido);
+            when(pedidoRepository.save(any())).thenReturn(pedido);
+            doThrow(new ProductoNoDisponible("Productos no disponibles: p1")).when(reservasProductos).reservar(eq(1L), any());
+
+            assertThrows(ProductoNoDisponible.class, () -> pedidoService.crearPedido(pedidoRequestDto));
+            verify(almacenCarritos, never()).quitar(anyLong(), any());
+        }
+
+        @Test
+        @DisplayName("Informa de todos los productos inexistentes en un solo error")
+        void crearPedido_productosNoEncontrados() {
+            srangeldev.camisapi.rest.carrito.models.Carrito carrito = srangeldev.camisapi.rest.carrito.models.Carrito.builder()
+                    .id(1L)
+                    .userId(2L)
+                    .productosIds(new java.util.ArrayList<>(List.of("p1", "x1", "p2", "x2")))
+                    .build();
+            srangeldev.camisapi.rest.productos.models.Producto p1 = srangeldev.camisapi.rest.productos.models.Producto.builder()
+                    .id("p1").nombre("Local").talla("M").equipo("Betis").precio(60.0).build();
+            srangeldev.camisapi.rest.productos.models.Producto p2 = srangeldev.camisapi.rest.productos.models.Producto.builder()
+                    .id("p2").nombre("Visitante").talla("L").equipo("Sevilla").precio(40.0).build();
+
+            when(almacenCarritos.obtener(1L)).thenReturn(Optional.of(carrito));
+            when(productoRepository.findAllById(any())).thenReturn(List.of(p1, p2));
+
+            PedidoBadRequestException ex = assertThrows(PedidoBadRequestException.class,
+                    () -> pedidoService.crearPedido(pedidoRequestDto));
+
+            assertAll(
+                    () -> assertEquals("Productos no encontrados: x1, x2", ex.getMessage()),
+                    () -> verify(pedidoRepository, never()).save(any()),
+                    () -> verify(almacenCarritos, never()).quitar(anyLong(), any())
+            );
+        }
     }
 
     @Nested
@@ -163,6 +254,60 @@ import static org.mockito.Mockito.*;
         }
 
     }
+    @Nested
+    @DisplayName("listarPedidosPagina")
+    class ListarPedidosPagina {
+
+        @Test
+        @DisplayName("Deberia consultar los pedidos con id mayor que el cursor")
+        void listarPedidosPagina_ok() {
+            when(pedidoRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(21))).thenReturn(List.of(pedido));
+            when(pedidoMappers.toResponseDto(pedido)).thenReturn(pedidoResponseDto);
+
+            CursorPage<PedidoResponseDto> pagina = pedidoService.listarPedidosPagina(null, null);
+
+            assertAll(
+                    () -> assertEquals(List.of(pedidoResponseDto), pagina.getItems()),
+                    () -> assertFalse(pagina.isHasMore()),
+                    () -> verify(pedidoRepository, never()).findAll()
+            );
+        }
+
+        @Test
+        @DisplayName("Deberia lanzar PedidoBadRequestException con un cursor inválido")
+        void listarPedidosPagina_cursorInvalido() {
+            assertThrows(PedidoBadRequestException.class, () -> pedidoService.listarPedidosPagina("no-es-un-cursor", 10));
+            verifyNoInteractions(pedidoRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("exportarPedidos")
+    class ExportarPedidos {
+
+        @Test
+        @DisplayName("Deberia entregar cada pedido del stream y desasociarlo despues de escribirlo")
+        void exportarPedidos_ok() {
+            Pedido otro = Pedido.builder().id(2L).userId(3L).carritoId(2L).total(50.0).build();
+            when(pedidoRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(pedido, otro));
+            when(pedidoMappers.toResponseDto(any(Pedido.class))).thenReturn(pedidoResponseDto);
+            List<PedidoResponseDto> recibidos = new ArrayList<>();
+
+            long exportados = pedidoService.exportarPedidos(recibidos::add);
+
+            var orden = inOrder(pedidoMappers, entityManager);
+            orden.verify(pedidoMappers).toResponseDto(pedido);
+            orden.verify(entityManager).detach(pedido);
+            orden.verify(pedidoMappers).toResponseDto(otro);
+            orden.verify(entityManager).detach(otro);
+            assertAll(
+                    () -> assertEquals(2, exportados),
+                    () -> assertEquals(2, recibidos.size()),
+                    () -> verify(pedidoRepository, never()).findAll()
+            );
+        }
+    }
+
     @Nested
     @DisplayName("findByUsuario")
     class findByUsuario{
@@ -227,22 +372,53 @@ import static org.mockito.Mockito.*;
                     .build();
             
             when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
-            when(pedidoRepository.save(pedido)).thenReturn(pedido);
+            when(pedidoRepository.saveAndFlush(pedido)).thenReturn(pedido);
             when(pedidoMappers.toResponseDto(pedido)).thenReturn(pedidoActualizadoDto);
 
             PedidoResponseDto resultado = pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO);
 
             assertAll(
-                    () -> assertEquals(EstadoPedido.PAGADO, resultado.getEstado())
+                    () -> assertEquals(EstadoPedido.PAGADO, resultado.getEstado()),
+                    () -> verify(reservasProductos).vender(1L, List.of("10L"))
             );
         }
         @Test
+        @DisplayName("Si la reserva caducó y otro pedido tiene el producto, no se paga")
+        void actualizarEstado_pagoSinProductos(){
+            when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
+            doThrow(new ProductoNoDisponible("caducada")).when(reservasProductos).vender(1L, List.of("10L"));
+
+            assertThrows(ProductoNoDisponible.class, () -> pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO));
+            verify(pedidoRepository, never()).saveAndFlush(any());
+        }
+        @Test
+        @DisplayName("Al cancelar libera los productos del pedido")
+        void actualizarEstado_cancelar(){
+            when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
+            when(pedidoRepository.saveAndFlush(pedido)).thenReturn(pedido);
+            when(pedidoMappers.toResponseDto(pedido)).thenReturn(pedidoResponseDto);
+
+            pedidoService.actualizarEstado(1L, EstadoPedido.CANCELADO);
+
+            verify(reservasProductos).liberar(1L, List.of("10L"));
+            verify(reservasProductos, never()).vender(anyLong(), any());
+        }
+        @Test
         @DisplayName("Deveria lanzar un exception")
         void actualizarEstado_notFound(){
             when(pedidoRepository.findById(0L)).thenReturn(Optional.empty());
 
             assertThrows(PedidoNotFoundException.class, () -> pedidoService.actualizarEstado(0L, EstadoPedido.PAGADO));
         }
+        @Test
+        @DisplayName("Con una versión que ya no es la actual debe lanzar PedidoPreconditionFailedException sin guardar")
+        void actualizarEstado_versionAntigua(){
+            pedido.setVersion(2L);
+            when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
+
+            assertThrows(PedidoPreconditionFailedException.class, () -> pedidoService.actualizarEstado(1L, EstadoPedido.PAGADO, 1L));
+            verify(pedidoRepository, never()).saveAndFlush(any());
+        }
     }
 
     @Nested
@@ -271,6 +447,7 @@ import static org.mockito.Mockito.*;
             when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
             pedidoService.eliminarPedido(1L);
             verify(pedidoRepository, times(1)).delete(pedido);
+            verify(reservasProductos).liberar(1L, List.of("10L"));
         }
         @Test
         @DisplayName("Si al intentar eliminar el pedido no existe")
@@ -279,5 +456,17 @@ import static org.mockito.Mockito.*;
 
             assertThrows(PedidoNotFoundException.class, () -> pedidoService.eliminarPedido(3L));
         }
+        @Test
+        @DisplayName("Con la versión actual elimina el pedido y con otra lanza PedidoPreconditionFailedException")
+        void eliminarPedido_version(){
+            pedido.setVersion(2L);
+            when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedido));
+
+            assertThrows(PedidoPreconditionFailedException.class, () -> pedidoService.eliminarPedido(1L, 1L));
+            verify(pedidoRepository, never()).delete(any());
+
+            pedidoService.eliminarPedido(1L, 2L);
+            verify(pedidoRepository).delete(pedido);
+        }
     }
 }
@@ -13,6 +13,10 @@ import srangeldev.camisapi.rest.productos.controller.ProductoController;
 import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
 import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos;
+import srangeldev.camisapi.rest.productos.filtro.ProductoFiltro;
+import srangeldev.camisapi.rest.productos.filtro.ResultadoFiltro;
+import srangeldev.camisapi.rest.productos.search.IndiceBusquedaProductos;
 import srangeldev.camisapi.rest.productos.service.ProductoService;
 
 import java.util.List;
@@ -26,6 +30,12 @@ class ProductoControllerTest {
     @Mock
     private ProductoService productoService;
 
+    @Mock
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    @Mock
+    private FiltroProductos filtroProductos;
+
     @InjectMocks
     private ProductoController productoController;
 
@@ -143,6 +153,49 @@ class ProductoControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("GET /api/productos/search")
+    class Buscar {
+        @Test
+        @DisplayName("Debe delegar la búsqueda de texto en el índice")
+        void buscar() {
+            when(indiceBusqueda.buscar("madrid", 5)).thenReturn(List.of(productoResponse));
+
+            ResponseEntity<List<ProductoResponseDTO>> response = productoController.buscar("madrid", 5);
+
+            assertAll(
+                    () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
+                    () -> assertEquals(1, response.getBody().size())
+            );
+
+            verify(indiceBusqueda).buscar("madrid", 5);
+            verifyNoInteractions(productoService);
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/productos/filtro")
+    class Filtrar {
+        @Test
+        @DisplayName("Debe delegar el filtro combinado con su cursor y límite")
+        void filtrar() {
+            ProductoFiltro filtro = ProductoFiltro.builder().equipo("Real Madrid").talla("S").build();
+            ResultadoFiltro<ProductoResponseDTO> resultado = ResultadoFiltro.<ProductoResponseDTO>builder()
+                    .items(List.of(productoResponse))
+                    .total(1)
+                    .build();
+            when(filtroProductos.filtrar(filtro, "c", 10)).thenReturn(resultado);
+
+            ResponseEntity<ResultadoFiltro<ProductoResponseDTO>> response = productoController.filtrar(filtro, "c", 10);
+
+            assertAll(
+                    () -> assertEquals(HttpStatus.OK, response.getStatusCode()),
+                    () -> assertEquals(1, response.getBody().getTotal())
+            );
+            verifyNoInteractions(productoService);
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/productos/buscar/nombre")
     class BuscarPorNombre {
@@ -0,0 +1,230 @@
+package srangeldev.camisapi.rest.producto.filtro;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.filtro.FacetaValor;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos.Agregacion;
+import srangeldev.camisapi.rest.productos.filtro.FiltroProductos.Conteo;
+import srangeldev.camisapi.rest.productos.filtro.OrdenProducto;
+import srangeldev.camisapi.rest.productos.filtro.ProductoFiltro;
+import srangeldev.camisapi.rest.productos.filtro.ResultadoFiltro;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests del filtro de productos con facetas")
+class FiltroProductosTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private FiltroProductos filtroProductos;
+
+    @BeforeEach
+    void setUp() {
+        filtroProductos = new FiltroProductos(mongoTemplate, new ProductoMapper());
+    }
+
+    private static Producto producto(int i) {
+        return Producto.builder()
+                .id("p" + i)
+                .nombre("Camiseta " + i)
+                .equipo("Real Madrid")
+                .talla("M")
+                .precio(50.0 + i)
+                .estado(EstadoProducto.DISPONIBLE)
+                .build();
+    }
+
+    private void devolver(Agregacion agregacion) {
+        when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Agregacion.class)))
+                .thenReturn(new AggregationResults<>(agregacion == null ? List.of() : List.of(agregacion), new Document()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Document consultaEnviada() {
+        ArgumentCaptor<TypedAggregation<Producto>> captor = ArgumentCaptor.forClass(TypedAggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Agregacion.class));
+        return captor.getValue().toDocument("productos", Aggregation.DEFAULT_CONTEXT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> pipeline(Document consulta) {
+        return (List<Document>) consulta.get("pipeline");
+    }
+
+    @Nested
+    @DisplayName("Construcción de la agregación")
+    class Construccion {
+
+        @Test
+        @DisplayName("Debe combinar todos los criterios en un único $match seguido de un $facet")
+        void todosLosCriterios() {
+            devolver(null);
+            ProductoFiltro filtro = ProductoFiltro.builder()
+                    .talla("M")
+                    .estado(EstadoProducto.DISPONIBLE)
+                    .precioMin(20.0)
+                    .precioMax(90.0)
+                    .desde(LocalDate.of(2025, 1, 1))
+                    .build();
+
+            filtroProductos.filtrar(filtro, null, null);
+
+            List<Document> pipeline = pipeline(consultaEnviada());
+            Document match = pipeline.get(0).get("$match", Document.class);
+            List<Document> condiciones = match.getList("$and", Document.class);
+            Document facet = pipeline.get(1).get("$facet", Document.class);
+            assertAll(
+                    () -> assertEquals(2, pipeline.size()),
+                    () -> assertEquals(4, condiciones.size()),
+                    () -> assertTrue(condiciones.contains(new Document("talla", "M"))),
+                    () -> assertTrue(condiciones.contains(new Document("precio", new Document("$gte", 20.0).append("$lte", 90.0)))),
+                    () -> assertTrue(condiciones.contains(new Document("fechaCreacion", new Document("$gte", LocalDate.of(2025, 1, 1))))),
+                    () -> assertEquals(List.of("items", "total", "equipo", "talla", "estado"), List.copyOf(facet.keySet()))
+            );
+        }
+
+        @Test
+        @DisplayName("Sin criterios debe usar un $match vacío")
+        void sinCriterios() {
+            devolver(null);
+
+            filtroProductos.filtrar(null, null, null);
+
+            assertEquals(new Document(), pipeline(consultaEnviada()).get(0).get("$match"));
+        }
+
+        @Test
+        @DisplayName("Debe ordenar, saltar hasta el cursor y pedir un elemento más que el límite")
+        void ordenYPaginacion() {
+            devolver(null);
+
+            filtroProductos.filtrar(ProductoFiltro.builder().orden(OrdenProducto.PRECIO_DESC).build(),
+                    CursorPage.encode("40"), 20);
+
+            List<Document> items = pipeline(consultaEnviada()).get(1).get("$facet", Document.class)
+                    .getList("items", Document.class);
+            assertAll(
+                    () -> assertEquals(new Document("precio", -1).append("_id", 1), items.get(0).get("$sort")),
+                    () -> assertEquals(40L, items.get(1).get("$skip")),
+                    () -> assertEquals(21L, items.get(2).get("$limit"))
+            );
+        }
+
+        @Test
+        @DisplayName("Solo debe usar la colación sin mayúsculas cuando se filtra por equipo")
+        void colacionSoloConEquipo() {
+            devolver(null);
+            filtroProductos.filtrar(ProductoFiltro.builder().equipo("real madrid").build(), null, null);
+            Document conEquipo = consultaEnviada();
+
+            reset(mongoTemplate);
+            devolver(null);
+            filtroProductos.filtrar(ProductoFiltro.builder().talla("M").build(), null, null);
+            Document sinEquipo = consultaEnviada();
+
+            assertAll(
+                    () -> assertEquals("es", conEquipo.get("collation", Document.class).getString("locale")),
+                    () -> assertEquals(1, conEquipo.get("collation", Document.class).getInteger("strength")),
+                    () -> assertFalse(sinEquipo.containsKey("collation"))
+            );
+        }
+
+        @Test
+        @DisplayName("Debe rechazar rangos invertidos sin consultar Mongo")
+        void rangosInvertidos() {
+            ProductoFiltro precio = ProductoFiltro.builder().precioMin(90.0).precioMax(20.0).build();
+            ProductoFiltro fechas = ProductoFiltro.builder()
+                    .desde(LocalDate.of(2025, 6, 1)).hasta(LocalDate.of(2025, 1, 1)).build();
+
+            assertAll(
+                    () -> assertThrows(ProductoBadRequest.class, () -> filtroProductos.filtrar(precio, null, null)),
+                    () -> assertThrows(ProductoBadRequest.class, () -> filtroProductos.filtrar(fechas, null, null))
+            );
+            verifyNoInteractions(mongoTemplate);
+        }
+    }
+
+    @Nested
+    @DisplayName("Lectura del resultado")
+    class Resultado {
+
+        @Test
+        @DisplayName("Debe devolver la página, el total y las facetas")
+        void paginaTotalYFacetas() {
+            List<Producto> leidos = IntStream.range(0, 3).mapToObj(FiltroProductosTest::producto).toList();
+            devolver(new Agregacion(leidos, List.of(new Conteo(null, 7)),
+                    List.of(new Conteo("Real Madrid", 5), new Conteo("FC Barcelona", 2)),
+                    List.of(new Conteo("M", 7)),
+                    List.of(new Conteo("DISPONIBLE", 6), new Conteo("RESERVADO", 1))));
+
+            ResultadoFiltro<ProductoResponseDTO> resultado = filtroProductos.filtrar(new ProductoFiltro(), CursorPage.encode("2"), 2);
+
+            assertAll(
+                    () -> assertEquals(List.of("p0", "p1"), resultado.getItems().stream().map(ProductoResponseDTO::getId).toList()),
+                    () -> assertTrue(resultado.isHasMore()),
+                    () -> assertEquals(4L, CursorPage.decodeLong(resultado.getNextCursor())),
+                    () -> assertEquals(7, resultado.getTotal()),
+                    () -> assertEquals(List.of(new FacetaValor("Real Madrid", 5), new FacetaValor("FC Barcelona", 2)),
+                            resultado.getFacetas().getEquipo()),
+                    () -> assertEquals(List.of(new FacetaValor("M", 7)), resultado.getFacetas().getTalla()),
+                    () -> assertEquals(2, resultado.getFacetas().getEstado().size())
+            );
+        }
+
+        @Test
+        @DisplayName("La última página no debe tener cursor")
+        void ultimaPagina() {
+            devolver(new Agregacion(List.of(producto(1)), List.of(new Conteo(null, 1)),
+                    List.of(new Conteo("Real Madrid", 1)), List.of(new Conteo("M", 1)), List.of(new Conteo("DISPONIBLE", 1))));
+
+            ResultadoFiltro<ProductoResponseDTO> resultado = filtroProductos.filtrar(new ProductoFiltro(), null, 20);
+
+            assertAll(
+                    () -> assertEquals(1, resultado.getItems().size()),
+                    () -> assertFalse(resultado.isHasMore()),
+                    () -> assertNull(resultado.getNextCursor())
+            );
+        }
+
+        @Test
+        @DisplayName("Sin coincidencias debe devolver total 0 y facetas vacías, ignorando valores nulos")
+        void sinCoincidencias() {
+            devolver(new Agregacion(List.of(), List.of(), List.of(new Conteo(null, 0)), List.of(), List.of()));
+
+            ResultadoFiltro<ProductoResponseDTO> resultado = filtroProductos.filtrar(new ProductoFiltro(), null, null);
+
+            assertAll(
+                    () -> assertTrue(resultado.getItems().isEmpty()),
+                    () -> assertEquals(0, resultado.getTotal()),
+                    () -> assertTrue(resultado.getFacetas().getEquipo().isEmpty())
+            );
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package srangeldev.camisapi.rest.producto.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.events.CambioReplicado;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.search.BusquedaProperties;
+import srangeldev.camisapi.rest.productos.search.IndiceBusquedaProductos;
+import srangeldev.camisapi.rest.productos.search.Tokenizador;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tests del buscador de productos")
+class IndiceBusquedaProductosTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private ProductoRepository productoRepository;
+    private IndiceBusquedaProductos indice;
+
+    @BeforeEach
+    void setUp() {
+        productoRepository = mock(ProductoRepository.class);
+        indice = new IndiceBusquedaProductos(productoRepository, new ProductoMapper(), objectMapper, new BusquedaProperties());
+    }
+
+    private static ProductoResponseDTO producto(String id, String nombre, String equipo, String descripcion) {
+        return ProductoResponseDTO.builder()
+                .id(id)
+                .nombre(nombre)
+                .equipo(equipo)
+                .descripcion(descripcion)
+                .talla("M")
+                .precio(80.0)
+                .estado(EstadoProducto.DISPONIBLE)
+                .build();
+    }
+
+    private void crear(ProductoResponseDTO producto) {
+        indice.onCambio(CambioEvento.de(ProductoService.ENTIDAD, producto.getId(), Operacion.CREADO, producto));
+    }
+
+    private List<String> ids(String consulta) {
+        return indice.buscar(consulta, null).stream().map(ProductoResponseDTO::getId).toList();
+    }
+
+    @Nested
+    @DisplayName("Tokenizador")
+    class Tokenizacion {
+
+        @Test
+        @DisplayName("Debe quitar tildes, pasar a minúsculas y descartar palabras vacías")
+        void normaliza() {
+            assertEquals(List.of("camiseta", "atletico", "madrid", "espana"),
+                    Tokenizador.tokens("Camiseta del Atlético de Madrid (España)"));
+        }
+
+        @Test
+        @DisplayName("Debe devolver una lista vacía para un texto vacío o nulo")
+        void vacio() {
+            assertAll(
+                    () -> assertTrue(Tokenizador.tokens(null).isEmpty()),
+                    () -> assertTrue(Tokenizador.tokens("  -- ").isEmpty())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Búsqueda")
+    class Busqueda {
+
+        @BeforeEach
+        void catalogo() {
+            crear(producto("1", "Camiseta local", "Real Madrid", "Camiseta blanca de la temporada"));
+            crear(producto("2", "Camiseta visitante", "Atlético de Madrid", "Rojiblanca"));
+            crear(producto("3", "Camiseta local", "FC Barcelona", "Azulgrana con el escudo del Barcelona"));
+            crear(producto("4", "Bufanda", "Sevilla FC", "Bufanda del Sevilla"));
+        }
+
+        @Test
+        @DisplayName("Debe encontrar sin distinguir tildes ni mayúsculas")
+        void sinTildes() {
+            assertEquals(List.of("2"), ids("ATLETICO"));
+        }
+
+        @Test
+        @DisplayName("Debe completar la última palabra como prefijo")
+        void prefijo() {
+            assertAll(
+                    () -> assertEquals(List.of("3"), ids("barc")),
+                    () -> assertEquals(List.of("2", "1"), ids("madrid vis"))
+            );
+        }
+
+        @Test
+        @DisplayName("Debe ordenar por relevancia (BM25)")
+        void relevancia() {
+            List<String> resultado = ids("camiseta madrid");
+            assertAll(
+                    () -> assertEquals(3, resultado.size()),
+                    // Los dos de Madrid tienen ambos términos; el del Barcelona solo "camiseta"
+                    () -> assertEquals("3", resultado.getLast()),
+                    () -> assertFalse(resultado.contains("4"))
+            );
+        }
+
+        @Test
+        @DisplayName("Un término raro debe pesar más que uno frecuente")
+        void idf() {
+            crear(producto("5", "Camiseta retro", "Real Betis", null));
+
+            assertEquals("5", ids("camiseta retro").getFirst());
+        }
+
+        @Test
+        @DisplayName("Debe respetar el límite de resultados")
+        void limite() {
+            assertEquals(2, indice.buscar("camiseta", 2).size());
+        }
+
+        @Test
+        @DisplayName("Debe devolver vacío si la consulta no tiene términos")
+        void consultaVacia() {
+            assertTrue(indice.buscar("de la", null).isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Mantenimiento por eventos")
+    class Eventos {
+
+        @Test
+        @DisplayName("Una actualización debe sustituir los términos anteriores")
+        void actualizacion() {
+            crear(producto("1", "Camiseta local", "Real Madrid", null));
+
+            ProductoResponseDTO cambiado = producto("1", "Camiseta local", "Real Betis", null);
+            indice.onCambio(CambioEvento.de(ProductoService.ENTIDAD, "1", Operacion.ACTUALIZADO, cambiado));
+
+            assertAll(
+                    () -> assertTrue(ids("madrid").isEmpty()),
+                    () -> assertEquals(List.of("1"), ids("betis")),
+                    () -> assertEquals(1, indice.getTamano())
+            );
+        }
+
+        @Test
+        @DisplayName("Una eliminación debe quitar el producto del índice")
+        void eliminacion() {
+            crear(producto("1", "Camiseta local", "Real Madrid", null));
+
+            indice.onCambio(CambioEvento.de(ProductoService.ENTIDAD, "1", Operacion.ELIMINADO, null));
+
+            assertAll(
+                    () -> assertTrue(ids("camiseta").isEmpty()),
+                    () -> assertEquals(0, indice.getTamano())
+            );
+        }
+
+        @Test
+        @DisplayName("Debe aplicar los cambios de otras réplicas, que llegan con los datos como mapa")
+        void cambioReplicado() throws Exception {
+            CambioEvento original = CambioEvento.de(ProductoService.ENTIDAD, "9", Operacion.CREADO,
+                    producto("9", "Camiseta portero", "Athletic Club", null));
+            CambioEvento recibido = objectMapper.readValue(objectMapper.writeValueAsString(original), CambioEvento.class);
+
+            indice.onCambioReplicado(new CambioReplicado(recibido));
+
+            assertEquals(List.of("9"), ids("athletic"));
+        }
+
+        @Test
+        @DisplayName("Debe ignorar los eventos de otras entidades")
+        void otraEntidad() {
+            indice.onCambio(CambioEvento.de("usuarios", "1", Operacion.CREADO, Map.of("nombre", "Camiseta")));
+
+            assertEquals(0, indice.getTamano());
+        }
+
+        @Test
+        @DisplayName("La carga inicial no debe pisar productos que ya llegaron por eventos")
+        void cargaInicial() {
+            crear(producto("1", "Camiseta nueva", "Real Madrid", null));
+            when(productoRepository.findAll()).thenReturn(List.of(
+                    Producto.builder().id("1").nombre("Camiseta vieja").equipo("Real Madrid").talla("M")
+                            .precio(80.0).estado(EstadoProducto.DISPONIBLE).build(),
+                    Producto.builder().id("2").nombre("Bufanda").equipo("Valencia CF").talla("U")
+                            .precio(20.0).estado(EstadoProducto.DISPONIBLE).build()));
+
+            indice.cargar();
+
+            assertAll(
+                    () -> assertEquals(2, indice.getTamano()),
+                    () -> assertEquals(List.of("1"), ids("nueva")),
+                    () -> assertTrue(ids("vieja").isEmpty()),
+                    () -> assertEquals(List.of("2"), ids("valencia"))
+            );
+        }
+
+        @Test
+        @DisplayName("La reconstrucción periódica debe corregir los eventos perdidos")
+        void reconstruccionCorrigeEventosPerdidos() {
+            when(productoRepository.findAll()).thenReturn(List.of(
+                    Producto.builder().id("1").nombre("Camiseta local").equipo("Real Madrid").talla("M")
+                            .precio(80.0).estado(EstadoProducto.DISPONIBLE).build()));
+            indice.cargar();
+            // Otra réplica cambió el producto 1 y creó el 2, pero sus eventos no llegaron
+            when(productoRepository.findAll()).thenReturn(List.of(
+                    Producto.builder().id("1").nombre("Camiseta local").equipo("Real Betis").talla("M")
+                            .precio(80.0).estado(EstadoProducto.DISPONIBLE).build(),
+                    Producto.builder().id("2").nombre("Bufanda").equipo("Valencia CF").talla("U")
+                            .precio(20.0).estado(EstadoProducto.DISPONIBLE).build()));
+
+            indice.reconstruir();
+
+            assertAll(
+                    () -> assertEquals(2, indice.getTamano()),
+                    () -> assertTrue(ids("madrid").isEmpty()),
+                    () -> assertEquals(List.of("1"), ids("betis")),
+                    () -> assertEquals(List.of("2"), ids("bufanda"))
+            );
+        }
+
+        @Test
+        @DisplayName("Los eventos que llegan durante la reconstrucción deben prevalecer sobre lo leído")
+        void eventosDuranteReconstruccion() {
+            indice.cargar();
+            crear(producto("3", "Camiseta borrada", "Sevilla FC", null));
+            when(productoRepository.findAll()).thenAnswer(inv -> {
+                // Mientras se lee el catálogo llegan una actualización y un borrado
+                indice.onCambio(CambioEvento.de(ProductoService.ENTIDAD, "1", Operacion.ACTUALIZADO,
+                        producto("1", "Camiseta nueva", "Real Madrid", null)));
+                indice.onCambio(CambioEvento.de(ProductoService.ENTIDAD, "3", Operacion.ELIMINADO, null));
+                return List.of(
+                        Producto.builder().id("1").nombre("Camiseta vieja").equipo("Real Madrid").talla("M")
+                                .precio(80.0).estado(EstadoProducto.DISPONIBLE).build(),
+                        Producto.builder().id("3").nombre("Camiseta borrada").equipo("Sevilla FC").talla("M")
+                                .precio(80.0).estado(EstadoProducto.DISPONIBLE).build());
+            });
+
+            indice.reconstruir();
+
+            assertAll(
+                    () -> assertEquals(1, indice.getTamano()),
+                    () -> assertEquals(List.of("1"), ids("nueva")),
+                    () -> assertTrue(ids("vieja").isEmpty()),
+                    () -> assertTrue(ids("sevilla").isEmpty())
+            );
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package srangeldev.camisapi.rest.producto.services;
+
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.socket.WebSocketHandler;
+import srangeldev.camisapi.cache.CacheInvalidationBus;
+import srangeldev.camisapi.cache.TwoTierCacheManager;
+import srangeldev.camisapi.cache.TwoTierCacheProperties;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.cache.ProductoKeyGenerator;
+import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests de la invalidación selectiva de la caché de productos
+ *
+ * Usa el proxy de caché real de Spring (con la caché de dos niveles sobre un almacén
+ * en memoria) y un repositorio simulado, para comprobar que tras cada escritura
+ * ninguna lectura devuelve datos obsoletos y que las entradas no afectadas se conservan.
+ */
+@SpringJUnitConfig(ProductoServiceCacheTest.Config.class)
+@DisplayName("Tests de caché de ProductoService")
+class ProductoServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new TwoTierCacheManager(new ConcurrentMapCacheManager(), new TwoTierCacheProperties(),
+                    mock(CacheInvalidationBus.class), new SimpleMeterRegistry());
+        }
+
+        @Bean
+        ProductoRepository productoRepository() {
+            return mock(ProductoRepository.class);
+        }
+
+        @Bean(ProductoKeyGenerator.NOMBRE)
+        ProductoKeyGenerator productoKeyGenerator() {
+            return new ProductoKeyGenerator();
+        }
+
+        @Bean
+        ProductoCacheInvalidator productoCacheInvalidator(CacheManager cacheManager) {
+            return new ProductoCacheInvalidator(cacheManager);
+        }
+
+        @Bean
+        MongoTemplate mongoTemplate() {
+            return mock(MongoTemplate.class);
+        }
+
+        @Bean
+        ProductoService productoService(ProductoRepository productoRepository, MongoTemplate mongoTemplate,
+                                        ProductoCacheInvalidator invalidator) {
+            return new ProductoService(productoRepository, new ProductoMapper(), mock(WebSocketHandler.class),
+                    mock(ApplicationEventPublisher.class), mongoTemplate, invalidator);
+        }
+    }
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // "Base de datos" en memoria detrás del repositorio simulado
+    private final Map<String, Producto> mongo = new LinkedHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private Producto betis;
+    private Producto madrid;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+        mongo.clear();
+        reset(productoRepository, mongoTemplate);
+
+        when(productoRepository.findAll()).thenAnswer(inv -> buscar(p -> true));
+        when(productoRepository.findById(anyString())).thenAnswer(inv ->
+                Optional.ofNullable(mongo.get(inv.<String>getArgument(0))).map(this::copia));
+        when(productoRepository.findByNombreIgnoreCase(anyString())).thenAnswer(inv ->
+                buscar(p -> p.getNombre().equalsIgnoreCase(inv.getArgument(0))));
+        when(productoRepository.findByEquipoIgnoreCase(anyString())).thenAnswer(inv ->
+                buscar(p -> p.getEquipo().equalsIgnoreCase(inv.getArgument(0))));
+        when(productoRepository.findByTalla(anyString())).thenAnswer(inv ->
+                buscar(p -> p.getTalla().equals(inv.getArgument(0))));
+        when(productoRepository.findByEstado(any())).thenAnswer(inv ->
+                buscar(p -> p.getEstado() == inv.getArgument(0)));
+        when(productoRepository.save(any(Producto.class))).thenAnswer(inv -> {
+            Producto p = copia(inv.getArgument(0));
+            if (p.getId() == null) {
+                p.setId(String.valueOf(secuencia.incrementAndGet()));
+            }
+            mongo.put(p.getId(), p);
+            return copia(p);
+        });
+        doAnswer(inv -> mongo.remove(inv.<String>getArgument(0))).when(productoRepository).deleteById(anyString());
+        // actualizarProducto escribe los campos del catálogo con un $set condicionado al _id
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Producto.class))).thenAnswer(inv -> {
+            Producto p = mongo.get(inv.<Query>getArgument(0).getQueryObject().getString("_id"));
+            if (p == null) {
+                return UpdateResult.acknowledged(0, 0L, null);
+            }
+            Document set = inv.<UpdateDefinition>getArgument(1).getUpdateObject().get("$set", Document.class);
+            p.setNombre(set.getString("nombre"));
+            p.setEquipo(set.getString("equipo"));
+            p.setTalla(set.getString("talla"));
+            p.setDescripcion(set.getString("descripcion"));
+            p.setPrecio(set.getDouble("precio"));
+            p.setImageUrl(set.getString("imageUrl"));
+            if (set.containsKey("estado")) {
+                p.setEstado(EstadoProducto.valueOf(set.getString("estado")));
+            }
+            return UpdateResult.acknowledged(1, 1L, null);
+        });
+
+        betis = guardar("Camiseta Local", "Real Betis", "M", EstadoProducto.DISPONIBLE);
+        madrid = guardar("Camiseta Visitante", "Real Madrid", "L", EstadoProducto.DISPONIBLE);
+        clearInvocations(productoRepository);
+    }
+
+    private Producto guardar(String nombre, String equipo, String talla, EstadoProducto estado) {
+        return productoRepository.save(Producto.builder()
+                .nombre(nombre).equipo(equipo).talla(talla).precio(60.0).estado(estado).build());
+    }
+
+    private List<Producto> buscar(Predicate<Producto> filtro) {
+        List<Producto> resultado = new ArrayList<>();
+        mongo.values().stream().filter(filtro).map(this::copia).forEach(resultado::add);
+        return resultado;
+    }
+
+    private Producto copia(Producto p) {
+        return Producto.builder()
+                .id(p.getId()).nombre(p.getNombre()).equipo(p.getEquipo()).talla(p.getTalla())
+                .descripcion(p.getDescripcion()).precio(p.getPrecio()).imageUrl(p.getImageUrl())
+                .estado(p.getEstado()).fechaCreacion(p.getFechaCreacion())
+                .build();
+    }
+
+    private ProductoRequestDTO request(Producto p) {
+        return ProductoRequestDTO.builder()
+                .nombre(p.getNombre()).equipo(p.getEquipo()).talla(p.getTalla())
+                .descripcion(p.getDescripcion()).precio(p.getPrecio()).imageUrl(p.getImageUrl())
+                .estado(p.getEstado())
+                .build();
+    }
+
+    private List<String> ids(List<ProductoResponseDTO> productos) {
+        return productos.stream().map(ProductoResponseDTO::getId).toList();
+    }
+
+    @Nested
+    @DisplayName("Sin lecturas obsoletas")
+    class SinLecturasObsoletas {
+
+        @Test
+        @DisplayName("obtenerPorId debería devolver los datos nuevos tras actualizar")
+        void porIdTrasActualizar() {
+            productoService.obtenerPorId(betis.getId());
+            ProductoRequestDTO cambio = request(betis);
+            cambio.setPrecio(45.0);
+
+            productoService.actualizarProducto(betis.getId(), cambio);
+
+            assertEquals(45.0, productoService.obtenerPorId(betis.getId()).getPrecio());
+        }
+
+        @Test
+        @DisplayName("Cambiar de equipo debería sacar el producto de la búsqueda antigua y meterlo en la nueva")
+        void cambioDeEquipo() {
+            assertEquals(List.of(betis.getId()), ids(productoService.buscarPorEquipo("Real Betis")));
+            assertEquals(List.of(), ids(productoService.buscarPorEquipo("Sevilla FC")));
+            ProductoRequestDTO cambio = request(betis);
+            cambio.setEquipo("Sevilla FC");
+
+            productoService.actualizarProducto(betis.getId(), cambio);
+
+            assertAll(
+                    () -> assertEquals(List.of(), ids(productoService.buscarPorEquipo("Real Betis"))),
+                    () -> assertEquals(List.of(betis.getId()), ids(productoService.buscarPorEquipo("Sevilla FC")))
+            );
+        }
+
+        @Test
+        @DisplayName("La búsqueda por equipo con otras mayúsculas también debería invalidarse")
+        void equipoSinDistinguirMayusculas() {
+            assertEquals(List.of(betis.getId()), ids(productoService.buscarPorEquipo("REAL BETIS")));
+            ProductoRequestDTO cambio = request(betis);
+            cambio.setEquipo("Sevilla FC");
+
+            productoService.actualizarProducto(betis.getId(), cambio);
+
+            assertEquals(List.of(), ids(productoService.buscarPorEquipo("real betis")));
+        }
+
+        @Test
+        @DisplayName("Cambiar nombre, talla y estado debería actualizar sus búsquedas")
+        void cambioDeNombreTallaYEstado() {
+            productoService.buscarPorNombre("Camiseta Local");
+            productoService.buscarPorTalla("M");
+            productoService.buscarPorTalla("XL");
+            productoService.buscarPorEstado(EstadoProducto.DISPONIBLE);
+            productoService.buscarPorEstado(EstadoProducto.RESERVADO);
+            ProductoRequestDTO cambio = request(betis);
+            cambio.setNombre("Camiseta Tercera");
+            cambio.setTalla("XL");
+            cambio.setEstado(EstadoProducto.RESERVADO);
+
+            productoService.actualizarProducto(betis.getId(), cambio);
+
+            assertAll(
+                    () -> assertEquals(List.of(), ids(productoService.buscarPorNombre("Camiseta Local"))),
+                    () -> assertEquals(List.of(betis.getId()), ids(productoService.buscarPorNombre("camiseta tercera"))),
+                    () -> assertEquals(List.of(), ids(productoService.buscarPorTalla("M"))),
+                    () -> assertEquals(List.of(betis.getId()), ids(productoService.buscarPorTalla("XL"))),
+                    () -> assertEquals(List.of(madrid.getId()), ids(productoService.buscarPorEstado(EstadoProducto.DISPONIBLE))),
+                    () -> assertEquals(List.of(betis.getId()), ids(productoService.buscarPorEstado(EstadoProducto.RESERVADO)))
+            );
+        }
+
+        @Test
+        @DisplayName("Crear un producto debería reflejarse en el listado y en sus búsquedas")
+        void crearProducto() {
+            productoService.listarProductos();
+            productoService.buscarPorEquipo("Real Betis");
+
+            ProductoResponseDTO nuevo = productoService.crearProducto(ProductoRequestDTO.builder()
+                    .nombre("Camiseta Retro").equipo("Real Betis").talla("S").precio(80.0)
+                    .estado(EstadoProducto.DISPONIBLE).build());
+
+            assertAll(
+                    () -> assertEquals(3, productoService.listarProductos().size()),
+                    () -> assertEquals(List.of(betis.getId(), nuevo.getId()), ids(productoService.buscarPorEquipo("Real Betis")))
+            );
+        }
+
+        @Test
+        @DisplayName("Eliminar un producto debería quitarlo del listado y de sus búsquedas")
+        void eliminarProducto() {
+            productoService.listarProductos();
+            productoService.buscarPorEquipo("Real Betis");
+            productoService.buscarPorTalla("M");
+
+            productoService.eliminarProducto(betis.getId());
+
+            assertAll(
+                    () -> assertEquals(List.of(madrid.getId()), ids(productoService.listarProductos())),
+                    () -> assertEquals(List.of(), ids(productoService.buscarPorEquipo("Real Betis"))),
+                    () -> assertEquals(List.of(), ids(productoService.buscarPorTalla("M")))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Regiones por consulta")
+    class Regiones {
+
+        @Test
+        @DisplayName("Un equipo y una talla con el mismo valor no deberían compartir entrada")
+        void equipoYTallaNoColisionan() {
+            Producto equipoM = guardar("Camiseta M", "M", "XL", EstadoProducto.DISPONIBLE);
+
+            List<String> porTalla = ids(productoService.buscarPorTalla("M"));
+            List<String> porEquipo = ids(productoService.buscarPorEquipo("M"));
+
+            assertAll(
+                    () -> assertEquals(List.of(betis.getId()), porTalla),
+                    () -> assertEquals(List.of(equipoM.getId()), porEquipo),
+                    () -> verify(productoRepository).findByTalla("M"),
+                    () -> verify(productoRepository).findByEquipoIgnoreCase("M")
+            );
+        }
+
+        @Test
+        @DisplayName("El id y el nombre con el mismo valor no deberían compartir entrada")
+        void idYNombreNoColisionan() {
+            Producto nombreComoId = guardar(betis.getId(), "Sevilla FC", "S", EstadoProducto.DISPONIBLE);
+
+            ProductoResponseDTO porId = productoService.obtenerPorId(betis.getId());
+            List<String> porNombre = ids(productoService.buscarPorNombre(betis.getId()));
+
+            assertAll(
+                    () -> assertEquals("Real Betis", porId.getEquipo()),
+                    () -> assertEquals(List.of(nombreComoId.getId()), porNombre)
+            );
+        }
+
+        @Test
+        @DisplayName("Cada consulta debería guardarse en su propia región")
+        void cadaConsultaEnSuRegion() {
+            productoService.obtenerPorId(betis.getId());
+            productoService.buscarPorEquipo("Real Betis");
+            productoService.buscarPorEstado(EstadoProducto.DISPONIBLE);
+
+            assertAll(
+                    () -> assertNotNull(cacheManager.getCache("productos-id").get(betis.getId())),
+                    () -> assertNotNull(cacheManager.getCache("productos-equipo").get("real betis")),
+                    () -> assertNotNull(cacheManager.getCache("productos-estado").get("DISPONIBLE"))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("Invalidación selectiva")
+    class InvalidacionSelectiva {
+
+        @Test
+        @DisplayName("Actualizar un producto no debería invalidar las búsquedas que no le afectan")
+        void conservaEntradasNoAfectadas() {
+            productoService.obtenerPorId(madrid.getId());
+            productoService.buscarPorEquipo("Real Madrid");
+            productoService.buscarPorTalla("L");
+            ProductoRequestDTO cambio = request(betis);
+            cambio.setPrecio(30.0);
+
+            productoService.actualizarProducto(betis.getId(), cambio);
+            productoService.obtenerPorId(madrid.getId());
+            productoService.buscarPorEquipo("Real Madrid");
+            productoService.buscarPorTalla("L");
+
+            assertAll(
+                    () -> verify(productoRepository, times(1)).findById(madrid.getId()),
+                    () -> verify(productoRepository, times(1)).findByEquipoIgnoreCase("Real Madrid"),
+                    () -> verify(productoRepository, times(1)).findByTalla("L")
+            );
+        }
+
+        @Test
+        @DisplayName("Las lecturas repetidas sin escrituras deberían servirse desde caché")
+        void lecturasCacheadas() {
+            productoService.buscarPorEquipo("Real Betis");
+            productoService.buscarPorEquipo("real betis");
+            productoService.listarProductos();
+            productoService.listarProductos();
+
+            assertAll(
+                    () -> verify(productoRepository, times(1)).findByEquipoIgnoreCase(anyString()),
+                    () -> verify(productoRepository, times(1)).findAll()
+            );
+        }
+    }
+}
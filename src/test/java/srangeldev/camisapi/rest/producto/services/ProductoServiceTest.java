@@ -5,22 +5,40 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.rest.pagination.CursorPage;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
 import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
 import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
 import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
 import srangeldev.camisapi.rest.productos.models.EstadoProducto;
 import srangeldev.camisapi.rest.productos.models.Producto;
 import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoBadRequest;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
 import srangeldev.camisapi.rest.productos.exceptions.ProductoNotFound;
 import srangeldev.camisapi.rest.productos.service.ProductoService;
-import srangeldev.camisapi.websocket.config.MyWebSocketHandler;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,7 +53,13 @@ class ProductoServiceTest {
     private ProductoMapper productoMapper;
 
     @Mock
-    private MyWebSocketHandler myWebSocketHandler;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ProductoCacheInvalidator cacheInvalidator;
 
     @InjectMocks
     private ProductoService productoService;
@@ -81,6 +105,12 @@ class ProductoServiceTest {
                 .build();
     }
 
+    private CambioEvento eventoPublicado() {
+        ArgumentCaptor<CambioEvento> captor = ArgumentCaptor.forClass(CambioEvento.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue();
+    }
+
     // ------------------------------------------------------
     // CREAR PRODUCTO
     // ------------------------------------------------------
@@ -100,8 +130,16 @@ class ProductoServiceTest {
             assertAll(
                     () -> assertEquals(responseDTO.getNombre(), resultado.getNombre()),
                     () -> verify(productoRepository, times(1)).save(producto),
-                    () -> verify(myWebSocketHandler, times(1))
-                            .enviarMensajeATodos("Producto creado:" + producto.getNombre())
+                    () -> verify(cacheInvalidator).invalidar(producto)
+            );
+
+            CambioEvento evento = eventoPublicado();
+            assertAll(
+                    () -> assertEquals("productos", evento.getEntidad()),
+                    () -> assertEquals("1", evento.getId()),
+                    () -> assertEquals(Operacion.CREADO, evento.getOperacion()),
+                    () -> assertEquals(responseDTO, evento.getDatos()),
+                    () -> assertEquals(Set.of("productos", "productos:real madrid"), evento.getTemas())
             );
         }
     }
@@ -124,8 +162,7 @@ class ProductoServiceTest {
             assertAll(
                     () -> assertEquals(1, resultados.size()),
                     () -> assertEquals("Camiseta Real Madrid", resultados.get(0).getNombre()),
-                    () -> verify(myWebSocketHandler, times(1))
-                            .enviarMensajeATodos("Productos listados correctamente")
+                    () -> verifyNoInteractions(eventPublisher)
             );
         }
     }
@@ -147,8 +184,7 @@ class ProductoServiceTest {
 
             assertAll(
                     () -> assertEquals("Camiseta Real Madrid", resultado.getNombre()),
-                    () -> verify(myWebSocketHandler, times(1))
-                            .enviarMensajeATodos("Producto obtenido con id:1")
+                    () -> verifyNoInteractions(eventPublisher)
             );
         }
 
@@ -158,7 +194,22 @@ class ProductoServiceTest {
             when(productoRepository.findById("2")).thenReturn(Optional.empty());
 
             assertThrows(ProductoNotFound.class, () -> productoService.obtenerPorId("2"));
-            verify(myWebSocketHandler, never()).enviarMensajeATodos(anyString());
+            verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        @DisplayName("Debería buscar varios productos con una sola consulta")
+        void obtenerPorIds_ok() {
+            List<String> ids = List.of("1", "2");
+            when(productoRepository.findAllById(ids)).thenReturn(List.of(producto));
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+
+            List<ProductoResponseDTO> resultado = productoService.obtenerPorIds(ids);
+
+            assertAll(
+                    () -> assertEquals(List.of(responseDTO), resultado),
+                    () -> verify(productoRepository, never()).findById(any())
+            );
         }
     }
 
@@ -169,20 +220,115 @@ class ProductoServiceTest {
     @DisplayName("actualizarProducto")
     class ActualizarProducto {
 
+        private void actualizaEnMongo(long coincidencias) {
+            when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Producto.class)))
+                    .thenReturn(UpdateResult.acknowledged(coincidencias, coincidencias, null));
+        }
+
+        private Document updateEnviado() {
+            ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+            verify(mongoTemplate).updateFirst(any(Query.class), captor.capture(), eq(Producto.class));
+            return captor.getValue().getUpdateObject();
+        }
+
+        private Document condicionEnviada() {
+            ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).updateFirst(captor.capture(), any(Update.class), eq(Producto.class));
+            return captor.getValue().getQueryObject();
+        }
+
         @Test
-        @DisplayName("Debería actualizar un producto existente")
+        @DisplayName("Debería actualizar solo los campos del catálogo de un producto existente")
         void actualizarProducto_ok() {
+            producto.setPedidoId(7L);
+            producto.setEstado(EstadoProducto.RESERVADO);
+            requestDTO.setEstado(EstadoProducto.RESERVADO);
+            requestDTO.setPrecio(55.0);
             when(productoRepository.findById("1")).thenReturn(Optional.of(producto));
-            when(productoRepository.save(producto)).thenReturn(producto);
+            actualizaEnMongo(1);
             when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
 
             ProductoResponseDTO resultado = productoService.actualizarProducto("1", requestDTO);
 
+            Document set = updateEnviado().get("$set", Document.class);
             assertAll(
                     () -> assertEquals("Camiseta Real Madrid", resultado.getNombre()),
-                    () -> verify(productoRepository, times(1)).save(producto),
-                    () -> verify(myWebSocketHandler, times(1))
-                            .enviarMensajeATodos("Producto actualizado con id:1")
+                    () -> assertEquals(55.0, set.get("precio")),
+                    () -> assertFalse(set.containsKey("estado")),
+                    () -> assertFalse(set.containsKey("pedidoId")),
+                    () -> assertFalse(set.containsKey("reservadoHasta")),
+                    () -> assertEquals(new Document("_id", "1"), condicionEnviada()),
+                    () -> verify(productoRepository, never()).save(any()),
+                    () -> verify(cacheInvalidator).invalidar(any(Producto.class), eq(producto))
+            );
+
+            CambioEvento evento = eventoPublicado();
+            assertAll(
+                    () -> assertEquals(Operacion.ACTUALIZADO, evento.getOperacion()),
+                    () -> assertEquals("1", evento.getId()),
+                    () -> assertEquals(Set.of("productos", "productos:real madrid"), evento.getTemas())
+            );
+        }
+
+        @Test
+        @DisplayName("Al cambiar de equipo debería avisar también a los suscritos al equipo anterior")
+        void actualizarProducto_cambioEquipo() {
+            requestDTO.setEquipo("Sevilla FC");
+            Producto actualizado = producto.toBuilder().equipo("Sevilla FC").build();
+            when(productoRepository.findById("1")).thenReturn(Optional.of(producto), Optional.of(actualizado));
+            actualizaEnMongo(1);
+            when(productoMapper.toDTO(actualizado)).thenReturn(responseDTO);
+
+            productoService.actualizarProducto("1", requestDTO);
+
+            assertEquals(Set.of("productos", "productos:real madrid", "productos:sevilla fc"),
+                    eventoPublicado().getTemas());
+        }
+
+        @Test
+        @DisplayName("Un cambio de estado solo se aplica si el producto sigue en ese estado y sin pedido")
+        void actualizarProducto_cambioEstado() {
+            requestDTO.setEstado(EstadoProducto.VENDIDO);
+            when(productoRepository.findById("1")).thenReturn(Optional.of(producto));
+            actualizaEnMongo(1);
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+
+            productoService.actualizarProducto("1", requestDTO);
+
+            Document condicion = condicionEnviada();
+            assertAll(
+                    () -> assertEquals("DISPONIBLE", condicion.get("estado")),
+                    () -> assertTrue(condicion.containsKey("pedidoId")),
+                    () -> assertNull(condicion.get("pedidoId")),
+                    () -> assertEquals("VENDIDO", updateEnviado().get("$set", Document.class).get("estado"))
+            );
+        }
+
+        @Test
+        @DisplayName("Debería rechazar con 409 cambiar el estado de un producto reservado por un pedido")
+        void actualizarProducto_reservadoPorPedido() {
+            producto.setEstado(EstadoProducto.RESERVADO);
+            producto.setPedidoId(7L);
+            when(productoRepository.findById("1")).thenReturn(Optional.of(producto));
+
+            assertThrows(ProductoNoDisponible.class, () -> productoService.actualizarProducto("1", requestDTO));
+            verifyNoInteractions(mongoTemplate, eventPublisher, cacheInvalidator);
+        }
+
+        @Test
+        @DisplayName("Si un pedido lo reserva entre la lectura y la escritura, el cambio de estado falla con 409")
+        void actualizarProducto_reservadoMientrasSeEdita() {
+            requestDTO.setEstado(EstadoProducto.VENDIDO);
+            Producto reservado = producto.toBuilder().estado(EstadoProducto.RESERVADO).pedidoId(7L).build();
+            when(productoRepository.findById("1")).thenReturn(Optional.of(producto), Optional.of(reservado));
+            actualizaEnMongo(0);
+
+            ProductoNoDisponible error = assertThrows(ProductoNoDisponible.class,
+                    () -> productoService.actualizarProducto("1", requestDTO));
+
+            assertAll(
+                    () -> assertTrue(error.getMessage().contains("pedido 7")),
+                    () -> verifyNoInteractions(eventPublisher, cacheInvalidator)
             );
         }
 
@@ -192,7 +338,7 @@ class ProductoServiceTest {
             when(productoRepository.findById("2")).thenReturn(Optional.empty());
 
             assertThrows(ProductoNotFound.class, () -> productoService.actualizarProducto("2", requestDTO));
-            verify(myWebSocketHandler, never()).enviarMensajeATodos(anyString());
+            verifyNoInteractions(eventPublisher);
         }
     }
 
@@ -212,8 +358,14 @@ class ProductoServiceTest {
 
             verify(productoRepository, times(1)).findById("1");
             verify(productoRepository, times(1)).deleteById("1");
-            verify(myWebSocketHandler, times(1))
-                    .enviarMensajeATodos("Producto eliminado con id1");
+            verify(cacheInvalidator).invalidar(producto);
+
+            CambioEvento evento = eventoPublicado();
+            assertAll(
+                    () -> assertEquals(Operacion.ELIMINADO, evento.getOperacion()),
+                    () -> assertNull(evento.getDatos()),
+                    () -> assertEquals(Set.of("productos", "productos:real madrid"), evento.getTemas())
+            );
         }
 
         @Test
@@ -277,6 +429,95 @@ class ProductoServiceTest {
         }
     }
 
+    // ------------------------------------------------------
+    // LISTAR PRODUCTOS PAGINADOS
+    // ------------------------------------------------------
+    @Nested
+    @DisplayName("listarProductosPagina")
+    class ListarProductosPagina {
+
+        @Test
+        @DisplayName("Sin cursor debería leer la primera página por _id")
+        void primeraPagina() {
+            when(productoRepository.findAllByOrderByIdAsc(Limit.of(21))).thenReturn(List.of(producto));
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+
+            CursorPage<ProductoResponseDTO> pagina = productoService.listarProductosPagina(null, null);
+
+            assertAll(
+                    () -> assertEquals(List.of(responseDTO), pagina.getItems()),
+                    () -> assertFalse(pagina.isHasMore()),
+                    () -> assertNull(pagina.getNextCursor())
+            );
+        }
+
+        @Test
+        @DisplayName("Con cursor debería consultar el rango id > cursor")
+        void siguientePagina() {
+            Producto otro = Producto.builder().id("2").nombre("Camiseta Betis").build();
+            when(productoRepository.findByIdGreaterThanOrderByIdAsc("0", Limit.of(2))).thenReturn(List.of(producto, otro));
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+
+            CursorPage<ProductoResponseDTO> pagina = productoService.listarProductosPagina(CursorPage.encode("0"), 1);
+
+            assertAll(
+                    () -> assertEquals(1, pagina.getItems().size()),
+                    () -> assertTrue(pagina.isHasMore()),
+                    () -> assertEquals("1", CursorPage.decode(pagina.getNextCursor())),
+                    () -> verify(productoRepository, never()).findAll()
+            );
+        }
+
+        @Test
+        @DisplayName("Debería lanzar ProductoBadRequest con un límite inválido")
+        void limiteInvalido() {
+            assertThrows(ProductoBadRequest.class, () -> productoService.listarProductosPagina(null, 0));
+            verifyNoInteractions(productoRepository);
+        }
+    }
+
+    // ------------------------------------------------------
+    // EXPORTAR PRODUCTOS
+    // ------------------------------------------------------
+    @Nested
+    @DisplayName("exportarProductos")
+    class ExportarProductos {
+
+        @Test
+        @DisplayName("Debería recorrer el cursor de Mongo y cerrarlo al terminar")
+        void exportarConCursor() {
+            AtomicBoolean cerrado = new AtomicBoolean();
+            when(mongoTemplate.stream(any(Query.class), eq(Producto.class)))
+                    .thenReturn(Stream.of(producto, producto).onClose(() -> cerrado.set(true)));
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+            List<ProductoResponseDTO> recibidos = new ArrayList<>();
+
+            long exportados = productoService.exportarProductos(recibidos::add);
+
+            assertAll(
+                    () -> assertEquals(2, exportados),
+                    () -> assertEquals(List.of(responseDTO, responseDTO), recibidos),
+                    () -> assertTrue(cerrado.get()),
+                    () -> verify(productoRepository, never()).findAll(),
+                    () -> verifyNoInteractions(eventPublisher)
+            );
+        }
+
+        @Test
+        @DisplayName("Debería cerrar el cursor aunque falle la escritura")
+        void exportarCierraCursorSiFalla() {
+            AtomicBoolean cerrado = new AtomicBoolean();
+            when(mongoTemplate.stream(any(Query.class), eq(Producto.class)))
+                    .thenReturn(Stream.of(producto).onClose(() -> cerrado.set(true)));
+            when(productoMapper.toDTO(producto)).thenReturn(responseDTO);
+
+            assertThrows(IllegalStateException.class, () -> productoService.exportarProductos(dto -> {
+                throw new IllegalStateException("cliente desconectado");
+            }));
+            assertTrue(cerrado.get());
+        }
+    }
+
     // ------------------------------------------------------
     // BUSCAR POR ESTADO
     // ------------------------------------------------------
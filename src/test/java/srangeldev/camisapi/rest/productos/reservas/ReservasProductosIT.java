@@ -0,0 +1,520 @@
+package srangeldev.camisapi.rest.productos.reservas;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.dto.ProductoRequestDTO;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+import srangeldev.camisapi.rest.productos.repository.ProductoRepository;
+import srangeldev.camisapi.rest.productos.service.ProductoService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reservas contra un mongod real: las condiciones de los filtros y la atomicidad por documento son
+ * las de Mongo, no las de un doble de prueba.
+ *
+ * Arranca un Mongo embebido (flapdoodle) salvo que se indique uno con -Ptest.mongo-uri:
+ * ./gradlew integrationTest -PintegrationTest [-Ptest.mongo-uri=mongodb://host:27017]
+ */
+@Tag("integration")
+@DisplayName("Tests de integración de las reservas de productos")
+class ReservasProductosIT {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient cliente;
+    private static MongoTemplate mongo;
+
+    private final List<CambioEvento> eventos = new CopyOnWriteArrayList<>();
+    private ReservasProperties properties;
+    private ReservasProductos reservas;
+
+    @BeforeAll
+    static void arrancarMongo() {
+        String uri = System.getProperty("test.mongo-uri");
+        if (uri == null || uri.isBlank()) {
+            mongod = Mongod.instance().start(Version.Main.V7_0);
+            ServerAddress direccion = mongod.current().getServerAddress();
+            uri = "mongodb://" + direccion.getHost() + ":" + direccion.getPort();
+        }
+        cliente = MongoClients.create(uri);
+        mongo = new MongoTemplate(cliente, "camisapi_reservas_it");
+    }
+
+    @AfterAll
+    static void pararMongo() {
+        if (cliente != null) {
+            cliente.close();
+        }
+        if (mongod != null) {
+            mongod.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongo.dropCollection(Producto.class);
+        properties = new ReservasProperties();
+        reservas = new ReservasProductos(mongo, new ProductoCacheInvalidator(new NoOpCacheManager()), properties,
+                evento -> eventos.add((CambioEvento) evento), new ProductoMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Producto guardar(String id, EstadoProducto estado, Long pedidoId, LocalDateTime reservadoHasta) {
+        return mongo.insert(Producto.builder()
+                .id(id).nombre("Camiseta " + id).equipo("Betis").talla("M").precio(60.0)
+                .estado(estado).pedidoId(pedidoId)
+                .reservadoHasta(reservadoHasta == null ? null : reservadoHasta.truncatedTo(ChronoUnit.MILLIS))
+                .build());
+    }
+
+    private Producto disponible(String id) {
+        return guardar(id, EstadoProducto.DISPONIBLE, null, null);
+    }
+
+    private Producto enMongo(String id) {
+        return mongo.findById(id, Producto.class);
+    }
+
+    /**
+     * Estados publicados en los eventos del producto, en orden
+     */
+    private List<String> estadosPublicados(String id) {
+        return eventos.stream()
+                .filter(evento -> evento.getId().equals(id))
+                .map(evento -> ((ProductoResponseDTO) evento.getDatos()).getEstado().toString())
+                .toList();
+    }
+
+    private static void deshacer() {
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    @Nested
+    @DisplayName("reservar")
+    class Reservar {
+
+        @Test
+        @DisplayName("Reserva todos los productos para el pedido hasta que caduca el TTL y publica su cambio")
+        void reservar_ok() {
+            List<Producto> productos = List.of(disponible("p1"), disponible("p2"));
+
+            reservas.reservar(1L, productos);
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p1").getEstado()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p2").getEstado()),
+                    () -> assertEquals(1L, enMongo("p1").getPedidoId()),
+                    () -> assertTrue(enMongo("p2").getReservadoHasta().isAfter(LocalDateTime.now().plusMinutes(14))),
+                    () -> assertEquals(List.of("RESERVADO"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of("RESERVADO"), estadosPublicados("p2")),
+                    () -> assertTrue(eventos.stream().allMatch(evento -> evento.getOperacion() == CambioEvento.Operacion.ACTUALIZADO))
+            );
+        }
+
+        @Test
+        @DisplayName("Si otro pedido se adelantó con algún producto, suelta solo los que reservó")
+        void reservar_otroSeAdelanta() {
+            List<Producto> productos = List.of(disponible("p1"), disponible("p2"));
+            // Leídos disponibles, pero otro pedido reserva p2 antes que este
+            Producto p2 = enMongo("p2");
+            p2.setEstado(EstadoProducto.RESERVADO);
+            p2.setPedidoId(2L);
+            mongo.save(p2);
+
+            assertThrows(ProductoNoDisponible.class, () -> reservas.reservar(1L, productos));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado()),
+                    () -> assertNull(enMongo("p1").getPedidoId()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p2").getEstado()),
+                    () -> assertEquals(2L, enMongo("p2").getPedidoId()),
+                    () -> assertEquals(List.of("RESERVADO", "DISPONIBLE"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of(), estadosPublicados("p2"))
+            );
+        }
+
+        @Test
+        @DisplayName("Si la transacción del pedido se deshace, las reservas se deshacen también")
+        void reservar_transaccionDeshecha() {
+            List<Producto> productos = List.of(disponible("p1"));
+            TransactionSynchronizationManager.initSynchronization();
+
+            reservas.reservar(1L, productos);
+            assertEquals(EstadoProducto.RESERVADO, enMongo("p1").getEstado());
+            deshacer();
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado()),
+                    () -> assertNull(enMongo("p1").getPedidoId()),
+                    () -> assertNull(enMongo("p1").getReservadoHasta())
+            );
+        }
+
+        @Test
+        @DisplayName("Con muchos checkouts a la vez, cada producto acaba como mucho en un pedido")
+        void reservar_concurrente() throws InterruptedException {
+            int productos = 20;
+            int pedidos = 200;
+            List<Producto> catalogo = IntStream.range(0, productos).mapToObj(i -> disponible("p" + i)).toList();
+            Map<Long, List<String>> reservados = new ConcurrentHashMap<>();
+            Map<Long, List<String>> rechazados = new ConcurrentHashMap<>();
+            CountDownLatch salida = new CountDownLatch(1);
+
+            List<Thread> hilos = new ArrayList<>();
+            for (long pedido = 1; pedido <= pedidos; pedido++) {
+                long pedidoId = pedido;
+                // Cada pedido lleva entre uno y tres productos, que se solapan con los de otros
+                List<Producto> pedidoProductos = ThreadLocalRandom.current().ints(0, productos)
+                        .distinct()
+                        .limit(1 + pedidoId % 3)
+                        .mapToObj(catalogo::get)
+                        .toList();
+                List<String> ids = pedidoProductos.stream().map(Producto::getId).toList();
+                hilos.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        salida.await();
+                        reservas.reservar(pedidoId, pedidoProductos);
+                        reservados.put(pedidoId, ids);
+                    } catch (ProductoNoDisponible e) {
+                        rechazados.put(pedidoId, ids);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            salida.countDown();
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+
+            List<Producto> finales = mongo.findAll(Producto.class);
+            assertAll(
+                    () -> assertEquals(pedidos, reservados.size() + rechazados.size()),
+                    () -> assertFalse(reservados.isEmpty()),
+                    // Los pedidos que reservaron tienen todos sus productos y no comparten ninguno
+                    () -> assertEquals(reservados.values().stream().mapToLong(List::size).sum(),
+                            reservados.values().stream().flatMap(List::stream).distinct().count()),
+                    () -> reservados.forEach((pedidoId, ids) -> ids.forEach(id -> {
+                        assertEquals(EstadoProducto.RESERVADO, enMongo(id).getEstado());
+                        assertEquals(pedidoId, enMongo(id).getPedidoId());
+                    })),
+                    // Los rechazados no se quedan con nada
+                    () -> finales.stream()
+                            .filter(producto -> producto.getEstado() == EstadoProducto.RESERVADO)
+                            .forEach(producto -> assertTrue(reservados.containsKey(producto.getPedidoId()))),
+                    () -> finales.stream()
+                            .filter(producto -> producto.getEstado() == EstadoProducto.DISPONIBLE)
+                            .forEach(producto -> assertNull(producto.getPedidoId())),
+                    // El último evento de cada producto es su estado final
+                    () -> finales.forEach(producto -> {
+                        List<String> publicados = estadosPublicados(producto.getId());
+                        if (!publicados.isEmpty()) {
+                            assertEquals(producto.getEstado().name(), publicados.getLast());
+                        }
+                    })
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("vender")
+    class Vender {
+
+        @Test
+        @DisplayName("Marca como vendidos los productos reservados para el pedido")
+        void vender_reservados() {
+            guardar("p1", EstadoProducto.RESERVADO, 1L, LocalDateTime.now().plusMinutes(5));
+
+            reservas.vender(1L, List.of("p1"));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p1").getEstado()),
+                    () -> assertEquals(1L, enMongo("p1").getPedidoId()),
+                    () -> assertNull(enMongo("p1").getReservadoHasta()),
+                    () -> assertEquals(List.of("VENDIDO"), estadosPublicados("p1"))
+            );
+        }
+
+        @Test
+        @DisplayName("Si la reserva caducó y nadie se llevó los productos, el pedido aún se paga")
+        void vender_reservaCaducadaLibre() {
+            disponible("p1");
+
+            reservas.vender(1L, List.of("p1"));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p1").getEstado()),
+                    () -> assertEquals(1L, enMongo("p1").getPedidoId())
+            );
+        }
+
+        @Test
+        @DisplayName("Vender de nuevo lo ya vendido al pedido no publica nada")
+        void vender_yaVendido() {
+            guardar("p1", EstadoProducto.VENDIDO, 1L, null);
+
+            reservas.vender(1L, List.of("p1"));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p1").getEstado()),
+                    () -> assertTrue(eventos.isEmpty())
+            );
+        }
+
+        @Test
+        @DisplayName("Si otro pedido tiene algún producto, falla y deja cada producto como estaba")
+        void vender_productoDeOtroPedido() {
+            LocalDateTime hasta = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MILLIS);
+            guardar("p1", EstadoProducto.RESERVADO, 1L, hasta);
+            disponible("p2");
+            guardar("p3", EstadoProducto.VENDIDO, 1L, null);
+            guardar("p4", EstadoProducto.RESERVADO, 2L, LocalDateTime.now().plusMinutes(5));
+
+            assertThrows(ProductoNoDisponible.class, () -> reservas.vender(1L, List.of("p1", "p2", "p3", "p4")));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p1").getEstado()),
+                    () -> assertEquals(1L, enMongo("p1").getPedidoId()),
+                    () -> assertEquals(hasta, enMongo("p1").getReservadoHasta()),
+                    // Estaba libre: vuelve a libre, no a reservado para el pedido
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p2").getEstado()),
+                    () -> assertNull(enMongo("p2").getPedidoId()),
+                    // Ya estaba vendido antes de esta llamada: no se toca
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p3").getEstado()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p4").getEstado()),
+                    () -> assertEquals(2L, enMongo("p4").getPedidoId()),
+                    () -> assertEquals(List.of("VENDIDO", "RESERVADO"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of("VENDIDO", "DISPONIBLE"), estadosPublicados("p2")),
+                    () -> assertEquals(List.of(), estadosPublicados("p3"))
+            );
+        }
+
+        @Test
+        @DisplayName("Si la transacción se deshace, solo vuelve atrás lo que cambió esta venta")
+        void vender_transaccionDeshecha() {
+            disponible("p1");
+            guardar("p2", EstadoProducto.RESERVADO, 1L, LocalDateTime.now().plusMinutes(5));
+            TransactionSynchronizationManager.initSynchronization();
+
+            reservas.vender(1L, List.of("p1", "p2"));
+            deshacer();
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado()),
+                    () -> assertNull(enMongo("p1").getPedidoId()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p2").getEstado()),
+                    () -> assertEquals(1L, enMongo("p2").getPedidoId())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("liberar")
+    class Liberar {
+
+        @Test
+        @DisplayName("Sin transacción devuelve a disponibles solo los productos del pedido")
+        void liberar_sinTransaccion() {
+            guardar("p1", EstadoProducto.RESERVADO, 1L, LocalDateTime.now().plusMinutes(5));
+            guardar("p2", EstadoProducto.RESERVADO, 2L, LocalDateTime.now().plusMinutes(5));
+
+            reservas.liberar(1L, List.of("p1", "p2"));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado()),
+                    () -> assertNull(enMongo("p1").getPedidoId()),
+                    () -> assertNull(enMongo("p1").getReservadoHasta()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p2").getEstado()),
+                    () -> assertEquals(List.of("DISPONIBLE"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of(), estadosPublicados("p2"))
+            );
+        }
+
+        @Test
+        @DisplayName("Dentro de una transacción espera a que se confirme")
+        void liberar_alConfirmar() {
+            guardar("p1", EstadoProducto.VENDIDO, 1L, null);
+            TransactionSynchronizationManager.initSynchronization();
+
+            reservas.liberar(1L, List.of("p1"));
+            assertEquals(EstadoProducto.VENDIDO, enMongo("p1").getEstado());
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+
+            assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado());
+        }
+    }
+
+    @Nested
+    @DisplayName("liberarLote")
+    class LiberarLote {
+
+        @Test
+        @DisplayName("Libera solo las reservas caducadas y publica su cambio")
+        void liberarLote_caducadas() {
+            guardar("p1", EstadoProducto.RESERVADO, 1L, LocalDateTime.now().minusMinutes(1));
+            guardar("p2", EstadoProducto.RESERVADO, 2L, LocalDateTime.now().plusMinutes(5));
+            guardar("p3", EstadoProducto.VENDIDO, 3L, null);
+
+            int liberadas = reservas.liberarLote();
+
+            assertAll(
+                    () -> assertEquals(1, liberadas),
+                    () -> assertEquals(EstadoProducto.DISPONIBLE, enMongo("p1").getEstado()),
+                    () -> assertNull(enMongo("p1").getPedidoId()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, enMongo("p2").getEstado()),
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p3").getEstado()),
+                    () -> assertEquals(List.of("DISPONIBLE"), estadosPublicados("p1")),
+                    () -> assertEquals(1, eventos.size())
+            );
+        }
+
+        @Test
+        @DisplayName("Repite lotes hasta que no quedan reservas caducadas")
+        void liberarCaducadas_porLotes() {
+            properties.setLoteLiberacion(2);
+            IntStream.range(0, 5).forEach(i ->
+                    guardar("p" + i, EstadoProducto.RESERVADO, (long) i, LocalDateTime.now().minusMinutes(1)));
+
+            reservas.liberarCaducadas();
+
+            assertAll(
+                    () -> assertTrue(mongo.findAll(Producto.class).stream().allMatch(p -> p.getEstado() == EstadoProducto.DISPONIBLE)),
+                    () -> assertEquals(5, eventos.size())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("edición del catálogo")
+    class EdicionCatalogo {
+
+        private ProductoService productoService;
+
+        /**
+         * Servicio que lee de Mongo; tras la primera lectura (la del administrador) y antes de que escriba
+         * se ejecuta entreLecturaYEscritura: la misma carrera que entre dos peticiones reales
+         */
+        private void servicio(Consumer<Producto> entreLecturaYEscritura) {
+            ProductoRepository repositorio = mock(ProductoRepository.class);
+            AtomicBoolean primeraLectura = new AtomicBoolean(true);
+            when(repositorio.findById(anyString())).thenAnswer(invocation -> {
+                Producto leido = enMongo(invocation.getArgument(0));
+                if (primeraLectura.compareAndSet(true, false)) {
+                    entreLecturaYEscritura.accept(leido);
+                }
+                return Optional.ofNullable(leido);
+            });
+            productoService = new ProductoService(repositorio, new ProductoMapper(), mock(WebSocketHandler.class),
+                    evento -> eventos.add((CambioEvento) evento), mongo, new ProductoCacheInvalidator(new NoOpCacheManager()));
+        }
+
+        private void checkoutMientrasSeEdita(Long pedidoId) {
+            servicio(leido -> reservas.reservar(pedidoId, List.of(leido)));
+        }
+
+        private ProductoRequestDTO edicion(Producto producto, EstadoProducto estado) {
+            return ProductoRequestDTO.builder()
+                    .nombre(producto.getNombre()).equipo(producto.getEquipo()).talla(producto.getTalla())
+                    .precio(75.0).estado(estado)
+                    .build();
+        }
+
+        @Test
+        @DisplayName("Una edición leída antes del checkout cambia el catálogo sin tocar la reserva")
+        void edicion_conservaReserva() {
+            Producto producto = disponible("p1");
+            checkoutMientrasSeEdita(1L);
+
+            productoService.actualizarProducto("p1", edicion(producto, EstadoProducto.DISPONIBLE));
+
+            Producto guardado = enMongo("p1");
+            assertAll(
+                    () -> assertEquals(75.0, guardado.getPrecio()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, guardado.getEstado()),
+                    () -> assertEquals(1L, guardado.getPedidoId()),
+                    () -> assertNotNull(guardado.getReservadoHasta())
+            );
+        }
+
+        @Test
+        @DisplayName("Un cambio de estado leído antes del checkout falla con 409 y la reserva sigue en pie")
+        void edicion_cambioEstadoFalla() {
+            Producto producto = disponible("p1");
+            checkoutMientrasSeEdita(1L);
+
+            assertThrows(ProductoNoDisponible.class,
+                    () -> productoService.actualizarProducto("p1", edicion(producto, EstadoProducto.VENDIDO)));
+
+            Producto guardado = enMongo("p1");
+            assertAll(
+                    () -> assertEquals(60.0, guardado.getPrecio()),
+                    () -> assertEquals(EstadoProducto.RESERVADO, guardado.getEstado()),
+                    () -> assertEquals(1L, guardado.getPedidoId())
+            );
+        }
+
+        @Test
+        @DisplayName("Un producto vendido a un pedido no vuelve a DISPONIBLE desde el catálogo")
+        void edicion_vendidoNoVuelveADisponible() {
+            Producto producto = guardar("p1", EstadoProducto.VENDIDO, 1L, null);
+            servicio(leido -> { });
+
+            assertThrows(ProductoNoDisponible.class,
+                    () -> productoService.actualizarProducto("p1", edicion(producto, EstadoProducto.DISPONIBLE)));
+
+            assertAll(
+                    () -> assertEquals(EstadoProducto.VENDIDO, enMongo("p1").getEstado()),
+                    () -> assertEquals(1L, enMongo("p1").getPedidoId())
+            );
+        }
+    }
+}
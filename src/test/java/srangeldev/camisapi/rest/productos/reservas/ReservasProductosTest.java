@@ -0,0 +1,197 @@
+package srangeldev.camisapi.rest.productos.reservas;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.rest.productos.cache.ProductoCacheInvalidator;
+import srangeldev.camisapi.rest.productos.dto.ProductoResponseDTO;
+import srangeldev.camisapi.rest.productos.exceptions.ProductoNoDisponible;
+import srangeldev.camisapi.rest.productos.mapper.ProductoMapper;
+import srangeldev.camisapi.rest.productos.models.EstadoProducto;
+import srangeldev.camisapi.rest.productos.models.Producto;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Qué publica y deshace cada operación según lo que Mongo dice que cambió. La semántica de los filtros
+ * y la concurrencia se prueban contra un mongod real en {@link ReservasProductosIT}.
+ */
+@DisplayName("Tests de las reservas de productos")
+class ReservasProductosTest {
+
+    private final MongoOperations mongo = mock(MongoOperations.class);
+    private final ProductoCacheInvalidator cacheInvalidator = mock(ProductoCacheInvalidator.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private ReservasProductos reservas;
+
+    /**
+     * Lo que devuelve findAndModify para cada producto (el documento antes del cambio), en orden de llamada
+     */
+    private final Map<String, List<Producto>> anteriores = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(mongo.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class), eq(Producto.class)))
+                .thenAnswer(invocation -> {
+                    Object id = invocation.getArgument(0, Query.class).getQueryObject().get(ReservasProductos.ID);
+                    List<Producto> pendientes = anteriores.getOrDefault(id, List.of());
+                    if (pendientes.isEmpty()) {
+                        return null;
+                    }
+                    anteriores.put((String) id, pendientes.subList(1, pendientes.size()));
+                    return pendientes.getFirst();
+                });
+        reservas = new ReservasProductos(mongo, cacheInvalidator, new ReservasProperties(), eventPublisher, new ProductoMapper());
+    }
+
+    private static Producto producto(String id, EstadoProducto estado, Long pedidoId) {
+        return Producto.builder()
+                .id(id).nombre("Camiseta " + id).equipo("Betis").talla("M").precio(60.0)
+                .estado(estado).pedidoId(pedidoId)
+                .reservadoHasta(estado == EstadoProducto.RESERVADO ? LocalDateTime.now().plusMinutes(5) : null)
+                .build();
+    }
+
+    /**
+     * Mongo cambia el producto desde cada uno de estos estados, en llamadas sucesivas
+     */
+    private void cambiaDesde(String id, Producto... estados) {
+        anteriores.put(id, List.of(estados));
+    }
+
+    private List<CambioEvento> publicados() {
+        ArgumentCaptor<CambioEvento> eventos = ArgumentCaptor.forClass(CambioEvento.class);
+        verify(eventPublisher, atLeast(0)).publishEvent(eventos.capture());
+        return eventos.getAllValues();
+    }
+
+    private List<String> estadosPublicados(String id) {
+        return publicados().stream()
+                .filter(evento -> evento.getId().equals(id))
+                .map(evento -> ((ProductoResponseDTO) evento.getDatos()).getEstado().name())
+                .toList();
+    }
+
+    @Nested
+    @DisplayName("reservar")
+    class Reservar {
+
+        @Test
+        @DisplayName("Publica un evento ACTUALIZADO por cada producto que quedó reservado para el pedido")
+        void reservar_publica() {
+            when(mongo.find(any(Query.class), eq(Producto.class))).thenReturn(List.of(
+                    producto("p1", EstadoProducto.RESERVADO, 1L), producto("p2", EstadoProducto.RESERVADO, 1L)));
+
+            reservas.reservar(1L, List.of(producto("p1", EstadoProducto.DISPONIBLE, null),
+                    producto("p2", EstadoProducto.DISPONIBLE, null)));
+
+            List<CambioEvento> eventos = publicados();
+            assertAll(
+                    () -> assertEquals(2, eventos.size()),
+                    () -> assertEquals(CambioEvento.Operacion.ACTUALIZADO, eventos.getFirst().getOperacion()),
+                    () -> assertEquals("productos", eventos.getFirst().getEntidad()),
+                    () -> assertTrue(eventos.getFirst().getTemas().contains("productos:betis")),
+                    () -> assertEquals(List.of("RESERVADO"), estadosPublicados("p1")),
+                    () -> verify(cacheInvalidator).invalidar(any(Producto[].class))
+            );
+        }
+
+        @Test
+        @DisplayName("Si algún producto leído ya no estaba disponible, falla sin ir a Mongo ni publicar nada")
+        void reservar_noDisponibleAlLeer() {
+            List<Producto> productos = List.of(producto("p1", EstadoProducto.DISPONIBLE, null),
+                    producto("p2", EstadoProducto.VENDIDO, 9L));
+
+            ProductoNoDisponible ex = assertThrows(ProductoNoDisponible.class, () -> reservas.reservar(1L, productos));
+
+            assertAll(
+                    () -> assertTrue(ex.getMessage().contains("p2")),
+                    () -> verifyNoInteractions(mongo, eventPublisher)
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("vender")
+    class Vender {
+
+        @Test
+        @DisplayName("Lo que ya estaba vendido al pedido no publica evento")
+        void vender_yaVendido() {
+            cambiaDesde("p1", producto("p1", EstadoProducto.RESERVADO, 1L));
+            cambiaDesde("p2", producto("p2", EstadoProducto.VENDIDO, 1L));
+
+            reservas.vender(1L, List.of("p1", "p2"));
+
+            assertAll(
+                    () -> assertEquals(List.of("VENDIDO"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of(), estadosPublicados("p2"))
+            );
+        }
+
+        @Test
+        @DisplayName("Si falla, devuelve a su estado anterior solo los productos que cambió esta llamada")
+        void vender_falloDeshaceSoloLoCambiado() {
+            cambiaDesde("p1", producto("p1", EstadoProducto.DISPONIBLE, null), producto("p1", EstadoProducto.VENDIDO, 1L));
+            cambiaDesde("p2", producto("p2", EstadoProducto.VENDIDO, 1L));
+            // p3 es de otro pedido: findAndModify no lo encuentra
+
+            assertThrows(ProductoNoDisponible.class, () -> reservas.vender(1L, List.of("p1", "p2", "p3")));
+
+            ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+            ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+            verify(mongo, times(4)).findAndModify(queries.capture(), updates.capture(), any(FindAndModifyOptions.class), eq(Producto.class));
+            Document deshacer = queries.getAllValues().getLast().getQueryObject();
+            Document vuelta = updates.getAllValues().getLast().getUpdateObject();
+            assertAll(
+                    () -> assertEquals("p1", deshacer.get(ReservasProductos.ID)),
+                    () -> assertEquals("VENDIDO", deshacer.get(ReservasProductos.ESTADO)),
+                    // Estaba libre: vuelve a DISPONIBLE, no a RESERVADO
+                    () -> assertEquals("DISPONIBLE", vuelta.get("$set", Document.class).get(ReservasProductos.ESTADO)),
+                    () -> assertTrue(vuelta.get("$unset", Document.class).containsKey(ReservasProductos.PEDIDO)),
+                    () -> assertEquals(List.of("VENDIDO", "DISPONIBLE"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of(), estadosPublicados("p2"))
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("liberarLote")
+    class LiberarLote {
+
+        @Test
+        @DisplayName("Invalida y publica de una vez solo las reservas caducadas que liberó")
+        void liberarLote_publicaEnLote() {
+            when(mongo.find(any(Query.class), eq(Producto.class))).thenReturn(List.of(
+                    producto("p1", EstadoProducto.RESERVADO, 1L), producto("p2", EstadoProducto.RESERVADO, 2L)));
+            cambiaDesde("p1", producto("p1", EstadoProducto.RESERVADO, 1L));
+            // p2 se pagó entre la búsqueda y la liberación
+
+            int liberadas = reservas.liberarLote();
+
+            assertAll(
+                    () -> assertEquals(1, liberadas),
+                    () -> assertEquals(List.of("DISPONIBLE"), estadosPublicados("p1")),
+                    () -> assertEquals(List.of(), estadosPublicados("p2")),
+                    () -> verify(cacheInvalidator, times(1)).invalidar(any(Producto[].class))
+            );
+        }
+    }
+}
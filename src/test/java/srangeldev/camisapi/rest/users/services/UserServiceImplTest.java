@@ -9,6 +9,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
 import srangeldev.camisapi.rest.users.dto.UserCreateRequestDto;
 import srangeldev.camisapi.rest.users.dto.UserResponseDto;
 import srangeldev.camisapi.rest.users.dto.UserUpdateRequestDto;
@@ -18,7 +21,8 @@ import srangeldev.camisapi.rest.users.mappers.UserMapper;
 import srangeldev.camisapi.rest.users.models.Rol;
 import srangeldev.camisapi.rest.users.models.User;
 import srangeldev.camisapi.rest.users.repositories.UserRepository;
-import srangeldev.camisapi.websocket.config.MyWebSocketHandler;
+import srangeldev.camisapi.secuencias.AsignadorSecuencias;
+import srangeldev.camisapi.security.PrincipalCache;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
@@ -29,6 +33,7 @@ import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,7 +47,13 @@ class UserServiceImplTest {
     private UserMapper userMapper;
 
     @Mock
-    private MyWebSocketHandler myWebSocketHandler;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private AsignadorSecuencias asignadorSecuencias;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -92,6 +103,12 @@ class UserServiceImplTest {
                 .build();
     }
 
+    private CambioEvento eventoPublicado() {
+        ArgumentCaptor<CambioEvento> captor = ArgumentCaptor.forClass(CambioEvento.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        return captor.getValue();
+    }
+
     @Nested
     @DisplayName("FindAll Tests")
     class FindAllTests {
@@ -112,7 +129,8 @@ class UserServiceImplTest {
                     () -> assertEquals(1, result.size()),
                     () -> assertEquals(userResponseDto, result.get(0)),
                     () -> verify(userRepository, times(1)).findAll(),
-                    () -> verify(userMapper, times(1)).toUsuarioResponseDto(user)
+                    () -> verify(userMapper, times(1)).toUsuarioResponseDto(user),
+                    () -> verifyNoInteractions(eventPublisher)
             );
         }
 
@@ -154,7 +172,8 @@ class UserServiceImplTest {
                     () -> assertNotNull(result),
                     () -> assertEquals(userResponseDto, result),
                     () -> verify(userRepository, times(1)).findByIdUsuario(userId),
-                    () -> verify(userMapper, times(1)).toUsuarioResponseDto(user)
+                    () -> verify(userMapper, times(1)).toUsuarioResponseDto(user),
+                    () -> verifyNoInteractions(eventPublisher)
             );
         }
 
@@ -175,6 +194,42 @@ class UserServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("FindAllByIds Tests")
+    class FindAllByIdsTests {
+
+        @Test
+        @DisplayName("Debe buscar todos los usuarios en una sola consulta")
+        void findAllByIds_ShouldUseSingleQuery() {
+            // Arrange
+            List<Long> ids = List.of(userId, 99L);
+            when(userRepository.findByIdUsuarioIn(ids)).thenReturn(List.of(user));
+            when(userMapper.toUsuarioResponseDto(user)).thenReturn(userResponseDto);
+
+            // Act
+            List<UserResponseDto> result = userService.findAllByIds(ids);
+
+            // Assert
+            assertAll(
+                    () -> assertEquals(List.of(userResponseDto), result),
+                    () -> verify(userRepository, times(1)).findByIdUsuarioIn(ids),
+                    () -> verify(userRepository, never()).findByIdUsuario(any())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("FindPage Tests")
+    class FindPageTests {
+
+        @Test
+        @DisplayName("Debe lanzar UserBadRequest con un cursor inválido")
+        void findPage_ShouldRejectInvalidCursor() {
+            assertThrows(UserBadRequest.class, () -> userService.findPage("no-es-un-cursor", 10));
+            verifyNoInteractions(userRepository);
+        }
+    }
+
     @Nested
     @DisplayName("FindByNombre Tests")
     class FindByNombreTests {
@@ -224,7 +279,7 @@ class UserServiceImplTest {
                     .updatedAt(LocalDateTime.now())
                     .build();
 
-            when(userRepository.findFirstByOrderByIdUsuarioDesc()).thenReturn(Optional.empty()); // No hay usuarios, ID será 1
+            when(asignadorSecuencias.siguiente(eq(UserServiceImpl.SECUENCIA), any())).thenReturn(1L);
             when(userRepository.findByUsername(userCreateRequestDto.getUsername())).thenReturn(Optional.empty());
             when(userMapper.toUsuario(userCreateRequestDto)).thenReturn(userToSave);
             when(userRepository.save(any(User.class))).thenReturn(savedUser);
@@ -240,7 +295,8 @@ class UserServiceImplTest {
             assertAll(
                     () -> assertNotNull(result),
                     () -> assertEquals(userResponseDto, result),
-                    () -> verify(userRepository, times(1)).findFirstByOrderByIdUsuarioDesc(),
+                    () -> verify(asignadorSecuencias, times(1)).siguiente(eq(UserServiceImpl.SECUENCIA), any()),
+                    () -> verify(userRepository, never()).findFirstByOrderByIdUsuarioDesc(),
                     () -> verify(userRepository, times(1)).findByUsername(userCreateRequestDto.getUsername()),
                     () -> verify(userMapper, times(1)).toUsuario(userCreateRequestDto),
                     () -> verify(userRepository, times(1)).save(userCaptor.capture()),
@@ -252,6 +308,15 @@ class UserServiceImplTest {
                     () -> assertNotNull(userCaptor.getValue().getCreatedAt()),
                     () -> assertNotNull(userCaptor.getValue().getUpdatedAt())
             );
+
+            CambioEvento evento = eventoPublicado();
+            assertAll(
+                    () -> assertEquals("usuarios", evento.getEntidad()),
+                    () -> assertEquals("1", evento.getId()),
+                    () -> assertEquals(Operacion.CREADO, evento.getOperacion()),
+                    () -> assertNull(evento.getDatos()),
+                    () -> assertEquals(Set.of("usuarios"), evento.getTemas())
+            );
         }
 
         @Test
@@ -301,7 +366,11 @@ class UserServiceImplTest {
                     // Verificar que los campos se actualizaron ANTES de guardar
                     () -> assertEquals(userUpdateRequestDto.getNombre(), userCaptor.getValue().getNombre()),
                     () -> assertEquals(userUpdateRequestDto.getUsername(), userCaptor.getValue().getUsername()),
-                    () -> assertEquals(userUpdateRequestDto.getRoles(), userCaptor.getValue().getRoles())
+                    () -> assertEquals(userUpdateRequestDto.getRoles(), userCaptor.getValue().getRoles()),
+                    // El usuario autenticado en caché se invalida con el username anterior y el nuevo
+                    () -> verify(principalCache).invalidar("testuser"),
+                    () -> verify(principalCache).invalidar("updateduser"),
+                    () -> assertEquals(Operacion.ACTUALIZADO, eventoPublicado().getOperacion())
             );
         }
 
@@ -435,6 +504,8 @@ class UserServiceImplTest {
             // Assert
             verify(userRepository, times(1)).findByIdUsuario(userId);
             verify(userRepository, times(1)).deleteById(user.get_id());
+            verify(principalCache).invalidar("testuser");
+            assertEquals(Operacion.ELIMINADO, eventoPublicado().getOperacion());
         }
 
         @Test
@@ -450,6 +521,7 @@ class UserServiceImplTest {
 
             verify(userRepository, times(1)).findByIdUsuario(userId);
             verify(userRepository, never()).deleteById(any());
+            verifyNoInteractions(eventPublisher);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package srangeldev.camisapi.secuencias;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsignadorSecuenciasTest {
+
+    private static final String SECUENCIA = "usuarios";
+    private static final LongSupplier SIN_SEMILLA = () -> {
+        throw new AssertionError("No debería consultar la semilla si el contador existe");
+    };
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SecuenciaProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SecuenciaProperties();
+        properties.setTamanoBloque(50);
+    }
+
+    private void contadorDevuelve(Document... valores) {
+        var stub = when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq("contadores")));
+        for (Document valor : valores) {
+            stub = stub.thenReturn(valor);
+        }
+    }
+
+    /**
+     * Contador en memoria que se comporta como findAndModify {$inc} con returnNew.
+     */
+    private void contadorAtomico(MongoTemplate template, AtomicLong contador) {
+        when(template.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Document.class), eq("contadores")))
+                .thenAnswer(inv -> new Document("valor", contador.addAndGet(properties.getTamanoBloque())));
+    }
+
+    @Nested
+    @DisplayName("Reparto por bloques")
+    class RepartoPorBloques {
+
+        @Test
+        @DisplayName("Debe repartir un bloque entero desde memoria con una sola ida a Mongo")
+        void unaIdaPorBloque() {
+            contadorDevuelve(new Document("valor", 50), new Document("valor", 100));
+            AsignadorSecuencias asignador = new AsignadorSecuencias(mongoTemplate, properties);
+
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 51; i++) {
+                ids.add(asignador.siguiente(SECUENCIA, SIN_SEMILLA));
+            }
+
+            assertAll(
+                    () -> assertEquals(1L, ids.getFirst()),
+                    () -> assertEquals(50L, ids.get(49)),
+                    () -> assertEquals(51L, ids.getLast())
+            );
+            verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(UpdateDefinition.class),
+                    any(FindAndModifyOptions.class), eq(Document.class), eq("contadores"));
+        }
+
+        @Test
+        @DisplayName("Debe incrementar el contador en el tamaño del bloque")
+        void incrementaTamanoBloque() {
+            contadorDevuelve(new Document("valor", 50));
+            AsignadorSecuencias asignador = new AsignadorSecuencias(mongoTemplate, properties);
+
+            asignador.siguiente(SECUENCIA, SIN_SEMILLA);
+
+            ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+            ArgumentCaptor<FindAndModifyOptions> opciones = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+            verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), opciones.capture(), eq(Document.class), eq("contadores"));
+            assertAll(
+                    () -> assertEquals(new Document("$inc", new Document("valor", 50)), update.getValue().getUpdateObject()),
+                    () -> assertTrue(opciones.getValue().isReturnNew())
+            );
+        }
+
+        @Test
+        @DisplayName("Debe rechazar un tamaño de bloque menor que 1")
+        void tamanoBloqueInvalido() {
+            properties.setTamanoBloque(0);
+            assertThrows(IllegalArgumentException.class, () -> new AsignadorSecuencias(mongoTemplate, properties));
+        }
+    }
+
+    @Nested
+    @DisplayName("Siembra del contador")
+    class Siembra {
+
+        @Test
+        @DisplayName("Debe sembrar con $max el último id existente si el contador no existe")
+        void siembraConMax() {
+            contadorDevuelve(null, new Document("valor", 57));
+            AsignadorSecuencias asignador = new AsignadorSecuencias(mongoTemplate, properties);
+
+            long id = asignador.siguiente(SECUENCIA, () -> 7L);
+
+            ArgumentCaptor<Update> siembra = ArgumentCaptor.forClass(Update.class);
+            verify(mongoTemplate).upsert(any(Query.class), siembra.capture(), eq("contadores"));
+            assertAll(
+                    () -> assertEquals(8L, id),
+                    () -> assertEquals(new Document("$max", new Document("valor", 7L)), siembra.getValue().getUpdateObject())
+            );
+        }
+
+        @Test
+        @DisplayName("No debe consultar la semilla si el contador ya existe")
+        void sinSiembra() {
+            contadorDevuelve(new Document("valor", 150));
+            AsignadorSecuencias asignador = new AsignadorSecuencias(mongoTemplate, properties);
+
+            assertEquals(101L, asignador.siguiente(SECUENCIA, SIN_SEMILLA));
+            verify(mongoTemplate, never()).upsert(any(Query.class), any(UpdateDefinition.class), any(String.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrencia")
+    class Concurrencia {
+
+        @Test
+        @DisplayName("Debe dar ids únicos a muchos hilos y réplicas que comparten el contador")
+        void idsUnicos() throws Exception {
+            AtomicLong contador = new AtomicLong();
+            MongoTemplate otraReplica = mock(MongoTemplate.class);
+            contadorAtomico(mongoTemplate, contador);
+            contadorAtomico(otraReplica, contador);
+            List<AsignadorSecuencias> replicas = List.of(
+                    new AsignadorSecuencias(mongoTemplate, properties),
+                    new AsignadorSecuencias(otraReplica, properties));
+
+            Set<Long> ids = ConcurrentHashMap.newKeySet();
+            int hilos = 8;
+            int porHilo = 1_000;
+            List<Future<?>> tareas = new ArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(hilos)) {
+                for (int h = 0; h < hilos; h++) {
+                    AsignadorSecuencias asignador = replicas.get(h % replicas.size());
+                    tareas.add(executor.submit(() -> {
+                        for (int i = 0; i < porHilo; i++) {
+                            assertTrue(ids.add(asignador.siguiente(SECUENCIA, SIN_SEMILLA)), "id repetido");
+                        }
+                    }));
+                }
+                for (Future<?> tarea : tareas) {
+                    tarea.get();
+                }
+            }
+
+            assertAll(
+                    () -> assertEquals(hilos * porHilo, ids.size()),
+                    // Cada réplica deja como mucho un bloque a medio usar
+                    () -> assertTrue(contador.get() <= (long) hilos * porHilo + 2L * properties.getTamanoBloque())
+            );
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package srangeldev.camisapi.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import srangeldev.camisapi.cache.CacheInvalidationBus;
+import srangeldev.camisapi.rest.users.models.Rol;
+import srangeldev.camisapi.rest.users.models.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tests de JwtAuthenticationFilter")
+class JwtAuthenticationFilterTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil("claveDePruebas", 3600);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final PrincipalCacheProperties properties = new PrincipalCacheProperties();
+    private JwtAuthenticationFilter filter;
+
+    private final User usuario = User.builder()
+            .idUsuario(1L)
+            .username("admin")
+            .password("secreto")
+            .roles(Set.of(Rol.ADMIN))
+            .build();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<CacheInvalidationBus> sinBus = mock(ObjectProvider.class);
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService, new PrincipalCache(properties, sinBus), properties);
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(usuario);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest request;
+
+    private Optional<Authentication> peticion(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        request = new MockHttpServletRequest("GET", "/api/productos");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    @DisplayName("Debería consultar el usuario solo en la primera petición con el mismo token")
+    void usuarioEnCache() throws Exception {
+        String token = jwtUtil.generateToken(usuario);
+
+        for (int i = 0; i < 5; i++) {
+            Authentication autenticacion = peticion(token).orElseThrow();
+            assertSame(usuario, autenticacion.getPrincipal());
+        }
+
+        verify(userDetailsService, times(1)).loadUserByUsername("admin");
+    }
+
+    @Test
+    @DisplayName("Debería dejar los claims verificados en la petición para los controladores")
+    void claimsEnLaPeticion() throws Exception {
+        peticion(jwtUtil.generateToken(usuario));
+
+        JwtClaims claims = (JwtClaims) request.getAttribute(JwtClaims.ATRIBUTO);
+        assertAll(
+                () -> assertEquals("admin", claims.getUsername()),
+                () -> assertEquals(List.of("ROLE_ADMIN"), claims.getAuthorities()),
+                () -> assertTrue(claims.getVersion() > 0),
+                () -> assertTrue(claims.getExpiresAt().isAfter(claims.getIssuedAt()))
+        );
+    }
+
+    @Test
+    @DisplayName("Un token caducado o firmado con otra clave no debería verificarse")
+    void tokenCaducadoOAjeno() {
+        String caducado = new JwtUtil("claveDePruebas", -10).generateToken(usuario);
+        String ajeno = new JwtUtil("otraClave", 3600).generateToken(usuario);
+
+        assertAll(
+                () -> assertTrue(jwtUtil.verificar(caducado).isEmpty()),
+                () -> assertTrue(jwtUtil.verificar(ajeno).isEmpty()),
+                () -> assertTrue(jwtUtil.verificar(jwtUtil.generateToken(usuario)).isPresent())
+        );
+    }
+
+    @Test
+    @DisplayName("Con stateless-authorities debería tomar los roles del token sin consultar el usuario")
+    void rolesDelToken() throws Exception {
+        properties.setStatelessAuthorities(true);
+        String token = jwtUtil.generateToken(usuario);
+
+        Authentication autenticacion = peticion(token).orElseThrow();
+
+        assertAll(
+                () -> assertEquals("admin", autenticacion.getName()),
+                () -> assertEquals(Set.of("ROLE_ADMIN"), Set.copyOf(autenticacion.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority).toList())),
+                () -> verifyNoInteractions(userDetailsService)
+        );
+    }
+
+    @Test
+    @DisplayName("Un token inválido no debería autenticar ni consultar el usuario")
+    void tokenInvalido() throws Exception {
+        assertTrue(peticion("no-es-un-token").isEmpty());
+        assertNull(request.getAttribute(JwtClaims.ATRIBUTO));
+        verifyNoInteractions(userDetailsService);
+    }
+}
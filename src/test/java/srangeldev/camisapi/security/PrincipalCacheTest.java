@@ -0,0 +1,95 @@
+package srangeldev.camisapi.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import srangeldev.camisapi.cache.CacheInvalidationBus;
+import srangeldev.camisapi.cache.CacheInvalidationMessage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tests de PrincipalCache")
+class PrincipalCacheTest {
+
+    private final PrincipalCacheProperties properties = new PrincipalCacheProperties();
+    private final AtomicInteger cargas = new AtomicInteger();
+    private final Function<String, UserDetails> cargador = username -> {
+        cargas.incrementAndGet();
+        return User.withUsername(username).password("x").roles("USER").build();
+    };
+
+    private PrincipalCache cache;
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<CacheInvalidationBus> proveedor(CacheInvalidationBus bus) {
+        ObjectProvider<CacheInvalidationBus> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(bus);
+        return provider;
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new PrincipalCache(properties, proveedor(null));
+    }
+
+    @Test
+    @DisplayName("Debería cargar el usuario una sola vez por username y versión")
+    void cargarUnaVez() {
+        UserDetails primero = cache.obtener("ana", 1, cargador);
+        UserDetails segundo = cache.obtener("ana", 1, cargador);
+        cache.obtener("ana", 2, cargador);
+
+        assertAll(
+                () -> assertSame(primero, segundo),
+                () -> assertEquals(2, cargas.get())
+        );
+    }
+
+    @Test
+    @DisplayName("invalidar debería olvidar todas las versiones del usuario y solo las suyas")
+    void invalidarUsuario() {
+        cache.obtener("ana", 1, cargador);
+        cache.obtener("ana", 2, cargador);
+        cache.obtener("luis", 1, cargador);
+
+        cache.invalidar("ana");
+        cache.obtener("ana", 1, cargador);
+        cache.obtener("luis", 1, cargador);
+
+        assertEquals(4, cargas.get());
+    }
+
+    @Test
+    @DisplayName("Debería publicar sus invalidaciones y aplicar las de otras réplicas")
+    void invalidacionEntreReplicas() {
+        CacheInvalidationBus bus = mock(CacheInvalidationBus.class);
+        AtomicReference<Consumer<CacheInvalidationMessage>> receptor = new AtomicReference<>();
+        doAnswer(inv -> {
+            receptor.set(inv.getArgument(0));
+            return null;
+        }).when(bus).suscribir(any());
+        PrincipalCache conBus = new PrincipalCache(properties, proveedor(bus));
+        conBus.obtener("ana", 1, cargador);
+
+        conBus.invalidar("luis");
+        receptor.get().accept(new CacheInvalidationMessage("otro-nodo", "productos-id", "ana"));
+        conBus.obtener("ana", 1, cargador);
+        receptor.get().accept(new CacheInvalidationMessage("otro-nodo", PrincipalCache.NOMBRE, "ana"));
+        conBus.obtener("ana", 1, cargador);
+
+        assertAll(
+                () -> verify(bus).publicar(PrincipalCache.NOMBRE, "luis"),
+                () -> assertEquals(2, cargas.get())
+        );
+    }
+}
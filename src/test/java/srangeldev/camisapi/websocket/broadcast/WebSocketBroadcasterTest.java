@@ -0,0 +1,279 @@
+package srangeldev.camisapi.websocket.broadcast;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tests de WebSocketBroadcaster")
+class WebSocketBroadcasterTest {
+
+    private static final Set<String> TEMAS = Set.of("productos");
+
+    private WebSocketBroadcastProperties properties;
+    private WebSocketBroadcaster broadcaster;
+    private final CountDownLatch liberar = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        properties = new WebSocketBroadcastProperties();
+        properties.setCoalesceWindow(Duration.ofMillis(200));
+        properties.setBufferSizeLimit(DataSize.ofBytes(64));
+        properties.setSendTimeLimit(Duration.ofSeconds(30));
+        broadcaster = new WebSocketBroadcaster(properties);
+        broadcaster.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        broadcaster.detener();
+    }
+
+    /**
+     * Registra la sesión suscrita a "productos"
+     */
+    private void registrar(WebSocketSession sesion) {
+        broadcaster.registrar(sesion);
+        broadcaster.suscribir(sesion, TEMAS);
+    }
+
+    /**
+     * Sesión que guarda los mensajes recibidos
+     */
+    private WebSocketSession sesion(String id, List<String> recibidos) throws Exception {
+        WebSocketSession sesion = mock(WebSocketSession.class);
+        when(sesion.getId()).thenReturn(id);
+        when(sesion.isOpen()).thenReturn(true);
+        doAnswer(inv -> recibidos.add(inv.<TextMessage>getArgument(0).getPayload())).when(sesion).sendMessage(any());
+        return sesion;
+    }
+
+    /**
+     * Sesión cuyo socket no avanza hasta que termina el test
+     */
+    private WebSocketSession sesionBloqueada(String id) throws Exception {
+        WebSocketSession sesion = mock(WebSocketSession.class);
+        when(sesion.getId()).thenReturn(id);
+        when(sesion.isOpen()).thenReturn(true);
+        doAnswer(inv -> liberar.await(10, TimeUnit.SECONDS)).when(sesion).sendMessage(any());
+        return sesion;
+    }
+
+    private void esperar(Executable condicion) throws Throwable {
+        long limite = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                condicion.execute();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > limite) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("publicar debería volver sin esperar a los clientes")
+    void publicarNoBloquea() throws Exception {
+        registrar(sesionBloqueada("lento"));
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(broadcaster.publicar("m" + i, "mensaje " + i, TEMAS));
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 1000);
+    }
+
+    @Test
+    @DisplayName("Debería fusionar una ráfaga: una entrega por clave con el último contenido")
+    void fusionarRafaga() throws Throwable {
+        List<String> recibidos = new CopyOnWriteArrayList<>();
+        registrar(sesion("cliente", recibidos));
+
+        broadcaster.publicar("producto:1", "v1", TEMAS);
+        broadcaster.publicar("producto:2", "otro", TEMAS);
+        broadcaster.publicar("producto:1", "v2", TEMAS);
+        broadcaster.publicar("producto:1", "v3", TEMAS);
+
+        esperar(() -> assertEquals(List.of("v3", "otro"), recibidos));
+        assertEquals(2, broadcaster.getFusionados());
+    }
+
+    @Test
+    @DisplayName("Debería desconectar a un cliente lento sin frenar a los demás")
+    void desconectarClienteLento() throws Throwable {
+        properties.setCoalesceWindow(Duration.ZERO);
+        WebSocketSession lento = sesionBloqueada("lento");
+        List<String> recibidos = new CopyOnWriteArrayList<>();
+        registrar(lento);
+        registrar(sesion("rapido", recibidos));
+
+        for (int i = 0; i < 20; i++) {
+            broadcaster.publicar("m" + i, "mensaje número " + i, TEMAS);
+            Thread.sleep(10);
+        }
+
+        esperar(() -> verify(lento).close(CloseStatus.SESSION_NOT_RELIABLE));
+        esperar(() -> assertEquals(20, recibidos.size()));
+        assertAll(
+                () -> assertEquals(1, broadcaster.getDesconectados()),
+                () -> assertEquals(1, broadcaster.sesionesActivas())
+        );
+    }
+
+    @Test
+    @DisplayName("Debería entregar a cada sesión en orden aunque varios hilos de envío estén libres")
+    void ordenPorSesion() throws Throwable {
+        properties.setCoalesceWindow(Duration.ZERO);
+        properties.setBufferSizeLimit(DataSize.ofKilobytes(64));
+        List<String> recibidos = new CopyOnWriteArrayList<>();
+        List<Integer> simultaneos = new CopyOnWriteArrayList<>();
+        java.util.concurrent.atomic.AtomicInteger enCurso = new java.util.concurrent.atomic.AtomicInteger();
+        WebSocketSession sesion = mock(WebSocketSession.class);
+        when(sesion.getId()).thenReturn("cliente");
+        when(sesion.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            simultaneos.add(enCurso.incrementAndGet());
+            Thread.sleep(2);
+            recibidos.add(inv.<TextMessage>getArgument(0).getPayload());
+            enCurso.decrementAndGet();
+            return null;
+        }).when(sesion).sendMessage(any());
+        registrar(sesion);
+
+        List<String> enviados = new java.util.ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            enviados.add("v" + i);
+            broadcaster.publicar("producto:" + i, "v" + i, TEMAS);
+            Thread.sleep(1);
+        }
+
+        esperar(() -> assertEquals(enviados, recibidos));
+        assertTrue(simultaneos.stream().allMatch(n -> n == 1));
+    }
+
+    @Test
+    @DisplayName("Con hilos virtuales debería enviar cada lote en un hilo virtual sin frenar a los demás clientes")
+    void enviarConHilosVirtuales() throws Throwable {
+        broadcaster.detener();
+        properties.setVirtualThreads(true);
+        properties.setSendThreads(1);
+        properties.setCoalesceWindow(Duration.ZERO);
+        broadcaster = new WebSocketBroadcaster(properties);
+        broadcaster.iniciar();
+        List<Boolean> virtuales = new CopyOnWriteArrayList<>();
+        WebSocketSession rapido = sesion("rapido", new CopyOnWriteArrayList<>());
+        doAnswer(inv -> virtuales.add(Thread.currentThread().isVirtual())).when(rapido).sendMessage(any());
+        registrar(sesionBloqueada("lento"));
+        registrar(rapido);
+
+        broadcaster.publicar("m", "mensaje", TEMAS);
+
+        // Con un único hilo de plataforma el cliente bloqueado podría dejar sin servir al rápido
+        esperar(() -> assertEquals(List.of(true), virtuales));
+    }
+
+    @Test
+    @DisplayName("Debería quitar las sesiones cerradas sin enviarles nada")
+    void sesionCerrada() throws Throwable {
+        WebSocketSession cerrada = mock(WebSocketSession.class);
+        when(cerrada.getId()).thenReturn("cerrada");
+        when(cerrada.isOpen()).thenReturn(false);
+        registrar(cerrada);
+
+        broadcaster.publicar("m", "mensaje", TEMAS);
+
+        esperar(() -> assertEquals(0, broadcaster.sesionesActivas()));
+        verify(cerrada, never()).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("Solo debería escribir a las sesiones suscritas a alguno de los temas del mensaje")
+    void entregarPorTema() throws Throwable {
+        List<String> betis = new CopyOnWriteArrayList<>();
+        List<String> todos = new CopyOnWriteArrayList<>();
+        WebSocketSession sinSuscripcion = sesion("nada", new CopyOnWriteArrayList<>());
+        WebSocketSession suscritoBetis = sesion("betis", betis);
+        WebSocketSession suscritoTodos = sesion("todos", todos);
+        broadcaster.registrar(sinSuscripcion);
+        broadcaster.registrar(suscritoBetis);
+        broadcaster.registrar(suscritoTodos);
+        broadcaster.suscribir(suscritoBetis, Set.of("productos:real betis"));
+        broadcaster.suscribir(suscritoTodos, TEMAS);
+
+        broadcaster.publicar("productos:1", "betis", Set.of("productos", "productos:real betis"));
+        broadcaster.publicar("productos:2", "sevilla", Set.of("productos", "productos:sevilla fc"));
+
+        esperar(() -> assertEquals(List.of("betis", "sevilla"), todos));
+        assertEquals(List.of("betis"), betis);
+        verify(sinSuscripcion, never()).sendMessage(any());
+    }
+
+    @Test
+    @DisplayName("Al fusionar debería entregar el último mensaje a los suscritos a cualquiera de los temas")
+    void fusionarUneTemas() throws Throwable {
+        List<String> recibidos = new CopyOnWriteArrayList<>();
+        WebSocketSession sesion = sesion("betis", recibidos);
+        broadcaster.registrar(sesion);
+        broadcaster.suscribir(sesion, Set.of("productos:real betis"));
+
+        broadcaster.publicar("productos:1", "en el betis", Set.of("productos:real betis"));
+        broadcaster.publicar("productos:1", "ahora en el sevilla", Set.of("productos:sevilla fc"));
+
+        esperar(() -> assertEquals(List.of("ahora en el sevilla"), recibidos));
+    }
+
+    @Test
+    @DisplayName("Debería limitar los temas por sesión y permitir desuscribirse")
+    void limiteDeTemas() throws Exception {
+        properties.setMaxTopicsPerSession(2);
+        WebSocketSession sesion = sesion("cliente", new CopyOnWriteArrayList<>());
+        broadcaster.registrar(sesion);
+
+        assertAll(
+                () -> assertTrue(broadcaster.suscribir(sesion, List.of("a", "b"))),
+                () -> assertTrue(broadcaster.suscribir(sesion, List.of("a"))),
+                () -> assertFalse(broadcaster.suscribir(sesion, List.of("c"))),
+                () -> assertEquals(Set.of("a", "b"), broadcaster.temas(sesion))
+        );
+
+        broadcaster.desuscribir(sesion, List.of("a"));
+        assertTrue(broadcaster.suscribir(sesion, List.of("c")));
+        assertEquals(Set.of("b", "c"), broadcaster.temas(sesion));
+    }
+
+    @Test
+    @DisplayName("Con la cola llena debería descartar el mensaje en lugar de bloquear")
+    void colaLlena() {
+        broadcaster.detener();
+        properties.setQueueCapacity(2);
+        WebSocketBroadcaster sinDespachar = new WebSocketBroadcaster(properties);
+
+        assertAll(
+                () -> assertTrue(sinDespachar.publicar("a", "1", TEMAS)),
+                () -> assertTrue(sinDespachar.publicar("b", "2", TEMAS)),
+                () -> assertFalse(sinDespachar.publicar("c", "3", TEMAS)),
+                () -> assertEquals(1, sinDespachar.getDescartados())
+        );
+    }
+}
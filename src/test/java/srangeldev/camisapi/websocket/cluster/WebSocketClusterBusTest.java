@@ -0,0 +1,166 @@
+package srangeldev.camisapi.websocket.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import srangeldev.camisapi.events.CambioEvento;
+import srangeldev.camisapi.events.CambioEvento.Operacion;
+import srangeldev.camisapi.events.CambioReplicado;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcastProperties;
+import srangeldev.camisapi.websocket.broadcast.WebSocketBroadcaster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tests de WebSocketClusterBus")
+class WebSocketClusterBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WebSocketBroadcastProperties properties = new WebSocketBroadcastProperties();
+
+    private InMemoryClusterTransport red;
+    private final List<String> enviados = new ArrayList<>();
+    private WebSocketBroadcaster broadcasterA;
+    private WebSocketBroadcaster broadcasterB;
+    private ApplicationEventPublisher publisherA;
+    private ApplicationEventPublisher publisherB;
+    private WebSocketClusterBus nodoA;
+    private WebSocketClusterBus nodoB;
+
+    @BeforeEach
+    void setUp() {
+        red = new InMemoryClusterTransport();
+        red.suscribir(enviados::add);
+        broadcasterA = mock(WebSocketBroadcaster.class);
+        broadcasterB = mock(WebSocketBroadcaster.class);
+        publisherA = mock(ApplicationEventPublisher.class);
+        publisherB = mock(ApplicationEventPublisher.class);
+        nodoA = new WebSocketClusterBus(red.unirNodo(), broadcasterA, objectMapper, properties, publisherA);
+        nodoB = new WebSocketClusterBus(red.unirNodo(), broadcasterB, objectMapper, properties, publisherB);
+    }
+
+    private CambioEvento evento(String id, Operacion operacion) {
+        return CambioEvento.de("productos", id, operacion, null, "Real Betis");
+    }
+
+    @Test
+    @DisplayName("Un cambio en una réplica debería llegar una vez a los clientes de cada réplica")
+    void entregarEnTodasLasReplicas() {
+        nodoA.onCambio(evento("1", Operacion.ACTUALIZADO));
+
+        Set<String> temas = Set.of("productos", "productos:real betis");
+        assertAll(
+                () -> assertEquals(1, enviados.size()),
+                () -> verify(broadcasterA, times(1)).publicar(eq("productos:1"), contains("\"operacion\":\"ACTUALIZADO\""), eq(temas)),
+                () -> verify(broadcasterB, times(1)).publicar(eq("productos:1"), contains("\"operacion\":\"ACTUALIZADO\""), eq(temas)),
+                () -> assertEquals(1, nodoA.getEntregados()),
+                () -> assertEquals(1, nodoB.getEntregados())
+        );
+    }
+
+    @Test
+    @DisplayName("Debería descartar un evento repetido")
+    void descartarDuplicados() {
+        nodoA.onCambio(evento("1", Operacion.CREADO));
+
+        red.publicar(enviados.get(0));
+
+        assertAll(
+                () -> verify(broadcasterB, times(1)).publicar(anyString(), anyString(), anySet()),
+                () -> assertEquals(1, nodoB.getDuplicados())
+        );
+    }
+
+    @Test
+    @DisplayName("Debería descartar un evento más antiguo que el último entregado de la misma entidad")
+    void descartarEventosAtrasados() throws Exception {
+        nodoA.onCambio(evento("1", Operacion.ACTUALIZADO));
+        nodoA.onCambio(evento("1", Operacion.ELIMINADO));
+        nodoA.onCambio(evento("2", Operacion.CREADO));
+
+        EventoCluster atrasado = objectMapper.readValue(enviados.get(0), EventoCluster.class);
+        atrasado.setEventoId("otro-id");
+        red.publicar(objectMapper.writeValueAsString(atrasado));
+
+        assertAll(
+                () -> verify(broadcasterB, times(3)).publicar(anyString(), anyString(), anySet()),
+                () -> assertEquals(1, nodoB.getDesordenados()),
+                () -> assertEquals(3, nodoB.getEntregados())
+        );
+    }
+
+    @Test
+    @DisplayName("Los cambios de una entidad en réplicas distintas deberían versionarse con un contador común, no con el reloj")
+    void versionCompartidaEntreReplicas() {
+        CambioEvento enA = evento("1", Operacion.ACTUALIZADO);
+        CambioEvento enB = evento("1", Operacion.ACTUALIZADO);
+        CambioEvento otraEntidad = evento("2", Operacion.CREADO);
+
+        nodoA.onCambio(enA);
+        nodoB.onCambio(enB);
+        nodoB.onCambio(otraEntidad);
+
+        assertAll(
+                () -> assertEquals(1, enA.getVersion()),
+                () -> assertEquals(2, enB.getVersion()),
+                () -> assertEquals(1, otraEntidad.getVersion()),
+                // El cambio posterior se entrega en las dos réplicas sea cual sea la que lo hizo
+                () -> assertEquals(3, nodoA.getEntregados()),
+                () -> assertEquals(3, nodoB.getEntregados()),
+                () -> assertEquals(0, nodoA.getDesordenados() + nodoB.getDesordenados())
+        );
+    }
+
+    @Test
+    @DisplayName("Un cambio de otra réplica debería publicarse dentro de esta como CambioReplicado")
+    void publicarCambioReplicado() {
+        CambioEvento original = evento("7", Operacion.ELIMINADO);
+        nodoA.onCambio(original);
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(publisherB).publishEvent(captor.capture());
+        CambioEvento recibido = ((CambioReplicado) captor.getValue()).getEvento();
+        assertAll(
+                () -> assertEquals("productos", recibido.getEntidad()),
+                () -> assertEquals("7", recibido.getId()),
+                () -> assertEquals(Operacion.ELIMINADO, recibido.getOperacion()),
+                () -> assertEquals(original.getVersion(), recibido.getVersion()),
+                () -> verifyNoInteractions(publisherA)
+        );
+    }
+
+    @Test
+    @DisplayName("Si el transporte falla, los clientes locales deberían recibir el evento igualmente")
+    void transporteCaido() {
+        ClusterTransport caido = mock(ClusterTransport.class);
+        doThrow(new IllegalStateException("Redis caído")).when(caido).publicar(anyString());
+        WebSocketClusterBus nodo = new WebSocketClusterBus(caido, broadcasterA, objectMapper, properties, publisherA);
+
+        assertDoesNotThrow(() -> nodo.onCambio(evento("1", Operacion.CREADO)));
+        verify(broadcasterA).publicar(eq("productos:1"), anyString(), anySet());
+    }
+
+    @Test
+    @DisplayName("Si no se puede obtener la versión, el evento se entrega sin versión y solo se descartan sus repeticiones")
+    void sinVersion() {
+        ClusterTransport sinContador = mock(ClusterTransport.class);
+        when(sinContador.siguienteVersion(anyString())).thenThrow(new IllegalStateException("Redis caído"));
+        WebSocketClusterBus nodo = new WebSocketClusterBus(sinContador, broadcasterA, objectMapper, properties, publisherA);
+
+        nodo.onCambio(evento("1", Operacion.ACTUALIZADO));
+        nodo.onCambio(evento("1", Operacion.ACTUALIZADO));
+
+        assertAll(
+                () -> verify(broadcasterA, times(2)).publicar(eq("productos:1"), contains("\"version\":0"), anySet()),
+                () -> assertEquals(0, nodo.getDesordenados())
+        );
+    }
+}